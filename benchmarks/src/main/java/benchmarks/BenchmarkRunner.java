@@ -0,0 +1,102 @@
+package benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Запуск бенчмарков с профилировщиком сборки мусора и сохранением результатов.
+ * Результаты каждого запуска сохраняются в каталог results/&lt;метка&gt;: полный отчет JMH (results.json)
+ * и краткая таблица (results.csv) с временем и объемом выделенной памяти на операцию,
+ * которую можно сравнить с другой версией при помощи {@link CompareResults}.
+ * <p>
+ * Использование: java -jar target/benchmarks.jar [метка] [регулярное выражение для выбора бенчмарков]
+ */
+public class BenchmarkRunner {
+    // Вторичная метрика GCProfiler: байт выделенной памяти на операцию
+    static final String ALLOC_NORM = "gc.alloc.rate.norm";
+
+    public static void main(String[] args) throws RunnerException, IOException {
+        String label = args.length > 0 ? args[0] : "current";
+        String include = args.length > 1 ? args[1] : "benchmarks\\..*Benchmark";
+
+        Path directory = Path.of("results", label);
+        Files.createDirectories(directory);
+
+        ChainedOptionsBuilder options = new OptionsBuilder()
+                .include(include)
+                .addProfiler(GCProfiler.class)
+                .resultFormat(ResultFormatType.JSON)
+                .result(directory.resolve("results.json").toString());
+
+        Collection<RunResult> results = new Runner(options.build()).run();
+        Path csv = directory.resolve("results.csv");
+        writeCsv(results, csv);
+        System.out.println("Результаты сохранены в " + directory.toAbsolutePath());
+    }
+
+    /**
+     * Сохраняет краткую таблицу результатов.
+     *
+     * @param results результаты JMH
+     * @param file    файл таблицы
+     * @throws IOException если файл не удается записать
+     */
+    private static void writeCsv(Collection<RunResult> results, Path file) throws IOException {
+        // Сортировка по имени, чтобы таблицы разных запусков совпадали построчно
+        Map<String, String> rows = new TreeMap<>();
+        for (RunResult run : results) {
+            Result<?> primary = run.getPrimaryResult();
+            Result<?> alloc = run.getSecondaryResults().get(ALLOC_NORM);
+            String name = benchmarkName(run);
+            rows.put(name, String.format(Locale.ROOT, "%s,%s,%.3f,%.3f,%s,%.1f",
+                    name, run.getParams().getMode().shortLabel(), primary.getScore(), primary.getScoreError(),
+                    primary.getScoreUnit(), alloc != null ? alloc.getScore() : Double.NaN));
+        }
+
+        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(file, StandardCharsets.UTF_8))) {
+            out.println("benchmark,mode,score,error,unit,alloc_bytes_per_op");
+            rows.values().forEach(out::println);
+        }
+    }
+
+    /**
+     * Формирует имя бенчмарка вместе со значениями параметров, например BroadcastBenchmark.broadcastGameState[players=4].
+     *
+     * @param run результат JMH
+     * @return имя бенчмарка
+     */
+    private static String benchmarkName(RunResult run) {
+        String benchmark = run.getParams().getBenchmark();
+        StringBuilder name = new StringBuilder(benchmark.substring(benchmark.indexOf('.') + 1));
+        Collection<String> keys = run.getParams().getParamsKeys();
+        if (!keys.isEmpty()) {
+            name.append('[');
+            boolean first = true;
+            for (String key : keys) {
+                if (!first) {
+                    name.append(';');
+                }
+                name.append(key).append('=').append(run.getParams().getParam(key));
+                first = false;
+            }
+            name.append(']');
+        }
+        return name.toString();
+    }
+}
@@ -0,0 +1,66 @@
+package benchmarks;
+
+import metrics.ServerMetrics;
+import model.GameModel;
+import model.Protocol;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import server.BroadcastService;
+import server.ClientSession;
+import server.ConnectionRegistry;
+import server.PlayerManager;
+import server.ServerConfig;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Рассылка состояния игры всем игрокам комнаты: снимок модели, JSON, кодирование кадра и запись в каналы.
+ * Каналы игроков находятся в памяти и принимают данные целиком, поэтому измеряется только работа сервера.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BroadcastBenchmark {
+    @Param({"2", "4"})
+    public int players;
+
+    private BroadcastService broadcastService;
+    private PlayerManager playerManager;
+    private GameModel model;
+
+    @Setup
+    public void setup() {
+        ServerConfig config = ServerConfig.load();
+        ServerMetrics metrics = new ServerMetrics(Protocol.TYPE_COUNT);
+        ConnectionRegistry registry = new ConnectionRegistry();
+        broadcastService = new BroadcastService(registry, metrics, config);
+        playerManager = new PlayerManager();
+
+        List<String> names = GameFixtures.playerNames(players);
+        model = GameFixtures.midGame(names);
+        for (int i = 0; i < players; i++) {
+            ClientSession session = new ClientSession(new InMemorySocketChannel(), null);
+            session.setId(registry.register(session));
+            session.getRtt().addSample(20_000_000L + i * 7_000_000L);
+            playerManager.addPlayer(session, names.get(i));
+        }
+    }
+
+    @Benchmark
+    public void broadcastGameState() {
+        broadcastService.broadcastGameState("main", playerManager, model, 4, 2);
+    }
+}
@@ -0,0 +1,56 @@
+package benchmarks;
+
+import client.GameStateParser;
+import model.GameModel;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Разбор состояния игры на клиенте (то, что делают GameBoard.updateState и GameView.updateGameState
+ * до передачи данных в поток JavaFX).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ClientParsingBenchmark {
+    private String stateJson;
+
+    @Setup
+    public void setup() {
+        List<String> players = GameFixtures.playerNames(4);
+        GameModel model = GameFixtures.midGame(players);
+        stateJson = GameFixtures.serverStateJson(model, players);
+    }
+
+    @Benchmark
+    public GameStateParser.BoardState parseBoard() {
+        return GameStateParser.parseBoard(stateJson);
+    }
+
+    /**
+     * Полный разбор одного обновления: поле, текущий игрок, очки и время приема-передачи.
+     */
+    @Benchmark
+    public void parseGameState(Blackhole blackhole) {
+        blackhole.consume(GameStateParser.parseBoard(stateJson));
+        blackhole.consume(GameStateParser.isGameStarted(stateJson));
+        blackhole.consume(GameStateParser.parseCurrentPlayer(stateJson));
+        blackhole.consume(GameStateParser.parseScores(stateJson));
+        blackhole.consume(GameStateParser.parseRtt(stateJson));
+    }
+}
@@ -0,0 +1,81 @@
+package benchmarks;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Сравнение двух запусков бенчмарков, сохраненных {@link BenchmarkRunner}.
+ * Для каждого бенчмарка выводит время и выделение памяти на операцию в обоих запусках и изменение в процентах.
+ * <p>
+ * Использование: java -cp target/benchmarks.jar benchmarks.CompareResults results/базовая/results.csv results/новая/results.csv
+ */
+public class CompareResults {
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Использование: CompareResults <базовый results.csv> <новый results.csv>");
+            System.exit(1);
+        }
+
+        Map<String, String[]> base = read(Path.of(args[0]));
+        Map<String, String[]> current = read(Path.of(args[1]));
+
+        System.out.printf(Locale.ROOT, "%-55s %18s %18s %9s %12s %12s %9s%n",
+                "Бенчмарк", "Было", "Стало", "Изм.", "Было, Б/оп", "Стало, Б/оп", "Изм.");
+        for (Map.Entry<String, String[]> entry : current.entrySet()) {
+            String[] after = entry.getValue();
+            String[] before = base.get(entry.getKey());
+            if (before == null) {
+                System.out.printf(Locale.ROOT, "%-55s %18s %18s%n", entry.getKey(), "-", after[2] + " " + after[4]);
+                continue;
+            }
+
+            double scoreBefore = Double.parseDouble(before[2]);
+            double scoreAfter = Double.parseDouble(after[2]);
+            double allocBefore = Double.parseDouble(before[5]);
+            double allocAfter = Double.parseDouble(after[5]);
+            System.out.printf(Locale.ROOT, "%-55s %18s %18s %9s %12.1f %12.1f %9s%n",
+                    entry.getKey(), before[2] + " " + before[4], after[2] + " " + after[4],
+                    change(scoreBefore, scoreAfter), allocBefore, allocAfter, change(allocBefore, allocAfter));
+        }
+    }
+
+    /**
+     * Читает таблицу результатов.
+     *
+     * @param file файл results.csv
+     * @return строки таблицы по имени бенчмарка
+     * @throws IOException если файл не удается прочитать
+     */
+    private static Map<String, String[]> read(Path file) throws IOException {
+        Map<String, String[]> rows = new LinkedHashMap<>();
+        List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+        for (String line : lines.subList(1, lines.size())) {
+            String[] columns = line.split(",");
+            if (columns.length == 6) {
+                rows.put(columns[0], columns);
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Форматирует изменение значения в процентах.
+     *
+     * @param before значение в базовом запуске
+     * @param after  значение в новом запуске
+     * @return изменение, например "-12.5%"
+     */
+    private static String change(double before, double after) {
+        if (Double.isNaN(before) || Double.isNaN(after) || before == 0) {
+            return "-";
+        }
+        return String.format(Locale.ROOT, "%+.1f%%", (after - before) * 100 / before);
+    }
+}
@@ -0,0 +1,121 @@
+package benchmarks;
+
+import model.GameModel;
+import util.JsonUtil;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Общие данные для бенчмарков: модель игры в середине партии и состояние в том виде,
+ * в котором его рассылает сервер.
+ */
+final class GameFixtures {
+    // Количество карточек на поле
+    static final int CARD_COUNT = 36;
+
+    private GameFixtures() {
+    }
+
+    /**
+     * Возвращает имена игроков.
+     *
+     * @param count количество игроков
+     * @return список имен
+     */
+    static List<String> playerNames(int count) {
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            names.add("Игрок" + (i + 1));
+        }
+        return names;
+    }
+
+    /**
+     * Узнает значения всех карточек модели, открывая их по одной.
+     * Модель после вызова остается в исходном состоянии (открытых карточек нет).
+     *
+     * @param model модель игры
+     * @return значения карточек по позициям
+     */
+    @SuppressWarnings("unchecked")
+    static int[] revealValues(GameModel model) {
+        int[] values = new int[CARD_COUNT];
+        for (int position = 0; position < CARD_COUNT; position++) {
+            model.openCard(position);
+            Map<String, String> board = (Map<String, String>) model.getGameState().get("board");
+            String state = board.get(String.valueOf(position));
+            values[position] = state.startsWith("opened_") ? Integer.parseInt(state.substring(7)) : -1;
+            model.clearOpenedCards();
+        }
+        return values;
+    }
+
+    /**
+     * Создает модель игры в середине партии: игра начата, половина пар найдена, очки распределены.
+     *
+     * @param players имена игроков
+     * @return модель игры
+     */
+    static GameModel midGame(List<String> players) {
+        GameModel model = new GameModel();
+        for (String player : players) {
+            model.addPlayer(player);
+        }
+        model.setGameStarted(true);
+        model.nextPlayer(players);
+
+        int[] values = revealValues(model);
+        boolean[] used = new boolean[CARD_COUNT];
+        int matchedPairs = 0;
+        for (int first = 0; first < CARD_COUNT && matchedPairs < CARD_COUNT / 4; first++) {
+            for (int second = first + 1; second < CARD_COUNT && !used[first]; second++) {
+                if (!used[second] && values[first] == values[second]) {
+                    model.openCard(first);
+                    model.openCard(second);
+                    model.checkMatch();
+                    model.clearOpenedCards();
+                    model.nextPlayer(players);
+                    used[first] = true;
+                    used[second] = true;
+                    matchedPairs++;
+                }
+            }
+        }
+        return model;
+    }
+
+    /**
+     * Формирует состояние игры так же, как сервер перед рассылкой.
+     *
+     * @param model   модель игры
+     * @param players имена игроков
+     * @return состояние игры
+     */
+    static Map<String, Object> serverState(GameModel model, List<String> players) {
+        Map<String, Object> state = model.getGameState();
+        state.put("players", players);
+        state.put("maxPlayers", 4);
+        state.put("minPlayers", 2);
+
+        Map<String, Object> rtt = new LinkedHashMap<>();
+        for (int i = 0; i < players.size(); i++) {
+            rtt.put(players.get(i), 20L + i * 7);
+        }
+        state.put("rtt", rtt);
+        return state;
+    }
+
+    /**
+     * Формирует JSON состояния игры так же, как сервер перед рассылкой.
+     *
+     * @param model   модель игры
+     * @param players имена игроков
+     * @return JSON состояния игры
+     */
+    static String serverStateJson(GameModel model, List<String> players) {
+        return JsonUtil.mapToJson(serverState(model, players));
+    }
+}
@@ -0,0 +1,93 @@
+package benchmarks;
+
+import model.GameModel;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Операции модели игры, выполняемые на каждом ходе.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GameModelBenchmark {
+    private GameModel model;
+    private List<String> players;
+
+    // Пара еще не найденных карточек с разными значениями (промах - самый частый ход)
+    private int missFirst;
+    private int missSecond;
+
+    @Setup
+    public void setup() {
+        players = GameFixtures.playerNames(4);
+        model = GameFixtures.midGame(players);
+
+        @SuppressWarnings("unchecked")
+        Map<String, String> board = (Map<String, String>) model.getGameState().get("board");
+        int[] values = GameFixtures.revealValues(model);
+        missFirst = -1;
+        for (int position = 0; position < GameFixtures.CARD_COUNT; position++) {
+            if (!"hidden".equals(board.get(String.valueOf(position)))) {
+                continue;
+            }
+            if (missFirst < 0) {
+                missFirst = position;
+            } else if (values[position] != values[missFirst]) {
+                missSecond = position;
+                break;
+            }
+        }
+    }
+
+    /**
+     * Ход с промахом: открытие двух карточек, проверка совпадения и передача хода.
+     */
+    @Benchmark
+    public boolean missTurn() {
+        model.openCard(missFirst);
+        model.openCard(missSecond);
+        boolean match = model.checkMatch();
+        model.clearOpenedCards();
+        model.nextPlayer(players);
+        return match;
+    }
+
+    /**
+     * Открытие карточки и проверка совпадения при одной открытой карточке.
+     */
+    @Benchmark
+    public boolean openSingleCard() {
+        boolean opened = model.openCard(missFirst);
+        model.checkMatch();
+        model.clearOpenedCards();
+        return opened;
+    }
+
+    /**
+     * Снимок состояния для рассылки (при двух открытых карточках).
+     */
+    @Benchmark
+    public Map<String, Object> getGameState() {
+        model.openCard(missFirst);
+        model.openCard(missSecond);
+        Map<String, Object> state = model.getGameState();
+        model.clearOpenedCards();
+        return state;
+    }
+}
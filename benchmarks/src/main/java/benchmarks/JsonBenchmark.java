@@ -0,0 +1,47 @@
+package benchmarks;
+
+import model.GameModel;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import util.JsonUtil;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Преобразование состояния игры в JSON - основная часть каждой рассылки состояния.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonBenchmark {
+    @Param({"2", "4"})
+    public int players;
+
+    private Map<String, Object> state;
+
+    @Setup
+    public void setup() {
+        List<String> names = GameFixtures.playerNames(players);
+        GameModel model = GameFixtures.midGame(names);
+        state = GameFixtures.serverState(model, names);
+    }
+
+    @Benchmark
+    public String mapToJson() {
+        return JsonUtil.mapToJson(state);
+    }
+}
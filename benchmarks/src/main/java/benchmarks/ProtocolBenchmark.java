@@ -0,0 +1,70 @@
+package benchmarks;
+
+import model.GameModel;
+import model.Protocol;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Кодирование и разбор сообщений протокола.
+ * Разбор выполняется для каждого входящего сообщения, кодирование - для каждого исходящего.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProtocolBenchmark {
+    private String stateJson;
+    private String cardOpenMessage;
+    private String chatMessage;
+    private String stateMessage;
+
+    @Setup
+    public void setup() {
+        List<String> players = GameFixtures.playerNames(4);
+        GameModel model = GameFixtures.midGame(players);
+        stateJson = GameFixtures.serverStateJson(model, players);
+
+        cardOpenMessage = Protocol.encode(Protocol.TYPE_CARD_OPEN, "Игрок1", "17");
+        chatMessage = Protocol.encode(Protocol.TYPE_CHAT_MESSAGE, "Игрок2", "Кто-нибудь помнит, где была вторая кошка?");
+        stateMessage = Protocol.encode(Protocol.TYPE_GAME_STATE, stateJson);
+    }
+
+    @Benchmark
+    public String encodeCardOpen() {
+        return Protocol.encode(Protocol.TYPE_CARD_OPEN, "Игрок1", "17");
+    }
+
+    @Benchmark
+    public String encodeGameState() {
+        return Protocol.encode(Protocol.TYPE_GAME_STATE, stateJson);
+    }
+
+    @Benchmark
+    public String[] decodeCardOpen() {
+        return Protocol.decode(cardOpenMessage);
+    }
+
+    @Benchmark
+    public String[] decodeChatMessage() {
+        return Protocol.decode(chatMessage);
+    }
+
+    @Benchmark
+    public String[] decodeGameState() {
+        return Protocol.decode(stateMessage);
+    }
+}
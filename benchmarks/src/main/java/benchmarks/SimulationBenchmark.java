@@ -0,0 +1,53 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import simulation.GameSimulator;
+import simulation.SimulationStats;
+import simulation.Strategy;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Полная партия в движке симуляции: раскладка, ходы стратегий и учет результата.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SimulationBenchmark {
+    @Param({"perfect,perfect", "perfect,random,decay:10,perfect"})
+    public String strategies;
+
+    private GameSimulator simulator;
+    private SimulationStats stats;
+    private long seed;
+
+    @Setup
+    public void setup() {
+        String[] specs = strategies.split(",");
+        Strategy[] seats = new Strategy[specs.length];
+        for (int i = 0; i < specs.length; i++) {
+            seats[i] = Strategy.parse(specs[i]);
+        }
+        simulator = new GameSimulator(GameFixtures.CARD_COUNT / 2, true, seats);
+        stats = new SimulationStats(seats.length);
+    }
+
+    @Benchmark
+    public SimulationStats playGame() {
+        simulator.play(seed++, stats);
+        return stats;
+    }
+}
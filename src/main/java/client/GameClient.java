@@ -2,6 +2,7 @@ package client;
 
 import javafx.application.Platform;
 import model.Protocol;
+import util.RttEstimator;
 
 import java.io.IOException;
 import java.net.InetSocketAddress;
@@ -12,16 +13,38 @@ import java.nio.charset.StandardCharsets;
 import static view.GameDialogs.showErrorDialog;
 
 /**
- * Класс клиента для подключения к серверу
+ * Класс клиента для подключения к серверу.
+ * Если соединение обрывается после входа в игру, клиент сам переподключается и возвращается на свое место
+ * по токену возобновления, полученному от сервера
  */
 public class GameClient {
-
-    private SocketChannel socketChannel;
+    // Период измерения времени приема-передачи в миллисекундах
+    private static final long PING_INTERVAL_MILLIS = 2000;
+    // Попытки переподключения: паузы растут от минимальной до максимальной, пока сервер удерживает место
+    private static final int RECONNECT_ATTEMPTS = 10;
+    private static final long RECONNECT_MIN_DELAY_MILLIS = 500;
+    private static final long RECONNECT_MAX_DELAY_MILLIS = 4000;
+    // Количество комнат на странице списка комнат
+    private static final int LOBBY_PAGE_SIZE = 50;
+
+    private volatile SocketChannel socketChannel;
     private ByteBuffer readBuffer;
     private volatile boolean isRunning = true;
 
+    // Адрес сервера для переподключения
+    private String domain;
+    private int port;
+    // Токен возобновления от сервера и комната игрока, null - игрок еще не вошел в комнату
+    private volatile String resumeToken;
+    private volatile String resumeRoom;
+
     private GameClientListener listener;
 
+    // Оценка времени приема-передачи до сервера
+    private final RttEstimator rtt = new RttEstimator();
+    // Имя, под которым игрок подключился
+    private volatile String playerName;
+
     public void setListener(GameClientListener listener) {
         this.listener = listener;
     }
@@ -38,14 +61,38 @@ public class GameClient {
      */
     public boolean connect(String domain, int port) {
         try {
-            // Пробуем подключиться к серверу
-            this.socketChannel = SocketChannel.open();
-            this.socketChannel.configureBlocking(false);
-            this.socketChannel.connect(new InetSocketAddress(domain, port));
+            this.domain = domain;
+            this.port = port;
+            this.socketChannel = openChannel();
+            this.readBuffer = ByteBuffer.allocate(64 * 1024);
+            this.isRunning = true;
+
+            startReading();
+            startPinging();
+            return true;
+        } catch (IOException | InterruptedException e) {
+            Platform.runLater(() -> showErrorDialog("Не удалось подключиться к серверу, попробуйте еще раз"));
+            System.out.println("Ошибка при подключении к серверу: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Метод для открытия соединения с сервером
+     * @return подключенный канал
+     * @throws IOException если подключиться не удалось
+     * @throws InterruptedException если ожидание подключения прервано
+     */
+    private SocketChannel openChannel() throws IOException, InterruptedException {
+        // Пробуем подключиться к серверу
+        SocketChannel channel = SocketChannel.open();
+        try {
+            channel.configureBlocking(false);
+            channel.connect(new InetSocketAddress(domain, port));
 
             // Ждем, пока клиент не подключится к серверу или пока меньше 200 попыток
             int attempts = 0;
-            while (!socketChannel.finishConnect()) {
+            while (!channel.finishConnect()) {
                 // noinspection BusyWait
                 Thread.sleep(50);
                 attempts++;
@@ -54,16 +101,46 @@ public class GameClient {
                 }
             }
 
-            this.readBuffer = ByteBuffer.allocate(64 * 1024);
-            this.isRunning = true;
-
-            startReading();
-            return true;
+            // Чтение блокирующее: ответ на ping обрабатывается сразу, без задержки опроса,
+            // поэтому измеренное время приема-передачи не завышается
+            channel.configureBlocking(true);
+            return channel;
         } catch (IOException | InterruptedException e) {
-            Platform.runLater(() -> showErrorDialog("Не удалось подключиться к серверу, попробуйте еще раз"));
-            System.out.println("Ошибка при подключении к серверу: " + e.getMessage());
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Метод для переподключения к серверу после обрыва соединения. Клиент возвращается на свое место
+     * по токену возобновления и получает от сервера текущее состояние игры
+     * @return true, если соединение восстановлено, false - если игрок еще не входил в комнату или сервер недоступен
+     * @throws InterruptedException если ожидание прервано
+     */
+    private boolean reconnect() throws InterruptedException {
+        String token = resumeToken;
+        String room = resumeRoom;
+        if (token == null || !isRunning) {
             return false;
         }
+
+        closeChannel();
+        long delay = RECONNECT_MIN_DELAY_MILLIS;
+        for (int attempt = 1; attempt <= RECONNECT_ATTEMPTS && isRunning; attempt++) {
+            System.out.println("Соединение с сервером потеряно, попытка переподключения " + attempt);
+            Thread.sleep(delay);
+            try {
+                socketChannel = openChannel();
+                readBuffer.clear();
+                sendMessage(Protocol.encode(Protocol.TYPE_CONNECT, playerName, room, token));
+                System.out.println("Соединение с сервером восстановлено");
+                return true;
+            } catch (IOException e) {
+                System.out.println("Не удалось переподключиться: " + e.getMessage());
+            }
+            delay = Math.min(delay * 2, RECONNECT_MAX_DELAY_MILLIS);
+        }
+        return false;
     }
 
     /**
@@ -71,12 +148,18 @@ public class GameClient {
      */
     private void startReading() {
         Thread readThread = new Thread(() -> {
-            while (isRunning && socketChannel != null && socketChannel.isOpen()) {
+            while (isRunning) {
                 try {
                     int n = socketChannel.read(readBuffer);
 
-                    // Если прочитано -1, значит, сервер разорвал соединение -> отключаемся
+                    // Если прочитано -1, значит, сервер разорвал соединение -> переподключаемся или отключаемся
                     if (n == -1) {
+                        if (reconnect()) {
+                            continue;
+                        }
+                        if (isRunning && resumeToken != null) {
+                            Platform.runLater(() -> showErrorDialog("Соединение с сервером потеряно"));
+                        }
                         disconnect();
                         break;
                     }
@@ -92,12 +175,22 @@ public class GameClient {
                     processIncomingMessages(readBuffer);
                     readBuffer.compact(); // Очищаем буфер для следующего чтения
 
-                } catch (IOException | InterruptedException e) {
+                } catch (IOException e) {
+                    try {
+                        if (reconnect()) {
+                            continue;
+                        }
+                    } catch (InterruptedException interrupted) {
+                        break;
+                    }
                     if (isRunning) {
                         Platform.runLater(() -> showErrorDialog("Произошла непредвиденная ошибка при чтении данных :("));
                         System.out.println("Ошибка при чтении данных: " + e.getMessage());
+                        disconnect();
                     }
                     break;
+                } catch (InterruptedException e) {
+                    break;
                 }
             }
         });
@@ -106,17 +199,39 @@ public class GameClient {
         readThread.start();
     }
 
+    /**
+     * Метод для периодической отправки ping серверу с меткой времени отправки
+     */
+    private void startPinging() {
+        Thread pingThread = new Thread(() -> {
+            while (isRunning) {
+                sendMessage(Protocol.encode(Protocol.TYPE_PING, String.valueOf(System.nanoTime())));
+                try {
+                    // noinspection BusyWait
+                    Thread.sleep(PING_INTERVAL_MILLIS);
+                } catch (InterruptedException e) {
+                    break;
+                }
+            }
+        });
+
+        pingThread.setDaemon(true);
+        pingThread.start();
+    }
+
     /**
      * Метод для отправки сообщений
      * @param message сообщение
      */
     private void sendMessage(String message) {
-        if  (socketChannel != null && socketChannel.isConnected()) {
+        SocketChannel channel = socketChannel;
+        if  (channel != null && channel.isConnected()) {
             try {
-                socketChannel.write(ByteBuffer.wrap((message + "\n").getBytes()));
+                channel.write(ByteBuffer.wrap((message + "\n").getBytes()));
             } catch (IOException e) {
                 System.out.println("Ошибка при отправке сообщения: " + e.getMessage());
-                disconnect();
+                // Поток чтения обнаружит закрытый канал и переподключится или отключится
+                closeChannel();
             }
         }
     }
@@ -126,9 +241,50 @@ public class GameClient {
      * @param message текст сообщения
      */
     public void sendConnectMessage(String message) {
+        this.playerName = message;
         sendMessage(Protocol.encode(Protocol.TYPE_CONNECT, message));
     }
 
+    /**
+     * Метод для отправки сообщения о подключении к выбранной комнате по протоколу
+     * @param name имя игрока
+     * @param room идентификатор комнаты
+     */
+    public void sendConnectMessage(String name, String room) {
+        this.playerName = name;
+        sendMessage(Protocol.encode(Protocol.TYPE_CONNECT, name, room));
+    }
+
+    /**
+     * Метод для запроса страницы списка комнат по протоколу. После запроса сервер присылает изменения списка,
+     * пока игрок не войдет в комнату
+     * @param after комната, после которой начинается страница, или null - первая страница
+     */
+    public void sendLobbyRequest(String after) {
+        sendMessage(after != null
+                ? Protocol.encode(Protocol.TYPE_LOBBY, String.valueOf(LOBBY_PAGE_SIZE), after)
+                : Protocol.encode(Protocol.TYPE_LOBBY, String.valueOf(LOBBY_PAGE_SIZE)));
+    }
+
+    /**
+     * Метод для постановки в очередь подбора соперников по протоколу.
+     * Когда соперники найдены, сервер сам подключает игрока к новой комнате и начинает игру
+     * @param name имя игрока
+     */
+    public void sendMatchmakingRequest(String name) {
+        this.playerName = name;
+        sendMessage(Protocol.encode(Protocol.TYPE_MATCHMAKE, name));
+    }
+
+    /**
+     * Метод для наблюдения за игрой в комнате по протоколу.
+     * Зритель не занимает места игрока и получает только состояние игры
+     * @param room идентификатор комнаты
+     */
+    public void sendSpectateRequest(String room) {
+        sendMessage(Protocol.encode(Protocol.TYPE_SPECTATE, room));
+    }
+
     /**
      * Метод для отправки сообщения о начале игры по протоколу
      */
@@ -145,6 +301,13 @@ public class GameClient {
         sendMessage(Protocol.encode(Protocol.TYPE_CARD_OPEN, message));
     }
 
+    /**
+     * Метод для запроса таблицы лидеров по протоколу
+     */
+    public void sendLeaderboardRequest() {
+        sendMessage(Protocol.encode(Protocol.TYPE_LEADERBOARD));
+    }
+
     /**
      * Метод для отправки сообщения в чате по протоколу
      * @param message текст сообщения
@@ -261,21 +424,78 @@ public class GameClient {
                     listener.onGameReset();
                 }
                 break;
+            case Protocol.TYPE_PING:
+                // Отвечаем серверу, что соединение живо
+                sendMessage(Protocol.encode(Protocol.TYPE_PONG, parts.length > 1 ? parts[1] : ""));
+                break;
+            case Protocol.TYPE_LEADERBOARD:
+                if (parts.length > 1 && listener != null) {
+                    listener.onLeaderboard(parts[1]);
+                }
+                break;
+            case Protocol.TYPE_LOBBY:
+                if (parts.length > 1 && listener != null) {
+                    listener.onLobbyPage(parts[1]);
+                }
+                break;
+            case Protocol.TYPE_LOBBY_UPDATE:
+                if (parts.length > 1 && listener != null) {
+                    listener.onLobbyUpdate(parts[1]);
+                }
+                break;
+            case Protocol.TYPE_RESUME:
+                // Токен, по которому можно вернуться на свое место после обрыва соединения
+                if (parts.length > 2) {
+                    resumeRoom = parts[2];
+                    resumeToken = parts[1];
+                }
+                break;
+            case Protocol.TYPE_PONG:
+                // Ответ на наш ping: метка - время его отправки
+                if (parts.length > 1) {
+                    try {
+                        rtt.addSample(System.nanoTime() - Long.parseLong(parts[1]));
+                    } catch (NumberFormatException ignored) {}
+                }
+                break;
         }
     }
 
+    /**
+     * Метод для получения текущей оценки времени приема-передачи до сервера
+     * @return RTT в миллисекундах или -1, если измерений еще не было
+     */
+    public long getRttMillis() {
+        return rtt.getSmoothedMillis();
+    }
+
+    /**
+     * Метод для получения имени, под которым игрок подключился
+     * @return имя игрока или null, если игрок еще не подключился
+     */
+    public String getPlayerName() {
+        return playerName;
+    }
+
     /**
      * Метод для отключения от сервера
      */
     public void disconnect() {
         isRunning = false;
+        closeChannel();
+
+        System.out.println("Отключен от сервера");
+    }
 
+    /**
+     * Метод для закрытия текущего канала без остановки клиента
+     */
+    private void closeChannel() {
         try {
-            if (socketChannel != null) {
-                socketChannel.close();
+            SocketChannel channel = socketChannel;
+            if (channel != null) {
+                channel.close();
             }
         } catch (IOException ignored) {}
-
-        System.out.println("Отключен от сервера");
     }
 }
@@ -2,6 +2,9 @@ package client;
 
 import javafx.application.Platform;
 import view.GameView;
+import view.LobbyView;
+
+import java.util.List;
 
 import static javafx.application.Platform.runLater;
 import static view.GameDialogs.*;
@@ -12,11 +15,16 @@ import static view.GameDialogs.*;
 public class GameClientListener {
 
     private static GameView gameView;
+    private static LobbyView lobbyView;
 
     public void setGameView(GameView gameView) {
         GameClientListener.gameView = gameView;
     }
 
+    public void setLobbyView(LobbyView lobbyView) {
+        GameClientListener.lobbyView = lobbyView;
+    }
+
     /**
      * Обновление состояния игры
      * @param jsonState состояние игры в формате JSON, передается от сервера
@@ -56,6 +64,36 @@ public class GameClientListener {
         }
     }
 
+    /**
+     * Отображение таблицы лидеров в диалоге
+     * @param json таблица лидеров в формате JSON, передается от сервера
+     */
+    public void onLeaderboard(String json) {
+        List<GameStateParser.LeaderboardRow> rows = GameStateParser.parseLeaderboard(json);
+        runLater(() -> showLeaderboardDialog(rows));
+    }
+
+    /**
+     * Отображение страницы списка комнат в лобби
+     * @param json страница списка в формате JSON, передается от сервера
+     */
+    public void onLobbyPage(String json) {
+        GameStateParser.LobbyPage page = GameStateParser.parseLobbyPage(json);
+        if (lobbyView != null && page != null) {
+            lobbyView.applyPage(page);
+        }
+    }
+
+    /**
+     * Применение изменений списка комнат в лобби
+     * @param json изменения списка в формате JSON, передается от сервера
+     */
+    public void onLobbyUpdate(String json) {
+        if (lobbyView != null) {
+            lobbyView.applyEvents(GameStateParser.parseLobbyEvents(json));
+        }
+    }
+
     /**
      * Отображение ошибки в диалоге
      * @param errorMessage текст ошибки от сервера
@@ -0,0 +1,257 @@
+package client;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Разбор состояния игры, таблицы лидеров и списка комнат, присылаемых сервером в формате JSON.
+ * Вынесен из классов интерфейса, чтобы не зависеть от JavaFX: состояние приходит на каждый ход,
+ * поэтому регулярные выражения компилируются один раз, а не при каждом обновлении.
+ */
+public final class GameStateParser {
+    private static final Pattern CARD = Pattern.compile("\"(\\d+)\":\"(opened_(\\d+)|matched|hidden)\"");
+    private static final Pattern CURRENT_PLAYER = Pattern.compile("\"currentPlayer\":\"(.*?)\"");
+    private static final Pattern SCORES = Pattern.compile("\"scores\":\\{(.*?)}", Pattern.DOTALL);
+    private static final Pattern RTT = Pattern.compile("\"rtt\":\\{(.*?)}", Pattern.DOTALL);
+    private static final Pattern PLAYERS = Pattern.compile("\"players\":\\[(.*?)]", Pattern.DOTALL);
+    private static final Pattern LEADERBOARD_ROW = Pattern.compile(
+            "\\{\"name\":\"(.*?)\",\"games\":(\\d+),\"wins\":(\\d+),\"pairs\":(\\d+),\"turnsPerPair\":([\\d.]+)}");
+    private static final Pattern LOBBY_PAGE = Pattern.compile(
+            "^\\{\"version\":(\\d+),\"total\":(\\d+),.*\"next\":(null|\"(.*?)\")}$", Pattern.DOTALL);
+    private static final Pattern LOBBY_ROOM = Pattern.compile(
+            "\\{\"id\":\"(.*?)\",\"players\":(\\d+),\"started\":(true|false)(?:,\"version\":(\\d+),\"op\":\"(\\w+)\")?}");
+
+    /**
+     * Состояние игрового поля.
+     *
+     * @param states состояния карточек: индекс -> состояние (opened, matched, hidden)
+     * @param images картинки открытых карточек: индекс -> id картинки
+     */
+    public record BoardState(Map<Integer, String> states, Map<Integer, Integer> images) {
+    }
+
+    /**
+     * Место в таблице лидеров.
+     *
+     * @param name         имя игрока
+     * @param games        сыграно партий
+     * @param wins         побед
+     * @param pairs        найдено пар
+     * @param turnsPerPair ходов на найденную пару
+     */
+    public record LeaderboardRow(String name, int games, int wins, long pairs, double turnsPerPair) {
+    }
+
+    /**
+     * Комната в списке комнат.
+     *
+     * @param id      идентификатор комнаты
+     * @param players количество игроков
+     * @param started игра начата
+     */
+    public record RoomInfo(String id, int players, boolean started) {
+    }
+
+    /**
+     * Страница списка комнат.
+     *
+     * @param version версия списка на сервере
+     * @param total   количество комнат на сервере
+     * @param rooms   комнаты страницы
+     * @param next    комната, после которой начинается следующая страница, или null
+     */
+    public record LobbyPage(long version, int total, List<RoomInfo> rooms, String next) {
+    }
+
+    /**
+     * Изменение списка комнат.
+     *
+     * @param version версия списка после изменения
+     * @param op      add, update или remove
+     * @param room    комната после изменения
+     */
+    public record LobbyEvent(long version, String op, RoomInfo room) {
+    }
+
+    private GameStateParser() {
+    }
+
+    /**
+     * Разбирает состояние карточек игрового поля.
+     *
+     * @param jsonState состояние игры в формате JSON
+     * @return состояние игрового поля
+     */
+    public static BoardState parseBoard(String jsonState) {
+        Matcher m = CARD.matcher(jsonState);
+
+        Map<Integer, String> states = new HashMap<>();
+        Map<Integer, Integer> images = new HashMap<>();
+
+        while (m.find()) {
+            try {
+                int index = Integer.parseInt(m.group(1));
+                String fullState = m.group(2);
+
+                // Если открыта - запоминаем ID картинки
+                if (fullState.startsWith("opened_")) {
+                    states.put(index, "opened");
+                    images.put(index, Integer.parseInt(m.group(3)));
+                } else {
+                    states.put(index, fullState); // "matched" или "hidden"
+                }
+            } catch (Exception e) {
+                System.out.println("Произошла ошибка при разборе JSON: " + e.getMessage());
+            }
+        }
+        return new BoardState(states, images);
+    }
+
+    /**
+     * Проверяет, начата ли игра.
+     *
+     * @param jsonState состояние игры в формате JSON
+     * @return true, если игра начата
+     */
+    public static boolean isGameStarted(String jsonState) {
+        return jsonState.contains("\"gameStarted\":true");
+    }
+
+    /**
+     * Возвращает имя текущего игрока.
+     *
+     * @param jsonState состояние игры в формате JSON
+     * @return имя текущего игрока или null, если его нет в состоянии
+     */
+    public static String parseCurrentPlayer(String jsonState) {
+        Matcher m = CURRENT_PLAYER.matcher(jsonState);
+        return m.find() ? m.group(1) : null;
+    }
+
+    /**
+     * Возвращает очки игроков.
+     *
+     * @param jsonState состояние игры в формате JSON
+     * @return Map с именами игроков и их очками или null, если очков нет в состоянии
+     */
+    public static Map<String, Integer> parseScores(String jsonState) {
+        return parseIntMap(SCORES, jsonState);
+    }
+
+    /**
+     * Возвращает время приема-передачи игроков, измеренное сервером.
+     *
+     * @param jsonState состояние игры в формате JSON
+     * @return Map с именами игроков и временем в миллисекундах (пустая, если данных нет)
+     */
+    public static Map<String, Integer> parseRtt(String jsonState) {
+        Map<String, Integer> rtt = parseIntMap(RTT, jsonState);
+        return rtt != null ? rtt : new HashMap<>();
+    }
+
+    /**
+     * Возвращает имена игроков комнаты в порядке подключения.
+     *
+     * @param jsonState состояние игры в формате JSON
+     * @return список имен (пустой, если данных нет)
+     */
+    public static List<String> parsePlayers(String jsonState) {
+        List<String> players = new ArrayList<>();
+        Matcher m = PLAYERS.matcher(jsonState);
+        if (m.find() && !m.group(1).trim().isEmpty()) {
+            for (String name : m.group(1).split(",")) {
+                players.add(name.trim().replace("\"", ""));
+            }
+        }
+        return players;
+    }
+
+    /**
+     * Разбирает таблицу лидеров.
+     *
+     * @param json таблица лидеров в формате JSON
+     * @return места в порядке таблицы (пустой список, если мест нет)
+     */
+    public static List<LeaderboardRow> parseLeaderboard(String json) {
+        List<LeaderboardRow> rows = new ArrayList<>();
+        Matcher m = LEADERBOARD_ROW.matcher(json);
+        while (m.find()) {
+            rows.add(new LeaderboardRow(m.group(1), Integer.parseInt(m.group(2)), Integer.parseInt(m.group(3)),
+                    Long.parseLong(m.group(4)), Double.parseDouble(m.group(5))));
+        }
+        return rows;
+    }
+
+    /**
+     * Разбирает страницу списка комнат.
+     *
+     * @param json страница в формате JSON
+     * @return страница или null, если формат неверный
+     */
+    public static LobbyPage parseLobbyPage(String json) {
+        Matcher page = LOBBY_PAGE.matcher(json);
+        if (!page.find()) {
+            return null;
+        }
+        List<RoomInfo> rooms = new ArrayList<>();
+        Matcher m = LOBBY_ROOM.matcher(json);
+        while (m.find()) {
+            rooms.add(new RoomInfo(m.group(1), Integer.parseInt(m.group(2)), Boolean.parseBoolean(m.group(3))));
+        }
+        return new LobbyPage(Long.parseLong(page.group(1)), Integer.parseInt(page.group(2)), rooms, page.group(4));
+    }
+
+    /**
+     * Разбирает изменения списка комнат.
+     *
+     * @param json изменения в формате JSON
+     * @return изменения в порядке версий (пустой список, если изменений нет)
+     */
+    public static List<LobbyEvent> parseLobbyEvents(String json) {
+        List<LobbyEvent> events = new ArrayList<>();
+        Matcher m = LOBBY_ROOM.matcher(json);
+        while (m.find()) {
+            if (m.group(4) != null) {
+                RoomInfo room = new RoomInfo(m.group(1), Integer.parseInt(m.group(2)), Boolean.parseBoolean(m.group(3)));
+                events.add(new LobbyEvent(Long.parseLong(m.group(4)), m.group(5), room));
+            }
+        }
+        return events;
+    }
+
+    /**
+     * Разбирает объект с числовыми значениями по именам.
+     *
+     * @param pattern   выражение, выделяющее содержимое объекта
+     * @param jsonState состояние игры в формате JSON
+     * @return Map с именами и значениями или null, если объект не найден
+     */
+    private static Map<String, Integer> parseIntMap(Pattern pattern, String jsonState) {
+        Matcher m = pattern.matcher(jsonState);
+        if (!m.find()) {
+            return null;
+        }
+
+        String content = m.group(1);
+        Map<String, Integer> values = new HashMap<>();
+
+        if (!content.trim().isEmpty()) {
+            // Разбиваем строку на пары "имя:значение"
+            String[] pairs = content.split(",");
+            for (String pair : pairs) {
+                String[] kv = pair.split(":");
+                if (kv.length == 2) {
+                    String name = kv[0].trim().replace("\"", "");
+                    try {
+                        values.put(name, Integer.parseInt(kv[1].trim()));
+                    } catch (Exception ignored) {}
+                }
+            }
+        }
+        return values;
+    }
+}
@@ -0,0 +1,75 @@
+package client;
+
+import client.GameStateParser.LobbyEvent;
+import client.GameStateParser.LobbyPage;
+import client.GameStateParser.RoomInfo;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+
+/**
+ * Список комнат лобби на стороне клиента.
+ * Собирается из страниц, полученных от сервера, и поддерживается в актуальном состоянии изменениями:
+ * изменение с версией не больше версии последней полученной страницы в ней уже учтено и пропускается.
+ * Изменяется только в UI-потоке JavaFX.
+ */
+public class LobbyModel {
+    private final TreeMap<String, RoomInfo> rooms = new TreeMap<>();
+    private long version;
+    private String next;
+
+    /**
+     * Добавляет страницу списка комнат.
+     *
+     * @param page  страница от сервера
+     * @param first true - первая страница: ранее полученные комнаты отбрасываются
+     */
+    public void applyPage(LobbyPage page, boolean first) {
+        if (first) {
+            rooms.clear();
+        }
+        for (RoomInfo room : page.rooms()) {
+            rooms.put(room.id(), room);
+        }
+        version = Math.max(version, page.version());
+        next = page.next();
+    }
+
+    /**
+     * Применяет изменения списка комнат.
+     *
+     * @param events изменения в порядке версий
+     */
+    public void applyEvents(List<LobbyEvent> events) {
+        for (LobbyEvent event : events) {
+            if (event.version() <= version) {
+                continue;
+            }
+            if ("remove".equals(event.op())) {
+                rooms.remove(event.room().id());
+            } else {
+                rooms.put(event.room().id(), event.room());
+            }
+            version = event.version();
+        }
+    }
+
+    /**
+     * Возвращает комнаты в порядке идентификаторов.
+     *
+     * @return список комнат
+     */
+    public List<RoomInfo> getRooms() {
+        return new ArrayList<>(rooms.values());
+    }
+
+    /**
+     * Возвращает комнату, после которой начинается следующая страница.
+     *
+     * @return идентификатор комнаты или null, если страниц больше нет
+     */
+    public String getNext() {
+        return next;
+    }
+}
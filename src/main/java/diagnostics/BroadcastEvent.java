@@ -0,0 +1,17 @@
+package diagnostics;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Рассылка кадра состояния игры: формирование JSON, кодирование и запись во все каналы комнаты.
+ * Размер нагрузки - размер кадра в байтах.
+ */
+@Name("ru.itis.memo.GameStateBroadcast")
+@Label("Game State Broadcast")
+@Description("Рассылка состояния игры игрокам комнаты")
+public class BroadcastEvent extends MemoEvent {
+    @Label("Recipients")
+    public int recipients;
+}
@@ -0,0 +1,24 @@
+package diagnostics;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Принятие, отклонение или отключение клиентского соединения.
+ */
+@Name("ru.itis.memo.Connection")
+@Label("Connection")
+public class ConnectionEvent extends MemoEvent {
+    public static final String ACCEPT = "accept";
+    public static final String REJECT = "reject";
+    public static final String DISCONNECT = "disconnect";
+
+    @Label("Action")
+    @Description("accept, reject или disconnect")
+    public String action;
+
+    @Label("Connection Id")
+    @Description("Идентификатор в реестре подключений, -1 - не зарегистрировано")
+    public int connectionId = -1;
+}
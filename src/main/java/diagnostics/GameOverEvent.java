@@ -0,0 +1,18 @@
+package diagnostics;
+
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Завершение игры: подсчет победителей, финальная рассылка и сброс поля.
+ * Поле игрока содержит победителей через точку с запятой.
+ */
+@Name("ru.itis.memo.GameOver")
+@Label("Game Over")
+public class GameOverEvent extends MemoEvent {
+    @Label("Max Score")
+    public int maxScore;
+
+    @Label("Players")
+    public int players;
+}
@@ -0,0 +1,14 @@
+package diagnostics;
+
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Проверка совпадения двух открытых карточек.
+ */
+@Name("ru.itis.memo.MatchCheck")
+@Label("Match Check")
+public class MatchCheckEvent extends MemoEvent {
+    @Label("Matched")
+    public boolean matched;
+}
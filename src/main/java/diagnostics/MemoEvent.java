@@ -0,0 +1,33 @@
+package diagnostics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.StackTrace;
+
+/**
+ * Базовое событие JFR игрового сервера.
+ * Общие поля позволяют фильтровать события всех типов по комнате и игроку в JDK Mission Control.
+ * Длительность события задается вызовами begin()/commit(). Пока запись события выключена,
+ * shouldCommit() возвращает false и поля не заполняются, поэтому накладные расходы близки к нулю.
+ */
+@Category({"Memo", "Server"})
+@StackTrace(false)
+public abstract class MemoEvent extends Event {
+    @Label("Room")
+    @Description("Идентификатор комнаты")
+    public String room;
+
+    @Label("Player")
+    @Description("Имя игрока")
+    public String player;
+
+    @Label("Message Type")
+    @Description("Тип сообщения протокола, -1 - не относится к сообщению")
+    public int messageType = -1;
+
+    @Label("Payload Size")
+    @Description("Размер полезной нагрузки")
+    public int payloadSize;
+}
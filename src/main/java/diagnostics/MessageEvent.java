@@ -0,0 +1,18 @@
+package diagnostics;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Обработка входящего сообщения маршрутизатором (разбор, лимит частоты, постановка команды в очередь комнаты).
+ * Размер нагрузки - длина сообщения в символах.
+ */
+@Name("ru.itis.memo.Message")
+@Label("Message")
+@Description("Маршрутизация входящего сообщения")
+public class MessageEvent extends MemoEvent {
+    @Label("Rate Limited")
+    @Description("Сообщение отклонено ограничителем частоты")
+    public boolean rateLimited;
+}
@@ -0,0 +1,17 @@
+package diagnostics;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Выполнение накопленных команд комнаты и рассылка изменившегося состояния.
+ */
+@Name("ru.itis.memo.RoomCommands")
+@Label("Room Commands")
+@Description("Выполнение очереди команд комнаты")
+public class RoomCommandsEvent extends MemoEvent {
+    @Label("Commands")
+    @Description("Количество выполненных команд")
+    public int commands;
+}
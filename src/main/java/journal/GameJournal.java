@@ -0,0 +1,401 @@
+package journal;
+
+import util.Log;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Журнал игр: компактные двоичные записи о раскладках, ходах, входе и выходе игроков,
+ * по которым любую партию можно воспроизвести.
+ * Поток цикла событий только кодирует запись в кольцевой буфер в памяти (без блокировок и системных вызовов),
+ * а фоновый поток переносит записи в отображенные в память файлы-сегменты и открывает новый сегмент,
+ * когда текущий заполнен. Если буфер заполнен, запись отбрасывается, а в журнал попадает отметка о пропуске.
+ * Методы записи должны вызываться из одного потока (потока цикла событий).
+ */
+public class GameJournal {
+    // Заголовок сегмента: сигнатура, версия формата и номер сегмента
+    static final int SEGMENT_MAGIC = 0x4D454D4F;
+    static final int SEGMENT_VERSION = 1;
+    static final int SEGMENT_HEADER_SIZE = 4 + 4 + 8;
+    static final String SEGMENT_SUFFIX = ".journal";
+
+    // Максимальная длина записи (длина хранится в short)
+    private static final int MAX_RECORD_SIZE = Short.MAX_VALUE;
+    // Пауза фонового потока, когда буфер пуст
+    private static final long IDLE_PARK_NANOS = 1_000_000;
+
+    private final boolean enabled;
+    private final Path directory;
+    private final int segmentBytes;
+
+    // Кольцевой буфер записей: пишет поток цикла событий, читает фоновый поток
+    private final byte[] ring;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicLong head = new AtomicLong();
+    // Буфер кодирования одной записи (только поток цикла событий)
+    private final ByteBuffer scratch;
+
+    private final AtomicLong dropped = new AtomicLong();
+    private int nextRoom;
+
+    // Текущий сегмент (только фоновый поток)
+    private FileChannel segmentChannel;
+    private MappedByteBuffer segment;
+    private long segmentIndex;
+
+    private Thread writerThread;
+    private volatile boolean running = true;
+
+    private GameJournal(boolean enabled, Path directory, int segmentBytes, int bufferBytes) {
+        this.enabled = enabled;
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        int size = enabled ? Integer.highestOneBit(Math.max(MAX_RECORD_SIZE * 2, bufferBytes) - 1) << 1 : 0;
+        this.ring = new byte[size];
+        this.mask = size - 1;
+        this.scratch = enabled ? ByteBuffer.allocate(MAX_RECORD_SIZE) : null;
+    }
+
+    /**
+     * Возвращает выключенный журнал: записи не сохраняются.
+     *
+     * @return выключенный журнал
+     */
+    public static GameJournal disabled() {
+        return new GameJournal(false, null, 0, 0);
+    }
+
+    /**
+     * Открывает журнал в каталоге и запускает фоновый поток записи.
+     * Новые записи попадают в новый сегмент после уже существующих.
+     *
+     * @param directory    каталог журнала
+     * @param segmentBytes размер файла-сегмента в байтах
+     * @param bufferBytes  размер кольцевого буфера в байтах (округляется вверх до степени двойки)
+     * @return журнал
+     * @throws IOException если каталог или сегмент не удается создать
+     */
+    public static GameJournal open(Path directory, int segmentBytes, int bufferBytes) throws IOException {
+        Files.createDirectories(directory);
+        GameJournal journal = new GameJournal(true, directory,
+                Math.max(segmentBytes, SEGMENT_HEADER_SIZE + MAX_RECORD_SIZE), bufferBytes);
+
+        List<Path> existing = JournalReader.listSegments(directory);
+        journal.segmentIndex = existing.isEmpty() ? 0 : JournalReader.segmentIndex(existing.getLast()) + 1;
+        journal.openSegment();
+
+        journal.writerThread = new Thread(journal::drainLoop, "journal-writer");
+        journal.writerThread.setDaemon(true);
+        journal.writerThread.start();
+        // Записи, оставшиеся в буфере, переносятся в сегмент при завершении процесса
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> journal.close(1000), "journal-shutdown"));
+        return journal;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Выдает комнате номер для ее записей.
+     *
+     * @param roomId идентификатор комнаты
+     * @return номер комнаты в журнале
+     */
+    public int registerRoom(String roomId) {
+        int room = nextRoom++;
+        if (begin()) {
+            putString(roomId);
+            commit(JournalRecord.ROOM, room);
+        }
+        return room;
+    }
+
+    public void deal(int room, long seed) {
+        if (begin()) {
+            scratch.putLong(seed);
+            commit(JournalRecord.DEAL, room);
+        }
+    }
+
+    public void join(int room, String name, boolean bot) {
+        if (begin()) {
+            scratch.put((byte) (bot ? 1 : 0));
+            putString(name);
+            commit(JournalRecord.JOIN, room);
+        }
+    }
+
+    public void token(int room, String name, long tokenHash) {
+        if (begin()) {
+            scratch.putLong(tokenHash);
+            putString(name);
+            commit(JournalRecord.TOKEN, room);
+        }
+    }
+
+    public void leave(int room, String name) {
+        if (begin()) {
+            putString(name);
+            commit(JournalRecord.LEAVE, room);
+        }
+    }
+
+    public void start(int room, List<String> turnOrder) {
+        if (begin()) {
+            scratch.put((byte) turnOrder.size());
+            for (String name : turnOrder) {
+                putString(name);
+            }
+            commit(JournalRecord.START, room);
+        }
+    }
+
+    public void open(int room, int position) {
+        if (begin()) {
+            scratch.put((byte) position);
+            commit(JournalRecord.OPEN, room);
+        }
+    }
+
+    public void match(int room, boolean matched) {
+        if (begin()) {
+            scratch.put((byte) (matched ? 1 : 0));
+            commit(JournalRecord.MATCH, room);
+        }
+    }
+
+    public void turn(int room, String name) {
+        if (begin()) {
+            putString(name);
+            commit(JournalRecord.TURN, room);
+        }
+    }
+
+    public void clear(int room) {
+        if (begin()) {
+            commit(JournalRecord.CLEAR, room);
+        }
+    }
+
+    public void gameOver(int room, String winners, int maxScore) {
+        if (begin()) {
+            scratch.putInt(maxScore);
+            putString(winners);
+            commit(JournalRecord.GAME_OVER, room);
+        }
+    }
+
+    public void reset(int room) {
+        if (begin()) {
+            commit(JournalRecord.RESET, room);
+        }
+    }
+
+    public void restore(int room, List<String> seats) {
+        if (begin()) {
+            scratch.put((byte) seats.size());
+            for (String name : seats) {
+                putString(name);
+            }
+            commit(JournalRecord.RESTORE, room);
+        }
+    }
+
+    /**
+     * Записывает отметку снимка комнат: при восстановлении к снимку применяются записи после отметки.
+     *
+     * @param markId номер снимка
+     */
+    public void mark(long markId) {
+        if (begin()) {
+            scratch.putLong(markId);
+            commit(JournalRecord.MARK, -1);
+        }
+    }
+
+    /**
+     * Возвращает количество байт, записанных в журнал с момента запуска.
+     * Позволяет узнать, появились ли новые записи (например, чтобы не делать снимок без изменений).
+     *
+     * @return количество байт
+     */
+    public long getPosition() {
+        return enabled ? tail.get() : 0;
+    }
+
+    /**
+     * Возвращает количество записей, отброшенных из-за заполненного буфера.
+     *
+     * @return количество отброшенных записей
+     */
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    /**
+     * Начинает кодирование записи: оставляет место под заголовок.
+     *
+     * @return true, если журнал включен
+     */
+    private boolean begin() {
+        if (!enabled) {
+            return false;
+        }
+        scratch.clear();
+        scratch.position(JournalRecord.HEADER_SIZE);
+        return true;
+    }
+
+    private void putString(String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        int length = Math.min(bytes.length, scratch.remaining() - 2);
+        scratch.putShort((short) length);
+        scratch.put(bytes, 0, length);
+    }
+
+    /**
+     * Заполняет заголовок записи и копирует ее в кольцевой буфер.
+     * Если места в буфере нет, запись отбрасывается.
+     */
+    private void commit(byte type, int room) {
+        int length = scratch.position();
+        scratch.putShort(0, (short) length);
+        scratch.put(2, type);
+        scratch.putInt(3, room);
+        scratch.putLong(7, System.currentTimeMillis());
+
+        long position = tail.get();
+        if (ring.length - (position - head.get()) < length) {
+            dropped.incrementAndGet();
+            return;
+        }
+        int index = (int) (position & mask);
+        int first = Math.min(length, ring.length - index);
+        System.arraycopy(scratch.array(), 0, ring, index, first);
+        System.arraycopy(scratch.array(), first, ring, 0, length - first);
+        // Публикуем запись для фонового потока
+        tail.lazySet(position + length);
+    }
+
+    /**
+     * Останавливает фоновый поток, предварительно перенеся все накопленные записи в сегмент.
+     *
+     * @param timeoutMillis максимальное время ожидания
+     */
+    public void close(long timeoutMillis) {
+        if (!enabled || !running) {
+            return;
+        }
+        running = false;
+        LockSupport.unpark(writerThread);
+        try {
+            writerThread.join(timeoutMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Цикл фонового потока: переносит записи из буфера в сегменты.
+     */
+    private void drainLoop() {
+        long reportedDropped = 0;
+        byte[] record = new byte[MAX_RECORD_SIZE];
+
+        while (true) {
+            boolean wrote = false;
+            try {
+                long position = head.get();
+                long available = tail.get();
+                while (position < available) {
+                    int index = (int) (position & mask);
+                    int length = ((ring[index] & 0xFF) << 8) | (ring[(index + 1) & mask] & 0xFF);
+                    int first = Math.min(length, ring.length - index);
+                    System.arraycopy(ring, index, record, 0, first);
+                    System.arraycopy(ring, 0, record, first, length - first);
+                    position += length;
+                    // Освобождаем место в буфере до записи в сегмент
+                    head.lazySet(position);
+                    write(record, length);
+                    wrote = true;
+                }
+
+                // Отмечаем пропуск записей, чтобы при воспроизведении затронутые партии считались неполными
+                long droppedNow = dropped.get();
+                if (droppedNow != reportedDropped) {
+                    ByteBuffer gap = ByteBuffer.wrap(record);
+                    gap.putShort(0, (short) (JournalRecord.HEADER_SIZE + 8));
+                    gap.put(2, JournalRecord.GAP);
+                    gap.putInt(3, -1);
+                    gap.putLong(7, System.currentTimeMillis());
+                    gap.putLong(JournalRecord.HEADER_SIZE, droppedNow - reportedDropped);
+                    write(record, JournalRecord.HEADER_SIZE + 8);
+                    Log.warn("Буфер журнала игр переполнен, отброшено записей: " + (droppedNow - reportedDropped));
+                    reportedDropped = droppedNow;
+                    wrote = true;
+                }
+            } catch (IOException e) {
+                Log.error("Ошибка записи журнала игр, журнал остановлен: " + e.getMessage());
+                return;
+            }
+
+            if (!wrote) {
+                if (!running) {
+                    closeSegment();
+                    return;
+                }
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+            }
+        }
+    }
+
+    /**
+     * Записывает запись в текущий сегмент, открывая новый сегмент, если в текущем нет места.
+     */
+    private void write(byte[] record, int length) throws IOException {
+        if (segment.remaining() < length) {
+            closeSegment();
+            segmentIndex++;
+            openSegment();
+        }
+        segment.put(record, 0, length);
+    }
+
+    /**
+     * Создает файл нового сегмента и отображает его в память. Файл заполнен нулями,
+     * поэтому нулевая длина записи означает конец данных сегмента.
+     */
+    private void openSegment() throws IOException {
+        Path file = directory.resolve(String.format("%08d%s", segmentIndex, SEGMENT_SUFFIX));
+        segmentChannel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        segment = segmentChannel.map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes);
+        segment.putInt(SEGMENT_MAGIC);
+        segment.putInt(SEGMENT_VERSION);
+        segment.putLong(segmentIndex);
+    }
+
+    private void closeSegment() {
+        if (segment == null) {
+            return;
+        }
+        segment.force();
+        try {
+            segmentChannel.close();
+        } catch (IOException ignored) {}
+        segment = null;
+        segmentChannel = null;
+    }
+}
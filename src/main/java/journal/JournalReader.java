@@ -0,0 +1,174 @@
+package journal;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Последовательное чтение журнала игр: сегменты читаются по порядку номеров через отображение в память.
+ * Чтение можно выполнять, пока сервер пишет журнал: читаются записи, уже перенесенные в сегменты.
+ */
+public class JournalReader {
+    private final List<Path> segments;
+    private int nextSegment;
+    private MappedByteBuffer current;
+
+    /**
+     * Открывает журнал для чтения.
+     *
+     * @param directory каталог журнала
+     * @throws IOException если каталог не удается прочитать
+     */
+    public JournalReader(Path directory) throws IOException {
+        this.segments = listSegments(directory);
+    }
+
+    /**
+     * Возвращает файлы-сегменты журнала в порядке номеров.
+     *
+     * @param directory каталог журнала
+     * @return список файлов (пустой, если каталога нет)
+     * @throws IOException если каталог не удается прочитать
+     */
+    static List<Path> listSegments(Path directory) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return List.of();
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.getFileName().toString().endsWith(GameJournal.SEGMENT_SUFFIX))
+                    .sorted((a, b) -> Long.compare(segmentIndex(a), segmentIndex(b)))
+                    .toList();
+        }
+    }
+
+    /**
+     * Возвращает номер сегмента по имени файла.
+     */
+    static long segmentIndex(Path file) {
+        String name = file.getFileName().toString();
+        return Long.parseLong(name.substring(0, name.length() - GameJournal.SEGMENT_SUFFIX.length()));
+    }
+
+    /**
+     * Читает следующую запись журнала.
+     *
+     * @param record запись, в которую помещаются прочитанные данные
+     * @return true, если запись прочитана, false - если записей больше нет
+     * @throws IOException если сегмент не удается прочитать или он поврежден
+     */
+    public boolean next(JournalRecord record) throws IOException {
+        while (true) {
+            if (current != null && readRecord(record)) {
+                return true;
+            }
+            if (nextSegment >= segments.size()) {
+                return false;
+            }
+            current = map(segments.get(nextSegment++));
+        }
+    }
+
+    /**
+     * Переходит к записям, следующим за отметкой снимка. Сегменты просматриваются от последнего к первому,
+     * поэтому время поиска определяется размером последних сегментов, а не всей историей журнала.
+     *
+     * @param markId номер снимка
+     * @return true, если отметка найдена и следующий вызов {@link #next} вернет запись после нее
+     * @throws IOException если сегмент не удается прочитать или он поврежден
+     */
+    public boolean seekMark(long markId) throws IOException {
+        JournalRecord record = new JournalRecord();
+        for (int index = segments.size() - 1; index >= 0; index--) {
+            current = map(segments.get(index));
+            while (readRecord(record)) {
+                if (record.type == JournalRecord.MARK && record.number == markId) {
+                    nextSegment = index + 1;
+                    return true;
+                }
+            }
+        }
+        current = null;
+        nextSegment = segments.size();
+        return false;
+    }
+
+    private MappedByteBuffer map(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.remaining() < GameJournal.SEGMENT_HEADER_SIZE
+                    || buffer.getInt() != GameJournal.SEGMENT_MAGIC
+                    || buffer.getInt() != GameJournal.SEGMENT_VERSION) {
+                throw new IOException("Файл " + file + " не является сегментом журнала игр");
+            }
+            buffer.getLong();
+            return buffer;
+        }
+    }
+
+    /**
+     * Читает запись из текущего сегмента.
+     *
+     * @return false, если данные сегмента закончились (нулевая или неполная запись)
+     */
+    private boolean readRecord(JournalRecord record) {
+        MappedByteBuffer buffer = current;
+        if (buffer.remaining() < JournalRecord.HEADER_SIZE) {
+            return false;
+        }
+        int start = buffer.position();
+        int length = buffer.getShort(start);
+        if (length < JournalRecord.HEADER_SIZE || length > buffer.remaining()) {
+            return false;
+        }
+
+        buffer.position(start + 2);
+        record.type = buffer.get();
+        record.room = buffer.getInt();
+        record.timestamp = buffer.getLong();
+        record.number = 0;
+        record.text = null;
+        record.names.clear();
+
+        switch (record.type) {
+            case JournalRecord.ROOM, JournalRecord.LEAVE, JournalRecord.TURN -> record.text = getString(buffer);
+            case JournalRecord.DEAL, JournalRecord.GAP, JournalRecord.MARK -> record.number = buffer.getLong();
+            case JournalRecord.JOIN -> {
+                record.number = buffer.get();
+                record.text = getString(buffer);
+            }
+            case JournalRecord.TOKEN -> {
+                record.number = buffer.getLong();
+                record.text = getString(buffer);
+            }
+            case JournalRecord.START, JournalRecord.RESTORE -> {
+                int count = buffer.get();
+                for (int i = 0; i < count; i++) {
+                    record.names.add(getString(buffer));
+                }
+            }
+            case JournalRecord.OPEN, JournalRecord.MATCH -> record.number = buffer.get();
+            case JournalRecord.GAME_OVER -> {
+                record.number = buffer.getInt();
+                record.text = getString(buffer);
+            }
+            default -> {
+                // CLEAR, RESET и неизвестные типы: данные пропускаются
+            }
+        }
+        buffer.position(start + length);
+        return true;
+    }
+
+    private static String getString(MappedByteBuffer buffer) {
+        int length = buffer.getShort();
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
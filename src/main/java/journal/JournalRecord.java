@@ -0,0 +1,100 @@
+package journal;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Запись журнала игр.
+ * Формат записи: [short длина записи][byte тип][int номер комнаты][long время, мс][данные типа].
+ * Строки кодируются как [short длина][байты UTF-8]. Экземпляр переиспользуется при чтении,
+ * поэтому чтение журнала не создает объект на каждую запись.
+ */
+public final class JournalRecord {
+    // Размер заголовка записи: длина, тип, номер комнаты и время
+    static final int HEADER_SIZE = 2 + 1 + 4 + 8;
+
+    /** Комната получила номер. Данные: идентификатор комнаты. */
+    public static final byte ROOM = 1;
+    /** Новая раскладка карточек. Данные: long начальное значение генератора раскладки. */
+    public static final byte DEAL = 2;
+    /** Игрок занял место. Данные: byte 1 - бот сервера, 0 - подключение; имя игрока. */
+    public static final byte JOIN = 3;
+    /** Игрок покинул комнату. Данные: имя игрока. */
+    public static final byte LEAVE = 4;
+    /** Начало игры. Данные: byte количество игроков, имена в порядке ходов. */
+    public static final byte START = 5;
+    /** Текущий игрок открыл карточку. Данные: byte позиция карточки. */
+    public static final byte OPEN = 6;
+    /** Проверка двух открытых карточек. Данные: byte 1 - пара найдена, 0 - промах. */
+    public static final byte MATCH = 7;
+    /** Ход перешел к игроку. Данные: имя игрока. */
+    public static final byte TURN = 8;
+    /** Открытые карточки закрыты (конец хода). Данных нет. */
+    public static final byte CLEAR = 9;
+    /** Конец игры. Данные: int максимальный счет, победители через точку с запятой. */
+    public static final byte GAME_OVER = 10;
+    /** Игра сброшена до окончания. Данных нет. */
+    public static final byte RESET = 11;
+    /** Записи потеряны из-за переполнения буфера. Номер комнаты -1, данные: long количество потерянных записей. */
+    public static final byte GAP = 12;
+    /** Отметка снимка комнат. Номер комнаты -1, данные: long номер снимка. */
+    public static final byte MARK = 13;
+    /** Комната восстановлена из снимка после перезапуска сервера. Данные: byte количество мест, имена мест. */
+    public static final byte RESTORE = 14;
+    /** Игроку выдан токен возобновления. Данные: long хеш токена, имя игрока. */
+    public static final byte TOKEN = 15;
+
+    byte type;
+    int room;
+    long timestamp;
+    long number;
+    String text;
+    final List<String> names = new ArrayList<>();
+
+    public byte getType() {
+        return type;
+    }
+
+    public int getRoom() {
+        return room;
+    }
+
+    /**
+     * Возвращает время записи.
+     *
+     * @return время в миллисекундах от начала эпохи
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    /**
+     * Возвращает числовые данные записи: начальное значение раскладки (DEAL), позицию карточки (OPEN),
+     * признак бота (JOIN), признак пары (MATCH), максимальный счет (GAME_OVER), количество потерянных записей (GAP),
+     * номер снимка (MARK) или хеш токена возобновления (TOKEN).
+     *
+     * @return числовые данные
+     */
+    public long getNumber() {
+        return number;
+    }
+
+    /**
+     * Возвращает строковые данные записи: идентификатор комнаты (ROOM), имя игрока (JOIN, LEAVE, TURN, TOKEN)
+     * или победителей (GAME_OVER).
+     *
+     * @return строковые данные или null
+     */
+    public String getText() {
+        return text;
+    }
+
+    /**
+     * Возвращает имена игроков в порядке ходов (START, RESTORE).
+     *
+     * @return список имен; список переиспользуется следующим чтением
+     */
+    public List<String> getNames() {
+        return names;
+    }
+}
@@ -0,0 +1,255 @@
+package journal;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Снимок комнаты: все, что нужно для продолжения партии после перезапуска сервера.
+ * Раскладка хранится начальным значением генератора, найденные пары - битовой маской,
+ * поэтому снимок занимает десятки байт. К снимку можно применять записи журнала ({@link #apply}),
+ * чтобы довести его до состояния на момент остановки сервера.
+ */
+public final class RoomSnapshot {
+    /**
+     * Место в комнате.
+     *
+     * @param name      имя игрока
+     * @param bot       место занимает бот сервера
+     * @param strategy  стратегия бота или null, если она неизвестна
+     * @param tokenHash хеш последнего токена возобновления, выданного игроку, 0 - токен не выдавался
+     */
+    public record Seat(String name, boolean bot, String strategy, long tokenHash) {
+    }
+
+    private final String roomId;
+    private int journalRoom;
+    private long dealSeed;
+    private boolean started;
+    // Найденные карточки: бит i - карточка на позиции i
+    private long matchedMask;
+    private final List<Integer> opened = new ArrayList<>();
+    private final List<Seat> seats = new ArrayList<>();
+    private final Map<String, Integer> scores = new LinkedHashMap<>();
+    private String currentPlayer;
+    // Часть записей после снимка потеряна: партию нельзя продолжить
+    private boolean broken;
+
+    /**
+     * Создает пустой снимок комнаты.
+     *
+     * @param roomId      идентификатор комнаты
+     * @param journalRoom номер комнаты в журнале
+     */
+    public RoomSnapshot(String roomId, int journalRoom) {
+        this.roomId = roomId;
+        this.journalRoom = journalRoom;
+    }
+
+    /**
+     * Задает состояние партии.
+     *
+     * @param dealSeed      начальное значение генератора раскладки
+     * @param started       начата ли игра
+     * @param matched       позиции найденных карточек
+     * @param opened        позиции карточек, открытых в текущем ходе
+     * @param currentPlayer текущий игрок или null
+     */
+    public void setGame(long dealSeed, boolean started, List<Integer> matched, List<Integer> opened, String currentPlayer) {
+        this.dealSeed = dealSeed;
+        this.started = started;
+        this.matchedMask = 0;
+        for (int position : matched) {
+            matchedMask |= 1L << position;
+        }
+        this.opened.clear();
+        this.opened.addAll(opened);
+        this.currentPlayer = currentPlayer;
+    }
+
+    /**
+     * Добавляет место в порядке очереди ходов.
+     *
+     * @param seat  место
+     * @param score счет игрока
+     */
+    public void addSeat(Seat seat, int score) {
+        seats.add(seat);
+        scores.put(seat.name(), score);
+    }
+
+    /**
+     * Применяет запись журнала этой комнаты.
+     *
+     * @param record запись журнала
+     */
+    public void apply(JournalRecord record) {
+        switch (record.getType()) {
+            case JournalRecord.DEAL -> {
+                dealSeed = record.getNumber();
+                matchedMask = 0;
+                opened.clear();
+                scores.replaceAll((name, score) -> 0);
+                started = false;
+                currentPlayer = null;
+                broken = false;
+            }
+            case JournalRecord.JOIN -> {
+                seats.add(new Seat(record.getText(), record.getNumber() != 0, null, 0));
+                scores.putIfAbsent(record.getText(), 0);
+            }
+            case JournalRecord.TOKEN -> seats.replaceAll(seat -> seat.name().equals(record.getText())
+                    ? new Seat(seat.name(), seat.bot(), seat.strategy(), record.getNumber())
+                    : seat);
+            case JournalRecord.LEAVE -> {
+                seats.removeIf(seat -> seat.name().equals(record.getText()));
+                scores.remove(record.getText());
+            }
+            case JournalRecord.START -> {
+                started = true;
+                currentPlayer = record.getNames().isEmpty() ? null : record.getNames().getFirst();
+            }
+            case JournalRecord.OPEN -> opened.add((int) record.getNumber());
+            case JournalRecord.MATCH -> {
+                if (record.getNumber() != 0 && currentPlayer != null) {
+                    for (int position : opened) {
+                        matchedMask |= 1L << position;
+                    }
+                    scores.merge(currentPlayer, 1, Integer::sum);
+                }
+            }
+            case JournalRecord.TURN -> currentPlayer = record.getText();
+            case JournalRecord.CLEAR -> opened.clear();
+            case JournalRecord.GAME_OVER, JournalRecord.RESET -> {
+                started = false;
+                opened.clear();
+            }
+            default -> {
+                // Остальные записи не меняют состояние комнаты
+            }
+        }
+    }
+
+    /**
+     * Переносит в этот снимок состояние предыдущего снимка той же комнаты
+     * (комната была восстановлена после перезапуска и получила новый номер в журнале).
+     *
+     * @param previous снимок комнаты до перезапуска
+     */
+    void continueFrom(RoomSnapshot previous) {
+        dealSeed = previous.dealSeed;
+        started = previous.started;
+        matchedMask = previous.matchedMask;
+        opened.clear();
+        opened.addAll(previous.opened);
+        seats.clear();
+        seats.addAll(previous.seats);
+        scores.clear();
+        scores.putAll(previous.scores);
+        currentPlayer = previous.currentPlayer;
+        broken = previous.broken;
+    }
+
+    void markBroken() {
+        broken = true;
+    }
+
+    void write(DataOutputStream out) throws IOException {
+        out.writeUTF(roomId);
+        out.writeInt(journalRoom);
+        out.writeLong(dealSeed);
+        out.writeBoolean(started);
+        out.writeLong(matchedMask);
+        out.writeByte(opened.size());
+        for (int position : opened) {
+            out.writeByte(position);
+        }
+        out.writeUTF(currentPlayer != null ? currentPlayer : "");
+        out.writeByte(seats.size());
+        for (Seat seat : seats) {
+            out.writeUTF(seat.name());
+            out.writeBoolean(seat.bot());
+            out.writeUTF(seat.strategy() != null ? seat.strategy() : "");
+            out.writeLong(seat.tokenHash());
+            out.writeInt(scores.getOrDefault(seat.name(), 0));
+        }
+    }
+
+    static RoomSnapshot read(DataInputStream in, int version) throws IOException {
+        RoomSnapshot snapshot = new RoomSnapshot(in.readUTF(), in.readInt());
+        snapshot.dealSeed = in.readLong();
+        snapshot.started = in.readBoolean();
+        snapshot.matchedMask = in.readLong();
+        int opened = in.readUnsignedByte();
+        for (int i = 0; i < opened; i++) {
+            snapshot.opened.add(in.readUnsignedByte());
+        }
+        String current = in.readUTF();
+        snapshot.currentPlayer = current.isEmpty() ? null : current;
+        int seats = in.readUnsignedByte();
+        for (int i = 0; i < seats; i++) {
+            String name = in.readUTF();
+            boolean bot = in.readBoolean();
+            String strategy = in.readUTF();
+            long tokenHash = version >= 2 ? in.readLong() : 0;
+            snapshot.addSeat(new Seat(name, bot, strategy.isEmpty() ? null : strategy, tokenHash), in.readInt());
+        }
+        return snapshot;
+    }
+
+    public String getRoomId() {
+        return roomId;
+    }
+
+    public int getJournalRoom() {
+        return journalRoom;
+    }
+
+    public long getDealSeed() {
+        return dealSeed;
+    }
+
+    /**
+     * Проверяет, идет ли в комнате партия, которую можно продолжить.
+     *
+     * @return true, если игра начата и записи о ней не потеряны
+     */
+    public boolean isGameInProgress() {
+        return started && !broken;
+    }
+
+    /**
+     * Возвращает позиции найденных карточек.
+     *
+     * @return список позиций
+     */
+    public List<Integer> getMatched() {
+        List<Integer> matched = new ArrayList<>();
+        for (int position = 0; position < Long.SIZE; position++) {
+            if ((matchedMask & (1L << position)) != 0) {
+                matched.add(position);
+            }
+        }
+        return matched;
+    }
+
+    public List<Integer> getOpened() {
+        return opened;
+    }
+
+    public List<Seat> getSeats() {
+        return seats;
+    }
+
+    public Map<String, Integer> getScores() {
+        return scores;
+    }
+
+    public String getCurrentPlayer() {
+        return currentPlayer;
+    }
+}
@@ -0,0 +1,191 @@
+package journal;
+
+import util.Log;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Хранилище снимков комнат в каталоге журнала. Снимок кодируется в потоке цикла событий,
+ * а на диск записывается фоновым потоком: сначала во временный файл, затем файл атомарно заменяет прежний,
+ * поэтому после сбоя на диске всегда остается целый снимок.
+ */
+public class SnapshotStore {
+    private static final int MAGIC = 0x4D454D53;
+    // Версия 2 добавила хеши токенов возобновления мест; снимки версии 1 читаются без них
+    private static final int VERSION = 2;
+    private static final String FILE_NAME = "snapshot.bin";
+
+    private final Path file;
+    private final Path tempFile;
+    private final ExecutorService writer = Executors.newSingleThreadExecutor(task -> {
+        Thread thread = new Thread(task, "snapshot-writer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Создает хранилище снимков.
+     *
+     * @param directory каталог журнала
+     */
+    public SnapshotStore(Path directory) {
+        this.file = directory.resolve(FILE_NAME);
+        this.tempFile = directory.resolve(FILE_NAME + ".tmp");
+    }
+
+    /**
+     * Кодирует снимок комнат и записывает его на диск в фоновом потоке.
+     *
+     * @param markId номер отметки снимка в журнале
+     * @param rooms  снимки комнат
+     */
+    public void saveAsync(long markId, List<RoomSnapshot> rooms) {
+        byte[] data;
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 + rooms.size() * 128);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(markId);
+            out.writeInt(rooms.size());
+            for (RoomSnapshot room : rooms) {
+                room.write(out);
+            }
+            data = bytes.toByteArray();
+        } catch (IOException e) {
+            Log.error("Не удалось закодировать снимок комнат: " + e.getMessage());
+            return;
+        }
+        writer.execute(() -> write(data));
+    }
+
+    private void write(byte[] data) {
+        try (FileChannel channel = FileChannel.open(tempFile, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            channel.write(ByteBuffer.wrap(data));
+            channel.force(true);
+        } catch (IOException e) {
+            Log.error("Не удалось записать снимок комнат: " + e.getMessage());
+            return;
+        }
+        try {
+            Files.move(tempFile, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            Log.error("Не удалось заменить снимок комнат: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Восстанавливает комнаты после перезапуска: читает последний снимок и применяет к нему
+     * записи журнала, сделанные после отметки снимка.
+     *
+     * @param directory каталог журнала
+     * @return результат восстановления (пустой, если снимка нет)
+     * @throws IOException если снимок или журнал не удается прочитать
+     */
+    public static Recovery recover(Path directory) throws IOException {
+        Path file = directory.resolve(FILE_NAME);
+        if (!Files.exists(file)) {
+            return new Recovery(0, List.of());
+        }
+
+        long markId;
+        // Комнаты в порядке регистрации в журнале; номера комнат начинаются заново после каждого перезапуска
+        List<RoomSnapshot> rooms = new ArrayList<>();
+        Map<Integer, RoomSnapshot> byNumber = new HashMap<>();
+        try (InputStream input = Files.newInputStream(file)) {
+            DataInputStream in = new DataInputStream(input);
+            int version = in.readInt() == MAGIC ? in.readInt() : -1;
+            if (version < 1 || version > VERSION) {
+                throw new IOException("Файл " + file + " не является снимком комнат");
+            }
+            markId = in.readLong();
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                RoomSnapshot room = RoomSnapshot.read(in, version);
+                rooms.add(room);
+                byNumber.put(room.getJournalRoom(), room);
+            }
+        }
+
+        JournalReader reader = new JournalReader(directory);
+        if (reader.seekMark(markId)) {
+            JournalRecord record = new JournalRecord();
+            while (reader.next(record)) {
+                switch (record.getType()) {
+                    case JournalRecord.ROOM -> {
+                        RoomSnapshot room = new RoomSnapshot(record.getText(), record.getRoom());
+                        rooms.add(room);
+                        byNumber.put(record.getRoom(), room);
+                    }
+                    case JournalRecord.RESTORE -> {
+                        RoomSnapshot room = byNumber.get(record.getRoom());
+                        RoomSnapshot previous = room != null ? findPrevious(rooms, room) : null;
+                        if (previous != null) {
+                            room.continueFrom(previous);
+                            rooms.remove(previous);
+                        }
+                    }
+                    case JournalRecord.GAP -> rooms.forEach(RoomSnapshot::markBroken);
+                    case JournalRecord.MARK -> {
+                        // Отметки последующих снимков, которые не успели записаться на диск
+                    }
+                    default -> {
+                        RoomSnapshot room = byNumber.get(record.getRoom());
+                        if (room != null) {
+                            room.apply(record);
+                        }
+                    }
+                }
+            }
+        } else {
+            // Записи после снимка недоступны: места сохраняются, но партии начинаются заново
+            Log.warn("Отметка снимка " + markId + " не найдена в журнале, партии не будут продолжены");
+            rooms.forEach(RoomSnapshot::markBroken);
+        }
+
+        // Для каждой комнаты остается последнее состояние; комнаты без игроков не восстанавливаются
+        Map<String, RoomSnapshot> latest = new LinkedHashMap<>();
+        for (RoomSnapshot room : rooms) {
+            latest.put(room.getRoomId(), room);
+        }
+        latest.values().removeIf(room -> room.getSeats().isEmpty());
+        return new Recovery(markId, List.copyOf(latest.values()));
+    }
+
+    private static RoomSnapshot findPrevious(List<RoomSnapshot> rooms, RoomSnapshot room) {
+        for (int i = rooms.size() - 1; i >= 0; i--) {
+            RoomSnapshot candidate = rooms.get(i);
+            if (candidate != room && candidate.getRoomId().equals(room.getRoomId())) {
+                return candidate;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Результат восстановления.
+     *
+     * @param markId номер последнего снимка (новые снимки получают большие номера)
+     * @param rooms  восстановленные комнаты
+     */
+    public record Recovery(long markId, List<RoomSnapshot> rooms) {
+    }
+}
@@ -0,0 +1,59 @@
+package metrics;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * Счетчик с одним писателем.
+ * Изменяется только потоком цикла событий, поэтому увеличение выполняется без CAS и блокировок:
+ * обычное чтение и "непрозрачная" запись, которую другие потоки (JMX) видят без разрыва значения.
+ * Не выделяет памяти.
+ */
+public class Counter {
+    private static final VarHandle VALUE;
+
+    static {
+        try {
+            VALUE = MethodHandles.lookup().findVarHandle(Counter.class, "value", long.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    @SuppressWarnings("unused") // Изменяется через VALUE
+    private long value;
+
+    /**
+     * Увеличивает счетчик на единицу. Вызывается только потоком-писателем.
+     */
+    public void increment() {
+        VALUE.setOpaque(this, value + 1);
+    }
+
+    /**
+     * Увеличивает счетчик на указанную величину. Вызывается только потоком-писателем.
+     *
+     * @param delta величина увеличения
+     */
+    public void add(long delta) {
+        VALUE.setOpaque(this, value + delta);
+    }
+
+    /**
+     * Устанавливает значение (для показателей текущего состояния). Вызывается только потоком-писателем.
+     *
+     * @param newValue новое значение
+     */
+    public void set(long newValue) {
+        VALUE.setOpaque(this, newValue);
+    }
+
+    /**
+     * Возвращает значение. Может вызываться из любого потока.
+     *
+     * @return текущее значение
+     */
+    public long get() {
+        return (long) VALUE.getOpaque(this);
+    }
+}
@@ -0,0 +1,44 @@
+package metrics;
+
+import util.Log;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+
+/**
+ * Регистрирует метрики сервера в платформенном MBeanServer.
+ * После регистрации метрики доступны стандартным инструментам JDK (jconsole, VisualVM, jcmd с JMX-агентом)
+ * без внешних сервисов.
+ */
+public class JmxExporter {
+    // Домен JMX-имен метрик
+    public static final String DOMAIN = "ru.itis.memo";
+
+    /**
+     * Регистрирует счетчики и гистограммы сервера.
+     * Ошибка регистрации не мешает работе сервера и только выводится в журнал.
+     *
+     * @param metrics метрики сервера
+     */
+    public static void register(ServerMetrics metrics) {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            register(server, metrics, new ObjectName(DOMAIN + ":type=ServerMetrics"));
+            for (LatencyHistogram histogram : metrics.histograms()) {
+                register(server, histogram, new ObjectName(DOMAIN + ":type=Histogram,name=" + histogram.getName()));
+            }
+        } catch (JMException e) {
+            Log.warn("Не удалось зарегистрировать метрики в JMX: " + e.getMessage());
+        }
+    }
+
+    private static void register(MBeanServer server, Object bean, ObjectName name) throws JMException {
+        // Повторный запуск сервера в той же JVM заменяет ранее зарегистрированные метрики
+        if (server.isRegistered(name)) {
+            server.unregisterMBean(name);
+        }
+        server.registerMBean(bean, name);
+    }
+}
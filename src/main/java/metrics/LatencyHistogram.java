@@ -0,0 +1,162 @@
+package metrics;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * Гистограмма задержек с логарифмически-линейными интервалами.
+ * Каждая степень двойки (в микросекундах) делится на 8 равных интервалов, поэтому
+ * относительная погрешность процентилей не превышает 12.5% при фиксированном размере массива.
+ * Запись не выделяет памяти и не использует CAS: значения записывает один поток (цикл событий),
+ * а читать их можно из любого потока (JMX), как и у {@link Counter}.
+ */
+public class LatencyHistogram implements LatencyHistogramMXBean {
+    private static final VarHandle COUNTS = MethodHandles.arrayElementVarHandle(long[].class);
+
+    // Количество интервалов на одну степень двойки (степень двойки)
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKET_COUNT = (64 - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+    private final String name;
+    private final long[] counts = new long[BUCKET_COUNT];
+
+    private final Counter count = new Counter();
+    private final Counter sumMicros = new Counter();
+    private final Counter maxMicros = new Counter();
+
+    /**
+     * Конструктор гистограммы.
+     *
+     * @param name название измеряемой величины
+     */
+    public LatencyHistogram(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Учитывает значение задержки.
+     *
+     * @param nanos задержка в наносекундах
+     */
+    public void record(long nanos) {
+        long micros = Math.max(0, nanos / 1_000);
+        int index = bucketIndex(micros);
+        COUNTS.setOpaque(counts, index, counts[index] + 1);
+        count.increment();
+        sumMicros.add(micros);
+        if (micros > maxMicros.get()) {
+            maxMicros.set(micros);
+        }
+    }
+
+    /**
+     * Вычисляет номер интервала для значения.
+     *
+     * @param micros значение в микросекундах
+     * @return номер интервала
+     */
+    private static int bucketIndex(long micros) {
+        if (micros < SUB_BUCKETS) {
+            return (int) micros;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(micros);
+        int subBucket = (int) (micros >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    /**
+     * Возвращает нижнюю границу интервала.
+     *
+     * @param index номер интервала
+     * @return нижняя граница в микросекундах
+     */
+    private static long bucketLowerBound(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int exponent = index / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        int subBucket = index % SUB_BUCKETS;
+        return (long) (SUB_BUCKETS + subBucket) << (exponent - SUB_BUCKET_BITS);
+    }
+
+    /**
+     * Возвращает значение процентиля.
+     *
+     * @param percentile процентиль (от 0 до 100)
+     * @return верхняя граница интервала, в который попадает процентиль, в микросекундах
+     */
+    public long getPercentileMicros(double percentile) {
+        // При чтении из другого потока сумма интервалов может немного отличаться от счетчика
+        long total = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            total += (long) COUNTS.getOpaque(counts, i);
+        }
+        if (total == 0) {
+            return 0;
+        }
+
+        long max = maxMicros.get();
+        long rank = Math.max(1, (long) Math.ceil(total * percentile / 100));
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += (long) COUNTS.getOpaque(counts, i);
+            if (seen >= rank) {
+                long upper = i + 1 < BUCKET_COUNT ? bucketLowerBound(i + 1) - 1 : Long.MAX_VALUE;
+                return Math.min(upper, max);
+            }
+        }
+        return max;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public long getCount() {
+        return count.get();
+    }
+
+    @Override
+    public long getMaxMicros() {
+        return maxMicros.get();
+    }
+
+    /**
+     * Возвращает среднее значение.
+     *
+     * @return среднее значение в микросекундах
+     */
+    @Override
+    public long getMeanMicros() {
+        long n = count.get();
+        return n == 0 ? 0 : sumMicros.get() / n;
+    }
+
+    @Override
+    public long getP50Micros() {
+        return getPercentileMicros(50);
+    }
+
+    @Override
+    public long getP90Micros() {
+        return getPercentileMicros(90);
+    }
+
+    @Override
+    public long getP99Micros() {
+        return getPercentileMicros(99);
+    }
+
+    /**
+     * Формирует краткую сводку для журнала.
+     *
+     * @return строка со статистикой в миллисекундах
+     */
+    public String summary() {
+        return String.format("%s: n=%d mean=%.1fms p50=%.1fms p90=%.1fms p99=%.1fms max=%.1fms",
+                name, getCount(), getMeanMicros() / 1000.0, getPercentileMicros(50) / 1000.0,
+                getPercentileMicros(90) / 1000.0, getPercentileMicros(99) / 1000.0, getMaxMicros() / 1000.0);
+    }
+}
@@ -0,0 +1,18 @@
+package metrics;
+
+/**
+ * JMX-интерфейс гистограммы задержек. Все значения в микросекундах.
+ */
+public interface LatencyHistogramMXBean {
+    long getCount();
+
+    long getMeanMicros();
+
+    long getP50Micros();
+
+    long getP90Micros();
+
+    long getP99Micros();
+
+    long getMaxMicros();
+}
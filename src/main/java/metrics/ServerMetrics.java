@@ -0,0 +1,350 @@
+package metrics;
+
+import util.Log;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Метрики сервера.
+ * Объединяет гистограммы и счетчики, которые заполняются потоком цикла событий.
+ * Запись не выделяет памяти, поэтому метрики можно держать включенными постоянно.
+ */
+public class ServerMetrics implements ServerMetricsMXBean {
+    // Подключения
+    private final Counter connectionsAccepted = new Counter();
+    private final Counter connectionsRejected = new Counter();
+    private final Counter activeConnections = new Counter();
+
+    // Входящие сообщения по типам протокола (индекс - тип сообщения)
+    private final Counter[] messagesByType;
+    // Сообщения, превысившие лимит частоты, по типам протокола и действия, примененные к клиентам
+    private final Counter[] rateLimitViolationsByType;
+    private final Counter rateLimitThrottled = new Counter();
+    private final Counter rateLimitDisconnected = new Counter();
+
+    // Сетевой ввод-вывод
+    private final Counter bytesIn = new Counter();
+    private final Counter bytesOut = new Counter();
+    // Записи, при которых канал принял кадр не целиком
+    private final Counter partialWrites = new Counter();
+    // Кадры, поставленные в очередь медленного клиента
+    private final Counter queuedFrames = new Counter();
+    // Устаревшие кадры состояния, выброшенные из очередей медленных клиентов
+    private final Counter conflatedFrames = new Counter();
+    // Разосланные кадры состояния игры (по одному на рассылку комнаты)
+    private final Counter stateFramesSent = new Counter();
+    // Объем и количество очередей отправки на момент последней проверки отстающих клиентов
+    private final Counter backlogBytes = new Counter();
+    private final Counter backlogClients = new Counter();
+    // Игроки в очереди подбора соперников
+    private final Counter matchmakingQueued = new Counter();
+    // Зрители комнат и кадры состояния, отправленные зрителям
+    private final Counter spectators = new Counter();
+    private final Counter spectatorFrames = new Counter();
+
+    // Задержки цикла событий, замеченные сторожевым таймером (пишет поток сторожа)
+    private final Counter loopStalls = new Counter();
+    private final Map<String, Counter> loopStallsByCause = new ConcurrentHashMap<>();
+
+    // Время приема-передачи (ping/pong) по всем подключениям
+    private final LatencyHistogram rtt = new LatencyHistogram("rtt");
+    // Время от получения открытия карточки до рассылки состояния
+    private final LatencyHistogram cardOpenToBroadcast = new LatencyHistogram("cardOpenToBroadcast");
+    // Время работы одной итерации цикла событий (без ожидания в селекторе)
+    private final LatencyHistogram loopIteration = new LatencyHistogram("loopIteration");
+    // Время одного решения подбора соперников (постановка в очередь или сборка комнаты по сроку ожидания)
+    private final LatencyHistogram matchDecision = new LatencyHistogram("matchDecision");
+
+    /**
+     * Конструктор.
+     *
+     * @param messageTypeCount количество типов сообщений протокола
+     */
+    public ServerMetrics(int messageTypeCount) {
+        messagesByType = new Counter[messageTypeCount];
+        rateLimitViolationsByType = new Counter[messageTypeCount];
+        for (int i = 0; i < messageTypeCount; i++) {
+            messagesByType[i] = new Counter();
+            rateLimitViolationsByType[i] = new Counter();
+        }
+    }
+
+    /**
+     * Учитывает входящее сообщение.
+     *
+     * @param messageType тип сообщения
+     */
+    public void recordMessage(int messageType) {
+        if (messageType >= 0 && messageType < messagesByType.length) {
+            messagesByType[messageType].increment();
+        }
+    }
+
+    /**
+     * Учитывает сообщение, превысившее лимит частоты.
+     *
+     * @param messageType тип сообщения
+     */
+    public void recordRateLimitViolation(int messageType) {
+        if (messageType >= 0 && messageType < rateLimitViolationsByType.length) {
+            rateLimitViolationsByType[messageType].increment();
+        }
+    }
+
+    /**
+     * Учитывает задержку цикла событий.
+     * Вызывается только потоком сторожевого таймера.
+     *
+     * @param cause причина (вид работы, выполнявшейся в момент задержки)
+     */
+    public void recordLoopStall(String cause) {
+        loopStalls.increment();
+        loopStallsByCause.computeIfAbsent(cause, _ -> new Counter()).increment();
+    }
+
+    public Counter connectionsAccepted() {
+        return connectionsAccepted;
+    }
+
+    public Counter connectionsRejected() {
+        return connectionsRejected;
+    }
+
+    public Counter activeConnections() {
+        return activeConnections;
+    }
+
+    public Counter bytesIn() {
+        return bytesIn;
+    }
+
+    public Counter bytesOut() {
+        return bytesOut;
+    }
+
+    public Counter partialWrites() {
+        return partialWrites;
+    }
+
+    public Counter queuedFrames() {
+        return queuedFrames;
+    }
+
+    public Counter conflatedFrames() {
+        return conflatedFrames;
+    }
+
+    public Counter stateFramesSent() {
+        return stateFramesSent;
+    }
+
+    public Counter backlogBytes() {
+        return backlogBytes;
+    }
+
+    public Counter backlogClients() {
+        return backlogClients;
+    }
+
+    public LatencyHistogram getRtt() {
+        return rtt;
+    }
+
+    public LatencyHistogram getCardOpenToBroadcast() {
+        return cardOpenToBroadcast;
+    }
+
+    public LatencyHistogram getLoopIteration() {
+        return loopIteration;
+    }
+
+    public Counter rateLimitThrottled() {
+        return rateLimitThrottled;
+    }
+
+    public Counter rateLimitDisconnected() {
+        return rateLimitDisconnected;
+    }
+
+    public Counter matchmakingQueued() {
+        return matchmakingQueued;
+    }
+
+    public LatencyHistogram getMatchDecision() {
+        return matchDecision;
+    }
+
+    public Counter spectators() {
+        return spectators;
+    }
+
+    public Counter spectatorFrames() {
+        return spectatorFrames;
+    }
+
+    /**
+     * Возвращает все гистограммы (для регистрации в JMX).
+     *
+     * @return массив гистограмм
+     */
+    public LatencyHistogram[] histograms() {
+        return new LatencyHistogram[]{rtt, cardOpenToBroadcast, loopIteration, matchDecision};
+    }
+
+    @Override
+    public long getConnectionsAccepted() {
+        return connectionsAccepted.get();
+    }
+
+    @Override
+    public long getConnectionsRejected() {
+        return connectionsRejected.get();
+    }
+
+    @Override
+    public long getActiveConnections() {
+        return activeConnections.get();
+    }
+
+    @Override
+    public Map<String, Long> getMessagesByType() {
+        Map<String, Long> result = new LinkedHashMap<>();
+        for (int i = 0; i < messagesByType.length; i++) {
+            result.put(String.valueOf(i), messagesByType[i].get());
+        }
+        return result;
+    }
+
+    @Override
+    public Map<String, Long> getRateLimitViolationsByType() {
+        Map<String, Long> result = new LinkedHashMap<>();
+        for (int i = 0; i < rateLimitViolationsByType.length; i++) {
+            result.put(String.valueOf(i), rateLimitViolationsByType[i].get());
+        }
+        return result;
+    }
+
+    /**
+     * Возвращает общее количество сообщений, превысивших лимит частоты.
+     *
+     * @return количество сообщений
+     */
+    public long getRateLimitViolations() {
+        long total = 0;
+        for (Counter counter : rateLimitViolationsByType) {
+            total += counter.get();
+        }
+        return total;
+    }
+
+    @Override
+    public long getRateLimitThrottled() {
+        return rateLimitThrottled.get();
+    }
+
+    @Override
+    public long getRateLimitDisconnected() {
+        return rateLimitDisconnected.get();
+    }
+
+    @Override
+    public long getBytesIn() {
+        return bytesIn.get();
+    }
+
+    @Override
+    public long getBytesOut() {
+        return bytesOut.get();
+    }
+
+    @Override
+    public long getPartialWrites() {
+        return partialWrites.get();
+    }
+
+    @Override
+    public long getQueuedFrames() {
+        return queuedFrames.get();
+    }
+
+    @Override
+    public long getConflatedFrames() {
+        return conflatedFrames.get();
+    }
+
+    @Override
+    public long getStateFramesSent() {
+        return stateFramesSent.get();
+    }
+
+    @Override
+    public long getBacklogBytes() {
+        return backlogBytes.get();
+    }
+
+    @Override
+    public long getBacklogClients() {
+        return backlogClients.get();
+    }
+
+    @Override
+    public long getMatchmakingQueued() {
+        return matchmakingQueued.get();
+    }
+
+    @Override
+    public long getSpectators() {
+        return spectators.get();
+    }
+
+    @Override
+    public long getSpectatorFrames() {
+        return spectatorFrames.get();
+    }
+
+    @Override
+    public long getLoopStalls() {
+        return loopStalls.get();
+    }
+
+    @Override
+    public long getLogDropped() {
+        return Log.getDroppedCount();
+    }
+
+    @Override
+    public Map<String, Long> getLoopStallsByCause() {
+        Map<String, Long> result = new TreeMap<>();
+        for (Map.Entry<String, Counter> entry : loopStallsByCause.entrySet()) {
+            result.put(entry.getKey(), entry.getValue().get());
+        }
+        return result;
+    }
+
+    /**
+     * Формирует сводку всех метрик для журнала.
+     *
+     * @return строка со статистикой
+     */
+    public String summary() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("connections=").append(getActiveConnections())
+                .append(" accepted=").append(getConnectionsAccepted())
+                .append(" rejected=").append(getConnectionsRejected())
+                .append(" bytesIn=").append(getBytesIn())
+                .append(" bytesOut=").append(getBytesOut())
+                .append(" stateFrames=").append(getStateFramesSent())
+                .append(" spectators=").append(getSpectators())
+                .append(" partialWrites=").append(getPartialWrites())
+                .append(" conflatedFrames=").append(getConflatedFrames())
+                .append(" rateLimited=").append(getRateLimitViolations())
+                .append(" loopStalls=").append(getLoopStallsByCause());
+        for (LatencyHistogram histogram : histograms()) {
+            sb.append("; ").append(histogram.summary());
+        }
+        return sb.toString();
+    }
+}
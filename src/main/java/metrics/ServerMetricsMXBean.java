@@ -0,0 +1,71 @@
+package metrics;
+
+import java.util.Map;
+
+/**
+ * JMX-интерфейс счетчиков сервера.
+ * Доступен в jconsole/VisualVM в домене ru.itis.memo.
+ */
+public interface ServerMetricsMXBean {
+    long getConnectionsAccepted();
+
+    long getConnectionsRejected();
+
+    long getActiveConnections();
+
+    /**
+     * Количество входящих сообщений по типам протокола.
+     *
+     * @return Map с номером типа и количеством сообщений
+     */
+    Map<String, Long> getMessagesByType();
+
+    /**
+     * Количество сообщений, превысивших лимит частоты, по типам протокола.
+     *
+     * @return Map с номером типа и количеством нарушений
+     */
+    Map<String, Long> getRateLimitViolationsByType();
+
+    long getRateLimitThrottled();
+
+    long getRateLimitDisconnected();
+
+    long getBytesIn();
+
+    long getBytesOut();
+
+    long getPartialWrites();
+
+    long getQueuedFrames();
+
+    long getConflatedFrames();
+
+    long getStateFramesSent();
+
+    long getBacklogBytes();
+
+    long getBacklogClients();
+
+    long getMatchmakingQueued();
+
+    long getSpectators();
+
+    long getSpectatorFrames();
+
+    long getLoopStalls();
+
+    /**
+     * Количество задержек цикла событий по причинам.
+     *
+     * @return Map с причиной и количеством задержек
+     */
+    Map<String, Long> getLoopStallsByCause();
+
+    /**
+     * Количество записей журнала, отброшенных из-за заполненного буфера.
+     *
+     * @return количество отброшенных записей
+     */
+    long getLogDropped();
+}
@@ -5,9 +5,11 @@ package model;
  * @param domain домен сервера
  * @param port порт
  * @param username имя пользователя
+ * @param matchmaking true - встать в очередь подбора соперников вместо входа в комнату по умолчанию
  */
 public record ConnectionInfo(
         String domain,
         int port,
-        String username
+        String username,
+        boolean matchmaking
 ) {}
@@ -46,7 +46,25 @@ public class GameModel {
     // Флаг, указывающий, завершена ли игра
     private boolean gameOver;
 
+    // Начальное значение генератора текущей раскладки: по нему раскладку можно воспроизвести
+    private long dealSeed;
+    // Источник начальных значений следующих раскладок
+    private final SplittableRandom dealSeeds;
+
     public GameModel() {
+        this(new SplittableRandom().nextLong());
+    }
+
+    /**
+     * Создает модель игры с заданной раскладкой.
+     * Модели, созданные с одним начальным значением, раскладывают карточки одинаково,
+     * в том числе после сброса игры.
+     *
+     * @param dealSeed начальное значение генератора раскладки
+     */
+    public GameModel(long dealSeed) {
+        this.dealSeed = dealSeed;
+        this.dealSeeds = new SplittableRandom(dealSeed).split();
         initializeBoard();
         this.openedCards = new ArrayList<>();
         this.playerScores = new HashMap<>();
@@ -69,8 +87,8 @@ public class GameModel {
             values.add(i);
         }
 
-        // Перемешиваем значения для случайного распределения карточек по полю
-        Collections.shuffle(values);
+        // Перемешиваем значения генератором раскладки, чтобы раскладку можно было воспроизвести
+        Collections.shuffle(values, new SplittableRandom(dealSeed));
 
         int index = 0;
         // Заполняем игровое поле
@@ -94,6 +112,11 @@ public class GameModel {
             return false;
         }
 
+        // Нельзя открыть карточку за пределами поля, уже найденную или уже открытую в этом ходе
+        if (position < 0 || position >= getCardCount() || isMatched(position) || openedCards.contains(position)) {
+            return false;
+        }
+
         openedCards.add(position);
         return true;
     }
@@ -243,6 +266,7 @@ public class GameModel {
      * Пересоздает игровое поле, очищает счета и сбрасывает все флаги.
      */
     public void resetGame() {
+        dealSeed = dealSeeds.nextLong();
         initializeBoard();
         openedCards.clear();
         clearScores();
@@ -251,6 +275,34 @@ public class GameModel {
         gameOver = false;
     }
 
+    /**
+     * Восстанавливает состояние игры из снимка: раскладка воспроизводится по начальному значению,
+     * затем отмечаются найденные пары, открытые карточки, счета и текущий игрок.
+     *
+     * @param dealSeed      начальное значение генератора раскладки
+     * @param matched       позиции найденных карточек
+     * @param opened        позиции карточек, открытых в текущем ходе
+     * @param scores        счета игроков
+     * @param currentPlayer текущий игрок или null
+     * @param started       начата ли игра
+     */
+    public void restore(long dealSeed, Collection<Integer> matched, List<Integer> opened, Map<String, Integer> scores,
+                        String currentPlayer, boolean started) {
+        this.dealSeed = dealSeed;
+        initializeBoard();
+        for (int position : matched) {
+            board[position / BOARD_SIZE][position % BOARD_SIZE] = "matched";
+        }
+        openedCards.clear();
+        openedCards.addAll(opened);
+        playerScores.clear();
+        playerScores.putAll(scores);
+        this.currentPlayer = currentPlayer;
+        this.gameStarted = started;
+        this.gameOver = false;
+        checkGameOver();
+    }
+
     /**
      * Сбрасывает счета всех игроков к 0.
      */
@@ -258,6 +310,45 @@ public class GameModel {
         playerScores.replaceAll((_, _) -> 0);
     }
 
+    /**
+     * Возвращает количество карточек на поле.
+     *
+     * @return количество карточек
+     */
+    public int getCardCount() {
+        return BOARD_SIZE * BOARD_SIZE;
+    }
+
+    /**
+     * Проверяет, найдена ли пара карточки.
+     *
+     * @param position позиция карточки на поле (0-35)
+     * @return true, если карточка имеет состояние "matched"
+     */
+    public boolean isMatched(int position) {
+        return board[position / BOARD_SIZE][position % BOARD_SIZE].equals("matched");
+    }
+
+    /**
+     * Возвращает значение карточки.
+     * Значение видно игрокам только после открытия карточки, поэтому метод используется для открытых карточек.
+     *
+     * @param position позиция карточки на поле (0-35)
+     * @return значение карточки (1-18)
+     */
+    public int getCardValue(int position) {
+        return cardValues.get(position);
+    }
+
+    /**
+     * Возвращает начальное значение генератора текущей раскладки.
+     *
+     * @return начальное значение, по которому {@link #GameModel(long)} воспроизводит раскладку
+     */
+    public long getDealSeed() {
+        return dealSeed;
+    }
+
     public boolean isGameStarted() {
         return gameStarted;
     }
@@ -14,7 +14,9 @@ public class Protocol {
     public static final int TYPE_SYSTEM = 0;
     /**
      * Подключение нового игрока.
-     * Формат: "1|имя_игрока"
+     * Формат: "1|имя_игрока", "1|имя_игрока|комната" или "1|имя_игрока|комната|токен"
+     * Если комната не указана, игрок попадает в комнату по умолчанию.
+     * Токен из TYPE_RESUME возвращает игрока на его место в начатой игре после обрыва соединения.
      */
     public static final int TYPE_CONNECT = 1;
     /**
@@ -52,6 +54,7 @@ public class Protocol {
     /**
      * Смена хода.
      * Формат: "8|имя_игрока"
+     * Сервер передает текущего игрока в составе состояния игры (TYPE_GAME_STATE), отдельно не рассылает.
      */
     public static final int TYPE_PLAYER_TURN = 8;
     /**
@@ -59,11 +62,74 @@ public class Protocol {
      * Формат: "9"
      */
     public static final int TYPE_GAME_RESET = 9;
+    /**
+     * Проверка соединения и измерение времени приема-передачи.
+     * Формат: "10|время_отправки"
+     * Время отправки - System.nanoTime() отправителя. Получатель должен ответить сообщением TYPE_PONG
+     * с той же меткой, не разбирая ее; отправитель вычисляет RTT по своим часам.
+     */
+    public static final int TYPE_PING = 10;
+    /**
+     * Ответ на проверку соединения.
+     * Формат: "11|время_отправки" (метка из полученного TYPE_PING)
+     */
+    public static final int TYPE_PONG = 11;
+    /**
+     * Добавление бота сервера в комнату (до начала игры).
+     * Формат: "12" или "12|стратегия"
+     * Стратегия: random (без памяти), perfect (идеальная память) или decay:N (память угасает за N ходов).
+     */
+    public static final int TYPE_ADD_BOT = 12;
+    /**
+     * Токен возобновления сессии (от сервера после входа в комнату).
+     * Формат: "13|токен|комната"
+     * Если соединение оборвалось во время игры, место игрока удерживается некоторое время:
+     * клиент переподключается к этой комнате с этим токеном в TYPE_CONNECT и продолжает игру. Токен одноразовый.
+     */
+    public static final int TYPE_RESUME = 13;
+    /**
+     * Таблица лидеров.
+     * Запрос клиента: "14" или "14|количество_мест"
+     * Ответ сервера: "14|json", JSON: {"leaderboard":[{"name","games","wins","pairs","turnsPerPair"},...]}
+     */
+    public static final int TYPE_LEADERBOARD = 14;
+    /**
+     * Подбор соперников.
+     * Формат: "15|имя_игрока" - встать в очередь подбора, "15" - покинуть очередь.
+     * Когда комната собрана, сервер подключает к ней игрока (TYPE_RESUME сообщает комнату) и начинает игру.
+     */
+    public static final int TYPE_MATCHMAKE = 15;
+    /**
+     * Список комнат для лобби.
+     * Запрос клиента: "16", "16|размер_страницы" или "16|размер_страницы|последняя_комната_предыдущей_страницы";
+     * "16|0" - отписаться от изменений.
+     * Ответ сервера: "16|json", JSON: {"version","total","rooms":[{"id","players","started"},...],"next"},
+     * где next - комната, после которой начинается следующая страница, или null.
+     * После запроса клиент получает изменения списка комнат (TYPE_LOBBY_UPDATE), пока не войдет в комнату.
+     */
+    public static final int TYPE_LOBBY = 16;
+    /**
+     * Изменения списка комнат (от сервера подписчикам лобби).
+     * Формат: "17|json", JSON: {"events":[{"id","players","started","version","op"},...]},
+     * op - add, update или remove. События с версией не больше версии полученной страницы уже учтены в ней.
+     */
+    public static final int TYPE_LOBBY_UPDATE = 17;
+    /**
+     * Наблюдение за игрой.
+     * Формат: "18|комната" - стать зрителем существующей комнаты, "18" - перестать наблюдать.
+     * Зритель не занимает места игрока и получает только состояние игры (TYPE_GAME_STATE), возможно с задержкой.
+     */
+    public static final int TYPE_SPECTATE = 18;
+
+    // Количество типов сообщений (размер массивов, индексируемых типом сообщения)
+    public static final int TYPE_COUNT = 19;
 
     // Разделитель типа сообщения и его параметров.
     public static final String SEPARATOR = "|";
     // Имя отправителя для системных сообщений
     public static final String SYSTEM_USER = "Система";
+    // Скомпилированный шаблон разделителя (String.split с шаблоном из Pattern.quote компилирует его при каждом вызове)
+    private static final Pattern SEPARATOR_PATTERN = Pattern.compile(Pattern.quote(SEPARATOR));
 
     /**
      * Кодирует сообщение в строку по протоколу.
@@ -89,6 +155,6 @@ public class Protocol {
      * @return массив строк, где нулевой элемент - тип сообщения, а остальные - параметры
      */
     public static String[] decode(String message) {
-        return message.split(Pattern.quote(SEPARATOR));
+        return SEPARATOR_PATTERN.split(message);
     }
 }
\ No newline at end of file
@@ -1,53 +1,112 @@
 package server;
 
+import diagnostics.BroadcastEvent;
+import metrics.ServerMetrics;
 import model.GameModel;
 import model.Protocol;
 import util.JsonUtil;
+import util.Log;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.channels.SocketChannel;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
  * Сервис для отправки сообщений игрокам.
+ * Если канал клиента не принимает данные целиком, остаток ставится в очередь клиента
+ * и дописывается по готовности канала к записи. Клиенты, которые слишком долго
+ * не успевают принимать данные, помечаются на отключение.
  */
-public class BroadcastService {
-    private final PlayerManager playerManager;
+public class BroadcastService implements LoopTask {
+    // Период проверки отстающих клиентов
+    private static final long LAG_CHECK_PERIOD_NANOS = 1_000_000_000L;
+
+    private final ConnectionRegistry registry;
+    private final ServerMetrics metrics;
+
+    // Максимальный объем неотправленных данных клиента в байтах
+    private final long maxQueuedBytes;
+    // Максимальное время, в течение которого очередь клиента может оставаться непустой
+    private final long maxLagNanos;
+
+    // Клиенты, которых нужно отключить (ошибка записи или слишком большое отставание)
+    private final List<ClientSession> evicted = new ArrayList<>();
+
+    // Есть ли клиенты с непустой очередью и время следующей проверки их отставания
+    private boolean lagging;
+    private long nextLagCheck;
 
     /**
      * Конструктор сервиса рассылки.
      *
-     * @param playerManager менеджер игроков для получения списка подключенных клиентов
+     * @param registry реестр подключений для проверки отстающих клиентов
+     * @param metrics  метрики сервера
+     * @param config   настройки сервера
      */
-    public BroadcastService(PlayerManager playerManager) {
-        this.playerManager = playerManager;
+    public BroadcastService(ConnectionRegistry registry, ServerMetrics metrics, ServerConfig config) {
+        this.registry = registry;
+        this.metrics = metrics;
+        this.maxQueuedBytes = config.getOutboundMaxBytes();
+        this.maxLagNanos = config.getOutboundMaxLagMillis() * 1_000_000;
     }
 
     /**
-     * Рассылает сообщение всем подключенным игрокам.
+     * Рассылает сообщение всем игрокам комнаты.
      *
+     * @param players менеджер игроков комнаты
      * @param message сообщение для рассылки
      */
-    public void broadcastToAll(String message) {
-        for (SocketChannel client : playerManager.getAllPlayers()) {
-            sendMessageToClient(client, message);
-        }
+    public void broadcastToAll(PlayerManager players, String message) {
+        broadcast(players.getAllPlayers(), encode(message), false);
+    }
+
+    /**
+     * Рассылает сообщение клиентам: сообщение кодируется один раз, каждому клиенту отправляется копия позиции буфера.
+     *
+     * @param recipients получатели
+     * @param message    сообщение для рассылки
+     */
+    public void broadcastToClients(ClientSession[] recipients, String message) {
+        broadcast(recipients, encode(message), false);
+    }
+
+    /**
+     * Отправляет клиенту уже закодированный кадр состояния игры: копию позиции буфера, сам буфер не изменяется.
+     * Кадр может быть заменен более новым, пока стоит в очереди клиента.
+     *
+     * @param client сессия клиента
+     * @param frame  закодированный кадр состояния
+     */
+    public void sendStateFrame(ClientSession client, ByteBuffer frame) {
+        send(client, frame.duplicate(), true);
     }
 
     /**
      * Отправляет сообщение конкретному клиенту.
+     *
+     * @param client  сессия клиента
+     * @param message сообщение для отправки
+     */
+    public void sendMessageToClient(ClientSession client, String message) {
+        send(client, encode(message), false);
+    }
+
+    /**
+     * Отправляет сообщение в канал, для которого еще не создана сессия (например, при отказе в подключении).
      * Если происходит ошибка ввода-вывода, соединение закрывается.
      *
      * @param client  канал клиента
      * @param message сообщение для отправки
      */
-    public void sendMessageToClient(SocketChannel client, String message) {
+    public void sendMessageToChannel(SocketChannel client, String message) {
         try {
             if (client.isConnected()) {
-                ByteBuffer buffer = ByteBuffer.wrap((message + "\n").getBytes(StandardCharsets.UTF_8));
-                client.write(buffer);
+                client.write(encode(message));
             }
         } catch (IOException e) {
             try {
@@ -56,27 +115,244 @@ public class BroadcastService {
         }
     }
 
+    /**
+     * Кодирует сообщение в байты UTF-8 с завершающим переводом строки.
+     * Сообщение может состоять из нескольких строк протокола, разделенных "\n".
+     *
+     * @param message сообщение
+     * @return буфер с закодированным сообщением
+     */
+    private ByteBuffer encode(String message) {
+        return ByteBuffer.wrap((message + "\n").getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Рассылает закодированный кадр получателям.
+     * Каждому клиенту отправляется независимая копия позиции буфера.
+     *
+     * @param recipients получатели
+     * @param data       закодированный кадр
+     * @param stateFrame true, если это кадр состояния игры
+     */
+    private void broadcast(ClientSession[] recipients, ByteBuffer data, boolean stateFrame) {
+        for (ClientSession client : recipients) {
+            send(client, data.duplicate(), stateFrame);
+        }
+    }
+
+    /**
+     * Отправляет кадр клиенту.
+     * Если очередь клиента пуста, кадр сразу пишется в канал, а неотправленный остаток ставится в очередь.
+     * Если переполнение очереди превышает лимит, клиент помечается на отключение.
+     *
+     * @param client     сессия клиента
+     * @param data       кадр для отправки
+     * @param stateFrame true, если это кадр состояния игры (может быть заменен более новым)
+     */
+    private void send(ClientSession client, ByteBuffer data, boolean stateFrame) {
+        if (client.isDisconnected() || !client.getChannel().isConnected()) {
+            return;
+        }
+
+        OutboundQueue queue = client.getOutboundQueue();
+        try {
+            if (queue.isEmpty()) {
+                metrics.bytesOut().add(client.getChannel().write(data));
+                if (!data.hasRemaining()) {
+                    return;
+                }
+                // Кадр отправлен частично - заменять его более новым уже нельзя
+                stateFrame = stateFrame && data.position() == 0;
+                metrics.partialWrites().increment();
+            }
+
+            if (queue.add(data, stateFrame, System.nanoTime())) {
+                metrics.conflatedFrames().increment();
+            }
+            metrics.queuedFrames().increment();
+            client.updateInterest();
+            lagging = true;
+
+            if (queue.getQueuedBytes() > maxQueuedBytes) {
+                evict(client);
+            }
+        } catch (IOException e) {
+            evict(client);
+        }
+    }
+
+    /**
+     * Дописывает в канал данные из очереди клиента (канал готов к записи).
+     *
+     * @param client сессия клиента
+     */
+    public void flushQueue(ClientSession client) {
+        try {
+            metrics.bytesOut().add(client.getOutboundQueue().writeTo(client.getChannel()));
+            client.updateInterest();
+        } catch (IOException e) {
+            evict(client);
+        }
+    }
+
+    /**
+     * Помечает клиента на отключение.
+     *
+     * @param client сессия клиента
+     */
+    private void evict(ClientSession client) {
+        if (!evicted.contains(client)) {
+            client.getOutboundQueue().clear();
+            evicted.add(client);
+        }
+    }
+
+    /**
+     * Проверяет, есть ли клиенты, помеченные на отключение.
+     *
+     * @return true, если такие клиенты есть
+     */
+    public boolean hasEvicted() {
+        return !evicted.isEmpty();
+    }
+
+    /**
+     * Возвращает и очищает список клиентов, помеченных на отключение.
+     *
+     * @return список сессий клиентов
+     */
+    public List<ClientSession> drainEvicted() {
+        List<ClientSession> result = new ArrayList<>(evicted);
+        evicted.clear();
+        return result;
+    }
+
+    /**
+     * Проверяет отставание клиентов и помечает на отключение тех, чья очередь
+     * остается непустой дольше допустимого.
+     * Реестр просматривается не чаще раза в период и только если кто-то из клиентов отставал.
+     *
+     * @param now текущее время (System.nanoTime)
+     * @return время до следующей проверки или -1, если отстающих клиентов нет
+     */
+    @Override
+    public long run(long now) {
+        if (!lagging) {
+            return -1;
+        }
+        if (now - nextLagCheck < 0) {
+            return nextLagCheck - now;
+        }
+
+        lagging = false;
+        long backlogBytes = 0;
+        long backlogClients = 0;
+
+        for (int id = 0; id < registry.getHighWater(); id++) {
+            ClientSession client = registry.get(id);
+            if (client == null) {
+                continue;
+            }
+
+            long since = client.getOutboundQueue().getBacklogSince();
+            if (since == 0) {
+                continue;
+            }
+            backlogBytes += client.getOutboundQueue().getQueuedBytes();
+            backlogClients++;
+
+            if (now - since > maxLagNanos) {
+                Log.warn("Игрок " + client.getName() + " не успевает принимать данные");
+                evict(client);
+            } else {
+                lagging = true;
+            }
+        }
+        metrics.backlogBytes().set(backlogBytes);
+        metrics.backlogClients().set(backlogClients);
+        nextLagCheck = now + LAG_CHECK_PERIOD_NANOS;
+        return lagging ? LAG_CHECK_PERIOD_NANOS : -1;
+    }
+
+    /**
+     * Собирает оценки времени приема-передачи игроков.
+     *
+     * @param recipients игроки комнаты
+     * @return Map с именами игроков и RTT в миллисекундах (игроки без измерений не включаются)
+     */
+    private Map<String, Object> rttMillis(ClientSession[] recipients) {
+        Map<String, Object> rtt = new LinkedHashMap<>();
+        for (ClientSession client : recipients) {
+            long millis = client.getRtt().getSmoothedMillis();
+            if (millis >= 0) {
+                rtt.put(client.getName(), millis);
+            }
+        }
+        return rtt;
+    }
+
     /**
      * Рассылает текущее состояние игры.
      * Формирует JSON с состоянием игры и отправляет его по протоколу.
+     * Медленным клиентам доставляется только самый свежий кадр состояния.
      *
+     * @param roomId      идентификатор комнаты
+     * @param players     менеджер игроков комнаты
      * @param gameModel   модель игры для получения состояния
      * @param maxPlayers  максимальное количество игроков
      * @param minPlayers  минимальное количество игроков для начала игры
+     * @return разосланный кадр (можно отправить другим получателям через sendStateFrame)
      */
-    public void broadcastGameState(GameModel gameModel, int maxPlayers, int minPlayers) {
+    public ByteBuffer broadcastGameState(String roomId, PlayerManager players, GameModel gameModel, int maxPlayers,
+                                         int minPlayers) {
+        return sendGameState(roomId, players.getAllPlayers(), players, gameModel, maxPlayers, minPlayers);
+    }
+
+    /**
+     * Отправляет текущее состояние игры одному клиенту (например, вернувшемуся после обрыва соединения),
+     * не рассылая его остальным игрокам комнаты.
+     *
+     * @param roomId      идентификатор комнаты
+     * @param client      сессия клиента
+     * @param players     менеджер игроков комнаты
+     * @param gameModel   модель игры для получения состояния
+     * @param maxPlayers  максимальное количество игроков
+     * @param minPlayers  минимальное количество игроков для начала игры
+     */
+    public void sendGameState(String roomId, ClientSession client, PlayerManager players, GameModel gameModel,
+                              int maxPlayers, int minPlayers) {
+        sendGameState(roomId, new ClientSession[]{client}, players, gameModel, maxPlayers, minPlayers);
+    }
+
+    private ByteBuffer sendGameState(String roomId, ClientSession[] recipients, PlayerManager players,
+                                     GameModel gameModel, int maxPlayers, int minPlayers) {
+        BroadcastEvent event = new BroadcastEvent();
+        event.begin();
+
         // Получаем текущее состояние игры из модели
         Map<String, Object> state = gameModel.getGameState();
 
         // Добавляем информацию об игроках и ограничениях по количеству
-        state.put("players", playerManager.getPlayerNamesList());
+        state.put("players", players.getPlayerNamesList());
         state.put("maxPlayers", maxPlayers);
         state.put("minPlayers", minPlayers);
+        state.put("rtt", rttMillis(players.getAllPlayers()));
 
         // Преобразуем состояние в JSON строку
         String stateJson = JsonUtil.mapToJson(state);
         // Формируем пакет состояния игры по протоколу
         String gameStatePacket = Protocol.encode(Protocol.TYPE_GAME_STATE, stateJson);
-        broadcastToAll(gameStatePacket);
+        ByteBuffer frame = encode(gameStatePacket);
+        broadcast(recipients, frame, true);
+        metrics.stateFramesSent().increment();
+
+        if (event.shouldCommit()) {
+            event.room = roomId;
+            event.messageType = Protocol.TYPE_GAME_STATE;
+            event.payloadSize = frame.limit();
+            event.recipients = recipients.length;
+            event.commit();
+        }
+        return frame;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,67 @@
+package server;
+
+/**
+ * Накопитель сообщений чата комнаты.
+ * Сообщения, пришедшие за короткое окно времени, объединяются в один пакет
+ * и отправляются каждому получателю одной записью в канал.
+ * Если окно равно нулю, сообщения рассылаются сразу.
+ * Используется только командами комнаты.
+ */
+public class ChatBatcher {
+    private final GameSessionManager room;
+    private final BroadcastService broadcastService;
+    private final PlayerManager players;
+    // Длительность окна накопления в миллисекундах
+    private final long windowMillis;
+
+    // Накопленные строки протокола, разделенные "\n"
+    private final StringBuilder pending = new StringBuilder();
+
+    /**
+     * Конструктор накопителя.
+     *
+     * @param room             комната, по таймеру которой отправляются накопленные сообщения
+     * @param broadcastService сервис рассылки сообщений
+     * @param players          менеджер игроков комнаты (получатели сообщений)
+     * @param windowMillis     длительность окна накопления в миллисекундах, 0 - без накопления
+     */
+    public ChatBatcher(GameSessionManager room, BroadcastService broadcastService, PlayerManager players,
+                       long windowMillis) {
+        this.room = room;
+        this.broadcastService = broadcastService;
+        this.players = players;
+        this.windowMillis = Math.max(0, windowMillis);
+    }
+
+    /**
+     * Добавляет пакет чата к рассылке.
+     * Первое сообщение окна планирует отправку накопленного пакета по его истечении.
+     *
+     * @param chatPacket сообщение чата в формате протокола
+     */
+    public void add(String chatPacket) {
+        if (windowMillis == 0) {
+            broadcastService.broadcastToAll(players, chatPacket);
+            return;
+        }
+
+        if (pending.isEmpty()) {
+            room.schedule(windowMillis, this::flush);
+        } else {
+            pending.append('\n');
+        }
+        pending.append(chatPacket);
+    }
+
+    /**
+     * Немедленно отправляет все накопленные сообщения.
+     */
+    public void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+
+        broadcastService.broadcastToAll(players, pending.toString());
+        pending.setLength(0);
+    }
+}
@@ -0,0 +1,255 @@
+package server;
+
+import util.RttEstimator;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+
+/**
+ * Сессия клиентского подключения.
+ * Прикрепляется к SelectionKey канала и хранит состояние конкретного соединения:
+ * идентификатор, имя игрока, комнату и буферы. Все обращения на пути обработки сообщения -
+ * это чтение полей сессии, без поиска в коллекциях.
+ */
+public class ClientSession {
+    // Размер буфера входящих данных (максимальная длина одного сообщения клиента)
+    private static final int INBOUND_BUFFER_SIZE = 4096;
+
+    private final SocketChannel channel;
+    private final RateLimiter rateLimiter;
+    private final OutboundQueue outboundQueue = new OutboundQueue();
+    // Буфер входящих данных; хранит неполное сообщение между чтениями
+    private final ByteBuffer inboundBuffer = ByteBuffer.allocate(INBOUND_BUFFER_SIZE);
+
+    private SelectionKey key;
+
+    // Идентификатор в реестре подключений, -1 - не зарегистрирована
+    private int id = -1;
+    // Имя игрока, null - игрок еще не представился
+    private String name;
+    // Комната, в которой находится игрок, null - игрок не в комнате
+    private GameSessionManager room;
+    // Комната, в очередь которой поставлен запрос игрока на вход, null - запроса нет
+    private GameSessionManager pendingRoom;
+    // Позиция игрока в списке игроков комнаты, -1 - игрок не в комнате
+    private int roomSlot = -1;
+    // Лента комнаты, за которой клиент наблюдает как зритель, null - клиент не зритель
+    private SpectatorFeed spectating;
+    // Позиция зрителя в ленте, -1 - клиент не зритель
+    private int spectatorSlot = -1;
+
+    // Момент (System.nanoTime), до которого чтение из канала приостановлено, 0 - чтение не приостановлено
+    private long throttledUntil;
+
+    // Время последнего получения данных от клиента (System.nanoTime)
+    private long lastSeen;
+    // Флаг, указывающий, что клиенту отправлен ping, а данных от него с тех пор не было
+    private boolean pingPending;
+    // Момент отправки последнего ping (System.nanoTime)
+    private long lastPingAt;
+    // Оценка времени приема-передачи
+    private final RttEstimator rtt = new RttEstimator();
+
+    // Флаг, указывающий, что отключение клиента уже обработано
+    private boolean disconnected;
+
+    /**
+     * Конструктор сессии.
+     *
+     * @param channel     канал клиента
+     * @param rateLimiter ограничитель частоты сообщений клиента
+     */
+    public ClientSession(SocketChannel channel, RateLimiter rateLimiter) {
+        this.channel = channel;
+        this.rateLimiter = rateLimiter;
+    }
+
+    public SocketChannel getChannel() {
+        return channel;
+    }
+
+    public RateLimiter getRateLimiter() {
+        return rateLimiter;
+    }
+
+    public OutboundQueue getOutboundQueue() {
+        return outboundQueue;
+    }
+
+    public ByteBuffer getInboundBuffer() {
+        return inboundBuffer;
+    }
+
+    public void setKey(SelectionKey key) {
+        this.key = key;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public void setId(int id) {
+        this.id = id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public GameSessionManager getRoom() {
+        return room;
+    }
+
+    public void setRoom(GameSessionManager room) {
+        this.room = room;
+    }
+
+    public GameSessionManager getPendingRoom() {
+        return pendingRoom;
+    }
+
+    public void setPendingRoom(GameSessionManager pendingRoom) {
+        this.pendingRoom = pendingRoom;
+    }
+
+    /**
+     * Возвращает комнату, в которой находится игрок, или комнату, в очередь которой уже поставлен его запрос на вход.
+     *
+     * @return комната или null, если игрок не в комнате и не входит в нее
+     */
+    public GameSessionManager getRoomOrPending() {
+        return room != null ? room : pendingRoom;
+    }
+
+    public int getRoomSlot() {
+        return roomSlot;
+    }
+
+    public void setRoomSlot(int roomSlot) {
+        this.roomSlot = roomSlot;
+    }
+
+    public SpectatorFeed getSpectating() {
+        return spectating;
+    }
+
+    public void setSpectating(SpectatorFeed spectating) {
+        this.spectating = spectating;
+    }
+
+    public int getSpectatorSlot() {
+        return spectatorSlot;
+    }
+
+    public void setSpectatorSlot(int spectatorSlot) {
+        this.spectatorSlot = spectatorSlot;
+    }
+
+    public long getLastSeen() {
+        return lastSeen;
+    }
+
+    /**
+     * Отмечает получение данных от клиента.
+     *
+     * @param now текущее время (System.nanoTime)
+     */
+    public void markSeen(long now) {
+        lastSeen = now;
+        pingPending = false;
+    }
+
+    public long getLastPingAt() {
+        return lastPingAt;
+    }
+
+    public void setLastPingAt(long lastPingAt) {
+        this.lastPingAt = lastPingAt;
+    }
+
+    public RttEstimator getRtt() {
+        return rtt;
+    }
+
+    public boolean isPingPending() {
+        return pingPending;
+    }
+
+    public void setPingPending(boolean pingPending) {
+        this.pingPending = pingPending;
+    }
+
+    public boolean isThrottled() {
+        return throttledUntil != 0;
+    }
+
+    public long getThrottledUntil() {
+        return throttledUntil;
+    }
+
+    /**
+     * Приостанавливает чтение из канала до указанного момента.
+     * Если чтение уже приостановлено, выбирается более поздний момент.
+     *
+     * @param until момент возобновления чтения (System.nanoTime)
+     */
+    public void throttleUntil(long until) {
+        if (until == 0) {
+            until = 1;
+        }
+        if (throttledUntil == 0 || until - throttledUntil > 0) {
+            throttledUntil = until;
+        }
+    }
+
+    /**
+     * Снимает приостановку чтения.
+     */
+    public void clearThrottle() {
+        throttledUntil = 0;
+    }
+
+    /**
+     * Обновляет набор событий селектора, на которые подписан канал:
+     * чтение - если оно не приостановлено, запись - если есть неотправленные данные.
+     */
+    public void updateInterest() {
+        if (key == null || !key.isValid()) {
+            return;
+        }
+
+        int ops = 0;
+        if (throttledUntil == 0) {
+            ops |= SelectionKey.OP_READ;
+        }
+        if (!outboundQueue.isEmpty()) {
+            ops |= SelectionKey.OP_WRITE;
+        }
+
+        if (key.interestOps() != ops) {
+            key.interestOps(ops);
+        }
+    }
+
+    /**
+     * Помечает отключение клиента как обработанное.
+     *
+     * @return true, если отключение обрабатывается впервые
+     */
+    public boolean markDisconnected() {
+        if (disconnected) {
+            return false;
+        }
+        disconnected = true;
+        return true;
+    }
+
+    public boolean isDisconnected() {
+        return disconnected;
+    }
+}
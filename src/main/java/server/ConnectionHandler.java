@@ -1,41 +1,70 @@
 package server;
 
+import diagnostics.ConnectionEvent;
+import metrics.ServerMetrics;
 import model.Protocol;
+import util.Log;
 
 import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.nio.ByteBuffer;
 import java.nio.channels.*;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Iterator;
-import java.util.Scanner;
+import java.util.List;
 
 /**
  * Обработчик подключений и сетевых событий.
  */
 public class ConnectionHandler {
-    private Selector selector;
+    private volatile Selector selector;
     private ServerSocketChannel serverChannel;
 
     private final MessageRouter messageRouter;
-    private final GameSessionManager sessionManager;
-    private final PlayerManager playerManager;
+    private final RoomManager roomManager;
+    private final ConnectionRegistry registry;
     private final BroadcastService broadcastService;
+    private final RateLimitPolicy rateLimitPolicy;
+    private final HeartbeatMonitor heartbeatMonitor;
+    private final ServerMetrics metrics;
+    private final LoopWatchdog watchdog;
+    // Максимальное количество одновременных подключений
+    private final int maxConnections;
+
+    // Ключи клиентов, чтение из которых приостановлено за превышение частоты сообщений
+    private final List<SelectionKey> throttledKeys = new ArrayList<>();
+    // Задачи, выполняемые после каждой итерации цикла событий
+    private final List<LoopTask> loopTasks = new ArrayList<>();
+    // Имена задач цикла для сторожевого таймера (в порядке loopTasks)
+    private final List<String> loopTaskNames = new ArrayList<>();
 
     /**
      * Конструктор обработчика подключений.
      *
      * @param messageRouter   маршрутизатор сообщений
-     * @param sessionManager  менеджер игровых сессий
-     * @param playerManager   менеджер игроков
+     * @param roomManager     менеджер игровых комнат
+     * @param registry        реестр подключений
      * @param broadcastService сервис рассылки сообщений
+     * @param rateLimitPolicy политика ограничения частоты сообщений
+     * @param heartbeatMonitor монитор активности подключений
+     * @param metrics         метрики сервера
+     * @param watchdog        сторожевой таймер цикла событий
+     * @param config          настройки сервера
      */
-    public ConnectionHandler(MessageRouter messageRouter, GameSessionManager sessionManager,
-                             PlayerManager playerManager, BroadcastService broadcastService) {
+    public ConnectionHandler(MessageRouter messageRouter, RoomManager roomManager, ConnectionRegistry registry,
+                             BroadcastService broadcastService, RateLimitPolicy rateLimitPolicy,
+                             HeartbeatMonitor heartbeatMonitor, ServerMetrics metrics, LoopWatchdog watchdog,
+                             ServerConfig config) {
+        this.watchdog = watchdog;
+        this.metrics = metrics;
         this.messageRouter = messageRouter;
-        this.sessionManager = sessionManager;
-        this.playerManager = playerManager;
+        this.roomManager = roomManager;
+        this.registry = registry;
         this.broadcastService = broadcastService;
+        this.rateLimitPolicy = rateLimitPolicy;
+        this.heartbeatMonitor = heartbeatMonitor;
+        this.maxConnections = config.getMaxConnections();
     }
 
     /**
@@ -55,15 +84,51 @@ public class ConnectionHandler {
         serverChannel.register(selector, SelectionKey.OP_ACCEPT);
     }
 
+    /**
+     * Пробуждает поток цикла событий, ожидающий в селекторе.
+     * Может вызываться из любого потока.
+     */
+    public void wakeup() {
+        Selector current = selector;
+        if (current != null) {
+            current.wakeup();
+        }
+    }
+
+    /**
+     * Регистрирует задачу, выполняемую в потоке цикла событий после каждой итерации.
+     *
+     * @param task задача цикла событий
+     */
+    public void addLoopTask(LoopTask task) {
+        loopTasks.add(task);
+        loopTaskNames.add(task.getClass().getSimpleName());
+    }
+
     /**
      * Основной цикл обработки событий.
      * Бесконечно ожидает сетевые события и обрабатывает их.
+     * После обработки событий выполняет задачи цикла и ждет не дольше, чем до ближайшего срока одной из них.
      *
      * @throws IOException если возникает ошибка ввода-вывода (обрыв соединения)
      */
     public void runEventLoop() throws IOException {
+        // Задачи цикла выполняются сразу после запуска, не дожидаясь первого сетевого события
+        long nextDelay = 0;
+        watchdog.start(Thread.currentThread());
+
         while (true) {
-            selector.select();
+            if (nextDelay < 0) {
+                selector.select();
+            } else if (nextDelay == 0) {
+                selector.selectNow();
+            } else {
+                // Переводим наносекунды в миллисекунды с округлением вверх
+                selector.select((nextDelay + 999_999) / 1_000_000);
+            }
+
+            long iterationStart = System.nanoTime();
+            watchdog.beginIteration(iterationStart);
             Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
 
             while (keys.hasNext()) {
@@ -75,10 +140,92 @@ public class ConnectionHandler {
                 try {
                     handleSelectionKey(key);
                 } catch (IOException e) {
-                    sessionManager.handlePlayerDisconnect((SocketChannel) key.channel());
+                    if (key.attachment() instanceof ClientSession session) {
+                        roomManager.requestDisconnect(session);
+                    }
+                }
+            }
+
+            nextDelay = runLoopTasks(System.nanoTime());
+
+            metrics.activeConnections().set(registry.size());
+            metrics.getLoopIteration().record(System.nanoTime() - iterationStart);
+            watchdog.endIteration();
+        }
+    }
+
+    /**
+     * Выполняет задачи цикла событий.
+     *
+     * @param now текущее время (System.nanoTime)
+     * @return время до ближайшего срока среди задач в наносекундах или -1, если ждать нечего
+     */
+    private long runLoopTasks(long now) {
+        disconnectEvictedClients();
+        long nextDelay = resumeThrottledClients(now);
+
+        for (int i = 0; i < loopTasks.size(); i++) {
+            watchdog.enter(loopTaskNames.get(i), null);
+            long delay = loopTasks.get(i).run(now);
+            if (delay >= 0 && (nextDelay < 0 || delay < nextDelay)) {
+                nextDelay = delay;
+            }
+        }
+
+        // Клиенты, помеченные на отключение во время задач, и команды, которые задачи поставили комнатам
+        // после их обработки (например, отключение по таймауту активности), обрабатываются на следующей итерации без ожидания
+        return broadcastService.hasEvicted() || roomManager.hasReadyRooms() ? 0 : nextDelay;
+    }
+
+    /**
+     * Отключает клиентов, помеченных сервисом рассылки (ошибка записи или слишком большое отставание).
+     */
+    private void disconnectEvictedClients() {
+        if (!broadcastService.hasEvicted()) {
+            return;
+        }
+
+        watchdog.enter(LoopWatchdog.DISCONNECT, null);
+        for (ClientSession session : broadcastService.drainEvicted()) {
+            roomManager.requestDisconnect(session);
+        }
+    }
+
+    /**
+     * Возобновляет чтение из каналов клиентов, у которых истек срок приостановки.
+     *
+     * @param now текущее время (System.nanoTime)
+     * @return время до ближайшего возобновления в наносекундах или -1, если приостановленных клиентов нет
+     */
+    private long resumeThrottledClients(long now) {
+        long nextDelay = -1;
+
+        for (int i = throttledKeys.size() - 1; i >= 0; i--) {
+            SelectionKey key = throttledKeys.get(i);
+            ClientSession session = (ClientSession) key.attachment();
+            long delay = session.getThrottledUntil() - now;
+
+            if (!key.isValid()) {
+                throttledKeys.remove(i);
+            } else if (delay <= 0) {
+                session.clearThrottle();
+                // Сначала обрабатываем строки, отложенные в буфере при приостановке: новых данных может не быть
+                if (!processInboundLines(session)) {
+                    throttledKeys.remove(i);
+                } else if (session.isThrottled()) {
+                    delay = session.getThrottledUntil() - now;
+                    if (nextDelay < 0 || delay < nextDelay) {
+                        nextDelay = delay;
+                    }
+                } else {
+                    session.updateInterest();
+                    throttledKeys.remove(i);
                 }
+            } else if (nextDelay < 0 || delay < nextDelay) {
+                nextDelay = delay;
             }
         }
+        return nextDelay;
     }
 
     /**
@@ -90,66 +237,155 @@ public class ConnectionHandler {
     private void handleSelectionKey(SelectionKey key) throws IOException {
         if (key.isAcceptable()) {
             // Новое подключение
+            watchdog.enter(LoopWatchdog.ACCEPT, null);
             handleNewConnection(key);
-        } else if (key.isReadable()) {
+            return;
+        }
+
+        if (key.isWritable()) {
+            // Канал готов принять неотправленные данные
+            watchdog.enter(LoopWatchdog.WRITE, null);
+            broadcastService.flushQueue((ClientSession) key.attachment());
+        }
+        if (key.isValid() && key.isReadable()) {
             // Данные от клиента
+            watchdog.enter(LoopWatchdog.READ, null);
             handleClientData(key);
         }
     }
 
     /**
      * Обрабатывает новое подключение клиента.
-     * Проверяет лимит игроков и регистрирует клиента для чтения.
+     * Проверяет лимит подключений, регистрирует клиента в реестре и для чтения.
+     * Лимит игроков проверяется комнатой при входе в нее.
      *
      * @param key ключ селектора серверного канала
      * @throws IOException если возникает ошибка ввода-вывода
      */
     private void handleNewConnection(SelectionKey key) throws IOException {
+        ConnectionEvent event = new ConnectionEvent();
+        event.begin();
+
         ServerSocketChannel server = (ServerSocketChannel) key.channel();
         SocketChannel client = server.accept();
+        if (client == null) return;
         client.configureBlocking(false);
 
-        if (playerManager.getPlayerCount() >= sessionManager.getMaxPlayers()) {
-            broadcastService.sendMessageToClient(client, Protocol.encode(
+        if (registry.size() >= maxConnections) {
+            broadcastService.sendMessageToChannel(client, Protocol.encode(
                     Protocol.TYPE_ERROR,
-                    "Достигнуто максимальное количество игроков (" + sessionManager.getMaxPlayers() + ")"
+                    "Достигнуто максимальное количество подключений (" + maxConnections + ")"
             ));
             client.close();
+            metrics.connectionsRejected().increment();
+
+            if (event.shouldCommit()) {
+                event.action = ConnectionEvent.REJECT;
+                event.commit();
+            }
             return;
         }
 
-        client.register(selector, SelectionKey.OP_READ);
+        // Прикрепляем к ключу сессию клиента с собственным ограничителем частоты сообщений
+        long now = System.nanoTime();
+        RateLimiter rateLimiter = new RateLimiter(rateLimitPolicy, now);
+        ClientSession session = new ClientSession(client, rateLimiter);
+        registry.register(session);
+        session.setKey(client.register(selector, SelectionKey.OP_READ, session));
+        heartbeatMonitor.register(session, now);
+        metrics.connectionsAccepted().increment();
+
+        if (event.shouldCommit()) {
+            event.action = ConnectionEvent.ACCEPT;
+            event.connectionId = session.getId();
+            event.commit();
+        }
     }
 
     /**
      * Обрабатывает данные от клиента.
-     * Читает данные из канала и передает их маршрутизатору сообщений.
+     * Если клиент превысил лимит частоты сообщений, чтение из его канала приостанавливается.
      *
      * @param key ключ селектора клиентского канала
      * @throws IOException если возникает ошибка ввода-вывода
      */
     private void handleClientData(SelectionKey key) throws IOException {
-        SocketChannel client = (SocketChannel) key.channel();
-        ByteBuffer buffer = ByteBuffer.allocate(2048);
+        ClientSession session = (ClientSession) key.attachment();
+        if (!readClientData(session)) return;
+
+        // Клиент превысил лимит частоты - перестаем читать из канала до пополнения токенов
+        if (session.isThrottled() && key.isValid() && (key.interestOps() & SelectionKey.OP_READ) != 0) {
+            session.updateInterest();
+            throttledKeys.add(key);
+        }
+    }
+
+    /**
+     * Читает данные из канала клиента.
+     * Читает данные в буфер сессии и обрабатывает завершенные строки из него.
+     * Не использует селектор, поэтому работает и с каналами в памяти (проверка выделения памяти).
+     *
+     * @param session сессия клиента
+     * @return true, если клиент остается подключенным
+     * @throws IOException если возникает ошибка ввода-вывода
+     */
+    boolean readClientData(ClientSession session) throws IOException {
+        SocketChannel client = session.getChannel();
+        ByteBuffer buffer = session.getInboundBuffer();
 
         // Читаем данные от клиента
         int bytesRead = client.read(buffer);
         if (bytesRead == -1) {
-            sessionManager.handlePlayerDisconnect(client);
-            return;
+            roomManager.requestDisconnect(session);
+            return false;
         }
+        metrics.bytesIn().add(bytesRead);
+        // Любые полученные данные подтверждают, что соединение живо
+        session.markSeen(System.nanoTime());
+        return processInboundLines(session);
+    }
+
+    /**
+     * Выделяет завершенные строки из буфера сессии (сообщения разделены \n) и передает их маршрутизатору сообщений.
+     * Если клиент превысил лимит частоты и чтение приостановлено, отклоненная строка и строки за ней
+     * остаются в буфере и обрабатываются после возобновления. Незавершенный остаток сохраняется до следующего чтения.
+     *
+     * @param session сессия клиента
+     * @return true, если клиент остается подключенным
+     */
+    private boolean processInboundLines(ClientSession session) {
+        ByteBuffer buffer = session.getInboundBuffer();
+        byte[] data = buffer.array();
+        int end = buffer.position();
+        int lineStart = 0;
+        for (int i = 0; i < end && !session.isDisconnected(); i++) {
+            if (data[i] != '\n') continue;
 
-        // Преобразуем байты в строку
-        String rawData = new String(buffer.array(), 0, bytesRead, StandardCharsets.UTF_8);
-        // Используем Scanner для разделения на строки (сообщения разделены \n)
-        try (Scanner scanner = new Scanner(rawData)) {
-            while (scanner.hasNextLine()) {
-                String message = scanner.nextLine().trim();
-                if (!message.isEmpty()) {
-                    // Передаем каждое сообщение маршрутизатору для обработки
-                    messageRouter.processMessage(client, message);
+            String message = new String(data, lineStart, i - lineStart, StandardCharsets.UTF_8).trim();
+            int messageStart = lineStart;
+            lineStart = i + 1;
+            if (!message.isEmpty()) {
+                // Передаем каждое сообщение маршрутизатору для обработки
+                watchdog.enter(LoopWatchdog.MESSAGE, message);
+                messageRouter.processMessage(session, message);
+                if (session.isThrottled()) {
+                    // Сообщение отклонено по лимиту частоты - повторим его после возобновления
+                    lineStart = messageStart;
+                    break;
                 }
             }
         }
+        if (session.isDisconnected()) return false;
+
+        // Переносим необработанный остаток в начало буфера
+        buffer.flip().position(lineStart);
+        buffer.compact();
+        if (!buffer.hasRemaining() && !session.isThrottled()) {
+            // Строка не помещается в буфер - клиент нарушает протокол
+            Log.warn("Игрок " + session.getName() + " отключен: слишком длинное сообщение");
+            roomManager.requestDisconnect(session);
+            return false;
+        }
+        return true;
     }
-}
\ No newline at end of file
+}
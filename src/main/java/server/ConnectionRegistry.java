@@ -0,0 +1,95 @@
+package server;
+
+/**
+ * Реестр клиентских подключений.
+ * Каждой сессии выдается плотный целочисленный идентификатор, по которому она находится за O(1).
+ * Освобожденные идентификаторы переиспользуются, поэтому массив сессий не растет без необходимости.
+ * Используется только из потока цикла событий.
+ */
+public class ConnectionRegistry {
+    private ClientSession[] sessions = new ClientSession[64];
+    // Стек свободных идентификаторов
+    private int[] freeIds = new int[64];
+    private int freeCount;
+
+    // Граница выданных идентификаторов: все id меньше нее хотя бы раз выдавались
+    private int highWater;
+    private int size;
+
+    /**
+     * Регистрирует сессию и выдает ей идентификатор.
+     *
+     * @param session сессия клиента
+     * @return выданный идентификатор
+     */
+    public int register(ClientSession session) {
+        int id;
+        if (freeCount > 0) {
+            id = freeIds[--freeCount];
+        } else {
+            id = highWater++;
+            if (id == sessions.length) {
+                ClientSession[] grown = new ClientSession[sessions.length * 2];
+                System.arraycopy(sessions, 0, grown, 0, sessions.length);
+                sessions = grown;
+            }
+        }
+
+        sessions[id] = session;
+        session.setId(id);
+        size++;
+        return id;
+    }
+
+    /**
+     * Удаляет сессию из реестра и освобождает ее идентификатор.
+     *
+     * @param session сессия клиента
+     */
+    public void unregister(ClientSession session) {
+        int id = session.getId();
+        if (id < 0 || id >= highWater || sessions[id] != session) {
+            return;
+        }
+
+        sessions[id] = null;
+        session.setId(-1);
+        size--;
+
+        if (freeCount == freeIds.length) {
+            int[] grown = new int[freeIds.length * 2];
+            System.arraycopy(freeIds, 0, grown, 0, freeIds.length);
+            freeIds = grown;
+        }
+        freeIds[freeCount++] = id;
+    }
+
+    /**
+     * Возвращает сессию по идентификатору.
+     *
+     * @param id идентификатор сессии
+     * @return сессия или null, если идентификатор свободен
+     */
+    public ClientSession get(int id) {
+        return id >= 0 && id < highWater ? sessions[id] : null;
+    }
+
+    /**
+     * Возвращает границу выданных идентификаторов для перебора реестра.
+     * Ячейки в диапазоне [0, highWater) могут быть пустыми.
+     *
+     * @return граница идентификаторов
+     */
+    public int getHighWater() {
+        return highWater;
+    }
+
+    /**
+     * Возвращает количество зарегистрированных сессий.
+     *
+     * @return количество подключений
+     */
+    public int size() {
+        return size;
+    }
+}
@@ -1,6 +1,16 @@
 package server;
 
+import journal.GameJournal;
+import journal.SnapshotStore;
+import metrics.JmxExporter;
+import metrics.ServerMetrics;
+import model.Protocol;
+import stats.StatsStore;
+import util.Log;
+
 import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
 
 /**
  * Основной класс игрового сервера.
@@ -10,11 +20,118 @@ public class GameServer {
     private final ConnectionHandler connectionHandler;
 
     public GameServer() {
-        PlayerManager playerManager = new PlayerManager();
-        BroadcastService broadcastService = new BroadcastService(playerManager);
-        GameSessionManager sessionManager = new GameSessionManager(playerManager, broadcastService);
-        MessageRouter messageRouter = new MessageRouter(sessionManager, playerManager, broadcastService);
-        this.connectionHandler = new ConnectionHandler(messageRouter, sessionManager, playerManager, broadcastService);
+        ServerConfig config = ServerConfig.load();
+        RateLimitPolicy rateLimitPolicy = new RateLimitPolicy(config);
+        ServerMetrics metrics = new ServerMetrics(Protocol.TYPE_COUNT);
+
+        LoopWatchdog watchdog = new LoopWatchdog(metrics, config);
+        ConnectionRegistry registry = new ConnectionRegistry();
+        BroadcastService broadcastService = new BroadcastService(registry, metrics, config);
+        LoopScheduler scheduler = new LoopScheduler();
+        // Комнаты восстанавливаются до открытия журнала, чтобы читать только записи прошлого запуска
+        SnapshotStore.Recovery recovery = recoverRooms(config);
+        GameJournal journal = openJournal(config);
+        StatsStore stats = openStats(config);
+        RoomDirectory directory = new RoomDirectory(broadcastService, config);
+        SpectatorService spectators = new SpectatorService(broadcastService, metrics, config);
+        RoomManager roomManager = new RoomManager(registry, broadcastService, scheduler, metrics, watchdog, journal,
+                stats, directory, spectators, config);
+        HeartbeatMonitor heartbeatMonitor = new HeartbeatMonitor(broadcastService, roomManager, config);
+        Matchmaker matchmaker = new Matchmaker(roomManager, broadcastService, stats, metrics, config);
+        MessageRouter messageRouter = new MessageRouter(roomManager, broadcastService, rateLimitPolicy, metrics,
+                stats, matchmaker, directory, spectators);
+        this.connectionHandler = new ConnectionHandler(messageRouter, roomManager, registry, broadcastService,
+                rateLimitPolicy, heartbeatMonitor, metrics, watchdog, config);
+        // Метрики доступны через JMX (jconsole, VisualVM)
+        JmxExporter.register(metrics);
+        // Команды из других потоков пробуждают цикл событий
+        roomManager.setWakeup(connectionHandler::wakeup);
+        scheduler.setWakeup(connectionHandler::wakeup);
+        // Отложенные задачи выполняются первыми, чтобы их команды попали в очереди комнат этой же итерации
+        connectionHandler.addLoopTask(scheduler);
+        // Снимки комнат делаются между командами комнат; восстановленные комнаты создаются до первых подключений
+        if (journal.isEnabled() && config.getSnapshotIntervalMillis() > 0) {
+            connectionHandler.addLoopTask(new SnapshotTask(roomManager, journal,
+                    new SnapshotStore(Path.of(config.getJournalDir())), recovery, config));
+        }
+        // Комнаты подбора соперников создаются до обработки команд комнат, чтобы игроки вошли в них в этой же итерации
+        connectionHandler.addLoopTask(matchmaker);
+        // Команды комнат выполняются, а состояние игры рассылается не более одного раза за итерацию цикла событий
+        connectionHandler.addLoopTask(roomManager);
+        // Изменения каталога комнат рассылаются лобби после команд комнат, которые их вызвали
+        connectionHandler.addLoopTask(directory);
+        // Зрителям состояние рассылается после игроков и не дольше отведенного времени за итерацию
+        connectionHandler.addLoopTask(spectators);
+        // Отстающие клиенты проверяются периодически
+        connectionHandler.addLoopTask(broadcastService);
+        // Неактивные подключения проверяются по тикам колеса таймеров
+        connectionHandler.addLoopTask(heartbeatMonitor);
+        // Метрики периодически выводятся в журнал
+        connectionHandler.addLoopTask(new MetricsReporter(metrics, config));
+    }
+
+    /**
+     * Открывает журнал игр, если он включен настройками.
+     *
+     * @param config настройки сервера
+     * @return журнал игр (выключенный, если каталог не задан или журнал не удалось открыть)
+     */
+    private static GameJournal openJournal(ServerConfig config) {
+        if (config.getJournalDir().isEmpty()) {
+            return GameJournal.disabled();
+        }
+        try {
+            GameJournal journal = GameJournal.open(Path.of(config.getJournalDir()),
+                    config.getJournalSegmentBytes(), config.getJournalBufferBytes());
+            Log.info("Журнал игр записывается в каталог " + config.getJournalDir());
+            return journal;
+        } catch (IOException e) {
+            Log.error("Не удалось открыть журнал игр в каталоге " + config.getJournalDir() + ": " + e.getMessage());
+            return GameJournal.disabled();
+        }
+    }
+
+    /**
+     * Открывает статистику игроков: из файла, если он задан настройками, иначе только в памяти.
+     *
+     * @param config настройки сервера
+     * @return хранилище статистики
+     */
+    private static StatsStore openStats(ServerConfig config) {
+        if (config.getStatsFile().isEmpty()) {
+            return StatsStore.inMemory();
+        }
+        try {
+            StatsStore stats = StatsStore.open(Path.of(config.getStatsFile()), config.getStatsFlushMillis());
+            Log.info("Статистика игроков загружена из " + config.getStatsFile() + ": " + stats.getPlayerCount()
+                    + " игроков");
+            return stats;
+        } catch (IOException e) {
+            Log.error("Не удалось открыть статистику игроков " + config.getStatsFile() + ": " + e.getMessage());
+            return StatsStore.inMemory();
+        }
+    }
+
+    /**
+     * Восстанавливает комнаты из последнего снимка и журнала игр, если снимки включены настройками.
+     *
+     * @param config настройки сервера
+     * @return восстановленные комнаты (пустой результат, если снимков нет или их не удалось прочитать)
+     */
+    private static SnapshotStore.Recovery recoverRooms(ServerConfig config) {
+        if (config.getJournalDir().isEmpty() || config.getSnapshotIntervalMillis() <= 0) {
+            return new SnapshotStore.Recovery(0, List.of());
+        }
+        try {
+            SnapshotStore.Recovery recovery = SnapshotStore.recover(Path.of(config.getJournalDir()));
+            if (!recovery.rooms().isEmpty()) {
+                Log.info("Восстановлено комнат после перезапуска: " + recovery.rooms().size());
+            }
+            return recovery;
+        } catch (IOException e) {
+            Log.error("Не удалось восстановить комнаты из каталога " + config.getJournalDir() + ": " + e.getMessage());
+            return new SnapshotStore.Recovery(0, List.of());
+        }
     }
 
     /**
@@ -24,7 +141,7 @@ public class GameServer {
      * @throws IOException если возникает ошибка ввода-вывода при инициализации
      */
     public void start(int port) throws IOException {
-        System.out.println("Сервер игры Мемо запущен на порту " + port);
+        Log.info("Сервер игры Мемо запущен на порту " + port);
         // Инициализируем обработчик подключений
         connectionHandler.initialize(port);
         // Запускаем основной цикл обработки событий
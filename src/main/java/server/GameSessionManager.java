@@ -1,44 +1,214 @@
 package server;
 
+import diagnostics.GameOverEvent;
+import diagnostics.MatchCheckEvent;
+import diagnostics.RoomCommandsEvent;
+import journal.GameJournal;
+import journal.RoomSnapshot;
+import metrics.ServerMetrics;
 import model.GameModel;
 import model.Protocol;
-
-import java.nio.channels.SocketChannel;
-import java.util.*;
+import simulation.Strategy;
+import stats.GameResult;
+import stats.StatsStore;
+import util.Log;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
 
 /**
- * Менеджер игровых сессий.
+ * Менеджер игровой сессии (комнаты).
  * Управляет логикой игры: подключение игроков, начало игры, ходы, завершение.
+ * Изменения состояния игры помечают комнату как "грязную", а сам кадр состояния
+ * отправляется не более одного раза за итерацию цикла событий.
+ * Все изменения модели игры выполняются командами из очереди комнаты в одном потоке,
+ * поэтому модель и менеджер игроков не требуют синхронизации.
+ * Места в комнате могут занимать боты сервера: их ходы - такие же команды комнаты, запланированные по таймеру.
+ * После перезапуска сервера комната восстанавливается из снимка ({@link #restore}) и ждет возвращения игроков.
+ * Если соединение игрока обрывается во время игры, его место и ход удерживаются, пока он не вернется
+ * по токену возобновления, и партия не сбрасывается.
  */
-public class GameSessionManager {
+public final class GameSessionManager {
     private static final int MAX_PLAYERS = 4;
     private static final int MIN_PLAYERS = 2;
 
+    private final String roomId;
     private final GameModel gameModel;
     private final PlayerManager playerManager;
     private final BroadcastService broadcastService;
+    private final LoopScheduler scheduler;
+    private final RoomMailbox mailbox;
+    private final ChatBatcher chatBatcher;
+    private final ServerMetrics metrics;
+    private final GameJournal journal;
+    // Номер комнаты в журнале игр
+    private final int journalRoom;
+    private final StatsStore stats;
+    // Зрители комнаты
+    private final SpectatorService spectators;
+    private final SpectatorFeed spectatorFeed;
+    // Ходы игроков в текущей партии (для статистики)
+    private final Map<String, Integer> turnsTaken = new HashMap<>();
+
+    // Настройки ботов сервера
+    private final boolean fillWithBots;
+    private final long botThinkMillis;
+    private final Strategy defaultBotStrategy;
+    private final SplittableRandom botSeeds = new SplittableRandom();
+    // Сколько места восстановленной комнаты ждут возвращения игроков
+    private final long seatTimeoutMillis;
+    // Сколько место игрока, потерявшего соединение во время игры, ждет его возвращения
+    private final long resumeGraceMillis;
+
+    // Номер хода в текущей партии (для памяти ботов)
+    private int turnNumber;
+    // Номер партии; отложенные ходы ботов из прошлой партии не выполняются
+    private int gameEpoch;
+
+    // Флаг, указывающий, что состояние игры изменилось и еще не было разослано
+    private boolean stateDirty;
+    // Момент получения самого раннего открытия карточки, еще не попавшего в рассылку, 0 - нет такого
+    private long cardOpenReceivedAt;
 
     /**
-     * Конструктор менеджера игровых сессий.
+     * Конструктор менеджера игровой сессии.
      *
-     * @param playerManager менеджер игроков
+     * @param roomId идентификатор комнаты
      * @param broadcastService сервис рассылки сообщений
+     * @param scheduler планировщик отложенных задач цикла событий
+     * @param mailbox очередь команд комнаты
+     * @param metrics метрики сервера
+     * @param journal журнал игр
+     * @param stats статистика игроков
+     * @param spectators зрители комнат
+     * @param config настройки сервера
      */
-    public GameSessionManager(PlayerManager playerManager, BroadcastService broadcastService) {
-        this.playerManager = playerManager;
+    public GameSessionManager(String roomId, BroadcastService broadcastService, LoopScheduler scheduler,
+                              RoomMailbox mailbox, ServerMetrics metrics, GameJournal journal, StatsStore stats,
+                              SpectatorService spectators, ServerConfig config) {
+        this.spectators = spectators;
+        this.spectatorFeed = spectators.createFeed(roomId);
+        this.metrics = metrics;
+        this.journal = journal;
+        this.stats = stats;
+        this.roomId = roomId;
         this.broadcastService = broadcastService;
+        this.scheduler = scheduler;
+        this.mailbox = mailbox;
+        this.playerManager = new PlayerManager();
         this.gameModel = new GameModel();
+        this.chatBatcher = new ChatBatcher(this, broadcastService, playerManager, config.getChatFlushMillis());
+        this.fillWithBots = config.isBotsFill();
+        this.botThinkMillis = config.getBotThinkMillis();
+        this.defaultBotStrategy = config.getBotStrategy();
+        this.seatTimeoutMillis = config.getRecoverySeatTimeoutMillis();
+        this.resumeGraceMillis = config.getResumeGraceMillis();
+
+        this.journalRoom = journal.registerRoom(roomId);
+        journal.deal(journalRoom, gameModel.getDealSeed());
+    }
+
+    /**
+     * Добавляет команду в очередь комнаты. Может вызываться из любого потока.
+     *
+     * @param command команда, изменяющая состояние комнаты
+     */
+    public void post(Runnable command) {
+        mailbox.post(command);
+    }
+
+    /**
+     * Добавляет в очередь комнаты команду от клиента.
+     * Если к моменту выполнения клиент уже отключен, команда пропускается.
+     *
+     * @param client сессия клиента
+     * @param command команда
+     */
+    public void post(ClientSession client, Runnable command) {
+        mailbox.post(() -> {
+            if (!client.isDisconnected()) {
+                command.run();
+            }
+        });
+    }
+
+    /**
+     * Планирует выполнение команды комнаты через указанное время.
+     * Должен вызываться из потока цикла событий.
+     *
+     * @param delayMillis задержка в миллисекундах
+     * @param command команда
+     */
+    public void schedule(long delayMillis, Runnable command) {
+        scheduler.schedule(delayMillis, () -> mailbox.post(command));
+    }
+
+    /**
+     * Выполняет команды из очереди комнаты и рассылает накопленное изменение состояния игры.
+     * Вызывается потоком-владельцем комнаты.
+     */
+    public void processCommands() {
+        RoomCommandsEvent event = new RoomCommandsEvent();
+        event.begin();
+
+        int commands = mailbox.drain();
+        flushGameState();
+
+        if (event.shouldCommit()) {
+            event.room = roomId;
+            event.commands = commands;
+            event.commit();
+        }
     }
 
     /**
      * Обрабатывает подключение нового игрока.
      *
-     * @param client канал подключенного клиента
+     * @param client сессия подключенного клиента
      * @param playerName имя игрока
+     * @param resumeToken токен возобновления, выданный при прошлом подключении, или null
      */
-    public void handlePlayerConnect(SocketChannel client, String playerName) {
+    public void handlePlayerConnect(ClientSession client, String playerName, String resumeToken) {
+        if (client.getPendingRoom() == this) {
+            client.setPendingRoom(null);
+        }
+
+        // Игрок, уже занявший место в другой комнате, в эту не входит
+        if (client.getRoom() != null && client.getRoom() != this) {
+            broadcastService.sendMessageToClient(client, Protocol.encode(
+                    Protocol.TYPE_ERROR,
+                    "Вы уже в комнате " + client.getRoom().getRoomId()
+            ));
+            return;
+        }
+
+        // Под прежним именем уже учтены очки, ходы и журнал игрока, поэтому сменить имя в комнате нельзя
+        if (client.getRoom() == this && client.getRoomSlot() >= 0 && !playerName.equals(client.getName())) {
+            broadcastService.sendMessageToClient(client, Protocol.encode(
+                    Protocol.TYPE_ERROR,
+                    "Нельзя сменить имя в комнате. Вы играете как " + client.getName()
+            ));
+            return;
+        }
+
+        // Игрок возвращается на свое место после обрыва соединения или перезапуска сервера, даже если игра идет
+        boolean returning = client.getRoom() != this && playerManager.canReclaimSeat(playerName, resumeToken);
+
+        // Проверяем, есть ли в комнате свободное место
+        if (!returning && client.getRoom() != this && playerManager.getPlayerCount() >= MAX_PLAYERS) {
+            broadcastService.sendMessageToClient(client, Protocol.encode(
+                    Protocol.TYPE_ERROR,
+                    "Достигнуто максимальное количество игроков (" + MAX_PLAYERS + ")"
+            ));
+            return;
+        }
+
         // Проверяем, не началась ли игра
-        if (gameModel.isGameStarted()) {
+        if (!returning && gameModel.isGameStarted()) {
             broadcastService.sendMessageToClient(client, Protocol.encode(
                     Protocol.TYPE_ERROR,
                     "Игра уже началась. Присоединиться нельзя"
@@ -46,22 +216,65 @@ public class GameSessionManager {
             return;
         }
 
-        // Добавляем игрока в менеджер и в модель игры
-        playerManager.addPlayer(client, playerName);
+        // Место с этим именем ждет игрока, потерявшего соединение
+        if (!returning && client.getRoom() != this && playerManager.hasVacantSeat(playerName)) {
+            broadcastService.sendMessageToClient(client, Protocol.encode(
+                    Protocol.TYPE_ERROR,
+                    "Игрок " + playerName + " переподключается к комнате. Выберите другое имя"
+            ));
+            return;
+        }
+
+        // Очки, ходы, статистика и журнал ведутся по имени, а ход бота определяется по имени текущего игрока,
+        // поэтому имя другого игрока или бота занять нельзя
+        if (!returning && client.getRoom() != this && playerManager.isNameTaken(playerName)) {
+            broadcastService.sendMessageToClient(client, Protocol.encode(
+                    Protocol.TYPE_ERROR,
+                    "Имя " + playerName + " уже занято в комнате. Выберите другое имя"
+            ));
+            return;
+        }
+
+        // Добавляем игрока в комнату, менеджер и модель игры
+        client.setRoom(this);
+        boolean joined = client.getRoomSlot() < 0 && !returning;
+        playerManager.addPlayer(client, playerName, resumeToken);
         gameModel.addPlayer(playerName);
+        if (joined) {
+            journal.join(journalRoom, playerName, false);
+        }
 
-        // Отправляем текущее состояние игры
-        broadcastGameState();
+        // Новый токен позволит вернуться на это место, если соединение оборвется
+        String token = playerManager.issueResumeToken(client);
+        // Хеш токена в журнале позволяет требовать токен и после перезапуска сервера
+        journal.token(journalRoom, playerName, playerManager.getTokenHash(playerName));
+        broadcastService.sendMessageToClient(client, Protocol.encode(Protocol.TYPE_RESUME, token, roomId));
+
+        if (returning && !stateDirty) {
+            // У остальных игроков состояние не изменилось: вернувшийся игрок получает один кадр с текущим состоянием
+            broadcastService.sendGameState(roomId, client, playerManager, gameModel, MAX_PLAYERS, MIN_PLAYERS);
+        } else {
+            // Отправляем текущее состояние игры
+            broadcastGameState();
+        }
 
-        System.out.println("Игрок " + playerName + " подключился. Всего игроков: " + playerManager.getPlayerCount());
+        Log.info("Игрок " + playerName + " подключился к комнате " + roomId +
+                ". Всего игроков: " + playerManager.getPlayerCount());
     }
 
     /**
      * Обрабатывает запрос на начало игры.
      *
-     * @param client канал клиента, отправившего запрос
+     * @param client сессия клиента, отправившего запрос
      */
-    public void handleStartGame(SocketChannel client) {
+    public void handleStartGame(ClientSession client) {
+        // Одинокому игроку в соперники добавляются боты
+        if (fillWithBots && !gameModel.isGameStarted()) {
+            while (playerManager.getPlayerCount() < MIN_PLAYERS) {
+                addBot(defaultBotStrategy);
+            }
+        }
+
         // Проверяем минимальное количество игроков
         if (playerManager.getPlayerCount() < MIN_PLAYERS) {
             broadcastService.sendMessageToClient(client, Protocol.encode(
@@ -73,21 +286,128 @@ public class GameSessionManager {
 
         // Устанавливаем флаг начала игры
         gameModel.setGameStarted(true);
+        gameEpoch++;
+        turnNumber = 0;
+        turnsTaken.clear();
+        for (ServerBot bot : playerManager.getBots()) {
+            bot.startGame(gameModel);
+        }
 
         // Устанавливаем очередь ходов на основе списка игроков
         gameModel.nextPlayer(playerManager.getPlayerNamesList());
+        journal.start(journalRoom, playerManager.getPlayerNamesList());
 
         broadcastGameState();
+        scheduleBotTurn();
+    }
+
+    /**
+     * Обрабатывает запрос на добавление бота сервера в комнату.
+     *
+     * @param client сессия клиента, отправившего запрос
+     * @param strategySpec стратегия бота (random, perfect, decay:N) или null - стратегия по умолчанию
+     */
+    public void handleAddBot(ClientSession client, String strategySpec) {
+        if (gameModel.isGameStarted()) {
+            broadcastService.sendMessageToClient(client, Protocol.encode(
+                    Protocol.TYPE_ERROR,
+                    "Игра уже началась. Добавить бота нельзя"
+            ));
+            return;
+        }
+        if (playerManager.getPlayerCount() >= MAX_PLAYERS) {
+            broadcastService.sendMessageToClient(client, Protocol.encode(
+                    Protocol.TYPE_ERROR,
+                    "Достигнуто максимальное количество игроков (" + MAX_PLAYERS + ")"
+            ));
+            return;
+        }
+
+        Strategy strategy = defaultBotStrategy;
+        if (strategySpec != null && !strategySpec.isBlank()) {
+            try {
+                strategy = Strategy.parse(strategySpec.trim());
+            } catch (IllegalArgumentException e) {
+                broadcastService.sendMessageToClient(client, Protocol.encode(Protocol.TYPE_ERROR, e.getMessage()));
+                return;
+            }
+        }
+        addBot(strategy);
+    }
+
+    /**
+     * Добавляет бота сервера на свободное место комнаты.
+     *
+     * @param strategy стратегия бота
+     */
+    private void addBot(Strategy strategy) {
+        String name;
+        int number = 1;
+        do {
+            name = "Бот " + number++;
+        } while (playerManager.isNameTaken(name));
+
+        playerManager.addBot(new ServerBot(name, strategy, botSeeds.nextLong()));
+        gameModel.addPlayer(name);
+        journal.join(journalRoom, name, true);
+        broadcastGameState();
+
+        Log.info("Бот " + name + " (" + strategy.getName() + ") добавлен в комнату " + roomId +
+                ". Всего игроков: " + playerManager.getPlayerCount());
+    }
+
+    /**
+     * Планирует ход бота, если сейчас ход бота сервера.
+     * Вызывается, когда поле готово к новому ходу: в начале игры и после закрытия открытых карточек.
+     */
+    private void scheduleBotTurn() {
+        if (!gameModel.isGameStarted() || gameModel.isGameOver()) {
+            return;
+        }
+        ServerBot bot = playerManager.getBot(gameModel.getCurrentPlayer());
+        if (bot != null) {
+            int epoch = gameEpoch;
+            schedule(botThinkMillis, () -> openFirstBotCard(bot, epoch));
+        }
+    }
+
+    /**
+     * Проверяет, может ли бот сейчас ходить: партия та же, бот в комнате и ход его.
+     */
+    private boolean isBotTurn(ServerBot bot, int epoch) {
+        return epoch == gameEpoch && gameModel.isGameStarted() && !gameModel.isGameOver()
+                && bot.getName().equals(gameModel.getCurrentPlayer()) && playerManager.getBot(bot.getName()) == bot;
+    }
+
+    private void openFirstBotCard(ServerBot bot, int epoch) {
+        if (!isBotTurn(bot, epoch) || !gameModel.getOpenedCards().isEmpty()) {
+            return;
+        }
+        int first = bot.chooseFirst(turnNumber);
+        if (first >= 0 && openCard(first, 0)) {
+            schedule(botThinkMillis / 2, () -> openSecondBotCard(bot, epoch, first));
+        }
+    }
+
+    private void openSecondBotCard(ServerBot bot, int epoch, int first) {
+        if (!isBotTurn(bot, epoch) || gameModel.getOpenedCards().size() != 1) {
+            return;
+        }
+        int second = bot.chooseSecond(first, turnNumber);
+        if (second >= 0) {
+            openCard(second, 0);
+        }
     }
 
     /**
      * Обрабатывает открытие карточки игроком.
      *
-     * @param client канал клиента
+     * @param client сессия клиента
      * @param playerName имя игрока
      * @param cardPositionStr позиция карточки в виде строки
+     * @param receivedAt момент получения сообщения (System.nanoTime)
      */
-    public void handleCardOpen(SocketChannel client, String playerName, String cardPositionStr) {
+    public void handleCardOpen(ClientSession client, String playerName, String cardPositionStr, long receivedAt) {
         // Проверяем, начата ли игра и не завершена ли она
         if (!gameModel.isGameStarted() || gameModel.isGameOver()) {
             return;
@@ -106,24 +426,49 @@ public class GameSessionManager {
             int cardPosition = Integer.parseInt(cardPositionStr);
 
             // Пытаемся открыть карточку в модели игры
-            if (!gameModel.openCard(cardPosition)) {
+            if (!openCard(cardPosition, receivedAt)) {
                 broadcastService.sendMessageToClient(client, Protocol.encode(
                         Protocol.TYPE_ERROR,
                         "Невозможно открыть карточку"
                 ));
-                return;
             }
 
-            broadcastGameState();
+        } catch (NumberFormatException e) {
+            Log.warn("Неверный формат позиции карточки: " + cardPositionStr);
+        }
+    }
+
+    /**
+     * Открывает карточку текущим игроком, показывает ее ботам и при второй открытой карточке проверяет совпадение.
+     *
+     * @param cardPosition позиция карточки
+     * @param receivedAt момент получения сообщения (System.nanoTime), 0 - ход бота
+     * @return true, если карточка открыта
+     */
+    private boolean openCard(int cardPosition, long receivedAt) {
+        if (!gameModel.openCard(cardPosition)) {
+            return false;
+        }
+        journal.open(journalRoom, cardPosition);
+
+        if (cardOpenReceivedAt == 0) {
+            cardOpenReceivedAt = receivedAt;
+        }
+        broadcastGameState();
 
-            // Если открыто две карточки, проверяем совпадение
-            if (gameModel.getOpenedCards().size() == 2) {
-                checkMatch();
+        List<ServerBot> bots = playerManager.getBots();
+        if (!bots.isEmpty()) {
+            int value = gameModel.getCardValue(cardPosition);
+            for (ServerBot bot : bots) {
+                bot.observe(cardPosition, value, turnNumber);
             }
+        }
 
-        } catch (NumberFormatException e) {
-            System.out.println("Неверный формат позиции карточки");
+        // Если открыто две карточки, проверяем совпадение
+        if (gameModel.getOpenedCards().size() == 2) {
+            checkMatch();
         }
+        return true;
     }
 
     /**
@@ -131,31 +476,58 @@ public class GameSessionManager {
      * Обновляет счет и передает ход при необходимости.
      */
     private void checkMatch() {
+        MatchCheckEvent event = new MatchCheckEvent();
+        event.begin();
+        String playerName = gameModel.getCurrentPlayer();
+
         boolean match = gameModel.checkMatch();
+        turnNumber++;
+        turnsTaken.merge(playerName, 1, Integer::sum);
+        journal.match(journalRoom, match);
 
         if (!match) {
-            // Если карточки не совпали, передаем ход следующему игроку
+            // Если карточки не совпали, передаем ход следующему игроку.
+            // Новый текущий игрок попадет в кадр состояния этой же итерации цикла событий
             gameModel.nextPlayer(playerManager.getPlayerNamesList());
+            journal.turn(journalRoom, gameModel.getCurrentPlayer());
+            broadcastGameState();
+        }
 
-            String nextTurnMessage = Protocol.encode(
-                    Protocol.TYPE_PLAYER_TURN,
-                    gameModel.getCurrentPlayer()
-            );
-            broadcastService.broadcastToAll(nextTurnMessage);
+        // Очищаем открытые карточки через 2 секунды (команда комнаты по таймеру цикла событий)
+        schedule(2000, this::finishTurn);
+
+        if (event.shouldCommit()) {
+            event.room = roomId;
+            event.player = playerName;
+            event.messageType = Protocol.TYPE_CARD_OPEN;
+            event.matched = match;
+            event.commit();
         }
+    }
 
-        // Очищаем открытые карточки через 2 секунды
-        new Timer().schedule(new TimerTask() {
-            @Override
-            public void run() {
-                gameModel.clearOpenedCards();
-                broadcastGameState();
+    /**
+     * Завершает ход: закрывает открытые карточки и проверяет окончание игры.
+     */
+    private void finishTurn() {
+        gameModel.clearOpenedCards();
+        journal.clear(journalRoom);
+        broadcastGameState();
 
-                if (gameModel.isGameOver()) {
-                    handleGameOver();
-                }
-            }
-        }, 2000);
+        if (gameModel.isGameOver()) {
+            handleGameOver();
+        } else {
+            scheduleBotTurn();
+        }
+    }
+
+    /**
+     * Обрабатывает сообщение чата: добавляет его к рассылке игрокам комнаты.
+     *
+     * @param playerName имя отправителя
+     * @param message текст сообщения
+     */
+    public void handleChatMessage(String playerName, String message) {
+        chatBatcher.add(Protocol.encode(Protocol.TYPE_CHAT_MESSAGE, playerName, message));
     }
 
     /**
@@ -164,9 +536,12 @@ public class GameSessionManager {
      */
     public void handleGameReset() {
         gameModel.resetGame();
+        gameEpoch++;
+        journal.reset(journalRoom);
+        journal.deal(journalRoom, gameModel.getDealSeed());
         broadcastGameState();
 
-        System.out.println("Игра сброшена. Ожидание игроков...");
+        Log.info("Игра в комнате " + roomId + " сброшена. Ожидание игроков...");
     }
 
     /**
@@ -174,6 +549,9 @@ public class GameSessionManager {
      * Определяет победителей и сбрасывает игру.
      */
     private void handleGameOver() {
+        GameOverEvent event = new GameOverEvent();
+        event.begin();
+
         Map<String, Integer> scores = gameModel.getPlayerScores();
         StringBuilder winners = new StringBuilder();
         int maxScore = scores.values().stream().max(Integer::compareTo).orElse(0);
@@ -184,39 +562,67 @@ public class GameSessionManager {
             }
         }
 
+        // Результаты людей попадают в статистику; боты в таблице лидеров не участвуют
+        List<GameResult> results = new ArrayList<>(scores.size());
+        for (Map.Entry<String, Integer> entry : scores.entrySet()) {
+            if (playerManager.getBot(entry.getKey()) == null) {
+                results.add(new GameResult(entry.getKey(), entry.getValue() == maxScore, entry.getValue(),
+                        turnsTaken.getOrDefault(entry.getKey(), 0)));
+            }
+        }
+        stats.recordGame(results);
+
+        // Клиенты должны получить финальное состояние поля до сообщения о завершении игры
+        flushGameState();
+        journal.gameOver(journalRoom, winners.toString(), maxScore);
         gameModel.resetGame();
+        gameEpoch++;
+        journal.deal(journalRoom, gameModel.getDealSeed());
 
         String gameOverMessage = Protocol.encode(
                 Protocol.TYPE_GAME_OVER,
                 winners.toString(),
                 String.valueOf(maxScore)
         );
-        broadcastService.broadcastToAll(gameOverMessage);
+        broadcastService.broadcastToAll(playerManager, gameOverMessage);
+
+        if (event.shouldCommit()) {
+            event.room = roomId;
+            event.player = winners.toString();
+            event.messageType = Protocol.TYPE_GAME_OVER;
+            event.payloadSize = gameOverMessage.length();
+            event.maxScore = maxScore;
+            event.players = scores.size();
+            event.commit();
+        }
     }
 
     /**
      * Обрабатывает отключение игрока.
      * Удаляет игрока из всех структур и при необходимости сбрасывает игру.
+     * Вызывается командой комнаты, поставленной в очередь менеджером комнат.
      *
-     * @param client канал отключившегося клиента
+     * @param client сессия отключившегося клиента
      */
-    public void handlePlayerDisconnect(SocketChannel client) {
-        String playerName = playerManager.removePlayer(client);
-
-        if (playerName != null) {
-            String message = Protocol.encode(
-                    Protocol.TYPE_SYSTEM,
-                    Protocol.SYSTEM_USER,
-                    playerName + " покинул игру"
-            );
-            broadcastService.broadcastToAll(message);
+    public void handlePlayerDisconnect(ClientSession client) {
+        try {
+            client.getChannel().close();
+        } catch (Exception ignored) {}
 
-            gameModel.removePlayer(playerName);
+        // Во время игры место и ход игрока удерживаются до его возвращения по токену
+        if (resumeGraceMillis > 0 && gameModel.isGameStarted() && !gameModel.isGameOver()) {
+            long tokenHash = playerManager.vacateSeat(client);
+            if (tokenHash != 0) {
+                holdSeat(client.getName(), tokenHash);
+                return;
+            }
         }
 
-        try {
-            client.close();
-        } catch (Exception ignored) {}
+        String playerName = playerManager.removePlayer(client);
+        if (playerName != null) {
+            announceLeave(playerName);
+        }
+        removeBotsWithoutPlayers();
 
         // Если игра началась и игрок отключился - сбрасываем игру
         if (gameModel.isGameStarted() && !gameModel.isGameOver()) {
@@ -225,18 +631,268 @@ public class GameSessionManager {
 
         broadcastGameState();
 
-        System.out.println("Игрок " + (playerName != null ? playerName : "Аноним") +
+        Log.info("Игрок " + (playerName != null ? playerName : "Аноним") +
                 " отключился. Осталось игроков: " + playerManager.getPlayerCount());
     }
 
     /**
-     * Рассылает текущее состояние игры всем игрокам.
+     * Сообщает игрокам о выходе игрока и удаляет его из модели игры.
+     *
+     * @param playerName имя игрока
+     */
+    private void announceLeave(String playerName) {
+        String message = Protocol.encode(
+                Protocol.TYPE_SYSTEM,
+                Protocol.SYSTEM_USER,
+                playerName + " покинул игру"
+        );
+        // Сохраняем порядок: накопленное состояние отправляется раньше системного сообщения
+        flushGameState();
+        broadcastService.broadcastToAll(playerManager, message);
+
+        gameModel.removePlayer(playerName);
+        journal.leave(journalRoom, playerName);
+    }
+
+    /**
+     * Удерживает место игрока, потерявшего соединение во время игры.
+     * Остальные игроки получают только системное сообщение: очередь ходов и счет не меняются.
+     *
+     * @param playerName имя игрока
+     * @param tokenHash хеш токена, по которому игрок может вернуться
+     */
+    private void holdSeat(String playerName, long tokenHash) {
+        broadcastService.broadcastToAll(playerManager, Protocol.encode(
+                Protocol.TYPE_SYSTEM,
+                Protocol.SYSTEM_USER,
+                playerName + " потерял соединение, ждем переподключения"
+        ));
+        schedule(resumeGraceMillis, () -> releaseHeldSeat(playerName, tokenHash));
+
+        Log.info("Игрок " + playerName + " потерял соединение с комнатой " + roomId +
+                ". Место удерживается " + resumeGraceMillis + " мс");
+    }
+
+    /**
+     * Освобождает удержанное место, если игрок так и не вернулся: игрок выходит из игры, партия сбрасывается.
+     */
+    private void releaseHeldSeat(String playerName, long tokenHash) {
+        if (!playerManager.releaseVacantSeat(playerName, tokenHash)) {
+            return;
+        }
+
+        announceLeave(playerName);
+        removeBotsWithoutPlayers();
+        if (gameModel.isGameStarted() && !gameModel.isGameOver()) {
+            handleGameReset();
+        }
+        broadcastGameState();
+
+        Log.info("Игрок " + playerName + " не вернулся в комнату " + roomId +
+                ". Осталось игроков: " + playerManager.getPlayerCount());
+    }
+
+    /**
+     * Удаляет ботов, если в комнате не осталось подключенных игроков и мест, ждущих их возвращения:
+     * боты не играют без людей, и с уходом последнего игрока комната освобождается.
+     */
+    private void removeBotsWithoutPlayers() {
+        if (playerManager.getConnectedCount() == 0 && playerManager.getVacantCount() == 0
+                && !playerManager.getBots().isEmpty()) {
+            for (ServerBot bot : playerManager.removeBots()) {
+                gameModel.removePlayer(bot.getName());
+                journal.leave(journalRoom, bot.getName());
+            }
+        }
+    }
+
+    /**
+     * Возвращает снимок комнаты для восстановления после перезапуска сервера.
+     * Вызывается из потока цикла событий между командами комнаты.
+     *
+     * @return снимок комнаты
+     */
+    public RoomSnapshot snapshot() {
+        RoomSnapshot snapshot = new RoomSnapshot(roomId, journalRoom);
+        List<Integer> matched = new ArrayList<>();
+        for (int position = 0; position < gameModel.getCardCount(); position++) {
+            if (gameModel.isMatched(position)) {
+                matched.add(position);
+            }
+        }
+        snapshot.setGame(gameModel.getDealSeed(), gameModel.isGameStarted(), matched, gameModel.getOpenedCards(),
+                gameModel.getCurrentPlayer());
+
+        Map<String, Integer> scores = gameModel.getPlayerScores();
+        for (String name : playerManager.getPlayerNamesList()) {
+            ServerBot bot = playerManager.getBot(name);
+            snapshot.addSeat(new RoomSnapshot.Seat(name, bot != null, bot != null ? bot.getStrategy().getName() : null,
+                    playerManager.getTokenHash(name)), scores.getOrDefault(name, 0));
+        }
+        return snapshot;
+    }
+
+    /**
+     * Восстанавливает комнату из снимка после перезапуска сервера.
+     * Места игроков остаются свободными и ждут их возвращения по токену, выданному до перезапуска,
+     * боты сразу занимают свои места.
+     * Прерванная партия продолжается с того же хода; если записи о ней потеряны, раскладывается новая.
+     *
+     * @param snapshot снимок комнаты
+     */
+    public void restore(RoomSnapshot snapshot) {
+        List<String> names = new ArrayList<>();
+        for (RoomSnapshot.Seat seat : snapshot.getSeats()) {
+            if (playerManager.isNameTaken(seat.name())) {
+                continue;
+            }
+            if (seat.bot()) {
+                playerManager.addBot(new ServerBot(seat.name(), parseBotStrategy(seat.strategy()), botSeeds.nextLong()));
+            } else {
+                playerManager.addVacantSeat(seat.name(), seat.tokenHash());
+            }
+            names.add(seat.name());
+        }
+
+        gameEpoch++;
+        turnNumber = 0;
+        journal.restore(journalRoom, names);
+        if (snapshot.isGameInProgress()) {
+            gameModel.restore(snapshot.getDealSeed(), snapshot.getMatched(), snapshot.getOpened(),
+                    snapshot.getScores(), snapshot.getCurrentPlayer(), true);
+        } else {
+            for (String name : names) {
+                gameModel.addPlayer(name);
+            }
+            // Снимок содержит прежнюю раскладку, поэтому новая раскладка комнаты записывается после восстановления
+            journal.deal(journalRoom, gameModel.getDealSeed());
+        }
+        for (ServerBot bot : playerManager.getBots()) {
+            bot.startGame(gameModel);
+        }
+        broadcastGameState();
+
+        // Места, на которые игроки не вернулись, освобождаются
+        schedule(seatTimeoutMillis, this::releaseVacantSeats);
+        resumeTurn();
+
+        Log.info("Комната " + roomId + " восстановлена: " + names.size() + " мест" +
+                (gameModel.isGameStarted() ? ", партия продолжается" : ""));
+    }
+
+    private Strategy parseBotStrategy(String spec) {
+        if (spec != null) {
+            try {
+                return Strategy.parse(spec);
+            } catch (IllegalArgumentException e) {
+                Log.warn("Неизвестная стратегия бота " + spec + ", используется стратегия по умолчанию");
+            }
+        }
+        return defaultBotStrategy;
+    }
+
+    /**
+     * Продолжает прерванный ход восстановленной партии: закрывает две открытые карточки
+     * или передает ход боту, чей ход был прерван.
+     */
+    private void resumeTurn() {
+        if (!gameModel.isGameStarted()) {
+            return;
+        }
+        List<Integer> opened = gameModel.getOpenedCards();
+        ServerBot bot = playerManager.getBot(gameModel.getCurrentPlayer());
+        if (opened.size() == 2) {
+            schedule(2000, this::finishTurn);
+        } else if (opened.size() == 1 && bot != null) {
+            int epoch = gameEpoch;
+            int first = opened.getFirst();
+            schedule(botThinkMillis / 2, () -> openSecondBotCard(bot, epoch, first));
+        } else {
+            scheduleBotTurn();
+        }
+    }
+
+    /**
+     * Удаляет места восстановленной комнаты, на которые игроки не вернулись.
+     * Прерванная партия без этих игроков сбрасывается, как при отключении игрока.
+     */
+    private void releaseVacantSeats() {
+        List<String> released = playerManager.releaseVacantSeats();
+        if (released.isEmpty()) {
+            return;
+        }
+
+        for (String name : released) {
+            gameModel.removePlayer(name);
+            journal.leave(journalRoom, name);
+        }
+        removeBotsWithoutPlayers();
+
+        if (gameModel.isGameStarted() && !gameModel.isGameOver()) {
+            handleGameReset();
+        }
+        broadcastGameState();
+
+        Log.info("Игроки " + released + " не вернулись в комнату " + roomId +
+                ". Осталось игроков: " + playerManager.getPlayerCount());
+    }
+
+    /**
+     * Помечает состояние игры как измененное.
+     * Само состояние будет разослано всем игрокам в конце текущей итерации цикла событий.
      */
     private void broadcastGameState() {
-        broadcastService.broadcastGameState(gameModel, MAX_PLAYERS, MIN_PLAYERS);
+        stateDirty = true;
+    }
+
+    /**
+     * Немедленно рассылает состояние игры, если оно изменилось с момента последней рассылки.
+     */
+    private void flushGameState() {
+        if (!stateDirty) {
+            return;
+        }
+
+        stateDirty = false;
+        ByteBuffer frame = broadcastService.broadcastGameState(roomId, playerManager, gameModel, MAX_PLAYERS,
+                MIN_PLAYERS);
+        // Зрителям тот же кадр рассылается после игроков, вне команд комнаты
+        spectators.publish(spectatorFeed, frame);
+
+        if (cardOpenReceivedAt != 0) {
+            metrics.getCardOpenToBroadcast().record(System.nanoTime() - cardOpenReceivedAt);
+            cardOpenReceivedAt = 0;
+        }
+    }
+
+    /**
+     * Рассылает текущее состояние игры (например, для зрителя, пришедшего в комнату, которая еще его не рассылала).
+     */
+    public void refreshGameState() {
+        broadcastGameState();
+    }
+
+    public String getRoomId() {
+        return roomId;
+    }
+
+    public SpectatorFeed getSpectatorFeed() {
+        return spectatorFeed;
+    }
+
+    public PlayerManager getPlayerManager() {
+        return playerManager;
+    }
+
+    public RoomMailbox getMailbox() {
+        return mailbox;
     }
 
     public int getMaxPlayers() {
         return MAX_PLAYERS;
     }
+
+    public boolean isGameStarted() {
+        return gameModel.isGameStarted();
+    }
 }
\ No newline at end of file
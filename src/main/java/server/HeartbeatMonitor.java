@@ -0,0 +1,133 @@
+package server;
+
+import model.Protocol;
+import util.Log;
+
+/**
+ * Монитор активности подключений.
+ * Каждому клиенту периодически отправляется ping с меткой времени отправки: ответ (pong)
+ * дает измерение времени приема-передачи. Клиенту, от которого долго не было данных,
+ * ping отправляется сразу; если за время ожидания
+ * от него так и не пришло ни одного сообщения, соединение считается разорванным и закрывается.
+ * Так обнаруживаются полуоткрытые TCP-соединения, которые не дают ни ошибки записи, ни конца потока.
+ * Подключения хранятся в колесе таймеров: чтение данных только обновляет время активности сессии,
+ * а сроки пересчитываются лениво, когда до сессии доходит колесо.
+ */
+public class HeartbeatMonitor implements LoopTask {
+    private final TimerWheel<ClientSession> wheel;
+    private final BroadcastService broadcastService;
+    private final RoomManager roomManager;
+
+    // Время бездействия, после которого клиенту отправляется ping
+    private final long pingIntervalNanos;
+    // Время бездействия, после которого соединение закрывается
+    private final long idleTimeoutNanos;
+    // Период измерения времени приема-передачи, 0 - не измерять
+    private final long probeIntervalNanos;
+
+    /**
+     * Конструктор монитора активности.
+     *
+     * @param broadcastService сервис рассылки сообщений
+     * @param roomManager      менеджер комнат (отключение клиентов)
+     * @param config           настройки сервера
+     */
+    public HeartbeatMonitor(BroadcastService broadcastService, RoomManager roomManager, ServerConfig config) {
+        this.broadcastService = broadcastService;
+        this.roomManager = roomManager;
+        this.pingIntervalNanos = config.getHeartbeatIntervalMillis() * 1_000_000;
+        this.idleTimeoutNanos = Math.max(config.getHeartbeatTimeoutMillis() * 1_000_000, pingIntervalNanos);
+        this.probeIntervalNanos = config.getRttProbeMillis() * 1_000_000;
+
+        long tickNanos = Math.max(1, config.getHeartbeatTickMillis()) * 1_000_000;
+        int slotCount = (int) Math.min(1 << 16, idleTimeoutNanos / tickNanos + 1);
+        this.wheel = new TimerWheel<>(slotCount, tickNanos, System.nanoTime());
+    }
+
+    /**
+     * Начинает отслеживать активность нового подключения.
+     *
+     * @param session сессия клиента
+     * @param now     текущее время (System.nanoTime)
+     */
+    public void register(ClientSession session, long now) {
+        session.markSeen(now);
+        session.setLastPingAt(now);
+        wheel.schedule(session, nextCheck(session, now));
+    }
+
+    /**
+     * Обрабатывает подключения, срок проверки которых наступил.
+     *
+     * @param now текущее время (System.nanoTime)
+     * @return время до следующего тика колеса или -1, если отслеживаемых подключений нет
+     */
+    @Override
+    public long run(long now) {
+        return wheel.advance(now, this::check);
+    }
+
+    /**
+     * Проверяет активность подключения.
+     *
+     * @param session сессия клиента
+     * @param now     текущее время (System.nanoTime)
+     * @return следующий срок проверки или -1, если подключение больше не отслеживается
+     */
+    private long check(ClientSession session, long now) {
+        if (session.isDisconnected()) {
+            return -1;
+        }
+
+        long lastSeen = session.getLastSeen();
+        long idle = now - lastSeen;
+
+        if (idle >= idleTimeoutNanos) {
+            Log.warn("Игрок " + session.getName() + " не отвечает, соединение закрыто");
+            roomManager.requestDisconnect(session);
+            return -1;
+        }
+
+        // При бездействии ping отправляется один раз, для измерения - раз в период
+        boolean idlePing = idle >= pingIntervalNanos && !session.isPingPending();
+        boolean probe = probeIntervalNanos > 0 && now - session.getLastPingAt() >= probeIntervalNanos;
+        if (idlePing || probe) {
+            session.setPingPending(idle >= pingIntervalNanos);
+            session.setLastPingAt(now);
+            broadcastService.sendMessageToClient(session, Protocol.encode(Protocol.TYPE_PING, String.valueOf(now)));
+        }
+
+        return nextCheck(session, now);
+    }
+
+    /**
+     * Вычисляет следующий срок проверки подключения.
+     *
+     * @param session сессия клиента
+     * @param now     текущее время (System.nanoTime)
+     * @return срок проверки (System.nanoTime)
+     */
+    private long nextCheck(ClientSession session, long now) {
+        long lastSeen = session.getLastSeen();
+        long deadline = now - lastSeen >= pingIntervalNanos
+                ? lastSeen + idleTimeoutNanos
+                : lastSeen + pingIntervalNanos;
+
+        if (probeIntervalNanos > 0) {
+            long probeAt = session.getLastPingAt() + probeIntervalNanos;
+            if (probeAt - deadline < 0) {
+                deadline = probeAt;
+            }
+        }
+        return deadline;
+    }
+
+    /**
+     * Возвращает количество отслеживаемых подключений.
+     *
+     * @return количество подключений
+     */
+    public int getTrackedCount() {
+        return wheel.size();
+    }
+}
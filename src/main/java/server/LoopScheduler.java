@@ -0,0 +1,82 @@
+package server;
+
+import util.Log;
+
+import java.util.PriorityQueue;
+
+/**
+ * Планировщик отложенных задач в потоке цикла событий.
+ * Заменяет java.util.Timer: задачи выполняются в потоке цикла событий, а не в отдельных потоках.
+ * Методы планировщика должны вызываться только из потока цикла событий.
+ */
+public class LoopScheduler implements LoopTask {
+    /**
+     * Отложенная задача.
+     *
+     * @param deadline момент выполнения (System.nanoTime)
+     * @param sequence порядковый номер для сохранения порядка задач с одинаковым сроком
+     * @param task     задача
+     */
+    private record Scheduled(long deadline, long sequence, Runnable task) {}
+
+    private final PriorityQueue<Scheduled> queue = new PriorityQueue<>((a, b) -> {
+        int cmp = Long.compare(a.deadline() - b.deadline(), 0);
+        return cmp != 0 ? cmp : Long.compare(a.sequence(), b.sequence());
+    });
+
+    private long sequence;
+
+    // Действие, пробуждающее цикл событий, чтобы он пересчитал время ожидания с учетом новой задачи
+    private Runnable wakeup = () -> {};
+
+    /**
+     * Устанавливает действие для пробуждения цикла событий.
+     *
+     * @param wakeup действие пробуждения (например, Selector.wakeup())
+     */
+    public void setWakeup(Runnable wakeup) {
+        this.wakeup = wakeup;
+    }
+
+    /**
+     * Планирует выполнение задачи через указанное время.
+     *
+     * @param delayMillis задержка в миллисекундах
+     * @param task        задача
+     */
+    public void schedule(long delayMillis, Runnable task) {
+        long deadline = System.nanoTime() + delayMillis * 1_000_000;
+        Scheduled first = queue.peek();
+        queue.add(new Scheduled(deadline, sequence++, task));
+
+        // Задача может быть добавлена после того, как цикл уже вычислил время ожидания
+        if (first == null || deadline - first.deadline() < 0) {
+            wakeup.run();
+        }
+    }
+
+    /**
+     * Выполняет задачи, срок которых наступил.
+     *
+     * @param now текущее время (System.nanoTime)
+     * @return время до ближайшей задачи или -1, если задач нет
+     */
+    @Override
+    public long run(long now) {
+        Scheduled next;
+        while ((next = queue.peek()) != null) {
+            long delay = next.deadline() - now;
+            if (delay > 0) {
+                return delay;
+            }
+
+            queue.poll();
+            try {
+                next.task().run();
+            } catch (RuntimeException e) {
+                Log.error("Ошибка при выполнении отложенной задачи: " + e);
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,16 @@
+package server;
+
+/**
+ * Задача, выполняемая в потоке цикла событий после обработки сетевых событий.
+ * Позволяет выполнять отложенную работу (рассылки по таймеру и т.п.) без отдельных потоков.
+ */
+public interface LoopTask {
+    /**
+     * Выполняет задачу.
+     *
+     * @param now текущее время (System.nanoTime)
+     * @return время до следующего необходимого запуска в наносекундах, 0 - как можно скорее,
+     *         -1 - задаче нечего ждать
+     */
+    long run(long now);
+}
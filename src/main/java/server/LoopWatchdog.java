@@ -0,0 +1,155 @@
+package server;
+
+import metrics.ServerMetrics;
+import util.Log;
+
+/**
+ * Сторожевой таймер цикла событий.
+ * Вся работа сервера выполняется одним потоком, поэтому любой медленный обработчик задерживает всех игроков.
+ * Цикл событий отмечает начало и конец каждой итерации и текущий вид работы (причину),
+ * а отдельный поток сторожа периодически проверяет, не затянулась ли итерация.
+ * Если итерация длится дольше порога, сторож снимает стек потока цикла событий,
+ * выводит его в журнал вместе с обрабатываемым сообщением и учитывает задержку по причине.
+ * Отметки цикла - только запись volatile-полей, без выделения памяти.
+ */
+public class LoopWatchdog implements Runnable {
+    // Причины задержек (вид работы, выполняемой циклом событий)
+    public static final String IDLE = "idle";
+    public static final String ACCEPT = "accept";
+    public static final String READ = "read";
+    public static final String WRITE = "write";
+    public static final String MESSAGE = "message";
+    public static final String DISCONNECT = "disconnect";
+    public static final String ROOM_COMMANDS = "room-commands";
+
+    // Максимальное количество кадров стека в журнале
+    private static final int MAX_STACK_FRAMES = 25;
+    // Максимальная длина сообщения в журнале
+    private static final int MAX_DETAIL_LENGTH = 120;
+
+    private final ServerMetrics metrics;
+    // Порог длительности итерации, 0 - сторож выключен
+    private final long thresholdNanos;
+    // Период проверки
+    private final long pollMillis;
+
+    private volatile Thread loopThread;
+    // Номер и начало текущей итерации (System.nanoTime), 0 - цикл ожидает событий
+    private volatile long iteration;
+    private volatile long iterationStart;
+    // Текущий вид работы и его подробности (например, обрабатываемое сообщение)
+    private volatile String activity = IDLE;
+    private volatile String detail;
+
+    // Номер последней итерации, о задержке которой уже сообщено (используется только потоком сторожа)
+    private long reportedIteration = -1;
+
+    /**
+     * Конструктор сторожа.
+     *
+     * @param metrics метрики сервера (счетчики задержек по причинам)
+     * @param config  настройки сервера
+     */
+    public LoopWatchdog(ServerMetrics metrics, ServerConfig config) {
+        this.metrics = metrics;
+        this.thresholdNanos = config.getWatchdogThresholdMillis() * 1_000_000;
+        // Проверяем несколько раз за порог, чтобы заметить задержку вскоре после его превышения
+        this.pollMillis = Math.max(5, config.getWatchdogThresholdMillis() / 4);
+    }
+
+    /**
+     * Запускает поток сторожа для указанного потока цикла событий.
+     *
+     * @param loopThread поток цикла событий
+     */
+    public void start(Thread loopThread) {
+        if (thresholdNanos <= 0 || this.loopThread != null) {
+            return;
+        }
+
+        this.loopThread = loopThread;
+        Thread watchdogThread = new Thread(this, "loop-watchdog");
+        watchdogThread.setDaemon(true);
+        watchdogThread.start();
+    }
+
+    /**
+     * Отмечает начало итерации цикла событий (после выхода из select).
+     *
+     * @param now текущее время (System.nanoTime)
+     */
+    public void beginIteration(long now) {
+        iteration = iteration + 1;
+        iterationStart = now == 0 ? 1 : now;
+    }
+
+    /**
+     * Отмечает конец итерации цикла событий (перед ожиданием в select).
+     */
+    public void endIteration() {
+        iterationStart = 0;
+        activity = IDLE;
+        detail = null;
+    }
+
+    /**
+     * Отмечает вид работы, выполняемой циклом событий.
+     *
+     * @param activity вид работы (одна из констант класса или имя задачи цикла)
+     * @param detail   подробности (обрабатываемое сообщение, комната) или null
+     */
+    public void enter(String activity, String detail) {
+        this.activity = activity;
+        this.detail = detail;
+    }
+
+    @Override
+    public void run() {
+        while (true) {
+            try {
+                Thread.sleep(pollMillis);
+            } catch (InterruptedException e) {
+                return;
+            }
+            check(System.nanoTime());
+        }
+    }
+
+    /**
+     * Проверяет длительность текущей итерации и сообщает о задержке один раз за итерацию.
+     *
+     * @param now текущее время (System.nanoTime)
+     */
+    private void check(long now) {
+        long current = iteration;
+        long start = iterationStart;
+        if (start == 0 || current == reportedIteration || now - start < thresholdNanos) {
+            return;
+        }
+
+        reportedIteration = current;
+        String cause = activity;
+        String message = detail;
+        StackTraceElement[] stack = loopThread.getStackTrace();
+
+        metrics.recordLoopStall(cause);
+
+        StringBuilder report = new StringBuilder();
+        report.append("Цикл событий занят уже ").append((now - start) / 1_000_000).append(" мс")
+                .append(" (причина: ").append(cause);
+        if (message != null) {
+            if (message.length() > MAX_DETAIL_LENGTH) {
+                message = message.substring(0, MAX_DETAIL_LENGTH) + "...";
+            }
+            report.append(", данные: ").append(message);
+        }
+        report.append(")");
+        for (int i = 0; i < Math.min(stack.length, MAX_STACK_FRAMES); i++) {
+            report.append("\n\tat ").append(stack[i]);
+        }
+        if (stack.length > MAX_STACK_FRAMES) {
+            report.append("\n\t...");
+        }
+        Log.warn(report.toString());
+    }
+}
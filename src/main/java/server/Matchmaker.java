@@ -0,0 +1,341 @@
+package server;
+
+import metrics.ServerMetrics;
+import model.Protocol;
+import stats.PlayerStats;
+import stats.StatsStore;
+import util.Log;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Подбор соперников.
+ * Игрок, отправивший запрос подбора, встает в очередь своей группы мастерства (по доле побед из статистики;
+ * новички попадают в первую группу). Как только в группе набирается полная комната, игроки сразу попадают
+ * в новую комнату и игра начинается. Если первый в очереди группы ждет дольше заданного времени, комната
+ * собирается из тех, кто есть (от двух игроков), с добавлением игроков из ближайших групп.
+ * Очереди групп - очереди в порядке прихода: решение о подборе просматривает только начала очередей,
+ * поэтому его время не зависит от количества ожидающих игроков. Игроки, покинувшие очередь или отключившиеся,
+ * удаляются из очереди, когда доходят до ее начала.
+ * Работает только в потоке цикла событий, поэтому синхронизация не нужна.
+ */
+public class Matchmaker implements LoopTask {
+    // Префикс идентификаторов комнат, созданных подбором
+    private static final String ROOM_PREFIX = "match-";
+    // Наименьшее и наибольшее количество игроков в комнате
+    private static final int MIN_ROOM_SIZE = 2;
+    private static final int MAX_ROOM_SIZE = 4;
+    // Период повторной проверки игрока, который дождался срока, но остался в очереди один
+    private static final long RETRY_NANOS = 100_000_000L;
+
+    /**
+     * Заявка игрока в очереди.
+     */
+    private static final class Ticket {
+        final ClientSession session;
+        final String name;
+        final int bucket;
+        final long enqueuedAt;
+        // Игрок покинул очередь или встал в нее заново
+        boolean cancelled;
+
+        Ticket(ClientSession session, String name, int bucket, long enqueuedAt) {
+            this.session = session;
+            this.name = name;
+            this.bucket = bucket;
+            this.enqueuedAt = enqueuedAt;
+        }
+    }
+
+    private final RoomManager roomManager;
+    private final BroadcastService broadcastService;
+    private final StatsStore stats;
+    private final ServerMetrics metrics;
+
+    private final int roomSize;
+    private final long waitNanos;
+    private final int minGames;
+
+    // Очереди групп мастерства и количество заявок в них (включая заявки отключившихся игроков)
+    private final List<ArrayDeque<Ticket>> queues;
+    private final int[] counts;
+    // Заявки по сессиям игроков
+    private final Map<ClientSession, Ticket> tickets = new HashMap<>();
+
+    // Собираемая комната и заявки, пропущенные при сборе (переиспользуются)
+    private final List<Ticket> group = new ArrayList<>(MAX_ROOM_SIZE);
+    private final List<Ticket> skipped = new ArrayList<>();
+
+    private long matchNumber;
+
+    /**
+     * Конструктор.
+     *
+     * @param roomManager      менеджер комнат
+     * @param broadcastService сервис рассылки сообщений
+     * @param stats            статистика игроков
+     * @param metrics          метрики сервера
+     * @param config           настройки сервера
+     */
+    public Matchmaker(RoomManager roomManager, BroadcastService broadcastService, StatsStore stats,
+                      ServerMetrics metrics, ServerConfig config) {
+        this.roomManager = roomManager;
+        this.broadcastService = broadcastService;
+        this.stats = stats;
+        this.metrics = metrics;
+        this.roomSize = Math.clamp(config.getMatchRoomSize(), MIN_ROOM_SIZE, MAX_ROOM_SIZE);
+        this.waitNanos = config.getMatchWaitMillis() * 1_000_000;
+        this.minGames = config.getMatchMinGames();
+
+        int bucketCount = Math.max(1, config.getMatchSkillBuckets());
+        this.queues = new ArrayList<>(bucketCount);
+        for (int i = 0; i < bucketCount; i++) {
+            queues.add(new ArrayDeque<>());
+        }
+        this.counts = new int[bucketCount];
+    }
+
+    /**
+     * Ставит игрока в очередь подбора. Если в его группе набралась полная комната, она создается сразу.
+     *
+     * @param session сессия игрока
+     * @param name    имя игрока
+     */
+    public void enqueue(ClientSession session, String name) {
+        long start = System.nanoTime();
+        if (session.getRoomOrPending() != null) {
+            broadcastService.sendMessageToClient(session, Protocol.encode(
+                    Protocol.TYPE_ERROR,
+                    "Вы уже в комнате " + session.getRoomOrPending().getRoomId()
+            ));
+            return;
+        }
+
+        cancel(session);
+        session.setName(name);
+        int bucket = skillBucket(name);
+        Ticket ticket = new Ticket(session, name, bucket, start);
+        queues.get(bucket).addLast(ticket);
+        counts[bucket]++;
+        tickets.put(session, ticket);
+
+        boolean matched = counts[bucket] >= roomSize && match(bucket, false);
+        metrics.getMatchDecision().record(System.nanoTime() - start);
+        metrics.matchmakingQueued().set(tickets.size());
+
+        if (!matched) {
+            broadcastService.sendMessageToClient(session, Protocol.encode(
+                    Protocol.TYPE_SYSTEM,
+                    Protocol.SYSTEM_USER,
+                    "Поиск соперников. Игроков в очереди: " + counts[bucket]
+            ));
+        }
+    }
+
+    /**
+     * Убирает игрока из очереди подбора, если он в ней стоит.
+     *
+     * @param session сессия игрока
+     * @return true, если игрок стоял в очереди
+     */
+    public boolean cancel(ClientSession session) {
+        Ticket ticket = tickets.remove(session);
+        if (ticket == null) {
+            return false;
+        }
+        ticket.cancelled = true;
+        counts[ticket.bucket]--;
+        metrics.matchmakingQueued().set(tickets.size());
+        return true;
+    }
+
+    /**
+     * Собирает комнаты для игроков, дождавшихся срока ожидания.
+     *
+     * @param now текущее время (System.nanoTime)
+     * @return время до ближайшего срока ожидания или -1, если очередь пуста
+     */
+    @Override
+    public long run(long now) {
+        long nextDelay = -1;
+        for (int bucket = 0; bucket < queues.size(); bucket++) {
+            Ticket head = peekWaiting(bucket);
+            if (head == null) {
+                continue;
+            }
+
+            long delay = head.enqueuedAt + waitNanos - now;
+            if (delay <= 0) {
+                long start = System.nanoTime();
+                match(bucket, true);
+                metrics.getMatchDecision().record(System.nanoTime() - start);
+
+                head = peekWaiting(bucket);
+                if (head == null) {
+                    continue;
+                }
+                delay = Math.max(head.enqueuedAt + waitNanos - now, RETRY_NANOS);
+            }
+            if (nextDelay < 0 || delay < nextDelay) {
+                nextDelay = delay;
+            }
+        }
+        metrics.matchmakingQueued().set(tickets.size());
+        return nextDelay;
+    }
+
+    /**
+     * Возвращает количество игроков в очереди подбора.
+     *
+     * @return количество игроков
+     */
+    public int getQueuedCount() {
+        return tickets.size();
+    }
+
+    /**
+     * Пытается собрать комнату из начала очереди группы.
+     *
+     * @param bucket  группа мастерства
+     * @param expired срок ожидания истек: комната собирается не полной и с игроками соседних групп
+     * @return true, если комната создана
+     */
+    private boolean match(int bucket, boolean expired) {
+        group.clear();
+        take(bucket);
+        for (int distance = 1; expired && group.size() < roomSize && distance < queues.size(); distance++) {
+            if (bucket - distance >= 0) {
+                take(bucket - distance);
+            }
+            if (bucket + distance < queues.size()) {
+                take(bucket + distance);
+            }
+        }
+
+        if (group.size() < (expired ? MIN_ROOM_SIZE : roomSize)) {
+            // Игроков не хватило: возвращаем их в начало своих очередей в прежнем порядке
+            for (int i = group.size() - 1; i >= 0; i--) {
+                Ticket ticket = group.get(i);
+                queues.get(ticket.bucket).addFirst(ticket);
+            }
+            group.clear();
+            return false;
+        }
+
+        createRoom();
+        return true;
+    }
+
+    /**
+     * Забирает заявки из начала очереди группы в собираемую комнату, пока она не заполнится.
+     * Заявки отключившихся игроков удаляются, а игроки с именем, которое уже есть в комнате, остаются в очереди.
+     *
+     * @param bucket группа мастерства
+     */
+    private void take(int bucket) {
+        ArrayDeque<Ticket> queue = queues.get(bucket);
+        skipped.clear();
+        Ticket ticket;
+        while (group.size() < roomSize && (ticket = queue.pollFirst()) != null) {
+            if (!isWaiting(ticket)) {
+                drop(ticket);
+            } else if (hasName(ticket.name)) {
+                skipped.add(ticket);
+            } else {
+                group.add(ticket);
+            }
+        }
+        for (int i = skipped.size() - 1; i >= 0; i--) {
+            queue.addFirst(skipped.get(i));
+        }
+        skipped.clear();
+    }
+
+    /**
+     * Создает комнату для собранных игроков и начинает в ней игру.
+     */
+    private void createRoom() {
+        String roomId;
+        do {
+            roomId = ROOM_PREFIX + (++matchNumber);
+        } while (roomManager.hasRoom(roomId));
+
+        GameSessionManager room = roomManager.getOrCreateRoom(roomId);
+        for (Ticket ticket : group) {
+            tickets.remove(ticket.session);
+            counts[ticket.bucket]--;
+            ticket.session.setPendingRoom(room);
+            room.post(ticket.session, () -> room.handlePlayerConnect(ticket.session, ticket.name, null));
+        }
+        // Игру начинает первый в очереди; если кто-то не успел войти, недостающих заменят боты
+        ClientSession host = group.get(0).session;
+        room.post(() -> room.handleStartGame(host));
+
+        Log.info("Подбор соперников: комната " + roomId + " для " + group.size() + " игроков");
+        group.clear();
+    }
+
+    /**
+     * Возвращает первую действующую заявку очереди группы, удаляя недействующие.
+     *
+     * @param bucket группа мастерства
+     * @return заявка или null, если очередь пуста
+     */
+    private Ticket peekWaiting(int bucket) {
+        ArrayDeque<Ticket> queue = queues.get(bucket);
+        Ticket ticket;
+        while ((ticket = queue.peekFirst()) != null && !isWaiting(ticket)) {
+            drop(queue.pollFirst());
+        }
+        return ticket;
+    }
+
+    /**
+     * Проверяет, ждет ли игрок подбора: заявка не отменена, игрок подключен и не входит в комнату.
+     */
+    private static boolean isWaiting(Ticket ticket) {
+        return !ticket.cancelled && !ticket.session.isDisconnected() && ticket.session.getRoomOrPending() == null;
+    }
+
+    /**
+     * Удаляет недействующую заявку, взятую из очереди.
+     */
+    private void drop(Ticket ticket) {
+        if (!ticket.cancelled) {
+            ticket.cancelled = true;
+            tickets.remove(ticket.session);
+            counts[ticket.bucket]--;
+        }
+    }
+
+    private boolean hasName(String name) {
+        for (int i = 0; i < group.size(); i++) {
+            if (group.get(i).name.equals(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Определяет группу мастерства игрока по доле побед.
+     * Игроки, сыгравшие меньше заданного количества партий, попадают в первую группу.
+     *
+     * @param name имя игрока
+     * @return номер группы
+     */
+    private int skillBucket(String name) {
+        if (queues.size() == 1) {
+            return 0;
+        }
+        PlayerStats player = stats.getStats(name);
+        if (player == null || player.getGames() < minGames) {
+            return 0;
+        }
+        return Math.min(queues.size() - 1, (int) ((long) player.getWins() * queues.size() / player.getGames()));
+    }
+}
@@ -1,66 +1,199 @@
 package server;
 
+import diagnostics.MessageEvent;
+import metrics.ServerMetrics;
 import model.Protocol;
-import java.nio.channels.SocketChannel;
+import stats.StatsStore;
+import util.Log;
 
 /**
  * Маршрутизатор сообщений.
  * Определяет тип входящего сообщения и направляет его соответствующему обработчику.
  */
 public class MessageRouter {
-    private final GameSessionManager sessionManager;
-    private final PlayerManager playerManager;
+    // Количество мест таблицы лидеров по умолчанию и наибольшее
+    private static final int LEADERBOARD_DEFAULT = 10;
+    private static final int LEADERBOARD_MAX = 100;
+    // Размер страницы списка комнат по умолчанию
+    private static final int LOBBY_PAGE_DEFAULT = 50;
+
+    private final RoomManager roomManager;
     private final BroadcastService broadcastService;
+    private final RateLimitPolicy rateLimitPolicy;
+    private final ServerMetrics metrics;
+    private final StatsStore stats;
+    private final Matchmaker matchmaker;
+    private final RoomDirectory directory;
+    private final SpectatorService spectators;
 
     /**
      * Конструктор маршрутизатора сообщений.
      *
-     * @param sessionManager менеджер игровых сессий
-     * @param playerManager менеджер игроков
+     * @param roomManager менеджер игровых комнат
      * @param broadcastService сервис рассылки сообщений
+     * @param rateLimitPolicy политика ограничения частоты сообщений
+     * @param metrics метрики сервера
+     * @param stats статистика игроков
+     * @param matchmaker подбор соперников
+     * @param directory каталог комнат для лобби
+     * @param spectators зрители комнат
      */
-    public MessageRouter(GameSessionManager sessionManager, PlayerManager playerManager, BroadcastService broadcastService) {
-        this.sessionManager = sessionManager;
-        this.playerManager = playerManager;
+    public MessageRouter(RoomManager roomManager, BroadcastService broadcastService,
+                         RateLimitPolicy rateLimitPolicy, ServerMetrics metrics, StatsStore stats,
+                         Matchmaker matchmaker, RoomDirectory directory, SpectatorService spectators) {
+        this.directory = directory;
+        this.spectators = spectators;
+        this.metrics = metrics;
+        this.stats = stats;
+        this.matchmaker = matchmaker;
+        this.roomManager = roomManager;
         this.broadcastService = broadcastService;
+        this.rateLimitPolicy = rateLimitPolicy;
     }
 
     /**
      * Обрабатывает входящее сообщение от клиента.
-     * Декодирует сообщение и направляет его соответствующему обработчику.
+     * Декодирует сообщение и ставит команду соответствующего обработчика в очередь комнаты клиента.
      *
-     * @param client канал клиента
+     * @param session сессия клиента
      * @param rawMessage сырое сообщение в формате протокола
      */
-    public void processMessage(SocketChannel client, String rawMessage) {
-        // Декодируем сообщение по протоколу
+    public void processMessage(ClientSession session, String rawMessage) {
+        MessageEvent event = new MessageEvent();
+        event.begin();
+
+        // Декодируем сообщение по протоколу и определяем его тип
         String[] parts = Protocol.decode(rawMessage);
-        if (parts.length == 0) return;
+        int messageType = parts.length > 0 ? parseMessageType(parts[0]) : -1;
 
-        // Определяем тип сообщения
-        int messageType = parseMessageType(parts[0]);
-        if (messageType == -1) return;
+        if (messageType != -1) {
+            metrics.recordMessage(messageType);
 
-        // Получаем имя игрока для идентификации
-        String playerName = playerManager.getPlayerName(client);
+            // Проверяем лимит частоты сообщений данного типа
+            if (checkRateLimit(session, messageType)) {
+                route(session, parts, messageType);
+            } else {
+                event.rateLimited = true;
+            }
+        }
 
-        switch (messageType) {
-            // Обработка подключения нового игрока
-            case Protocol.TYPE_CONNECT:
-                if (parts.length > 1) {
-                    sessionManager.handlePlayerConnect(client, parts[1]);
+        if (event.shouldCommit()) {
+            GameSessionManager room = session.getRoom();
+            event.room = room != null ? room.getRoomId() : null;
+            event.player = session.getName();
+            event.messageType = messageType;
+            event.payloadSize = rawMessage.length();
+            event.commit();
+        }
+    }
+
+    /**
+     * Направляет сообщение обработчику: отвечает на ping или ставит команду в очередь комнаты клиента.
+     *
+     * @param session сессия клиента
+     * @param parts части сообщения
+     * @param messageType тип сообщения
+     */
+    private void route(ClientSession session, String[] parts, int messageType) {
+        // Проверка соединения не затрагивает комнату: время активности уже обновлено при чтении
+        if (messageType == Protocol.TYPE_PING) {
+            String token = parts.length > 1 ? parts[1] : "";
+            broadcastService.sendMessageToClient(session, Protocol.encode(Protocol.TYPE_PONG, token));
+            return;
+        }
+        if (messageType == Protocol.TYPE_PONG) {
+            if (parts.length > 1) {
+                recordRtt(session, parts[1]);
+            }
+            return;
+        }
+
+        // Таблица лидеров не относится к комнате и читается из памяти за O(K)
+        if (messageType == Protocol.TYPE_LEADERBOARD) {
+            int limit = parseLimit(parts.length > 1 ? parts[1] : null);
+            broadcastService.sendMessageToClient(session,
+                    Protocol.encode(Protocol.TYPE_LEADERBOARD, stats.getLeaderboardJson(limit)));
+            return;
+        }
+
+        // Список комнат: страница каталога и подписка на его изменения
+        if (messageType == Protocol.TYPE_LOBBY) {
+            int pageSize = parsePageSize(parts.length > 1 ? parts[1] : null);
+            if (pageSize > 0) {
+                directory.subscribe(session, pageSize, parts.length > 2 && !parts[2].isEmpty() ? parts[2] : null);
+            } else {
+                directory.unsubscribe(session);
+            }
+            return;
+        }
+
+        // Очередь подбора соперников общая для сервера: игрок ждет в ней без комнаты
+        if (messageType == Protocol.TYPE_MATCHMAKE) {
+            directory.unsubscribe(session);
+            spectators.unwatch(session);
+            if (parts.length > 1 && !parts[1].isBlank()) {
+                matchmaker.enqueue(session, parts[1]);
+            } else {
+                matchmaker.cancel(session);
+            }
+            return;
+        }
+
+        // Зритель не входит в комнату: он только получает состояние игры
+        if (messageType == Protocol.TYPE_SPECTATE) {
+            if (parts.length > 1 && !parts[1].isBlank()) {
+                GameSessionManager room = roomManager.getRoom(parts[1]);
+                if (room == null) {
+                    broadcastService.sendMessageToClient(session,
+                            Protocol.encode(Protocol.TYPE_ERROR, "Комната " + parts[1] + " не найдена"));
+                    return;
                 }
-                break;
+                matchmaker.cancel(session);
+                directory.unsubscribe(session);
+                spectators.watch(session, room);
+            } else {
+                spectators.unwatch(session);
+            }
+            return;
+        }
 
+        // Подключение - единственное сообщение, допустимое до входа в комнату
+        if (messageType == Protocol.TYPE_CONNECT) {
+            if (parts.length > 1) {
+                // Игрок, выбравший комнату сам, покидает очередь подбора, лобби и зрителей
+                matchmaker.cancel(session);
+                directory.unsubscribe(session);
+                spectators.unwatch(session);
+                String name = parts[1];
+                String resumeToken = parts.length > 3 && !parts[3].isEmpty() ? parts[3] : null;
+                // Игрок, уже находящийся в комнате или входящий в нее, остается в ней: комната запоминается сразу,
+                // чтобы следующий запрос до выполнения команды входа не попал в другую комнату
+                GameSessionManager room = session.getRoomOrPending();
+                if (room == null) {
+                    room = roomManager.getOrCreateRoom(parts.length > 2 ? parts[2] : null);
+                    session.setPendingRoom(room);
+                }
+                GameSessionManager target = room;
+                target.post(session, () -> target.handlePlayerConnect(session, name, resumeToken));
+            }
+            return;
+        }
+
+        GameSessionManager room = session.getRoom();
+        if (room == null) return;
+
+        switch (messageType) {
             // Обработка запроса на начало игры
             case Protocol.TYPE_START_GAME:
-                sessionManager.handleStartGame(client);
+                room.post(session, () -> room.handleStartGame(session));
                 break;
 
             // Обработка открытия карточки
             case Protocol.TYPE_CARD_OPEN:
                 if (parts.length > 1) {
-                    sessionManager.handleCardOpen(client, playerName, parts[1]);
+                    String position = parts[1];
+                    long receivedAt = System.nanoTime();
+                    room.post(session, () -> room.handleCardOpen(session, session.getName(), position, receivedAt));
                 }
                 break;
 
@@ -68,19 +201,115 @@ public class MessageRouter {
             case Protocol.TYPE_CHAT_MESSAGE:
                 if (parts.length > 1) {
                     String message = parts[1];
-                    String chatPacket = Protocol.encode(
-                            Protocol.TYPE_CHAT_MESSAGE,
-                            playerName,
-                            message
-                    );
-                    broadcastService.broadcastToAll(chatPacket);
+                    room.post(session, () -> room.handleChatMessage(session.getName(), message));
                 }
                 break;
 
             // Обработка запроса на сброс игры
             case Protocol.TYPE_GAME_RESET:
-                sessionManager.handleGameReset();
+                room.post(session, room::handleGameReset);
+                break;
+
+            // Обработка запроса на добавление бота сервера
+            case Protocol.TYPE_ADD_BOT:
+                String strategy = parts.length > 1 ? parts[1] : null;
+                room.post(session, () -> room.handleAddBot(session, strategy));
+                break;
+        }
+    }
+
+    /**
+     * Проверяет лимит частоты сообщений клиента и применяет действие политики при превышении.
+     *
+     * @param session сессия клиента
+     * @param messageType тип сообщения
+     * @return true, если сообщение можно обработать
+     */
+    private boolean checkRateLimit(ClientSession session, int messageType) {
+        long now = System.nanoTime();
+        RateLimiter limiter = session.getRateLimiter();
+        if (limiter.tryAcquire(messageType, now)) {
+            return true;
+        }
+
+        metrics.recordRateLimitViolation(messageType);
+
+        switch (rateLimitPolicy.getAction()) {
+            // Приостанавливаем чтение из канала, пока не появится токен
+            case THROTTLE:
+                metrics.rateLimitThrottled().increment();
+                session.throttleUntil(now + limiter.nanosUntilAvailable(messageType, now));
+                break;
+
+            // Отключаем клиента
+            case DISCONNECT:
+                metrics.rateLimitDisconnected().increment();
+                Log.warn("Игрок " + session.getName() + " отключен за превышение частоты сообщений");
+                roomManager.requestDisconnect(session);
                 break;
+
+            // Просто отбрасываем сообщение
+            case DROP:
+                break;
+        }
+        return false;
+    }
+
+    /**
+     * Учитывает измерение времени приема-передачи по ответу клиента на ping.
+     *
+     * @param session сессия клиента
+     * @param token метка из ответа (время отправки ping сервером)
+     */
+    private void recordRtt(ClientSession session, String token) {
+        long sentAt;
+        try {
+            sentAt = Long.parseLong(token);
+        } catch (NumberFormatException e) {
+            return;
+        }
+
+        // Метка - время отправки ping сервером; ответ на ping старше последнего не учитываем
+        long rtt = System.nanoTime() - sentAt;
+        if (rtt < 0 || sentAt - session.getLastPingAt() < 0) {
+            return;
+        }
+
+        session.getRtt().addSample(rtt);
+        metrics.getRtt().record(rtt);
+    }
+
+    /**
+     * Разбирает количество мест таблицы лидеров.
+     *
+     * @param value строка с количеством или null
+     * @return количество мест от 1 до LEADERBOARD_MAX
+     */
+    private int parseLimit(String value) {
+        if (value == null) {
+            return LEADERBOARD_DEFAULT;
+        }
+        try {
+            return Math.clamp(Integer.parseInt(value), 1, LEADERBOARD_MAX);
+        } catch (NumberFormatException e) {
+            return LEADERBOARD_DEFAULT;
+        }
+    }
+
+    /**
+     * Разбирает размер страницы списка комнат.
+     *
+     * @param value строка с размером или null
+     * @return размер страницы, 0 - отписаться от изменений
+     */
+    private int parsePageSize(String value) {
+        if (value == null) {
+            return LOBBY_PAGE_DEFAULT;
+        }
+        try {
+            return Math.max(0, Integer.parseInt(value));
+        } catch (NumberFormatException e) {
+            return LOBBY_PAGE_DEFAULT;
         }
     }
 
@@ -0,0 +1,41 @@
+package server;
+
+import metrics.ServerMetrics;
+import util.Log;
+
+/**
+ * Периодический вывод метрик сервера в журнал.
+ * Выполняется в потоке цикла событий, поэтому читает метрики без синхронизации.
+ */
+public class MetricsReporter implements LoopTask {
+    private final ServerMetrics metrics;
+    // Период вывода в наносекундах, 0 - вывод отключен
+    private final long periodNanos;
+
+    private long nextReport;
+
+    /**
+     * Конструктор.
+     *
+     * @param metrics метрики сервера
+     * @param config  настройки сервера
+     */
+    public MetricsReporter(ServerMetrics metrics, ServerConfig config) {
+        this.metrics = metrics;
+        this.periodNanos = config.getMetricsLogIntervalMillis() * 1_000_000;
+        this.nextReport = System.nanoTime() + periodNanos;
+    }
+
+    @Override
+    public long run(long now) {
+        if (periodNanos <= 0) {
+            return -1;
+        }
+
+        if (now - nextReport >= 0) {
+            Log.info("Метрики: " + metrics.summary());
+            nextReport = now + periodNanos;
+        }
+        return nextReport - now;
+    }
+}
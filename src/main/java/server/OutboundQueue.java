@@ -0,0 +1,117 @@
+package server;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+
+/**
+ * Очередь исходящих кадров одного клиента.
+ * Используется, когда канал не принял данные целиком (медленный клиент).
+ * Кадры состояния игры "схлопываются": если в очереди есть еще не начатый кадр состояния,
+ * а приходит новый, старый выбрасывается. Остальные кадры (чат, системные) сохраняют порядок.
+ */
+public class OutboundQueue {
+    private final ArrayDeque<ByteBuffer> frames = new ArrayDeque<>();
+
+    // Последний кадр состояния в очереди, отправка которого еще не начиналась
+    private ByteBuffer pendingState;
+
+    // Количество байт, ожидающих отправки
+    private long queuedBytes;
+    // Момент (System.nanoTime), с которого очередь непуста, 0 - очередь пуста
+    private long backlogSince;
+
+    /**
+     * Проверяет, есть ли в очереди неотправленные данные.
+     *
+     * @return true, если очередь пуста
+     */
+    public boolean isEmpty() {
+        return frames.isEmpty();
+    }
+
+    /**
+     * Ставит кадр в очередь.
+     *
+     * @param frame      данные кадра (буфер принадлежит очереди)
+     * @param stateFrame true, если это целый кадр состояния игры, который можно заменить более новым
+     * @param now        текущее время (System.nanoTime)
+     * @return true, если новый кадр заменил устаревший кадр состояния
+     */
+    public boolean add(ByteBuffer frame, boolean stateFrame, long now) {
+        boolean conflated = false;
+        if (stateFrame && pendingState != null) {
+            // Устаревший кадр состояния помечается полностью прочитанным и будет пропущен при записи
+            queuedBytes -= pendingState.remaining();
+            pendingState.position(pendingState.limit());
+            pendingState = null;
+            conflated = true;
+        }
+
+        if (frames.isEmpty()) {
+            backlogSince = now == 0 ? 1 : now;
+        }
+
+        frames.addLast(frame);
+        queuedBytes += frame.remaining();
+
+        if (stateFrame) {
+            pendingState = frame;
+        }
+        return conflated;
+    }
+
+    /**
+     * Записывает в канал столько данных из очереди, сколько он готов принять.
+     *
+     * @param channel канал клиента
+     * @return количество записанных байт
+     * @throws IOException если возникает ошибка ввода-вывода
+     */
+    public long writeTo(SocketChannel channel) throws IOException {
+        long written = 0;
+        ByteBuffer head;
+        while ((head = frames.peekFirst()) != null) {
+            if (head.hasRemaining()) {
+                int n = channel.write(head);
+                queuedBytes -= n;
+                written += n;
+
+                if (head.hasRemaining()) {
+                    // Кадр, отправка которого началась, заменять уже нельзя
+                    if (head == pendingState && head.position() > 0) {
+                        pendingState = null;
+                    }
+                    return written;
+                }
+            }
+
+            frames.pollFirst();
+            if (head == pendingState) {
+                pendingState = null;
+            }
+        }
+
+        backlogSince = 0;
+        return written;
+    }
+
+    /**
+     * Очищает очередь (при закрытии соединения).
+     */
+    public void clear() {
+        frames.clear();
+        pendingState = null;
+        queuedBytes = 0;
+        backlogSince = 0;
+    }
+
+    public long getQueuedBytes() {
+        return queuedBytes;
+    }
+
+    public long getBacklogSince() {
+        return backlogSince;
+    }
+}
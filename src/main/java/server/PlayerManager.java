@@ -1,82 +1,431 @@
 package server;
 
-import java.nio.channels.SocketChannel;
-import java.util.*;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
 
 /**
- * Менеджер игроков.
- * Управляет информацией о подключенных игроках и их именах.
- * Поддерживает порядок подключения игроков.
+ * Менеджер игроков комнаты.
+ * Управляет местами комнаты: место занимает подключенный игрок или бот сервера, либо место свободно
+ * и ждет возвращения игрока с тем же именем (после обрыва соединения во время игры или после восстановления
+ * комнаты при перезапуске сервера). Место возвращается только по токену возобновления, выданному игроку при входе;
+ * сервер хранит не сам токен, а его хеш, который попадает в журнал и снимок комнаты и переживает перезапуск.
+ * Порядок мест - порядок подключения, он же очередь ходов. Боты и свободные места входят в список имен,
+ * но не в массив получателей рассылок.
+ * Массив получателей и список имен кэшируются и пересобираются только при входе и выходе игроков,
+ * поэтому рассылки не копируют коллекции.
+ * Изменяется только командами комнаты в потоке цикла событий, поэтому синхронизация не нужна.
  */
 public class PlayerManager {
-    // Канал игрока -> его имя
-    private final Map<SocketChannel, String> playerNames = new HashMap<>();
-    // Список подключенных игроков
-    private final List<SocketChannel> players = new ArrayList<>();
+    /**
+     * Место в комнате.
+     */
+    private static final class Seat {
+        String name;
+        // Подключенный игрок, null - место занято ботом или свободно
+        ClientSession session;
+        // Бот сервера, null - место не занято ботом
+        ServerBot bot;
+        // Хеш последнего выданного токена возобновления, 0 - токен не выдавался и место возвращается по одному имени
+        long tokenHash;
+        // Место восстановленной комнаты, на которое игрок еще не вернулся
+        boolean restored;
+
+        Seat(String name) {
+            this.name = name;
+        }
+
+        boolean isVacant() {
+            return session == null && bot == null;
+        }
+    }
+
+    private static final SecureRandom TOKENS = new SecureRandom();
+
+    // Места комнаты в порядке подключения
+    private final List<Seat> seats = new ArrayList<>();
+
+    // Неизменяемые снимки для рассылок
+    private ClientSession[] recipients = new ClientSession[0];
+    private List<String> playerNames = List.of();
+    private List<ServerBot> bots = List.of();
+
+    /**
+     * Добавляет нового игрока.
+     *
+     * @param client сессия игрока
+     * @param name имя игрока
+     */
+    public void addPlayer(ClientSession client, String name) {
+        addPlayer(client, name, null);
+    }
 
     /**
      * Добавляет нового игрока.
+     * Если игрок уже в комнате, его место сохраняется (смена имени отклоняется комнатой заранее). Если в комнате есть свободное место с этим именем
+     * и подходящим токеном возобновления, игрок занимает его, сохраняя свое место в очереди ходов.
      *
-     * @param client канал игрока
+     * @param client сессия игрока
      * @param name имя игрока
+     * @param resumeToken токен возобновления или null
      */
-    public void addPlayer(SocketChannel client, String name) {
-        playerNames.put(client, name);
-        if (!players.contains(client)) {
-            players.add(client);
+    public void addPlayer(ClientSession client, String name, String resumeToken) {
+        client.setName(name);
+        int slot = client.getRoomSlot();
+        if (slot >= 0) {
+            seats.get(slot).name = name;
+        } else {
+            slot = findVacantSeat(name, resumeToken);
+            if (slot < 0) {
+                slot = seats.size();
+                seats.add(new Seat(name));
+            }
+            seats.get(slot).session = client;
+            seats.get(slot).restored = false;
+            client.setRoomSlot(slot);
         }
+        rebuildSnapshots();
     }
 
     /**
-     * Удаляет игрока.
+     * Удаляет игрока вместе с его местом.
      *
-     * @param client канал игрока
+     * @param client сессия игрока
      * @return имя удаленного игрока или null, если игрок не найден
      */
-    public String removePlayer(SocketChannel client) {
-        players.remove(client);
-        return playerNames.remove(client);
+    public String removePlayer(ClientSession client) {
+        int slot = client.getRoomSlot();
+        if (slot < 0 || slot >= seats.size() || seats.get(slot).session != client) {
+            return null;
+        }
+
+        seats.remove(slot);
+        client.setRoomSlot(-1);
+        renumberSeats(slot);
+
+        rebuildSnapshots();
+        return client.getName();
+    }
+
+    /**
+     * Выдает игроку новый токен возобновления; прежний токен места перестает действовать.
+     *
+     * @param client сессия игрока
+     * @return токен или null, если игрок не занимает место
+     */
+    public String issueResumeToken(ClientSession client) {
+        Seat seat = getSeat(client);
+        if (seat == null) {
+            return null;
+        }
+        byte[] bytes = new byte[16];
+        TOKENS.nextBytes(bytes);
+        String token = HexFormat.of().formatHex(bytes);
+        seat.tokenHash = hashToken(token);
+        return token;
+    }
+
+    /**
+     * Возвращает хеш токена возобновления: первые 8 байт SHA-256, никогда не равные 0.
+     *
+     * @param token токен возобновления
+     * @return хеш токена
+     */
+    public static long hashToken(String token) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            long hash = ByteBuffer.wrap(digest).getLong();
+            // 0 означает, что токен не выдавался
+            return hash != 0 ? hash : 1;
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 недоступен", e);
+        }
+    }
+
+    /**
+     * Возвращает хеш последнего токена возобновления, выданного месту игрока.
+     *
+     * @param name имя игрока
+     * @return хеш токена или 0, если токен не выдавался
+     */
+    public long getTokenHash(String name) {
+        for (Seat seat : seats) {
+            if (seat.name.equals(name)) {
+                return seat.tokenHash;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Освобождает место отключившегося игрока, сохраняя его в очереди ходов до возвращения игрока по токену.
+     *
+     * @param client сессия игрока
+     * @return хеш токена, по которому место можно вернуть, или 0, если игрок не занимал место с токеном
+     */
+    public long vacateSeat(ClientSession client) {
+        Seat seat = getSeat(client);
+        if (seat == null || seat.tokenHash == 0) {
+            return 0;
+        }
+        seat.session = null;
+        client.setRoomSlot(-1);
+        rebuildSnapshots();
+        return seat.tokenHash;
+    }
+
+    /**
+     * Удаляет свободное место, если его все еще удерживает указанный токен
+     * (игрок не вернулся и не получил новый токен).
+     *
+     * @param name имя игрока
+     * @param tokenHash хеш токена, выданного при освобождении места
+     * @return true, если место удалено
+     */
+    public boolean releaseVacantSeat(String name, long tokenHash) {
+        for (int i = 0; i < seats.size(); i++) {
+            Seat seat = seats.get(i);
+            if (seat.isVacant() && seat.name.equals(name) && seat.tokenHash == tokenHash) {
+                seats.remove(i);
+                renumberSeats(i);
+                rebuildSnapshots();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Добавляет свободное место восстановленной комнаты, которое ждет возвращения игрока.
+     *
+     * @param name имя игрока
+     * @param tokenHash хеш последнего токена, выданного игроку до перезапуска, или 0, если токен не выдавался
+     */
+    public void addVacantSeat(String name, long tokenHash) {
+        Seat seat = new Seat(name);
+        seat.tokenHash = tokenHash;
+        seat.restored = true;
+        seats.add(seat);
+        rebuildSnapshots();
+    }
+
+    /**
+     * Проверяет, ждет ли комната возвращения игрока с указанным именем.
+     *
+     * @param name имя игрока
+     * @return true, если есть свободное место с этим именем
+     */
+    public boolean hasVacantSeat(String name) {
+        for (Seat seat : seats) {
+            if (seat.isVacant() && seat.name.equals(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Проверяет, может ли игрок вернуться на свободное место.
+     *
+     * @param name имя игрока
+     * @param resumeToken токен возобновления или null
+     * @return true, если есть свободное место с этим именем и подходящим токеном
+     */
+    public boolean canReclaimSeat(String name, String resumeToken) {
+        return findVacantSeat(name, resumeToken) >= 0;
+    }
+
+    /**
+     * Возвращает количество свободных мест, ждущих возвращения игроков.
+     *
+     * @return количество свободных мест
+     */
+    public int getVacantCount() {
+        return seats.size() - recipients.length - bots.size();
+    }
+
+    /**
+     * Удаляет свободные места восстановленной комнаты, на которые игроки не вернулись.
+     * Места, освобожденные обрывом соединения, удаляются по своему сроку ({@link #releaseVacantSeat}).
+     *
+     * @return имена игроков, места которых удалены
+     */
+    public List<String> releaseVacantSeats() {
+        List<String> released = new ArrayList<>();
+        for (int i = seats.size() - 1; i >= 0; i--) {
+            if (seats.get(i).isVacant() && seats.get(i).restored) {
+                released.addFirst(seats.remove(i).name);
+            }
+        }
+        if (!released.isEmpty()) {
+            renumberSeats(0);
+            rebuildSnapshots();
+        }
+        return released;
+    }
+
+    /**
+     * Добавляет бота сервера.
+     *
+     * @param bot бот
+     */
+    public void addBot(ServerBot bot) {
+        Seat seat = new Seat(bot.getName());
+        seat.bot = bot;
+        seats.add(seat);
+        rebuildSnapshots();
+    }
+
+    /**
+     * Удаляет всех ботов сервера.
+     *
+     * @return удаленные боты
+     */
+    public List<ServerBot> removeBots() {
+        List<ServerBot> removed = bots;
+        seats.removeIf(seat -> seat.bot != null);
+        renumberSeats(0);
+        rebuildSnapshots();
+        return removed;
+    }
+
+    /**
+     * Возвращает бота по имени.
+     *
+     * @param name имя игрока
+     * @return бот или null, если игрок с таким именем не бот
+     */
+    public ServerBot getBot(String name) {
+        for (ServerBot bot : bots) {
+            if (bot.getName().equals(name)) {
+                return bot;
+            }
+        }
+        return null;
     }
 
     /**
-     * Возвращает имя игрока по его каналу.
+     * Возвращает ботов сервера.
      *
-     * @param client канал игрока
-     * @return имя игрока или "Unknown", если игрок не найден
+     * @return неизменяемый список ботов в порядке мест
      */
-    public String getPlayerName(SocketChannel client) {
-        return playerNames.getOrDefault(client, "Unknown");
+    public List<ServerBot> getBots() {
+        return bots;
     }
 
     /**
-     * Возвращает список всех подключенных игроков.
+     * Проверяет, занято ли имя игроком, ботом или свободным местом комнаты.
      *
-     * @return список каналов игроков
+     * @param name имя
+     * @return true, если имя занято
      */
-    public List<SocketChannel> getAllPlayers() {
-        return new ArrayList<>(players);
+    public boolean isNameTaken(String name) {
+        return playerNames.contains(name);
+    }
+
+    private int findVacantSeat(String name, String resumeToken) {
+        for (int i = 0; i < seats.size(); i++) {
+            Seat seat = seats.get(i);
+            if (seat.isVacant() && seat.name.equals(name)
+                    && (seat.tokenHash == 0 || resumeToken != null && seat.tokenHash == hashToken(resumeToken))) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private Seat getSeat(ClientSession client) {
+        int slot = client.getRoomSlot();
+        if (slot < 0 || slot >= seats.size() || seats.get(slot).session != client) {
+            return null;
+        }
+        return seats.get(slot);
+    }
+
+    /**
+     * Обновляет позиции игроков, начиная с указанного места.
+     */
+    private void renumberSeats(int from) {
+        for (int i = from; i < seats.size(); i++) {
+            ClientSession session = seats.get(i).session;
+            if (session != null) {
+                session.setRoomSlot(i);
+            }
+        }
+    }
+
+    /**
+     * Пересобирает кэшированные массив получателей, список имен и список ботов.
+     */
+    private void rebuildSnapshots() {
+        List<ClientSession> sessions = new ArrayList<>(seats.size());
+        List<String> names = new ArrayList<>(seats.size());
+        List<ServerBot> seatedBots = new ArrayList<>();
+        for (Seat seat : seats) {
+            names.add(seat.name);
+            if (seat.session != null) {
+                sessions.add(seat.session);
+            }
+            if (seat.bot != null) {
+                seatedBots.add(seat.bot);
+            }
+        }
+        recipients = sessions.toArray(new ClientSession[0]);
+        playerNames = List.copyOf(names);
+        bots = List.copyOf(seatedBots);
     }
 
     /**
-     * Возвращает список имен всех подключенных игроков.
+     * Возвращает имя игрока по его сессии.
+     *
+     * @param client сессия игрока
+     * @return имя игрока или "Unknown", если игрок не представился
+     */
+    public String getPlayerName(ClientSession client) {
+        String name = client.getName();
+        return name != null ? name : "Unknown";
+    }
+
+    /**
+     * Возвращает всех подключенных игроков.
+     * Массив общий и не должен изменяться вызывающим кодом.
+     *
+     * @return массив сессий игроков
+     */
+    public ClientSession[] getAllPlayers() {
+        return recipients;
+    }
+
+    /**
+     * Возвращает неизменяемый список имен всех мест комнаты.
      * Сохраняет порядок подключения.
      *
      * @return список имен игроков
      */
     public List<String> getPlayerNamesList() {
-        List<String> names = new ArrayList<>();
-        for (SocketChannel player : players) {
-            names.add(playerNames.get(player));
-        }
-        return names;
+        return playerNames;
     }
 
     /**
-     * Возвращает количество подключенных игроков.
+     * Возвращает количество мест комнаты, включая ботов и свободные места.
      *
      * @return количество игроков
      */
     public int getPlayerCount() {
-        return players.size();
+        return seats.size();
+    }
+
+    /**
+     * Возвращает количество подключенных игроков (без ботов и свободных мест).
+     *
+     * @return количество подключенных игроков
+     */
+    public int getConnectedCount() {
+        return recipients.length;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,13 @@
+package server;
+
+/**
+ * Действие, применяемое к клиенту при превышении лимита частоты сообщений.
+ */
+public enum RateLimitAction {
+    // Сообщение молча отбрасывается
+    DROP,
+    // Чтение из канала приостанавливается до пополнения токенов, после чего сообщение обрабатывается
+    THROTTLE,
+    // Клиент отключается
+    DISCONNECT
+}
@@ -0,0 +1,65 @@
+package server;
+
+import model.Protocol;
+
+/**
+ * Политика ограничения частоты сообщений.
+ * Хранит общие для всех подключений лимиты по типам сообщений и действие при их превышении.
+ * Нарушения учитываются в метриках сервера.
+ */
+public class RateLimitPolicy {
+    // Скорость пополнения токенов (в секунду) по типу сообщения, 0 - без ограничений
+    private final double[] rates = new double[Protocol.TYPE_COUNT];
+    // Максимальное количество токенов по типу сообщения
+    private final double[] bursts = new double[Protocol.TYPE_COUNT];
+
+    private final RateLimitAction action;
+
+    /**
+     * Конструктор политики ограничения частоты.
+     *
+     * @param config настройки сервера
+     */
+    public RateLimitPolicy(ServerConfig config) {
+        this.action = config.getRateLimitAction();
+
+        setLimit(Protocol.TYPE_CARD_OPEN, config.getCardOpenRate(), config.getCardOpenBurst());
+        setLimit(Protocol.TYPE_CHAT_MESSAGE, config.getChatRate(), config.getChatBurst());
+        setLimit(Protocol.TYPE_GAME_RESET, config.getResetRate(), config.getResetBurst());
+        setLimit(Protocol.TYPE_START_GAME, config.getStartGameRate(), config.getStartGameBurst());
+        setLimit(Protocol.TYPE_CONNECT, config.getConnectRate(), config.getConnectBurst());
+        setLimit(Protocol.TYPE_ADD_BOT, config.getAddBotRate(), config.getAddBotBurst());
+        setLimit(Protocol.TYPE_LEADERBOARD, config.getLeaderboardRate(), config.getLeaderboardBurst());
+        setLimit(Protocol.TYPE_LOBBY, config.getLobbyRate(), config.getLobbyBurst());
+        // Постановка в очередь подбора ограничивается так же, как подключение к комнате
+        setLimit(Protocol.TYPE_MATCHMAKE, config.getConnectRate(), config.getConnectBurst());
+        setLimit(Protocol.TYPE_SPECTATE, config.getConnectRate(), config.getConnectBurst());
+    }
+
+    private void setLimit(int messageType, double rate, double burst) {
+        rates[messageType] = rate;
+        bursts[messageType] = Math.max(1, burst);
+    }
+
+    /**
+     * Проверяет, ограничена ли частота сообщений данного типа.
+     *
+     * @param messageType тип сообщения
+     * @return true, если для типа задан лимит
+     */
+    public boolean isLimited(int messageType) {
+        return messageType >= 0 && messageType < rates.length && rates[messageType] > 0;
+    }
+
+    public double getRate(int messageType) {
+        return rates[messageType];
+    }
+
+    public double getBurst(int messageType) {
+        return bursts[messageType];
+    }
+
+    public RateLimitAction getAction() {
+        return action;
+    }
+}
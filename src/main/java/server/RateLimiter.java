@@ -0,0 +1,87 @@
+package server;
+
+import model.Protocol;
+
+/**
+ * Ограничитель частоты сообщений одного подключения (алгоритм token bucket).
+ * Для каждого типа сообщения хранится своя "корзина" токенов.
+ * Массивы выделяются один раз при создании, проверка лимита не создает объектов.
+ */
+public class RateLimiter {
+    private final RateLimitPolicy policy;
+
+    // Текущее количество токенов по типу сообщения
+    private final double[] tokens = new double[Protocol.TYPE_COUNT];
+    // Время последнего пополнения (System.nanoTime) по типу сообщения
+    private final long[] lastRefill = new long[Protocol.TYPE_COUNT];
+
+    /**
+     * Конструктор ограничителя. Все корзины изначально заполнены.
+     *
+     * @param policy политика с лимитами по типам сообщений
+     * @param now    текущее время (System.nanoTime)
+     */
+    public RateLimiter(RateLimitPolicy policy, long now) {
+        this.policy = policy;
+        for (int type = 0; type < Protocol.TYPE_COUNT; type++) {
+            tokens[type] = policy.getBurst(type);
+            lastRefill[type] = now;
+        }
+    }
+
+    /**
+     * Пытается забрать токен для сообщения указанного типа.
+     *
+     * @param messageType тип сообщения
+     * @param now         текущее время (System.nanoTime)
+     * @return true - сообщение можно обработать, false - лимит превышен
+     */
+    public boolean tryAcquire(int messageType, long now) {
+        if (!policy.isLimited(messageType)) {
+            return true;
+        }
+
+        refill(messageType, now);
+
+        if (tokens[messageType] >= 1) {
+            tokens[messageType] -= 1;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Возвращает время, через которое для сообщения указанного типа появится токен.
+     *
+     * @param messageType тип сообщения
+     * @param now         текущее время (System.nanoTime)
+     * @return время ожидания в наносекундах
+     */
+    public long nanosUntilAvailable(int messageType, long now) {
+        if (!policy.isLimited(messageType)) {
+            return 0;
+        }
+
+        refill(messageType, now);
+
+        double missing = 1 - tokens[messageType];
+        if (missing <= 0) {
+            return 0;
+        }
+        return (long) Math.ceil(missing / policy.getRate(messageType) * 1_000_000_000L);
+    }
+
+    /**
+     * Пополняет корзину пропорционально времени, прошедшему с последнего пополнения.
+     */
+    private void refill(int messageType, long now) {
+        long elapsed = now - lastRefill[messageType];
+        if (elapsed <= 0) {
+            return;
+        }
+
+        double added = elapsed * policy.getRate(messageType) / 1_000_000_000d;
+        tokens[messageType] = Math.min(policy.getBurst(messageType), tokens[messageType] + added);
+        lastRefill[messageType] = now;
+    }
+}
@@ -0,0 +1,248 @@
+package server;
+
+import model.Protocol;
+import util.JsonUtil;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Каталог комнат для лобби.
+ * Хранит упорядоченный по идентификатору индекс комнат (количество игроков и признак начатой игры), каждое
+ * изменение которого увеличивает версию каталога. Клиент лобби получает страницу каталога с текущей версией, а затем только изменения:
+ * добавление, обновление и удаление комнат. Изменения за период рассылки объединяются по комнатам и кодируются
+ * один раз в общий кадр, который отправляется всем подписчикам, поэтому стоимость изменения не зависит
+ * от размера каталога, а стоимость рассылки на подписчика - одна запись в канал.
+ * Страница выбирается по идентификатору последней комнаты предыдущей страницы, поэтому ее выдача
+ * не требует пропуска предыдущих комнат.
+ * Работает только в потоке цикла событий, поэтому синхронизация не нужна.
+ */
+public class RoomDirectory implements LoopTask {
+    // Наибольший размер страницы
+    private static final int PAGE_MAX = 500;
+
+    /**
+     * Запись каталога.
+     */
+    private static final class Entry {
+        int players;
+        boolean started;
+    }
+
+    /**
+     * Изменение комнаты за текущий период рассылки.
+     */
+    private static final class Change {
+        // Комната была в каталоге на момент прошлой рассылки
+        final boolean existed;
+        // Версия последнего изменения (для удаленной комнаты - версия удаления)
+        long version;
+
+        Change(boolean existed) {
+            this.existed = existed;
+        }
+    }
+
+    private final BroadcastService broadcastService;
+    // Период рассылки изменений в наносекундах
+    private final long flushNanos;
+
+    private final TreeMap<String, Entry> rooms = new TreeMap<>();
+    // Изменения за период рассылки в порядке версий последних изменений комнат
+    private final Map<String, Change> changes = new LinkedHashMap<>();
+    private long version;
+    private long nextFlush;
+
+    // Подписчики и кэшированный массив получателей (пересобирается при подписке и отписке)
+    private final Set<ClientSession> subscribers = new HashSet<>();
+    private ClientSession[] recipients = new ClientSession[0];
+    private boolean recipientsChanged;
+
+    /**
+     * Конструктор.
+     *
+     * @param broadcastService сервис рассылки сообщений
+     * @param config           настройки сервера
+     */
+    public RoomDirectory(BroadcastService broadcastService, ServerConfig config) {
+        this.broadcastService = broadcastService;
+        this.flushNanos = config.getLobbyFlushMillis() * 1_000_000;
+        this.nextFlush = System.nanoTime();
+    }
+
+    /**
+     * Обновляет запись комнаты, если изменилось количество игроков или признак начатой игры.
+     *
+     * @param roomId  идентификатор комнаты
+     * @param players количество игроков
+     * @param started игра начата
+     */
+    public void update(String roomId, int players, boolean started) {
+        Entry entry = rooms.get(roomId);
+        if (entry == null) {
+            entry = new Entry();
+            rooms.put(roomId, entry);
+            change(roomId, false);
+        } else if (entry.players != players || entry.started != started) {
+            change(roomId, true);
+        } else {
+            return;
+        }
+        entry.players = players;
+        entry.started = started;
+    }
+
+    /**
+     * Удаляет комнату из каталога.
+     *
+     * @param roomId идентификатор комнаты
+     */
+    public void remove(String roomId) {
+        if (rooms.remove(roomId) != null) {
+            change(roomId, true);
+        }
+    }
+
+    private void change(String roomId, boolean existed) {
+        version++;
+        Change change = changes.remove(roomId);
+        if (change == null) {
+            change = new Change(existed);
+        }
+        change.version = version;
+        // Измененная комната переносится в конец, поэтому изменения рассылаются в порядке версий
+        changes.put(roomId, change);
+    }
+
+    /**
+     * Подписывает клиента на изменения каталога и отправляет ему страницу каталога.
+     *
+     * @param session  сессия клиента
+     * @param pageSize размер страницы
+     * @param after    идентификатор последней комнаты предыдущей страницы или null - первая страница
+     */
+    public void subscribe(ClientSession session, int pageSize, String after) {
+        if (subscribers.add(session)) {
+            recipientsChanged = true;
+        }
+        int limit = Math.clamp(pageSize, 1, PAGE_MAX);
+
+        List<Object> page = new ArrayList<>(Math.min(limit, rooms.size()));
+        Map<String, Entry> tail = after != null ? rooms.tailMap(after, false) : rooms;
+        String last = null;
+        for (Map.Entry<String, Entry> room : tail.entrySet()) {
+            if (page.size() == limit) {
+                break;
+            }
+            page.add(roomJson(room.getKey(), room.getValue().players, room.getValue().started));
+            last = room.getKey();
+        }
+        boolean hasMore = last != null && rooms.higherKey(last) != null;
+
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("version", version);
+        json.put("total", rooms.size());
+        json.put("rooms", page);
+        json.put("next", hasMore ? last : null);
+        broadcastService.sendMessageToClient(session, Protocol.encode(Protocol.TYPE_LOBBY, JsonUtil.mapToJson(json)));
+    }
+
+    /**
+     * Отписывает клиента от изменений каталога.
+     *
+     * @param session сессия клиента
+     */
+    public void unsubscribe(ClientSession session) {
+        if (subscribers.remove(session)) {
+            recipientsChanged = true;
+        }
+    }
+
+    /**
+     * Рассылает подписчикам изменения каталога, накопленные за период рассылки.
+     *
+     * @param now текущее время (System.nanoTime)
+     * @return время до следующей рассылки или -1, если изменений нет
+     */
+    @Override
+    public long run(long now) {
+        if (changes.isEmpty()) {
+            return -1;
+        }
+        if (now - nextFlush < 0) {
+            return nextFlush - now;
+        }
+
+        ClientSession[] targets = getRecipients();
+        if (targets.length > 0) {
+            List<Object> events = new ArrayList<>(changes.size());
+            for (Map.Entry<String, Change> change : changes.entrySet()) {
+                Map<String, Object> event = event(change.getKey(), change.getValue());
+                if (event != null) {
+                    events.add(event);
+                }
+            }
+            if (!events.isEmpty()) {
+                broadcastService.broadcastToClients(targets, Protocol.encode(Protocol.TYPE_LOBBY_UPDATE,
+                        JsonUtil.mapToJson(Map.of("events", events))));
+            }
+        }
+        changes.clear();
+        nextFlush = now + flushNanos;
+        return -1;
+    }
+
+    /**
+     * Формирует событие изменения комнаты: добавление, обновление или удаление.
+     *
+     * @return событие или null, если комната появилась и исчезла в пределах одного периода рассылки
+     */
+    private Map<String, Object> event(String roomId, Change change) {
+        Entry entry = rooms.get(roomId);
+        if (entry == null && !change.existed) {
+            return null;
+        }
+        Map<String, Object> event = entry != null
+                ? roomJson(roomId, entry.players, entry.started)
+                : roomJson(roomId, 0, false);
+        event.put("version", change.version);
+        event.put("op", entry == null ? "remove" : change.existed ? "update" : "add");
+        return event;
+    }
+
+    private static Map<String, Object> roomJson(String roomId, int players, boolean started) {
+        Map<String, Object> room = new LinkedHashMap<>();
+        room.put("id", roomId);
+        room.put("players", players);
+        room.put("started", started);
+        return room;
+    }
+
+    /**
+     * Возвращает массив подписчиков, убирая отключившихся и вошедших в комнату.
+     */
+    private ClientSession[] getRecipients() {
+        if (subscribers.removeIf(session -> session.isDisconnected() || session.getRoom() != null)) {
+            recipientsChanged = true;
+        }
+        if (recipientsChanged) {
+            recipients = subscribers.toArray(new ClientSession[0]);
+            recipientsChanged = false;
+        }
+        return recipients;
+    }
+
+    /**
+     * Возвращает количество комнат в каталоге.
+     *
+     * @return количество комнат
+     */
+    public int getRoomCount() {
+        return rooms.size();
+    }
+}
@@ -0,0 +1,97 @@
+package server;
+
+import util.Log;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Очередь команд игровой комнаты (модель акторов).
+ * Команды (сетевой ввод, таймеры, административные действия) могут добавляться из любого потока
+ * без блокировок, а выполняются строго одним потоком - владельцем комнаты.
+ * Благодаря этому модель игры и менеджер игроков не требуют синхронизации.
+ */
+public class RoomMailbox {
+    private final ConcurrentLinkedQueue<Runnable> commands = new ConcurrentLinkedQueue<>();
+
+    // Флаг, указывающий, что комната уже стоит в очереди на обработку
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+
+    // Действие, ставящее комнату в очередь на обработку потоком-владельцем
+    private volatile Runnable onReady = () -> {};
+    // Действие, пробуждающее поток-владелец (например, Selector.wakeup())
+    private volatile Runnable wakeup = () -> {};
+    // Поток, выполняющий команды комнаты
+    private volatile Thread owner;
+
+    /**
+     * Устанавливает действие, вызываемое, когда в пустой очереди появляется команда.
+     *
+     * @param onReady действие постановки комнаты на обработку (должно быть потокобезопасным)
+     */
+    public void setOnReady(Runnable onReady) {
+        this.onReady = onReady;
+    }
+
+    /**
+     * Устанавливает действие для пробуждения потока-владельца, когда команда добавлена из другого потока.
+     *
+     * @param wakeup действие пробуждения
+     */
+    public void setWakeup(Runnable wakeup) {
+        this.wakeup = wakeup;
+    }
+
+    /**
+     * Добавляет команду в очередь комнаты. Может вызываться из любого потока.
+     *
+     * @param command команда
+     */
+    public void post(Runnable command) {
+        commands.offer(command);
+
+        // Комната ставится на обработку один раз, сколько бы команд ни пришло
+        if (scheduled.compareAndSet(false, true)) {
+            onReady.run();
+        }
+
+        // Поток-владелец сам выполнит команду в конце итерации, будить нужно только из чужих потоков
+        if (Thread.currentThread() != owner) {
+            wakeup.run();
+        }
+    }
+
+    /**
+     * Выполняет все команды из очереди, включая добавленные во время выполнения.
+     * Должен вызываться только потоком-владельцем комнаты.
+     *
+     * @return количество выполненных команд
+     */
+    public int drain() {
+        owner = Thread.currentThread();
+        // Сбрасываем флаг до выполнения: команды, добавленные после этого, снова поставят комнату на обработку
+        scheduled.set(false);
+
+        int executed = 0;
+        Runnable command;
+        while ((command = commands.poll()) != null) {
+            try {
+                command.run();
+            } catch (RuntimeException e) {
+                // Ошибка одной команды не должна останавливать обработку комнаты
+                Log.error("Ошибка при выполнении команды комнаты: " + e);
+            }
+            executed++;
+        }
+        return executed;
+    }
+
+    /**
+     * Проверяет, есть ли в очереди невыполненные команды.
+     *
+     * @return true, если очередь пуста
+     */
+    public boolean isEmpty() {
+        return commands.isEmpty();
+    }
+}
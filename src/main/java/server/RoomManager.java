@@ -0,0 +1,230 @@
+package server;
+
+import diagnostics.ConnectionEvent;
+import journal.GameJournal;
+import journal.RoomSnapshot;
+import metrics.ServerMetrics;
+import stats.StatsStore;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Менеджер игровых комнат.
+ * Создает комнаты по запросу, обрабатывает комнаты, в очереди которых появились команды,
+ * и удаляет опустевшие комнаты. Обрабатываются только комнаты, которым есть что делать,
+ * поэтому стоимость итерации цикла событий не зависит от общего числа комнат.
+ */
+public class RoomManager implements LoopTask {
+    // Комната, в которую попадают игроки, не указавшие комнату при подключении
+    public static final String DEFAULT_ROOM = "main";
+
+    private final Map<String, GameSessionManager> rooms = new HashMap<>();
+    // Комнаты, в очереди которых есть команды (пополняется из любого потока)
+    private final ConcurrentLinkedQueue<GameSessionManager> readyRooms = new ConcurrentLinkedQueue<>();
+
+    private final ConnectionRegistry registry;
+    private final BroadcastService broadcastService;
+    private final LoopScheduler scheduler;
+    private final ServerMetrics metrics;
+    private final LoopWatchdog watchdog;
+    private final GameJournal journal;
+    private final StatsStore stats;
+    private final RoomDirectory directory;
+    private final SpectatorService spectators;
+    private final ServerConfig config;
+
+    // Действие, пробуждающее цикл событий при командах из других потоков
+    private volatile Runnable wakeup = () -> {};
+
+    /**
+     * Конструктор менеджера комнат.
+     *
+     * @param registry реестр подключений
+     * @param broadcastService сервис рассылки сообщений
+     * @param scheduler планировщик отложенных задач цикла событий
+     * @param metrics метрики сервера
+     * @param watchdog сторожевой таймер цикла событий
+     * @param journal журнал игр
+     * @param stats статистика игроков
+     * @param directory каталог комнат для лобби
+     * @param spectators зрители комнат
+     * @param config настройки сервера
+     */
+    public RoomManager(ConnectionRegistry registry, BroadcastService broadcastService, LoopScheduler scheduler,
+                       ServerMetrics metrics, LoopWatchdog watchdog, GameJournal journal, StatsStore stats,
+                       RoomDirectory directory, SpectatorService spectators, ServerConfig config) {
+        this.directory = directory;
+        this.spectators = spectators;
+        this.watchdog = watchdog;
+        this.journal = journal;
+        this.stats = stats;
+        this.metrics = metrics;
+        this.registry = registry;
+        this.broadcastService = broadcastService;
+        this.scheduler = scheduler;
+        this.config = config;
+    }
+
+    public void setWakeup(Runnable wakeup) {
+        this.wakeup = wakeup;
+    }
+
+    /**
+     * Возвращает комнату по идентификатору, создавая ее при необходимости.
+     * Должен вызываться из потока цикла событий.
+     *
+     * @param roomId идентификатор комнаты, пустой или null - комната по умолчанию
+     * @return комната
+     */
+    public GameSessionManager getOrCreateRoom(String roomId) {
+        if (roomId == null || roomId.isBlank()) {
+            roomId = DEFAULT_ROOM;
+        }
+
+        GameSessionManager room = rooms.get(roomId);
+        if (room == null) {
+            RoomMailbox mailbox = new RoomMailbox();
+            room = new GameSessionManager(roomId, broadcastService, scheduler, mailbox, metrics, journal, stats,
+                    spectators, config);
+
+            GameSessionManager created = room;
+            mailbox.setOnReady(() -> readyRooms.offer(created));
+            mailbox.setWakeup(() -> wakeup.run());
+            rooms.put(roomId, room);
+        }
+        return room;
+    }
+
+    /**
+     * Запрашивает отключение клиента.
+     * Сессия сразу удаляется из реестра, а выход из комнаты выполняется командой комнаты.
+     * Должен вызываться из потока цикла событий.
+     *
+     * @param client сессия клиента
+     */
+    public void requestDisconnect(ClientSession client) {
+        if (!client.markDisconnected()) {
+            return;
+        }
+
+        ConnectionEvent event = new ConnectionEvent();
+        if (event.shouldCommit()) {
+            event.action = ConnectionEvent.DISCONNECT;
+            event.connectionId = client.getId();
+            event.room = client.getRoom() != null ? client.getRoom().getRoomId() : null;
+            event.player = client.getName();
+            event.commit();
+        }
+
+        registry.unregister(client);
+        spectators.unwatch(client);
+
+        GameSessionManager room = client.getRoom();
+        if (room != null) {
+            room.post(() -> room.handlePlayerDisconnect(client));
+        } else {
+            // Клиент не успел войти в комнату - достаточно закрыть канал
+            try {
+                client.getChannel().close();
+            } catch (Exception ignored) {}
+        }
+    }
+
+    /**
+     * Обрабатывает комнаты с новыми командами и удаляет опустевшие комнаты.
+     * Состояние комнаты меняется только командами, поэтому здесь же обновляется каталог комнат.
+     *
+     * @param now текущее время (System.nanoTime)
+     * @return -1, так как задача не ждет наступления срока
+     */
+    @Override
+    public long run(long now) {
+        GameSessionManager room;
+        while ((room = readyRooms.poll()) != null) {
+            watchdog.enter(LoopWatchdog.ROOM_COMMANDS, room.getRoomId());
+            room.processCommands();
+
+            if (rooms.get(room.getRoomId()) != room) {
+                continue;
+            }
+            if (room.getPlayerManager().getPlayerCount() == 0 && room.getMailbox().isEmpty()) {
+                rooms.remove(room.getRoomId());
+                directory.remove(room.getRoomId());
+                spectators.close(room.getSpectatorFeed());
+            } else {
+                directory.update(room.getRoomId(), room.getPlayerManager().getPlayerCount(), room.isGameStarted());
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Проверяет, есть ли комнаты с необработанными командами.
+     *
+     * @return true, если есть комнаты, ожидающие обработки
+     */
+    public boolean hasReadyRooms() {
+        return !readyRooms.isEmpty();
+    }
+
+    /**
+     * Восстанавливает комнаты из снимков после перезапуска сервера.
+     * Должен вызываться из потока цикла событий.
+     *
+     * @param snapshots снимки комнат
+     */
+    public void restoreRooms(List<RoomSnapshot> snapshots) {
+        for (RoomSnapshot snapshot : snapshots) {
+            GameSessionManager room = getOrCreateRoom(snapshot.getRoomId());
+            room.post(() -> room.restore(snapshot));
+        }
+    }
+
+    /**
+     * Снимает состояние всех комнат.
+     * Должен вызываться из потока цикла событий.
+     *
+     * @return снимки комнат
+     */
+    public List<RoomSnapshot> snapshotRooms() {
+        List<RoomSnapshot> snapshots = new ArrayList<>(rooms.size());
+        for (GameSessionManager room : rooms.values()) {
+            snapshots.add(room.snapshot());
+        }
+        return snapshots;
+    }
+
+    /**
+     * Проверяет, существует ли комната.
+     *
+     * @param roomId идентификатор комнаты
+     * @return true, если комната существует
+     */
+    public boolean hasRoom(String roomId) {
+        return rooms.containsKey(roomId);
+    }
+
+    /**
+     * Возвращает комнату по идентификатору, не создавая ее.
+     * Должен вызываться из потока цикла событий.
+     *
+     * @param roomId идентификатор комнаты
+     * @return комната или null, если ее нет
+     */
+    public GameSessionManager getRoom(String roomId) {
+        return rooms.get(roomId);
+    }
+
+    /**
+     * Возвращает количество существующих комнат.
+     *
+     * @return количество комнат
+     */
+    public int getRoomCount() {
+        return rooms.size();
+    }
+}
@@ -0,0 +1,99 @@
+package server;
+
+import model.GameModel;
+import simulation.BoardView;
+import simulation.Player;
+import simulation.Strategy;
+
+import java.util.SplittableRandom;
+
+/**
+ * Игрок-бот, играющий на сервере без сетевого подключения.
+ * Бот занимает место в комнате наравне с игроками, видит все открытые карточки и делает ходы
+ * по стратегии из пакета simulation. Ходы выполняются командами комнаты по таймеру цикла событий,
+ * поэтому бот не требует ни сокета, ни потока: его состояние - имя, стратегия и память о карточках.
+ */
+public class ServerBot implements BoardView {
+    private final String name;
+    private final Strategy strategy;
+    private final SplittableRandom random;
+
+    private GameModel gameModel;
+    // Память бота в текущей партии, null - партия не идет
+    private Player player;
+
+    /**
+     * Конструктор бота.
+     *
+     * @param name     имя бота
+     * @param strategy стратегия игры
+     * @param seed     начальное значение генератора случайных чисел бота
+     */
+    public ServerBot(String name, Strategy strategy, long seed) {
+        this.name = name;
+        this.strategy = strategy;
+        this.random = new SplittableRandom(seed);
+    }
+
+    /**
+     * Начинает новую партию: бот забывает все карточки прошлой партии.
+     *
+     * @param gameModel модель игры комнаты
+     */
+    public void startGame(GameModel gameModel) {
+        this.gameModel = gameModel;
+        this.player = strategy.createPlayer(gameModel.getCardCount(), random);
+    }
+
+    /**
+     * Выбирает первую карточку хода.
+     *
+     * @param turn номер хода в партии
+     * @return позиция карточки или -1, если партия не идет
+     */
+    public int chooseFirst(int turn) {
+        return player != null ? player.chooseFirst(this, turn) : -1;
+    }
+
+    /**
+     * Выбирает вторую карточку хода.
+     *
+     * @param first позиция первой карточки
+     * @param turn  номер хода в партии
+     * @return позиция карточки или -1, если партия не идет
+     */
+    public int chooseSecond(int first, int turn) {
+        return player != null ? player.chooseSecond(this, first, gameModel.getCardValue(first), turn) : -1;
+    }
+
+    /**
+     * Сообщает боту значение открытой карточки.
+     *
+     * @param position позиция карточки
+     * @param value    значение карточки
+     * @param turn     номер хода в партии
+     */
+    public void observe(int position, int value, int turn) {
+        if (player != null) {
+            player.observe(position, value, turn);
+        }
+    }
+
+    @Override
+    public int getCardCount() {
+        return gameModel.getCardCount();
+    }
+
+    @Override
+    public boolean isHidden(int position) {
+        return !gameModel.isMatched(position);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Strategy getStrategy() {
+        return strategy;
+    }
+}
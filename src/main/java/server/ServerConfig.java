@@ -0,0 +1,416 @@
+package server;
+
+import simulation.Strategy;
+import util.Log;
+
+/**
+ * Настройки сервера.
+ * Значения читаются из системных свойств JVM (-Dmemo.имя=значение),
+ * при отсутствии свойства используется значение по умолчанию.
+ */
+public class ServerConfig {
+    // Действие при превышении лимита частоты сообщений
+    private final RateLimitAction rateLimitAction;
+
+    // Лимиты частоты сообщений: токенов в секунду и размер "корзины" (допустимый всплеск)
+    private final double cardOpenRate;
+    private final double cardOpenBurst;
+    private final double chatRate;
+    private final double chatBurst;
+    private final double resetRate;
+    private final double resetBurst;
+    private final double startGameRate;
+    private final double startGameBurst;
+    private final double connectRate;
+    private final double connectBurst;
+    private final double addBotRate;
+    private final double addBotBurst;
+    private final double leaderboardRate;
+    private final double leaderboardBurst;
+    private final double lobbyRate;
+    private final double lobbyBurst;
+
+    // Окно накопления сообщений чата в миллисекундах, 0 - рассылать сразу
+    private final long chatFlushMillis;
+
+    // Максимальный объем неотправленных данных одного клиента в байтах
+    private final long outboundMaxBytes;
+    // Максимальное время отставания клиента (очередь отправки непуста) в миллисекундах
+    private final long outboundMaxLagMillis;
+
+    // Максимальное количество одновременных подключений к серверу
+    private final int maxConnections;
+
+    // Время бездействия клиента, после которого ему отправляется ping, в миллисекундах
+    private final long heartbeatIntervalMillis;
+    // Время бездействия клиента, после которого соединение закрывается, в миллисекундах
+    private final long heartbeatTimeoutMillis;
+    // Длительность тика колеса таймеров монитора активности в миллисекундах
+    private final long heartbeatTickMillis;
+    // Период измерения времени приема-передачи (ping) каждого клиента в миллисекундах, 0 - не измерять
+    private final long rttProbeMillis;
+
+    // Период вывода метрик в журнал в миллисекундах, 0 - не выводить
+    private final long metricsLogIntervalMillis;
+
+    // Порог длительности итерации цикла событий для сторожевого таймера в миллисекундах, 0 - сторож выключен
+    private final long watchdogThresholdMillis;
+
+    // Добавлять ботов сервера, если игру начинает один игрок
+    private final boolean botsFill;
+    // Время на обдумывание хода бота сервера в миллисекундах
+    private final long botThinkMillis;
+    // Стратегия ботов сервера по умолчанию
+    private final Strategy botStrategy;
+
+    // Каталог журнала игр, пустая строка - журнал выключен
+    private final String journalDir;
+    // Размер файла-сегмента журнала игр в байтах
+    private final int journalSegmentBytes;
+    // Размер буфера записей журнала игр в байтах
+    private final int journalBufferBytes;
+    // Период снимков комнат в миллисекундах, 0 - снимки выключены (требуют журнала игр)
+    private final long snapshotIntervalMillis;
+    // Сколько место восстановленной комнаты ждет возвращения игрока, в миллисекундах
+    private final long recoverySeatTimeoutMillis;
+    // Сколько место игрока, потерявшего соединение во время игры, ждет его возвращения, 0 - игра сбрасывается сразу
+    private final long resumeGraceMillis;
+
+    // Файл статистики игроков, пустая строка - статистика хранится только в памяти
+    private final String statsFile;
+    // Период записи результатов партий в файл статистики в миллисекундах
+    private final long statsFlushMillis;
+
+    // Количество игроков в комнате, собираемой подбором соперников
+    private final int matchRoomSize;
+    // Сколько игрок ждет полной комнаты, прежде чем комната соберется из тех, кто есть, в миллисекундах
+    private final long matchWaitMillis;
+    // Количество групп мастерства очереди подбора, 1 - без учета мастерства
+    private final int matchSkillBuckets;
+    // Количество партий, после которого игрок распределяется в группу по доле побед
+    private final int matchMinGames;
+
+    // Период рассылки изменений списка комнат подписчикам лобби в миллисекундах
+    private final long lobbyFlushMillis;
+
+    // Задержка показа состояния игры зрителям в миллисекундах, 0 - без задержки
+    private final long spectatorDelayMillis;
+    // Время рассылки зрителям за одну итерацию цикла событий в микросекундах
+    private final long spectatorSliceMicros;
+    // Наибольшее количество зрителей комнаты
+    private final int spectatorMaxPerRoom;
+
+    private ServerConfig() {
+        this.rateLimitAction = getRateLimitAction("memo.ratelimit.action", RateLimitAction.THROTTLE);
+
+        this.cardOpenRate = getDouble("memo.ratelimit.card.rate", 10);
+        this.cardOpenBurst = getDouble("memo.ratelimit.card.burst", 4);
+        this.chatRate = getDouble("memo.ratelimit.chat.rate", 3);
+        this.chatBurst = getDouble("memo.ratelimit.chat.burst", 5);
+        this.resetRate = getDouble("memo.ratelimit.reset.rate", 0.5);
+        this.resetBurst = getDouble("memo.ratelimit.reset.burst", 2);
+        this.startGameRate = getDouble("memo.ratelimit.start.rate", 0.5);
+        this.startGameBurst = getDouble("memo.ratelimit.start.burst", 2);
+        this.connectRate = getDouble("memo.ratelimit.connect.rate", 1);
+        this.connectBurst = getDouble("memo.ratelimit.connect.burst", 2);
+        this.addBotRate = getDouble("memo.ratelimit.bot.rate", 1);
+        this.addBotBurst = getDouble("memo.ratelimit.bot.burst", 4);
+        this.leaderboardRate = getDouble("memo.ratelimit.leaderboard.rate", 1);
+        this.leaderboardBurst = getDouble("memo.ratelimit.leaderboard.burst", 4);
+        this.lobbyRate = getDouble("memo.ratelimit.lobby.rate", 2);
+        this.lobbyBurst = getDouble("memo.ratelimit.lobby.burst", 5);
+
+        this.chatFlushMillis = (long) getDouble("memo.chat.flushMillis", 20);
+
+        this.outboundMaxBytes = (long) getDouble("memo.outbound.maxBytes", 256 * 1024);
+        this.outboundMaxLagMillis = (long) getDouble("memo.outbound.maxLagMillis", 10_000);
+
+        this.maxConnections = (int) getDouble("memo.maxConnections", 1024);
+
+        this.heartbeatIntervalMillis = (long) getDouble("memo.heartbeat.intervalMillis", 5_000);
+        this.heartbeatTimeoutMillis = (long) getDouble("memo.heartbeat.timeoutMillis", 15_000);
+        this.heartbeatTickMillis = (long) getDouble("memo.heartbeat.tickMillis", 250);
+        this.rttProbeMillis = (long) getDouble("memo.rtt.probeMillis", 2_000);
+
+        this.metricsLogIntervalMillis = (long) getDouble("memo.metrics.logIntervalMillis", 60_000);
+
+        this.watchdogThresholdMillis = (long) getDouble("memo.watchdog.thresholdMillis", 100);
+
+        this.botsFill = Boolean.parseBoolean(System.getProperty("memo.bots.fill", "true"));
+        this.botThinkMillis = (long) getDouble("memo.bots.thinkMillis", 800);
+        this.botStrategy = getStrategy("memo.bots.strategy", "decay:8");
+
+        this.journalDir = System.getProperty("memo.journal.dir", "").trim();
+        this.journalSegmentBytes = (int) getDouble("memo.journal.segmentBytes", 64 * 1024 * 1024);
+        this.journalBufferBytes = (int) getDouble("memo.journal.bufferBytes", 1024 * 1024);
+        this.snapshotIntervalMillis = (long) getDouble("memo.snapshot.intervalMillis", 5_000);
+        this.recoverySeatTimeoutMillis = (long) getDouble("memo.recovery.seatTimeoutMillis", 60_000);
+        this.resumeGraceMillis = (long) getDouble("memo.resume.graceMillis", 30_000);
+
+        this.statsFile = System.getProperty("memo.stats.file", "").trim();
+        this.statsFlushMillis = (long) getDouble("memo.stats.flushMillis", 1_000);
+
+        this.matchRoomSize = (int) getDouble("memo.matchmaking.roomSize", 4);
+        this.matchWaitMillis = (long) getDouble("memo.matchmaking.waitMillis", 10_000);
+        this.matchSkillBuckets = (int) getDouble("memo.matchmaking.skillBuckets", 4);
+        this.matchMinGames = (int) getDouble("memo.matchmaking.minGames", 5);
+
+        this.lobbyFlushMillis = (long) getDouble("memo.lobby.flushMillis", 200);
+
+        this.spectatorDelayMillis = (long) getDouble("memo.spectators.delayMillis", 0);
+        this.spectatorSliceMicros = (long) getDouble("memo.spectators.sliceMicros", 1_000);
+        this.spectatorMaxPerRoom = (int) getDouble("memo.spectators.maxPerRoom", 5_000);
+    }
+
+    /**
+     * Загружает настройки из системных свойств.
+     *
+     * @return настройки сервера
+     */
+    public static ServerConfig load() {
+        return new ServerConfig();
+    }
+
+    /**
+     * Читает числовое системное свойство.
+     *
+     * @param name имя свойства
+     * @param defaultValue значение по умолчанию
+     * @return значение свойства или значение по умолчанию, если свойство не задано или задано неверно
+     */
+    private static double getDouble(String name, double defaultValue) {
+        String value = System.getProperty(name);
+        if (value == null) {
+            return defaultValue;
+        }
+
+        try {
+            return Double.parseDouble(value.trim());
+        } catch (NumberFormatException e) {
+            Log.warn("Неверное значение свойства " + name + ": " + value);
+            return defaultValue;
+        }
+    }
+
+    /**
+     * Читает стратегию ботов из системного свойства.
+     *
+     * @param name имя свойства
+     * @param defaultValue описание стратегии по умолчанию
+     * @return стратегия из свойства или стратегия по умолчанию, если свойство не задано или задано неверно
+     */
+    private static Strategy getStrategy(String name, String defaultValue) {
+        String value = System.getProperty(name, defaultValue);
+        try {
+            return Strategy.parse(value.trim());
+        } catch (IllegalArgumentException e) {
+            Log.warn("Неверное значение свойства " + name + ": " + value);
+            return Strategy.parse(defaultValue);
+        }
+    }
+
+    /**
+     * Читает действие при превышении лимита частоты из системного свойства.
+     *
+     * @param name имя свойства
+     * @param defaultValue действие по умолчанию
+     * @return действие из свойства или действие по умолчанию, если свойство не задано или задано неверно
+     */
+    private static RateLimitAction getRateLimitAction(String name, RateLimitAction defaultValue) {
+        String value = System.getProperty(name);
+        if (value == null) {
+            return defaultValue;
+        }
+
+        try {
+            return RateLimitAction.valueOf(value.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            Log.warn("Неверное значение свойства " + name + ": " + value);
+            return defaultValue;
+        }
+    }
+
+    public RateLimitAction getRateLimitAction() {
+        return rateLimitAction;
+    }
+
+    public double getCardOpenRate() {
+        return cardOpenRate;
+    }
+
+    public double getCardOpenBurst() {
+        return cardOpenBurst;
+    }
+
+    public double getChatRate() {
+        return chatRate;
+    }
+
+    public double getChatBurst() {
+        return chatBurst;
+    }
+
+    public double getResetRate() {
+        return resetRate;
+    }
+
+    public double getResetBurst() {
+        return resetBurst;
+    }
+
+    public double getStartGameRate() {
+        return startGameRate;
+    }
+
+    public double getStartGameBurst() {
+        return startGameBurst;
+    }
+
+    public double getConnectRate() {
+        return connectRate;
+    }
+
+    public double getConnectBurst() {
+        return connectBurst;
+    }
+
+    public double getAddBotRate() {
+        return addBotRate;
+    }
+
+    public double getAddBotBurst() {
+        return addBotBurst;
+    }
+
+    public double getLeaderboardRate() {
+        return leaderboardRate;
+    }
+
+    public double getLeaderboardBurst() {
+        return leaderboardBurst;
+    }
+
+    public double getLobbyRate() {
+        return lobbyRate;
+    }
+
+    public double getLobbyBurst() {
+        return lobbyBurst;
+    }
+
+    public long getChatFlushMillis() {
+        return chatFlushMillis;
+    }
+
+    public long getOutboundMaxBytes() {
+        return outboundMaxBytes;
+    }
+
+    public long getOutboundMaxLagMillis() {
+        return outboundMaxLagMillis;
+    }
+
+    public int getMaxConnections() {
+        return maxConnections;
+    }
+
+    public long getHeartbeatIntervalMillis() {
+        return heartbeatIntervalMillis;
+    }
+
+    public long getHeartbeatTimeoutMillis() {
+        return heartbeatTimeoutMillis;
+    }
+
+    public long getHeartbeatTickMillis() {
+        return heartbeatTickMillis;
+    }
+
+    public long getRttProbeMillis() {
+        return rttProbeMillis;
+    }
+
+    public long getMetricsLogIntervalMillis() {
+        return metricsLogIntervalMillis;
+    }
+
+    public long getWatchdogThresholdMillis() {
+        return watchdogThresholdMillis;
+    }
+
+    public boolean isBotsFill() {
+        return botsFill;
+    }
+
+    public long getBotThinkMillis() {
+        return botThinkMillis;
+    }
+
+    public Strategy getBotStrategy() {
+        return botStrategy;
+    }
+
+    public String getJournalDir() {
+        return journalDir;
+    }
+
+    public int getJournalSegmentBytes() {
+        return journalSegmentBytes;
+    }
+
+    public int getJournalBufferBytes() {
+        return journalBufferBytes;
+    }
+
+    public long getSnapshotIntervalMillis() {
+        return snapshotIntervalMillis;
+    }
+
+    public long getRecoverySeatTimeoutMillis() {
+        return recoverySeatTimeoutMillis;
+    }
+
+    public long getResumeGraceMillis() {
+        return resumeGraceMillis;
+    }
+
+    public String getStatsFile() {
+        return statsFile;
+    }
+
+    public long getStatsFlushMillis() {
+        return statsFlushMillis;
+    }
+
+    public int getMatchRoomSize() {
+        return matchRoomSize;
+    }
+
+    public long getMatchWaitMillis() {
+        return matchWaitMillis;
+    }
+
+    public int getMatchSkillBuckets() {
+        return matchSkillBuckets;
+    }
+
+    public int getMatchMinGames() {
+        return matchMinGames;
+    }
+
+    public long getLobbyFlushMillis() {
+        return lobbyFlushMillis;
+    }
+
+    public long getSpectatorDelayMillis() {
+        return spectatorDelayMillis;
+    }
+
+    public long getSpectatorSliceMicros() {
+        return spectatorSliceMicros;
+    }
+
+    public int getSpectatorMaxPerRoom() {
+        return spectatorMaxPerRoom;
+    }
+}
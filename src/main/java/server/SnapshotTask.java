@@ -0,0 +1,70 @@
+package server;
+
+import journal.GameJournal;
+import journal.RoomSnapshot;
+import journal.SnapshotStore;
+
+import java.util.List;
+
+/**
+ * Периодические снимки комнат для восстановления после перезапуска сервера.
+ * Снимок делается в потоке цикла событий между командами комнат, а в журнал одновременно пишется
+ * отметка снимка: при восстановлении к снимку применяются только записи журнала после отметки.
+ * При первом запуске задача восстанавливает комнаты, найденные при старте сервера.
+ */
+public class SnapshotTask implements LoopTask {
+    private final RoomManager roomManager;
+    private final GameJournal journal;
+    private final SnapshotStore store;
+    // Период снимков в наносекундах, 0 - снимки выключены
+    private final long periodNanos;
+
+    // Комнаты, которые нужно восстановить при первом запуске, null - уже восстановлены
+    private List<RoomSnapshot> recovered;
+    private long markId;
+    // Позиция журнала при последнем снимке: без новых записей снимок не нужен
+    private long snapshotPosition = -1;
+    private long nextSnapshot;
+
+    /**
+     * Конструктор.
+     *
+     * @param roomManager менеджер комнат
+     * @param journal     журнал игр
+     * @param store       хранилище снимков
+     * @param recovery    комнаты, восстановленные при старте сервера
+     * @param config      настройки сервера
+     */
+    public SnapshotTask(RoomManager roomManager, GameJournal journal, SnapshotStore store,
+                        SnapshotStore.Recovery recovery, ServerConfig config) {
+        this.roomManager = roomManager;
+        this.journal = journal;
+        this.store = store;
+        this.periodNanos = config.getSnapshotIntervalMillis() * 1_000_000;
+        this.recovered = recovery.rooms();
+        this.markId = recovery.markId();
+        this.nextSnapshot = System.nanoTime() + periodNanos;
+    }
+
+    @Override
+    public long run(long now) {
+        if (recovered != null) {
+            roomManager.restoreRooms(recovered);
+            recovered = null;
+        }
+        if (periodNanos <= 0) {
+            return -1;
+        }
+
+        if (now - nextSnapshot >= 0) {
+            long position = journal.getPosition();
+            if (position != snapshotPosition) {
+                journal.mark(++markId);
+                store.saveAsync(markId, roomManager.snapshotRooms());
+                snapshotPosition = journal.getPosition();
+            }
+            nextSnapshot = now + periodNanos;
+        }
+        return nextSnapshot - now;
+    }
+}
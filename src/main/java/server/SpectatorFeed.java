@@ -0,0 +1,250 @@
+package server;
+
+import metrics.ServerMetrics;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+
+/**
+ * Зрители одной комнаты и кадры состояния игры для них.
+ * Зрители не занимают мест в комнате: они получают тот же закодированный кадр состояния, что и игроки,
+ * поэтому рассылка зрителю - копия позиции буфера и запись в канал. Зрителю отправляется только последний кадр:
+ * если за время рассылки появился более новый, устаревший не отправляется тем, кто его еще не получил.
+ * Кадр может показываться зрителям с задержкой: он становится текущим по истечении заданного времени.
+ * Рассылка идет по кругу и может прерываться по сроку, продолжаясь с того же зрителя на следующей итерации цикла событий.
+ * Работает только в потоке цикла событий, поэтому синхронизация не нужна.
+ */
+public class SpectatorFeed {
+    private static final ClientSession[] NO_VIEWERS = new ClientSession[0];
+    // Через сколько отправок проверяется срок рассылки
+    private static final int CLOCK_CHECK_INTERVAL = 32;
+
+    /**
+     * Кадр, ожидающий показа зрителям.
+     */
+    private record DelayedFrame(long dueAt, ByteBuffer frame) {}
+
+    private final String roomId;
+    private final BroadcastService broadcastService;
+    private final ServerMetrics metrics;
+    private final long delayNanos;
+
+    // Зрители и версии последних отправленных им кадров (позиция зрителя хранится в его сессии)
+    private ClientSession[] viewers = NO_VIEWERS;
+    private long[] sentVersions = new long[0];
+    private int count;
+
+    // Кадры, время показа которых еще не наступило
+    private final ArrayDeque<DelayedFrame> delayed = new ArrayDeque<>();
+    // Текущий кадр для зрителей и его версия
+    private ByteBuffer current;
+    private long version;
+
+    // Позиция обхода зрителей и количество зрителей, которых осталось проверить
+    private int cursor;
+    private int remaining;
+
+    // Лента стоит в очереди рассылки сервиса зрителей
+    boolean scheduled;
+
+    /**
+     * Конструктор.
+     *
+     * @param roomId           идентификатор комнаты
+     * @param broadcastService сервис рассылки сообщений
+     * @param metrics          метрики сервера
+     * @param delayNanos       задержка показа кадров зрителям в наносекундах, 0 - без задержки
+     */
+    SpectatorFeed(String roomId, BroadcastService broadcastService, ServerMetrics metrics, long delayNanos) {
+        this.roomId = roomId;
+        this.broadcastService = broadcastService;
+        this.metrics = metrics;
+        this.delayNanos = delayNanos;
+    }
+
+    /**
+     * Принимает новый кадр состояния комнаты.
+     * Без задержки кадр сразу становится текущим, иначе ставится в очередь до наступления времени показа.
+     *
+     * @param frame закодированный кадр (не изменяется, зрителям отправляются копии позиции)
+     * @param now   текущее время (System.nanoTime)
+     */
+    void publish(ByteBuffer frame, long now) {
+        if (delayNanos == 0) {
+            setCurrent(frame);
+            return;
+        }
+        delayed.addLast(new DelayedFrame(now + delayNanos, frame));
+        promote(now);
+    }
+
+    /**
+     * Делает текущим последний из кадров, время показа которых наступило; более ранние пропускаются.
+     *
+     * @param now текущее время (System.nanoTime)
+     */
+    void promote(long now) {
+        ByteBuffer due = null;
+        DelayedFrame head;
+        while ((head = delayed.peekFirst()) != null && now - head.dueAt() >= 0) {
+            due = delayed.pollFirst().frame();
+        }
+        if (due != null) {
+            setCurrent(due);
+        }
+    }
+
+    private void setCurrent(ByteBuffer frame) {
+        current = frame;
+        version++;
+        remaining = count;
+    }
+
+    /**
+     * Добавляет зрителя. Он получит текущий кадр при ближайшей рассылке.
+     *
+     * @param session сессия зрителя
+     */
+    void add(ClientSession session) {
+        if (count == viewers.length) {
+            int capacity = Math.max(8, count * 2);
+            viewers = Arrays.copyOf(viewers, capacity);
+            sentVersions = Arrays.copyOf(sentVersions, capacity);
+        }
+        viewers[count] = session;
+        sentVersions[count] = version - 1;
+        session.setSpectating(this);
+        session.setSpectatorSlot(count);
+        count++;
+        // Новый зритель может оказаться в уже пройденной части круга - проверяем круг заново
+        remaining = count;
+    }
+
+    /**
+     * Убирает зрителя. Его место занимает последний зритель.
+     *
+     * @param session сессия зрителя
+     * @return true, если зритель был в этой ленте
+     */
+    boolean remove(ClientSession session) {
+        int slot = session.getSpectatorSlot();
+        if (session.getSpectating() != this || slot < 0 || slot >= count || viewers[slot] != session) {
+            return false;
+        }
+
+        int last = --count;
+        if (slot != last) {
+            viewers[slot] = viewers[last];
+            sentVersions[slot] = sentVersions[last];
+            viewers[slot].setSpectatorSlot(slot);
+        }
+        viewers[last] = null;
+        session.setSpectating(null);
+        session.setSpectatorSlot(-1);
+
+        // Перенесенный зритель мог оказаться в уже пройденной части круга
+        if (remaining > 0) {
+            remaining = count;
+        }
+        if (cursor >= count) {
+            cursor = 0;
+        }
+        return true;
+    }
+
+    /**
+     * Рассылает текущий кадр зрителям, которые его еще не получили.
+     * Отключившиеся зрители удаляются из ленты.
+     *
+     * @param deadline момент (System.nanoTime), после которого рассылка прерывается до следующего вызова
+     * @return количество удаленных отключившихся зрителей
+     */
+    int fanOut(long deadline) {
+        if (current == null) {
+            remaining = 0;
+            return 0;
+        }
+
+        int removed = 0;
+        int sends = 0;
+        while (remaining > 0) {
+            if (cursor >= count) {
+                cursor = 0;
+            }
+            ClientSession viewer = viewers[cursor];
+            if (viewer.isDisconnected()) {
+                remove(viewer);
+                removed++;
+                continue;
+            }
+
+            remaining--;
+            if (sentVersions[cursor] != version) {
+                sentVersions[cursor] = version;
+                broadcastService.sendStateFrame(viewer, current);
+                metrics.spectatorFrames().increment();
+                if (++sends % CLOCK_CHECK_INTERVAL == 0 && System.nanoTime() - deadline >= 0) {
+                    cursor++;
+                    break;
+                }
+            }
+            cursor++;
+        }
+        return removed;
+    }
+
+    /**
+     * Возвращает время до следующей работы ленты.
+     *
+     * @param now текущее время (System.nanoTime)
+     * @return 0 - есть зрители без текущего кадра, время до показа следующего кадра или -1, если работы нет
+     */
+    long nextDelay(long now) {
+        if (count == 0) {
+            return -1;
+        }
+        if (remaining > 0 && current != null) {
+            return 0;
+        }
+        DelayedFrame head = delayed.peekFirst();
+        return head != null ? Math.max(0, head.dueAt() - now) : -1;
+    }
+
+    /**
+     * Убирает всех зрителей и отбрасывает кадры.
+     *
+     * @return бывшие зрители
+     */
+    ClientSession[] clear() {
+        ClientSession[] former = Arrays.copyOf(viewers, count);
+        for (ClientSession viewer : former) {
+            viewer.setSpectating(null);
+            viewer.setSpectatorSlot(-1);
+        }
+        Arrays.fill(viewers, 0, count, null);
+        count = 0;
+        remaining = 0;
+        cursor = 0;
+        delayed.clear();
+        current = null;
+        return former;
+    }
+
+    /**
+     * Проверяет, есть ли у ленты кадр для новых зрителей.
+     *
+     * @return true, если текущий кадр есть или ожидает показа
+     */
+    boolean hasFrame() {
+        return current != null || !delayed.isEmpty();
+    }
+
+    public String getRoomId() {
+        return roomId;
+    }
+
+    public int getSpectatorCount() {
+        return count;
+    }
+}
@@ -0,0 +1,183 @@
+package server;
+
+import metrics.ServerMetrics;
+import model.Protocol;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+
+/**
+ * Зрители комнат.
+ * Зритель не входит в комнату и не занимает места игрока: он только получает кадры состояния игры.
+ * Комната рассылает кадр своим игрокам сразу, а зрителям - через свою ленту (SpectatorFeed) после команд
+ * всех комнат. Рассылка зрителям ограничена по времени в каждой итерации цикла событий и продолжается
+ * в следующих, поэтому тысячи зрителей не задерживают обработку ходов игроков.
+ * Работает только в потоке цикла событий, поэтому синхронизация не нужна.
+ */
+public class SpectatorService implements LoopTask {
+    private final BroadcastService broadcastService;
+    private final ServerMetrics metrics;
+
+    // Задержка показа кадров зрителям и время рассылки зрителям за одну итерацию цикла событий в наносекундах
+    private final long delayNanos;
+    private final long sliceNanos;
+    // Наибольшее количество зрителей комнаты
+    private final int maxPerRoom;
+
+    // Ленты, которым есть что разослать, в порядке обхода
+    private final ArrayDeque<SpectatorFeed> scheduled = new ArrayDeque<>();
+
+    /**
+     * Конструктор.
+     *
+     * @param broadcastService сервис рассылки сообщений
+     * @param metrics          метрики сервера
+     * @param config           настройки сервера
+     */
+    public SpectatorService(BroadcastService broadcastService, ServerMetrics metrics, ServerConfig config) {
+        this.broadcastService = broadcastService;
+        this.metrics = metrics;
+        this.delayNanos = config.getSpectatorDelayMillis() * 1_000_000;
+        this.sliceNanos = config.getSpectatorSliceMicros() * 1_000;
+        this.maxPerRoom = config.getSpectatorMaxPerRoom();
+    }
+
+    /**
+     * Создает ленту зрителей комнаты.
+     *
+     * @param roomId идентификатор комнаты
+     * @return лента зрителей
+     */
+    public SpectatorFeed createFeed(String roomId) {
+        return new SpectatorFeed(roomId, broadcastService, metrics, delayNanos);
+    }
+
+    /**
+     * Передает зрителям комнаты кадр состояния, уже разосланный ее игрокам.
+     *
+     * @param feed  лента зрителей комнаты
+     * @param frame закодированный кадр состояния
+     */
+    public void publish(SpectatorFeed feed, ByteBuffer frame) {
+        long now = System.nanoTime();
+        feed.publish(frame, now);
+        schedule(feed, now);
+    }
+
+    /**
+     * Делает клиента зрителем комнаты.
+     *
+     * @param session сессия клиента
+     * @param room    комната
+     */
+    public void watch(ClientSession session, GameSessionManager room) {
+        if (session.getRoomOrPending() != null) {
+            broadcastService.sendMessageToClient(session, Protocol.encode(
+                    Protocol.TYPE_ERROR,
+                    "Вы уже в комнате " + session.getRoomOrPending().getRoomId()
+            ));
+            return;
+        }
+
+        SpectatorFeed feed = room.getSpectatorFeed();
+        if (session.getSpectating() == feed) {
+            return;
+        }
+        unwatch(session);
+        if (feed.getSpectatorCount() >= maxPerRoom) {
+            broadcastService.sendMessageToClient(session, Protocol.encode(
+                    Protocol.TYPE_ERROR,
+                    "В комнате " + room.getRoomId() + " нет мест для зрителей"
+            ));
+            return;
+        }
+
+        long now = System.nanoTime();
+        feed.promote(now);
+        feed.add(session);
+        metrics.spectators().increment();
+
+        broadcastService.sendMessageToClient(session, Protocol.encode(
+                Protocol.TYPE_SYSTEM,
+                Protocol.SYSTEM_USER,
+                "Вы наблюдаете за игрой в комнате " + room.getRoomId()
+        ));
+
+        if (!feed.hasFrame()) {
+            // Комната еще не рассылала состояние - запрашиваем его
+            room.post(room::refreshGameState);
+        }
+        schedule(feed, now);
+    }
+
+    /**
+     * Прекращает наблюдение клиента за комнатой, если он зритель.
+     *
+     * @param session сессия клиента
+     */
+    public void unwatch(ClientSession session) {
+        SpectatorFeed feed = session.getSpectating();
+        if (feed != null && feed.remove(session)) {
+            metrics.spectators().add(-1);
+        }
+    }
+
+    /**
+     * Закрывает ленту удаляемой комнаты: зрители получают сообщение и перестают быть зрителями.
+     *
+     * @param feed лента зрителей комнаты
+     */
+    public void close(SpectatorFeed feed) {
+        ClientSession[] former = feed.clear();
+        if (former.length == 0) {
+            return;
+        }
+        metrics.spectators().add(-former.length);
+        broadcastService.broadcastToClients(former, Protocol.encode(
+                Protocol.TYPE_SYSTEM,
+                Protocol.SYSTEM_USER,
+                "Комната " + feed.getRoomId() + " закрыта"
+        ));
+    }
+
+    /**
+     * Рассылает кадры зрителям в пределах времени, отведенного на итерацию цикла событий.
+     * Ленты обходятся по кругу: лента, на которой время закончилось, продолжит рассылку после остальных.
+     *
+     * @param now текущее время (System.nanoTime)
+     * @return 0 - рассылка не закончена, время до показа следующего отложенного кадра или -1, если работы нет
+     */
+    @Override
+    public long run(long now) {
+        long deadline = now + sliceNanos;
+        long nextDelay = -1;
+        for (int i = scheduled.size(); i > 0; i--) {
+            SpectatorFeed feed = scheduled.pollFirst();
+            feed.promote(now);
+            if (System.nanoTime() - deadline < 0) {
+                int removed = feed.fanOut(deadline);
+                if (removed > 0) {
+                    metrics.spectators().add(-removed);
+                }
+            }
+
+            long delay = feed.nextDelay(now);
+            if (delay < 0) {
+                feed.scheduled = false;
+                continue;
+            }
+            scheduled.addLast(feed);
+            if (nextDelay < 0 || delay < nextDelay) {
+                nextDelay = delay;
+            }
+        }
+        return nextDelay;
+    }
+
+    private void schedule(SpectatorFeed feed, long now) {
+        if (!feed.scheduled && feed.nextDelay(now) >= 0) {
+            feed.scheduled = true;
+            scheduled.addLast(feed);
+        }
+    }
+}
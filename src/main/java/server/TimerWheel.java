@@ -0,0 +1,126 @@
+package server;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Хешированное колесо таймеров.
+ * Время разбито на тики фиксированной длины, элементы раскладываются по ячейкам колеса
+ * по тику своего срока. За тик обрабатывается одна ячейка, поэтому постановка и срабатывание
+ * таймера стоят O(1) независимо от общего числа элементов.
+ * Срок дальше одного оборота колеса округляется до последней ячейки: обработчик при срабатывании
+ * сам решает, наступил ли срок, и при необходимости ставит элемент заново (ленивое перепланирование).
+ * Методы должны вызываться только из потока цикла событий.
+ *
+ * @param <T> тип элементов
+ */
+public class TimerWheel<T> {
+    /**
+     * Обработчик срабатывания таймера.
+     *
+     * @param <T> тип элементов
+     */
+    public interface Handler<T> {
+        /**
+         * Вызывается, когда наступил тик, в ячейку которого поставлен элемент.
+         *
+         * @param item элемент
+         * @param now  текущее время (System.nanoTime)
+         * @return следующий срок элемента (System.nanoTime) или -1, если элемент больше не отслеживается
+         */
+        long onTick(T item, long now);
+    }
+
+    private final List<T>[] slots;
+    private final int mask;
+    private final long tickNanos;
+
+    // Номер последнего обработанного тика
+    private long currentTick;
+    // Количество элементов в колесе
+    private int size;
+
+    /**
+     * Конструктор колеса таймеров.
+     *
+     * @param slotCount минимальное количество ячеек (округляется вверх до степени двойки)
+     * @param tickNanos длительность тика в наносекундах
+     * @param now       текущее время (System.nanoTime)
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public TimerWheel(int slotCount, long tickNanos, long now) {
+        int capacity = Integer.highestOneBit(Math.max(2, slotCount - 1)) << 1;
+        this.slots = new List[capacity];
+        for (int i = 0; i < capacity; i++) {
+            slots[i] = new ArrayList<>();
+        }
+        this.mask = capacity - 1;
+        this.tickNanos = tickNanos;
+        this.currentTick = Math.floorDiv(now, tickNanos);
+    }
+
+    /**
+     * Ставит элемент в колесо со сроком срабатывания.
+     *
+     * @param item     элемент
+     * @param deadline срок (System.nanoTime)
+     */
+    public void schedule(T item, long deadline) {
+        long tick = Math.floorDiv(deadline, tickNanos);
+        if (tick <= currentTick) {
+            tick = currentTick + 1;
+        } else if (tick - currentTick > mask) {
+            // Срок дальше оборота колеса - элемент будет перепланирован обработчиком
+            tick = currentTick + mask;
+        }
+
+        slots[(int) (tick & mask)].add(item);
+        size++;
+    }
+
+    /**
+     * Обрабатывает все тики до текущего момента.
+     *
+     * @param now     текущее время (System.nanoTime)
+     * @param handler обработчик сработавших элементов
+     * @return время до следующего тика в наносекундах или -1, если колесо пусто
+     */
+    public long advance(long now, Handler<T> handler) {
+        long targetTick = Math.floorDiv(now, tickNanos);
+        // После долгой паузы достаточно одного оборота: дальше оборота элементы не ставятся
+        if (targetTick - currentTick > slots.length) {
+            currentTick = targetTick - slots.length;
+        }
+
+        while (currentTick < targetTick) {
+            currentTick++;
+            List<T> slot = slots[(int) (currentTick & mask)];
+            if (slot.isEmpty()) {
+                continue;
+            }
+
+            // Обработчик ставит элементы только в другие ячейки, поэтому ячейку можно обходить напрямую
+            int count = slot.size();
+            size -= count;
+            for (int i = 0; i < count; i++) {
+                T item = slot.get(i);
+                long deadline = handler.onTick(item, now);
+                if (deadline != -1) {
+                    schedule(item, deadline);
+                }
+            }
+            slot.clear();
+        }
+
+        return size == 0 ? -1 : (currentTick + 1) * tickNanos - now;
+    }
+
+    /**
+     * Возвращает количество элементов в колесе.
+     *
+     * @return количество элементов
+     */
+    public int size() {
+        return size;
+    }
+}
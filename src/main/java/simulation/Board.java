@@ -0,0 +1,94 @@
+package simulation;
+
+import java.util.SplittableRandom;
+
+/**
+ * Игровое поле симуляции: значения карточек и найденные пары.
+ * Повторяет правила {@link model.GameModel}, но хранит поле в массивах примитивов и раскладывает карточки
+ * собственным генератором случайных чисел, поэтому партии воспроизводимы и играются без выделения памяти на ход.
+ */
+public final class Board implements BoardView {
+    private final int[] values;
+    private final boolean[] matched;
+    private int hiddenCount;
+
+    /**
+     * Создает поле и раскладывает на нем пары карточек (перемешивание Фишера-Йетса).
+     *
+     * @param pairs  количество пар
+     * @param random генератор случайных чисел партии
+     */
+    public Board(int pairs, SplittableRandom random) {
+        values = new int[pairs * 2];
+        matched = new boolean[pairs * 2];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = i / 2 + 1;
+        }
+        for (int i = values.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int value = values[i];
+            values[i] = values[j];
+            values[j] = value;
+        }
+        hiddenCount = values.length;
+    }
+
+    @Override
+    public int getCardCount() {
+        return values.length;
+    }
+
+    public int getHiddenCount() {
+        return hiddenCount;
+    }
+
+    @Override
+    public boolean isHidden(int position) {
+        return !matched[position];
+    }
+
+    /**
+     * Открывает карточку и возвращает ее значение.
+     * Доступно только движку симуляции: стратегии узнают значения из наблюдений.
+     *
+     * @param position позиция карточки
+     * @return значение карточки
+     */
+    int reveal(int position) {
+        return values[position];
+    }
+
+    /**
+     * Отмечает пару карточек как найденную.
+     *
+     * @param first  позиция первой карточки
+     * @param second позиция второй карточки
+     */
+    void markMatched(int first, int second) {
+        matched[first] = true;
+        matched[second] = true;
+        hiddenCount -= 2;
+    }
+
+    public boolean isCleared() {
+        return hiddenCount == 0;
+    }
+
+    /**
+     * Выбирает случайную закрытую карточку, используя известное количество закрытых карточек.
+     */
+    @Override
+    public int randomHidden(SplittableRandom random, int exclude) {
+        int candidates = hiddenCount - (exclude >= 0 && isHidden(exclude) ? 1 : 0);
+        if (candidates <= 0) {
+            return -1;
+        }
+        int skip = random.nextInt(candidates);
+        for (int i = 0; i < values.length; i++) {
+            if (i != exclude && !matched[i] && skip-- == 0) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
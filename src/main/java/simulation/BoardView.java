@@ -0,0 +1,52 @@
+package simulation;
+
+import java.util.SplittableRandom;
+
+/**
+ * Поле, каким его видит стратегия: количество карточек и то, какие из них еще закрыты.
+ * Значения карточек стратегия узнает только из наблюдений, поэтому одни и те же стратегии
+ * играют и на поле симуляции, и в комнате сервера.
+ */
+public interface BoardView {
+
+    /**
+     * Возвращает количество карточек на поле.
+     *
+     * @return количество карточек
+     */
+    int getCardCount();
+
+    /**
+     * Проверяет, закрыта ли карточка (еще не найдена ее пара).
+     *
+     * @param position позиция карточки
+     * @return true, если карточка закрыта
+     */
+    boolean isHidden(int position);
+
+    /**
+     * Выбирает случайную закрытую карточку.
+     *
+     * @param random  генератор случайных чисел
+     * @param exclude позиция, которую нельзя выбирать, или -1
+     * @return позиция карточки или -1, если подходящих карточек нет
+     */
+    default int randomHidden(SplittableRandom random, int exclude) {
+        int candidates = 0;
+        for (int i = 0; i < getCardCount(); i++) {
+            if (i != exclude && isHidden(i)) {
+                candidates++;
+            }
+        }
+        if (candidates == 0) {
+            return -1;
+        }
+        int skip = random.nextInt(candidates);
+        for (int i = 0; i < getCardCount(); i++) {
+            if (i != exclude && isHidden(i) && skip-- == 0) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
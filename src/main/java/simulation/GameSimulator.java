@@ -0,0 +1,84 @@
+package simulation;
+
+import java.util.SplittableRandom;
+
+/**
+ * Движок партии без сети и интерфейса. Правила совпадают с {@link model.GameModel}: игрок открывает две карточки,
+ * совпадение приносит очко и (по умолчанию) право на следующий ход, промах передает ход следующему игроку,
+ * партия заканчивается, когда найдены все пары. Раскладка и решения стратегий зависят только от начального значения,
+ * поэтому каждая партия воспроизводима.
+ */
+public class GameSimulator {
+    private final int pairs;
+    private final boolean extraTurnOnMatch;
+    private final Strategy[] seats;
+
+    /**
+     * Конструктор движка.
+     *
+     * @param pairs            количество пар на поле
+     * @param extraTurnOnMatch сохраняется ли ход за игроком после совпадения
+     * @param seats            стратегии игроков в порядке ходов
+     */
+    public GameSimulator(int pairs, boolean extraTurnOnMatch, Strategy[] seats) {
+        if (pairs < 1) {
+            throw new IllegalArgumentException("На поле должна быть хотя бы одна пара");
+        }
+        if (seats.length < 1) {
+            throw new IllegalArgumentException("В партии должен быть хотя бы один игрок");
+        }
+        this.pairs = pairs;
+        this.extraTurnOnMatch = extraTurnOnMatch;
+        this.seats = seats.clone();
+    }
+
+    public int getPlayerCount() {
+        return seats.length;
+    }
+
+    /**
+     * Играет одну партию и добавляет ее результат в статистику.
+     *
+     * @param seed  начальное значение генератора случайных чисел партии
+     * @param stats статистика, в которую добавляется результат
+     */
+    public void play(long seed, SimulationStats stats) {
+        SplittableRandom random = new SplittableRandom(seed);
+        Board board = new Board(pairs, random);
+        Player[] players = new Player[seats.length];
+        for (int i = 0; i < seats.length; i++) {
+            players[i] = seats[i].createPlayer(board.getCardCount(), random.split());
+        }
+
+        int[] scores = new int[seats.length];
+        int current = 0;
+        int turn = 0;
+        while (!board.isCleared()) {
+            Player player = players[current];
+            int first = player.chooseFirst(board, turn);
+            int firstValue = board.reveal(first);
+            observeAll(players, first, firstValue, turn);
+
+            int second = player.chooseSecond(board, first, firstValue, turn);
+            int secondValue = board.reveal(second);
+            observeAll(players, second, secondValue, turn);
+
+            turn++;
+            if (firstValue == secondValue) {
+                board.markMatched(first, second);
+                scores[current]++;
+                if (extraTurnOnMatch) {
+                    continue;
+                }
+            }
+            current = (current + 1) % players.length;
+        }
+        stats.accept(turn, scores);
+    }
+
+    private static void observeAll(Player[] players, int position, int value, int turn) {
+        for (Player player : players) {
+            player.observe(position, value, turn);
+        }
+    }
+}
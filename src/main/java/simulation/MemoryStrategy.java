@@ -0,0 +1,136 @@
+package simulation;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Стратегия с памятью: игрок запоминает открывавшиеся карточки, сначала открывает известные пары,
+ * а вторую карточку хода выбирает по памяти. Память может угасать: карточка, увиденная age ходов назад,
+ * вспоминается с вероятностью exp(-age / decayTurns). При decayTurns = 0 память идеальна.
+ */
+public class MemoryStrategy implements Strategy {
+    private final double decayTurns;
+
+    /**
+     * Конструктор стратегии.
+     *
+     * @param decayTurns число ходов, за которое вероятность вспомнить карточку падает в e раз, 0 - без забывания
+     */
+    public MemoryStrategy(double decayTurns) {
+        this.decayTurns = decayTurns;
+    }
+
+    @Override
+    public String getName() {
+        return decayTurns > 0 ? "decay:" + decayTurns : "perfect";
+    }
+
+    @Override
+    public Player createPlayer(int cardCount, SplittableRandom random) {
+        return new MemoryPlayer(cardCount, random);
+    }
+
+    /**
+     * Игрок с памятью о карточках. Кроме значения каждой позиции хранит, на каких позициях видел каждое значение,
+     * поэтому поиск известной пары не требует перебора всех пар позиций.
+     */
+    private final class MemoryPlayer implements Player {
+        private final SplittableRandom random;
+        // Запомненные значения карточек (0 - неизвестно) и номер хода, когда карточка была видна
+        private final int[] values;
+        private final int[] seenAt;
+        // Позиции, на которых видели значение (-1 - нет); у каждого значения ровно две карточки
+        private final int[] firstSeen;
+        private final int[] secondSeen;
+
+        MemoryPlayer(int cardCount, SplittableRandom random) {
+            this.random = random;
+            this.values = new int[cardCount];
+            this.seenAt = new int[cardCount];
+            this.firstSeen = new int[cardCount / 2 + 1];
+            this.secondSeen = new int[cardCount / 2 + 1];
+            Arrays.fill(firstSeen, -1);
+            Arrays.fill(secondSeen, -1);
+        }
+
+        @Override
+        public int chooseFirst(BoardView board, int turn) {
+            for (int value = 1; value < firstSeen.length; value++) {
+                int first = firstSeen[value];
+                int second = secondSeen[value];
+                if (first >= 0 && second >= 0 && board.isHidden(first) && recall(first, turn) && recall(second, turn)) {
+                    return first;
+                }
+            }
+            // Известных пар нет - открываем карточку, которую не помним
+            int unknown = randomUnknown(board, -1);
+            return unknown >= 0 ? unknown : board.randomHidden(random, -1);
+        }
+
+        @Override
+        public int chooseSecond(BoardView board, int first, int firstValue, int turn) {
+            int pair = firstSeen[firstValue] != first ? firstSeen[firstValue] : secondSeen[firstValue];
+            if (pair >= 0 && board.isHidden(pair) && recall(pair, turn)) {
+                return pair;
+            }
+            int unknown = randomUnknown(board, first);
+            return unknown >= 0 ? unknown : board.randomHidden(random, first);
+        }
+
+        @Override
+        public void observe(int position, int value, int turn) {
+            seenAt[position] = turn;
+            if (values[position] == value) {
+                return;
+            }
+            values[position] = value;
+            if (firstSeen[value] < 0) {
+                firstSeen[value] = position;
+            } else {
+                secondSeen[value] = position;
+            }
+        }
+
+        /**
+         * Вспоминает карточку. Забытая карточка удаляется из памяти.
+         *
+         * @param position позиция карточки
+         * @param turn     номер текущего хода
+         * @return true, если игрок помнит значение карточки
+         */
+        private boolean recall(int position, int turn) {
+            if (decayTurns <= 0 || random.nextDouble() < Math.exp(-(turn - seenAt[position]) / decayTurns)) {
+                return true;
+            }
+            int value = values[position];
+            values[position] = 0;
+            if (firstSeen[value] == position) {
+                firstSeen[value] = secondSeen[value];
+            }
+            secondSeen[value] = -1;
+            return false;
+        }
+
+        /**
+         * Выбирает случайную закрытую карточку, значение которой игрок не помнит.
+         */
+        private int randomUnknown(BoardView board, int exclude) {
+            int count = 0;
+            for (int i = 0; i < values.length; i++) {
+                if (i != exclude && values[i] == 0 && board.isHidden(i)) {
+                    count++;
+                }
+            }
+            if (count == 0) {
+                return -1;
+            }
+            int skip = random.nextInt(count);
+            for (int i = 0; i < values.length; i++) {
+                if (i != exclude && values[i] == 0 && board.isHidden(i) && skip-- == 0) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package simulation;
+
+/**
+ * Участник одной партии симуляции: выбирает карточки и наблюдает за открытыми карточками.
+ * Экземпляр создается стратегией на каждую партию и может хранить память игрока.
+ */
+public interface Player {
+
+    /**
+     * Выбирает первую карточку хода.
+     *
+     * @param board поле
+     * @param turn  номер хода
+     * @return позиция закрытой карточки
+     */
+    int chooseFirst(BoardView board, int turn);
+
+    /**
+     * Выбирает вторую карточку хода.
+     *
+     * @param board      поле
+     * @param first      позиция первой карточки
+     * @param firstValue значение первой карточки
+     * @param turn       номер хода
+     * @return позиция закрытой карточки, отличной от первой
+     */
+    int chooseSecond(BoardView board, int first, int firstValue, int turn);
+
+    /**
+     * Сообщает игроку значение открытой карточки (открытые карточки видят все игроки).
+     *
+     * @param position позиция карточки
+     * @param value    значение карточки
+     * @param turn     номер хода
+     */
+    void observe(int position, int value, int turn);
+}
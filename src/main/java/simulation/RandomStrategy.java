@@ -0,0 +1,33 @@
+package simulation;
+
+import java.util.SplittableRandom;
+
+/**
+ * Стратегия без памяти: всегда открывает случайные закрытые карточки.
+ */
+public class RandomStrategy implements Strategy {
+
+    @Override
+    public String getName() {
+        return "random";
+    }
+
+    @Override
+    public Player createPlayer(int cardCount, SplittableRandom random) {
+        return new Player() {
+            @Override
+            public int chooseFirst(BoardView board, int turn) {
+                return board.randomHidden(random, -1);
+            }
+
+            @Override
+            public int chooseSecond(BoardView board, int first, int firstValue, int turn) {
+                return board.randomHidden(random, first);
+            }
+
+            @Override
+            public void observe(int position, int value, int turn) {
+            }
+        };
+    }
+}
@@ -0,0 +1,122 @@
+package simulation;
+
+import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.LongStream;
+
+/**
+ * Пакетная симуляция партий: играет заданное количество партий в пуле fork-join и выводит статистику.
+ * Используется для подбора размера поля и правил начисления очков, а также как нагрузочный тест ядра правил
+ * без сети.
+ * <p>
+ * Использование: java -cp memo.jar simulation.Simulation [--games 1000000] [--pairs 18]
+ * [--strategies perfect,random] [--extra-turn true] [--threads N] [--seed 1]
+ * <p>
+ * Стратегии перечисляются через запятую по игрокам в порядке ходов: random, perfect, decay:N.
+ */
+public class Simulation {
+    // Константа золотого сечения: разносит начальные значения соседних партий
+    private static final long SEED_STEP = 0x9E3779B97F4A7C15L;
+
+    /**
+     * Параметры запуска.
+     *
+     * @param games            количество партий
+     * @param pairs            количество пар на поле
+     * @param strategies       стратегии игроков в порядке ходов
+     * @param extraTurnOnMatch сохраняется ли ход за игроком после совпадения
+     * @param threads          количество потоков
+     * @param seed             начальное значение генератора случайных чисел
+     */
+    record Options(long games, int pairs, Strategy[] strategies, boolean extraTurnOnMatch, int threads, long seed) {
+
+        static Options parse(String[] args) {
+            long games = 1_000_000;
+            int pairs = 18;
+            String strategies = "perfect,random";
+            boolean extraTurn = true;
+            int threads = Runtime.getRuntime().availableProcessors();
+            long seed = 1;
+
+            for (int i = 0; i < args.length; i++) {
+                String option = args[i];
+                if (i + 1 >= args.length) {
+                    throw new IllegalArgumentException("Не указано значение параметра " + option);
+                }
+                String value = args[++i];
+                switch (option) {
+                    case "--games" -> games = Long.parseLong(value);
+                    case "--pairs" -> pairs = Integer.parseInt(value);
+                    case "--strategies" -> strategies = value;
+                    case "--extra-turn" -> extraTurn = Boolean.parseBoolean(value);
+                    case "--threads" -> threads = Integer.parseInt(value);
+                    case "--seed" -> seed = Long.parseLong(value);
+                    default -> throw new IllegalArgumentException("Неизвестный параметр " + option);
+                }
+            }
+
+            String[] specs = strategies.split(",");
+            Strategy[] parsed = new Strategy[specs.length];
+            for (int i = 0; i < specs.length; i++) {
+                parsed[i] = Strategy.parse(specs[i].trim());
+            }
+            return new Options(Math.max(1, games), pairs, parsed, extraTurn, Math.max(1, threads), seed);
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options;
+        try {
+            options = Options.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.out.println(e.getMessage());
+            System.out.println("Использование: simulation.Simulation [--games 1000000] [--pairs 18] "
+                    + "[--strategies perfect,random] [--extra-turn true] [--threads N] [--seed 1]");
+            System.exit(1);
+            return;
+        }
+
+        GameSimulator simulator = new GameSimulator(options.pairs(), options.extraTurnOnMatch(), options.strategies());
+        System.out.printf(Locale.ROOT, "Симуляция: %d партий, %d пар, %d игрока, потоков %d%n",
+                options.games(), options.pairs(), simulator.getPlayerCount(), options.threads());
+
+        long start = System.nanoTime();
+        SimulationStats stats = run(simulator, options.games(), options.seed(), options.threads());
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        System.out.printf(Locale.ROOT, "Сыграно %d партий за %.2f с (%.0f партий/с)%n",
+                stats.getGames(), seconds, stats.getGames() / seconds);
+        System.out.printf(Locale.ROOT, "Ходов за партию: среднее %.1f, min %d, p50 %d, p99 %d, max %d%n",
+                stats.getMeanTurns(), stats.getMinTurns(), stats.getTurnsPercentile(50),
+                stats.getTurnsPercentile(99), stats.getMaxTurns());
+        for (int seat = 0; seat < simulator.getPlayerCount(); seat++) {
+            System.out.printf(Locale.ROOT, "Игрок %d (%s): побед %.2f%%, очков в среднем %.2f%n",
+                    seat + 1, options.strategies()[seat].getName(), stats.getWinRate(seat) * 100,
+                    stats.getMeanScore(seat));
+        }
+        System.out.printf(Locale.ROOT, "Ничьих: %.2f%%%n", stats.getGames() > 0 ? stats.getTies() * 100.0 / stats.getGames() : 0);
+    }
+
+    /**
+     * Играет партии в отдельном пуле fork-join. Начальное значение партии зависит только от общего начального
+     * значения и номера партии, поэтому результат не зависит от количества потоков.
+     *
+     * @param simulator движок партии
+     * @param games     количество партий
+     * @param seed      общее начальное значение
+     * @param threads   количество потоков
+     * @return статистика партий
+     * @throws Exception если симуляция завершилась с ошибкой
+     */
+    public static SimulationStats run(GameSimulator simulator, long games, long seed, int threads) throws Exception {
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            return pool.submit(() -> LongStream.range(0, games).parallel().collect(
+                    () -> new SimulationStats(simulator.getPlayerCount()),
+                    (stats, game) -> simulator.play(seed + game * SEED_STEP, stats),
+                    SimulationStats::merge)).get();
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package simulation;
+
+/**
+ * Потоковая статистика партий. Каждый поток накапливает свой экземпляр, затем экземпляры объединяются
+ * методом {@link #merge}, поэтому результаты партий нигде не хранятся.
+ */
+public class SimulationStats {
+    // Партии длиннее этого количества ходов попадают в последнюю ячейку гистограммы
+    private static final int MAX_TRACKED_TURNS = 4096;
+
+    private final long[] wins;
+    private final long[] scoreSums;
+    private final long[] turnHistogram = new long[MAX_TRACKED_TURNS + 1];
+    private long games;
+    private long ties;
+    private long turnSum;
+    private int minTurns = Integer.MAX_VALUE;
+    private int maxTurns;
+
+    /**
+     * Конструктор статистики.
+     *
+     * @param players количество игроков в партии
+     */
+    public SimulationStats(int players) {
+        this.wins = new long[players];
+        this.scoreSums = new long[players];
+    }
+
+    /**
+     * Добавляет результат партии.
+     *
+     * @param turns  количество ходов
+     * @param scores очки игроков
+     */
+    public void accept(int turns, int[] scores) {
+        games++;
+        turnSum += turns;
+        minTurns = Math.min(minTurns, turns);
+        maxTurns = Math.max(maxTurns, turns);
+        turnHistogram[Math.min(turns, MAX_TRACKED_TURNS)]++;
+
+        int best = -1;
+        int winner = -1;
+        boolean tie = false;
+        for (int i = 0; i < scores.length; i++) {
+            scoreSums[i] += scores[i];
+            if (scores[i] > best) {
+                best = scores[i];
+                winner = i;
+                tie = false;
+            } else if (scores[i] == best) {
+                tie = true;
+            }
+        }
+        if (tie) {
+            ties++;
+        } else {
+            wins[winner]++;
+        }
+    }
+
+    /**
+     * Добавляет к статистике статистику другого потока.
+     *
+     * @param other статистика другого потока
+     */
+    public void merge(SimulationStats other) {
+        games += other.games;
+        ties += other.ties;
+        turnSum += other.turnSum;
+        minTurns = Math.min(minTurns, other.minTurns);
+        maxTurns = Math.max(maxTurns, other.maxTurns);
+        for (int i = 0; i < wins.length; i++) {
+            wins[i] += other.wins[i];
+            scoreSums[i] += other.scoreSums[i];
+        }
+        for (int i = 0; i < turnHistogram.length; i++) {
+            turnHistogram[i] += other.turnHistogram[i];
+        }
+    }
+
+    public long getGames() {
+        return games;
+    }
+
+    public long getTies() {
+        return ties;
+    }
+
+    public int getMinTurns() {
+        return games > 0 ? minTurns : 0;
+    }
+
+    public int getMaxTurns() {
+        return maxTurns;
+    }
+
+    public double getMeanTurns() {
+        return games > 0 ? (double) turnSum / games : 0;
+    }
+
+    /**
+     * Возвращает процентиль длины партии в ходах.
+     *
+     * @param percentile процентиль (например, 99.0)
+     * @return количество ходов
+     */
+    public int getTurnsPercentile(double percentile) {
+        long target = (long) Math.ceil(games * percentile / 100.0);
+        long seen = 0;
+        for (int turns = 0; turns < turnHistogram.length; turns++) {
+            seen += turnHistogram[turns];
+            if (seen >= Math.max(1, target)) {
+                return turns;
+            }
+        }
+        return maxTurns;
+    }
+
+    /**
+     * Возвращает долю побед игрока (без ничьих).
+     *
+     * @param seat номер игрока в порядке ходов
+     * @return доля побед от 0 до 1
+     */
+    public double getWinRate(int seat) {
+        return games > 0 ? (double) wins[seat] / games : 0;
+    }
+
+    /**
+     * Возвращает средние очки игрока за партию.
+     *
+     * @param seat номер игрока в порядке ходов
+     * @return средние очки
+     */
+    public double getMeanScore(int seat) {
+        return games > 0 ? (double) scoreSums[seat] / games : 0;
+    }
+}
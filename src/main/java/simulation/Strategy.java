@@ -0,0 +1,45 @@
+package simulation;
+
+import java.util.SplittableRandom;
+
+/**
+ * Стратегия игры: создает игроков для партий симуляции.
+ */
+public interface Strategy {
+
+    /**
+     * Возвращает название стратегии для отчетов.
+     *
+     * @return название
+     */
+    String getName();
+
+    /**
+     * Создает игрока для новой партии.
+     *
+     * @param cardCount количество карточек на поле
+     * @param random    генератор случайных чисел партии
+     * @return игрок
+     */
+    Player createPlayer(int cardCount, SplittableRandom random);
+
+    /**
+     * Возвращает стратегию по описанию: random, perfect или decay:N, где N - число ходов,
+     * за которое вероятность вспомнить карточку падает в e раз.
+     *
+     * @param spec описание стратегии
+     * @return стратегия
+     */
+    static Strategy parse(String spec) {
+        if (spec.equals("random")) {
+            return new RandomStrategy();
+        }
+        if (spec.equals("perfect")) {
+            return new MemoryStrategy(0);
+        }
+        if (spec.startsWith("decay:")) {
+            return new MemoryStrategy(Double.parseDouble(spec.substring(6)));
+        }
+        throw new IllegalArgumentException("Неизвестная стратегия: " + spec);
+    }
+}
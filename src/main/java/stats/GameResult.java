@@ -0,0 +1,12 @@
+package stats;
+
+/**
+ * Результат игрока в одной завершенной партии.
+ *
+ * @param name  имя игрока
+ * @param won   игрок среди победителей
+ * @param pairs найдено пар
+ * @param turns сделано ходов (каждый ход - открытие двух карточек)
+ */
+public record GameResult(String name, boolean won, int pairs, int turns) {
+}
@@ -0,0 +1,55 @@
+package stats;
+
+/**
+ * Накопленная статистика игрока по всем завершенным партиям.
+ * Изменяется только хранилищем статистики ({@link StatsStore}).
+ */
+public final class PlayerStats {
+    private final String name;
+    private int games;
+    private int wins;
+    private long pairs;
+    private long turns;
+
+    PlayerStats(String name) {
+        this.name = name;
+    }
+
+    void add(GameResult result) {
+        games++;
+        if (result.won()) {
+            wins++;
+        }
+        pairs += result.pairs();
+        turns += result.turns();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getGames() {
+        return games;
+    }
+
+    public int getWins() {
+        return wins;
+    }
+
+    public long getPairs() {
+        return pairs;
+    }
+
+    public long getTurns() {
+        return turns;
+    }
+
+    /**
+     * Возвращает среднее число ходов на найденную пару: чем меньше, тем лучше память игрока.
+     *
+     * @return ходов на пару или 0, если пар еще нет
+     */
+    public double getTurnsPerPair() {
+        return pairs == 0 ? 0 : (double) turns / pairs;
+    }
+}
@@ -0,0 +1,254 @@
+package stats;
+
+import util.JsonUtil;
+import util.Log;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Хранилище статистики игроков: сыгранные партии, победы, найденные пары и ходы.
+ * Статистика и таблица лидеров живут в памяти и обновляются потоком цикла событий при завершении партии.
+ * Результаты партий копятся в очереди и фоновый поток дописывает их пачками в файл,
+ * поэтому цикл событий не ждет диска. При запуске статистика восстанавливается чтением файла.
+ * <p>
+ * Таблица лидеров - упорядоченное дерево: обновление игрока стоит O(log n), а первые K мест
+ * читаются обходом дерева за O(K) без просмотра истории.
+ * Формат строки файла: {@code время|имя|победа (0/1)|пары|ходы}.
+ */
+public class StatsStore {
+    private static final String SEPARATOR = "|";
+
+    // Порядок таблицы лидеров: больше побед, затем больше пар, затем меньше партий, затем имя
+    private static final Comparator<PlayerStats> RANKING = Comparator
+            .comparingInt(PlayerStats::getWins).reversed()
+            .thenComparing(Comparator.comparingLong(PlayerStats::getPairs).reversed())
+            .thenComparingInt(PlayerStats::getGames)
+            .thenComparing(PlayerStats::getName);
+
+    private final Map<String, PlayerStats> players = new HashMap<>();
+    private final TreeSet<PlayerStats> ranking = new TreeSet<>(RANKING);
+
+    // Последний ответ на запрос таблицы лидеров: повторные запросы до следующей партии не кодируются заново
+    private int cachedLimit = -1;
+    private String cachedLeaderboard;
+
+    // Строки, ожидающие записи в файл (пишет цикл событий, читает фоновый поток)
+    private final ConcurrentLinkedQueue<String> pending = new ConcurrentLinkedQueue<>();
+    private final Path file;
+    private ScheduledExecutorService writer;
+
+    private StatsStore(Path file) {
+        this.file = file;
+    }
+
+    /**
+     * Возвращает хранилище без файла: статистика сбрасывается при перезапуске сервера.
+     *
+     * @return хранилище в памяти
+     */
+    public static StatsStore inMemory() {
+        return new StatsStore(null);
+    }
+
+    /**
+     * Открывает хранилище: читает накопленную статистику из файла и запускает фоновую запись.
+     *
+     * @param file        файл статистики (создается, если его нет)
+     * @param flushMillis период записи накопленных результатов в миллисекундах
+     * @return хранилище
+     * @throws IOException если файл не удается прочитать
+     */
+    public static StatsStore open(Path file, long flushMillis) throws IOException {
+        StatsStore store = new StatsStore(file);
+        store.load();
+
+        store.writer = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "stats-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long period = Math.max(1, flushMillis);
+        store.writer.scheduleWithFixedDelay(store::flush, period, period, TimeUnit.MILLISECONDS);
+        // Результаты, еще не записанные в файл, дописываются при завершении процесса
+        Runtime.getRuntime().addShutdownHook(new Thread(store::close, "stats-shutdown"));
+        return store;
+    }
+
+    private void load() throws IOException {
+        if (!Files.exists(file)) {
+            return;
+        }
+        int skipped = 0;
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                GameResult result = parse(line);
+                if (result != null) {
+                    apply(result);
+                } else if (!line.isEmpty()) {
+                    skipped++;
+                }
+            }
+        }
+        if (skipped > 0) {
+            Log.warn("Пропущено поврежденных строк статистики: " + skipped);
+        }
+    }
+
+    private static GameResult parse(String line) {
+        String[] parts = line.split("\\|");
+        if (parts.length != 5) {
+            return null;
+        }
+        try {
+            return new GameResult(parts[1], "1".equals(parts[2]), Integer.parseInt(parts[3]),
+                    Integer.parseInt(parts[4]));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Учитывает результаты завершенной партии.
+     * Должен вызываться из потока цикла событий.
+     *
+     * @param results результаты игроков
+     */
+    public void recordGame(List<GameResult> results) {
+        long now = System.currentTimeMillis();
+        for (GameResult result : results) {
+            apply(result);
+            if (file != null) {
+                pending.add(now + SEPARATOR + result.name() + SEPARATOR + (result.won() ? 1 : 0) + SEPARATOR
+                        + result.pairs() + SEPARATOR + result.turns() + "\n");
+            }
+        }
+        cachedLeaderboard = null;
+    }
+
+    private void apply(GameResult result) {
+        PlayerStats stats = players.computeIfAbsent(result.name(), PlayerStats::new);
+        // Игрок переставляется в дереве: ключ сортировки меняется только вне дерева
+        ranking.remove(stats);
+        stats.add(result);
+        ranking.add(stats);
+    }
+
+    /**
+     * Возвращает статистику игрока.
+     *
+     * @param name имя игрока
+     * @return статистика или null, если игрок не завершил ни одной партии
+     */
+    public PlayerStats getStats(String name) {
+        return players.get(name);
+    }
+
+    /**
+     * Возвращает первые места таблицы лидеров.
+     *
+     * @param limit количество мест
+     * @return игроки в порядке мест
+     */
+    public List<PlayerStats> getTop(int limit) {
+        List<PlayerStats> top = new ArrayList<>(Math.min(limit, ranking.size()));
+        for (PlayerStats stats : ranking) {
+            if (top.size() >= limit) {
+                break;
+            }
+            top.add(stats);
+        }
+        return top;
+    }
+
+    /**
+     * Возвращает таблицу лидеров в формате JSON: {"leaderboard":[{"name":..,"games":..,"wins":..,
+     * "pairs":..,"turnsPerPair":..},...]}.
+     *
+     * @param limit количество мест
+     * @return JSON таблицы лидеров
+     */
+    public String getLeaderboardJson(int limit) {
+        if (cachedLeaderboard != null && cachedLimit == limit) {
+            return cachedLeaderboard;
+        }
+
+        List<Object> rows = new ArrayList<>();
+        for (PlayerStats stats : getTop(limit)) {
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("name", stats.getName());
+            row.put("games", stats.getGames());
+            row.put("wins", stats.getWins());
+            row.put("pairs", stats.getPairs());
+            row.put("turnsPerPair", Math.round(stats.getTurnsPerPair() * 100) / 100.0);
+            rows.add(row);
+        }
+        Map<String, Object> leaderboard = new LinkedHashMap<>();
+        leaderboard.put("leaderboard", rows);
+
+        cachedLimit = limit;
+        cachedLeaderboard = JsonUtil.mapToJson(leaderboard);
+        return cachedLeaderboard;
+    }
+
+    /**
+     * Возвращает количество игроков со статистикой.
+     *
+     * @return количество игроков
+     */
+    public int getPlayerCount() {
+        return players.size();
+    }
+
+    /**
+     * Дописывает накопленные результаты в файл одной записью.
+     */
+    private synchronized void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        StringBuilder batch = new StringBuilder();
+        String line;
+        while ((line = pending.poll()) != null) {
+            batch.append(line);
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND)) {
+            ByteBuffer data = ByteBuffer.wrap(batch.toString().getBytes(StandardCharsets.UTF_8));
+            while (data.hasRemaining()) {
+                channel.write(data);
+            }
+        } catch (IOException e) {
+            Log.error("Не удалось записать статистику игроков в " + file + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Останавливает фоновую запись и дописывает оставшиеся результаты.
+     */
+    public void close() {
+        if (writer == null) {
+            return;
+        }
+        writer.shutdown();
+        flush();
+    }
+}
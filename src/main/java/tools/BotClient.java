@@ -0,0 +1,517 @@
+package tools;
+
+import client.GameStateParser;
+import model.Protocol;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Бот-игрок без графического интерфейса.
+ * Подключается к серверу по обычному протоколу, входит в комнату и делает допустимые ходы,
+ * запоминая все открывавшиеся карточки. Все боты обслуживаются одним потоком {@link LoadGenerator}:
+ * бот только разбирает входящие сообщения и ставит свои действия в очередь генератора.
+ */
+class BotClient {
+    private static final int CARD_COUNT = 36;
+    private static final int INITIAL_BUFFER_SIZE = 16 * 1024;
+    // Сервер закрывает открытые карточки через 2 секунды после второй карточки хода и рассылает состояние;
+    // до этого открыть следующую карточку нельзя, даже если пара найдена и ход остался у бота
+    private static final long TURN_REVEAL_MILLIS = 2000;
+    // Время, после которого неподтвержденное открытие карточки считается потерянным
+    // (например, отброшенным ограничителем частоты сообщений)
+    private static final long PENDING_TIMEOUT_MILLIS = 5000;
+
+    private final LoadGenerator generator;
+    private final String name;
+    // Комната, null - бот встает в очередь подбора соперников
+    private final String roomId;
+    // Первый бот комнаты начинает игру, когда собрались все игроки
+    private boolean host;
+    private final Random random;
+
+    private SocketChannel channel;
+    private SelectionKey key;
+    private ByteBuffer inbound = ByteBuffer.allocate(INITIAL_BUFFER_SIZE);
+    private final ArrayDeque<ByteBuffer> outbound = new ArrayDeque<>();
+    private boolean connected;
+    private boolean closed;
+
+    // Последнее полученное состояние игры
+    private boolean gameStarted;
+    private String currentPlayer;
+    private int playerCount;
+    private final String[] cardStates = new String[CARD_COUNT];
+
+    // Значения карточек, которые бот видел открытыми (-1 - значение неизвестно)
+    private final int[] knownValues = new int[CARD_COUNT];
+
+    // Карточка, открытие которой отправлено, но еще не отражено в состоянии, и момент отправки
+    private int pendingCard = -1;
+    private long pendingSentAt;
+    // Первая карточка, открытая ботом в текущем ходе
+    private int firstCard = -1;
+    // Момент получения последнего состояния и момент, после которого сервер закроет карточки хода (System.nanoTime)
+    private long lastStateAt;
+    private long turnRevealEnd;
+    private boolean awaitingReveal;
+    // Запланировано ли действие (ход или начало игры)
+    private boolean actionScheduled;
+    private boolean startRequested;
+    private boolean serverBotsRequested;
+    // При подборе соперников первым ботом комнаты становится первый в списке игроков
+    private boolean hostResolved;
+    private int chatCounter;
+
+    /**
+     * Конструктор бота.
+     *
+     * @param generator генератор нагрузки (очередь действий и статистика)
+     * @param name      имя игрока
+     * @param roomId    комната или null - встать в очередь подбора соперников
+     * @param host      true, если бот начинает игру в комнате
+     * @param seed      начальное значение генератора случайных чисел
+     */
+    BotClient(LoadGenerator generator, String name, String roomId, boolean host, long seed) {
+        this.generator = generator;
+        this.name = name;
+        this.roomId = roomId;
+        this.host = host;
+        this.random = new Random(seed);
+        Arrays.fill(knownValues, -1);
+        Arrays.fill(cardStates, "hidden");
+    }
+
+    void attach(SocketChannel channel, SelectionKey key) {
+        this.channel = channel;
+        this.key = key;
+    }
+
+    boolean isConnected() {
+        return connected;
+    }
+
+    /**
+     * Завершает подключение и входит в комнату.
+     *
+     * @throws IOException если подключиться не удалось
+     */
+    void finishConnect() throws IOException {
+        channel.finishConnect();
+        connected = true;
+        key.interestOps(SelectionKey.OP_READ);
+        send(roomId != null
+                ? Protocol.encode(Protocol.TYPE_CONNECT, name, roomId)
+                : Protocol.encode(Protocol.TYPE_MATCHMAKE, name));
+        generator.onConnected(this);
+    }
+
+    /**
+     * Читает данные из канала и обрабатывает полученные сообщения.
+     *
+     * @param now текущее время (System.nanoTime)
+     * @throws IOException если соединение закрыто или произошла ошибка чтения
+     */
+    void read(long now) throws IOException {
+        int read = channel.read(inbound);
+        if (read < 0) {
+            throw new IOException("Сервер закрыл соединение");
+        }
+        generator.stats().bytesIn += read;
+
+        inbound.flip();
+        int lineStart = 0;
+        for (int i = inbound.position(); i < inbound.limit(); i++) {
+            if (inbound.get(i) == '\n') {
+                String line = new String(inbound.array(), lineStart, i - lineStart, StandardCharsets.UTF_8);
+                lineStart = i + 1;
+                onMessage(line.trim(), now);
+            }
+        }
+        inbound.position(lineStart);
+        inbound.compact();
+
+        // Сообщение не помещается в буфер - увеличиваем его
+        if (!inbound.hasRemaining()) {
+            ByteBuffer larger = ByteBuffer.allocate(inbound.capacity() * 2);
+            inbound.flip();
+            larger.put(inbound);
+            inbound = larger;
+        }
+    }
+
+    /**
+     * Дописывает в канал неотправленные данные.
+     *
+     * @throws IOException если произошла ошибка записи
+     */
+    void flush() throws IOException {
+        while (!outbound.isEmpty()) {
+            ByteBuffer data = outbound.peek();
+            channel.write(data);
+            if (data.hasRemaining()) {
+                break;
+            }
+            outbound.poll();
+        }
+        if (key.isValid()) {
+            key.interestOps(outbound.isEmpty() ? SelectionKey.OP_READ : SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+        }
+    }
+
+    /**
+     * Закрывает соединение бота.
+     */
+    void close() {
+        closed = true;
+        try {
+            channel.close();
+        } catch (IOException ignored) {}
+    }
+
+    /**
+     * Отправляет сообщение серверу.
+     *
+     * @param message сообщение по протоколу
+     */
+    private void send(String message) {
+        if (closed) {
+            return;
+        }
+        outbound.add(ByteBuffer.wrap((message + "\n").getBytes(StandardCharsets.UTF_8)));
+        try {
+            flush();
+        } catch (IOException e) {
+            generator.onFailure(this, e);
+        }
+    }
+
+    /**
+     * Обрабатывает сообщение сервера.
+     *
+     * @param message сообщение по протоколу
+     * @param now     момент получения (System.nanoTime)
+     */
+    private void onMessage(String message, long now) {
+        String[] parts = Protocol.decode(message);
+        int type;
+        try {
+            type = Integer.parseInt(parts[0]);
+        } catch (NumberFormatException e) {
+            return;
+        }
+
+        switch (type) {
+            case Protocol.TYPE_GAME_STATE -> {
+                if (parts.length > 1) {
+                    onGameState(parts[1], now);
+                }
+            }
+            case Protocol.TYPE_PING -> send(Protocol.encode(Protocol.TYPE_PONG, parts.length > 1 ? parts[1] : ""));
+            case Protocol.TYPE_GAME_OVER -> {
+                if (host) {
+                    generator.stats().gamesFinished++;
+                }
+                // Сервер уже сбросил игру; новая партия начинается с новым расположением карточек
+                gameStarted = false;
+                Arrays.fill(knownValues, -1);
+                firstCard = -1;
+                if (host && !startRequested) {
+                    startRequested = true;
+                    schedule(this::startGame, 0);
+                }
+            }
+            case Protocol.TYPE_ERROR -> {
+                generator.onError(this, parts.length > 1 ? parts[1] : "");
+                pendingCard = -1;
+                scheduleMove();
+            }
+            case Protocol.TYPE_CHAT_MESSAGE -> generator.stats().chatReceived++;
+            default -> {
+            }
+        }
+    }
+
+    /**
+     * Обрабатывает состояние игры: запоминает открытые карточки, учитывает задержку своего хода
+     * и планирует следующее действие.
+     *
+     * @param json состояние игры в формате JSON
+     * @param now  момент получения (System.nanoTime)
+     */
+    private void onGameState(String json, long now) {
+        generator.stats().statesReceived++;
+        lastStateAt = now;
+
+        GameStateParser.BoardState board = GameStateParser.parseBoard(json);
+        Arrays.fill(cardStates, "hidden");
+        for (Map.Entry<Integer, String> card : board.states().entrySet()) {
+            if (card.getKey() >= 0 && card.getKey() < CARD_COUNT) {
+                cardStates[card.getKey()] = card.getValue();
+            }
+        }
+        for (Map.Entry<Integer, Integer> image : board.images().entrySet()) {
+            if (image.getKey() >= 0 && image.getKey() < CARD_COUNT) {
+                knownValues[image.getKey()] = image.getValue();
+            }
+        }
+
+        // Задержка хода: от отправки открытия карточки до состояния, в котором она открыта
+        if (pendingCard >= 0 && !"hidden".equals(cardStates[pendingCard])) {
+            generator.recordCardOpen(now - pendingSentAt);
+            pendingCard = -1;
+        }
+
+        boolean wasStarted = gameStarted;
+        gameStarted = GameStateParser.isGameStarted(json);
+        currentPlayer = GameStateParser.parseCurrentPlayer(json);
+        List<String> players = GameStateParser.parsePlayers(json);
+        playerCount = players.size();
+        if (roomId == null && !hostResolved && !players.isEmpty()) {
+            hostResolved = true;
+            host = players.getFirst().equals(name);
+        }
+
+        // Первое состояние означает, что бот вошел в комнату: теперь можно добавить ботов сервера
+        if (host && !serverBotsRequested) {
+            serverBotsRequested = true;
+            for (int i = 0; i < generator.serverBots(); i++) {
+                send(Protocol.encode(Protocol.TYPE_ADD_BOT));
+            }
+        }
+
+        if (!gameStarted) {
+            if (wasStarted) {
+                Arrays.fill(knownValues, -1);
+            }
+            firstCard = -1;
+            if (host && !startRequested && playerCount >= requiredPlayers()) {
+                startRequested = true;
+                schedule(this::startGame, 0);
+            }
+            return;
+        }
+
+        startRequested = false;
+        scheduleMove();
+    }
+
+    /**
+     * Начинает игру, если все игроки по-прежнему в комнате.
+     */
+    private void startGame() {
+        actionScheduled = false;
+        if (!gameStarted && playerCount >= requiredPlayers()) {
+            send(Protocol.encode(Protocol.TYPE_START_GAME));
+        } else {
+            startRequested = false;
+        }
+    }
+
+    /**
+     * Возвращает количество игроков, при котором бот начинает игру. Комнату подбора соперников сервер
+     * может собрать не полной, поэтому в ней достаточно двух игроков.
+     */
+    private int requiredPlayers() {
+        return roomId != null ? generator.playersPerRoom() + generator.serverBots() : 2;
+    }
+
+    /**
+     * Планирует ход, если сейчас ход бота и поле позволяет открыть карточку.
+     */
+    private void scheduleMove() {
+        if (canMove()) {
+            schedule(this::move, 0);
+        }
+    }
+
+    /**
+     * Проверяет, может ли бот сейчас открыть карточку.
+     *
+     * @return true, если ход бота и на поле нет чужих открытых карточек
+     */
+    private boolean canMove() {
+        if (!gameStarted || !name.equals(currentPlayer) || pendingCard >= 0) {
+            return false;
+        }
+        // Карточки предыдущего хода закрыты, только если состояние получено после срока их закрытия
+        if (awaitingReveal) {
+            if (lastStateAt - turnRevealEnd < 0) {
+                return false;
+            }
+            awaitingReveal = false;
+        }
+
+        int opened = 0;
+        int openedCard = -1;
+        for (int i = 0; i < CARD_COUNT; i++) {
+            if ("opened".equals(cardStates[i])) {
+                opened++;
+                openedCard = i;
+            }
+        }
+        if (opened == 0) {
+            firstCard = -1;
+            return true;
+        }
+        // Вторую карточку можно открыть, только если первую открыл сам бот
+        return opened == 1 && openedCard == firstCard;
+    }
+
+    /**
+     * Открывает следующую карточку.
+     */
+    private void move() {
+        actionScheduled = false;
+        if (!canMove()) {
+            return;
+        }
+
+        int card = firstCard < 0 ? pickFirst() : pickSecond(firstCard);
+        if (card < 0) {
+            return;
+        }
+        long sentAt = System.nanoTime();
+        if (firstCard < 0) {
+            firstCard = card;
+        } else {
+            // Если пара найдена, ход останется у бота, но следующую карточку можно открыть только после закрытия пары
+            turnRevealEnd = sentAt + TURN_REVEAL_MILLIS * 1_000_000;
+            awaitingReveal = true;
+        }
+
+        pendingCard = card;
+        pendingSentAt = sentAt;
+        generator.stats().cardOpensSent++;
+        send(Protocol.encode(Protocol.TYPE_CARD_OPEN, String.valueOf(card)));
+        generator.schedule(PENDING_TIMEOUT_MILLIS, () -> expirePending(sentAt));
+    }
+
+    /**
+     * Считает открытие карточки потерянным, если сервер так и не подтвердил его.
+     *
+     * @param sentAt момент отправки открытия (System.nanoTime)
+     */
+    private void expirePending(long sentAt) {
+        if (pendingCard >= 0 && pendingSentAt == sentAt) {
+            generator.stats().cardOpensLost++;
+            pendingCard = -1;
+            firstCard = -1;
+            scheduleMove();
+        }
+    }
+
+    /**
+     * Выбирает первую карточку хода: одну из известных пар или неизвестную карточку.
+     *
+     * @return позиция карточки или -1, если закрытых карточек нет
+     */
+    private int pickFirst() {
+        for (int i = 0; i < CARD_COUNT; i++) {
+            if (isHidden(i) && knownValues[i] >= 0 && findPair(i) >= 0) {
+                return i;
+            }
+        }
+        int unknown = randomHidden(-1, true);
+        return unknown >= 0 ? unknown : randomHidden(-1, false);
+    }
+
+    /**
+     * Выбирает вторую карточку хода: пару к первой, если она известна, иначе неизвестную карточку.
+     *
+     * @param first позиция первой карточки
+     * @return позиция карточки или -1, если закрытых карточек нет
+     */
+    private int pickSecond(int first) {
+        int pair = findPair(first);
+        if (pair >= 0) {
+            return pair;
+        }
+        int unknown = randomHidden(first, true);
+        return unknown >= 0 ? unknown : randomHidden(first, false);
+    }
+
+    /**
+     * Ищет закрытую карточку с тем же значением.
+     *
+     * @param position позиция карточки с известным значением
+     * @return позиция пары или -1, если пара неизвестна
+     */
+    private int findPair(int position) {
+        int value = knownValues[position];
+        if (value < 0) {
+            return -1;
+        }
+        for (int i = 0; i < CARD_COUNT; i++) {
+            if (i != position && isHidden(i) && knownValues[i] == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Выбирает случайную закрытую карточку.
+     *
+     * @param exclude     позиция, которую нельзя выбирать, или -1
+     * @param unknownOnly выбирать только карточки с неизвестным значением
+     * @return позиция карточки или -1, если подходящих карточек нет
+     */
+    private int randomHidden(int exclude, boolean unknownOnly) {
+        int count = 0;
+        int chosen = -1;
+        for (int i = 0; i < CARD_COUNT; i++) {
+            if (i != exclude && isHidden(i) && (!unknownOnly || knownValues[i] < 0)) {
+                // Равновероятный выбор за один проход
+                count++;
+                if (random.nextInt(count) == 0) {
+                    chosen = i;
+                }
+            }
+        }
+        return chosen;
+    }
+
+    private boolean isHidden(int position) {
+        return "hidden".equals(cardStates[position]);
+    }
+
+    /**
+     * Ставит действие в очередь генератора с задержкой на обдумывание.
+     *
+     * @param action         действие
+     * @param minDelayMillis  минимальная задержка в миллисекундах
+     */
+    private void schedule(Runnable action, long minDelayMillis) {
+        if (actionScheduled || closed) {
+            return;
+        }
+        actionScheduled = true;
+        generator.schedule(Math.max(minDelayMillis, generator.thinkTimeMillis(random)), action);
+    }
+
+    /**
+     * Отправляет сообщение в чат и планирует следующее.
+     */
+    void chat() {
+        if (closed) {
+            return;
+        }
+        chatCounter++;
+        generator.stats().chatSent++;
+        send(Protocol.encode(Protocol.TYPE_CHAT_MESSAGE, "Сообщение " + chatCounter + " от " + name));
+        generator.scheduleChat(this, random);
+    }
+
+    String getName() {
+        return name;
+    }
+}
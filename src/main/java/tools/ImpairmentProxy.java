@@ -0,0 +1,397 @@
+package tools;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * TCP-прокси, ухудшающий связь между клиентом и сервером на одной машине.
+ * Добавляет задержку со случайным разбросом, ограничивает пропускную способность, разбивает данные
+ * на фрагменты произвольного размера (проверка разбора сообщений, пришедших по частям) и может
+ * сбрасывать соединения. Порядок байт внутри соединения сохраняется, как в настоящем TCP.
+ * Параметры можно менять во время работы, поэтому прокси удобно использовать из тестов и сценариев:
+ * <pre>
+ * ImpairmentProxy proxy = new ImpairmentProxy(0, "localhost", 8080);
+ * proxy.start();
+ * proxy.setDelayMillis(100);
+ * proxy.setMaxFragmentBytes(3);
+ * // клиент подключается к proxy.getPort()
+ * proxy.resetAll();
+ * proxy.close();
+ * </pre>
+ * Каждое соединение обслуживается двумя парами потоков (чтение и запись в каждом направлении),
+ * поэтому прокси рассчитан на десятки, а не тысячи подключений.
+ * <p>
+ * Использование из командной строки: java -cp memo.jar tools.ImpairmentProxy --listen 9000 --target localhost:8080
+ * [--delay 50] [--jitter 20] [--bandwidth 0] [--fragment 0] [--reset 0]
+ */
+public class ImpairmentProxy implements AutoCloseable {
+    // Размер буфера чтения
+    private static final int BUFFER_SIZE = 8 * 1024;
+
+    /**
+     * Фрагмент данных, ожидающий отправки.
+     *
+     * @param data      данные (null - конец потока)
+     * @param deliverAt момент отправки (System.nanoTime)
+     */
+    private record Chunk(byte[] data, long deliverAt) {
+    }
+
+    private final int listenPort;
+    private final String targetHost;
+    private final int targetPort;
+
+    private volatile long delayMillis;
+    private volatile long jitterMillis;
+    private volatile long bandwidthBytesPerSecond;
+    private volatile int maxFragmentBytes;
+    private volatile double resetProbability;
+
+    private ServerSocket serverSocket;
+    private final List<Connection> connections = new CopyOnWriteArrayList<>();
+    private volatile boolean running;
+
+    /**
+     * Конструктор прокси.
+     *
+     * @param listenPort порт, на котором прокси принимает подключения (0 - любой свободный)
+     * @param targetHost адрес сервера
+     * @param targetPort порт сервера
+     */
+    public ImpairmentProxy(int listenPort, String targetHost, int targetPort) {
+        this.listenPort = listenPort;
+        this.targetHost = targetHost;
+        this.targetPort = targetPort;
+    }
+
+    public static void main(String[] args) throws IOException {
+        int listen = 9000;
+        String target = "localhost:8080";
+        ImpairmentProxy proxy;
+        long delay = 0;
+        long jitter = 0;
+        long bandwidth = 0;
+        int fragment = 0;
+        double reset = 0;
+
+        try {
+            for (int i = 0; i + 1 < args.length; i += 2) {
+                String value = args[i + 1];
+                switch (args[i]) {
+                    case "--listen" -> listen = Integer.parseInt(value);
+                    case "--target" -> target = value;
+                    case "--delay" -> delay = Long.parseLong(value);
+                    case "--jitter" -> jitter = Long.parseLong(value);
+                    case "--bandwidth" -> bandwidth = Long.parseLong(value);
+                    case "--fragment" -> fragment = Integer.parseInt(value);
+                    case "--reset" -> reset = Double.parseDouble(value);
+                    default -> throw new IllegalArgumentException("Неизвестный параметр " + args[i]);
+                }
+            }
+            int separator = target.lastIndexOf(':');
+            proxy = new ImpairmentProxy(listen, target.substring(0, separator),
+                    Integer.parseInt(target.substring(separator + 1)));
+        } catch (RuntimeException e) {
+            System.out.println("Ошибка в параметрах: " + e.getMessage());
+            System.out.println("Использование: tools.ImpairmentProxy --listen 9000 --target localhost:8080 "
+                    + "[--delay мс] [--jitter мс] [--bandwidth байт/с] [--fragment байт] [--reset вероятность]");
+            System.exit(1);
+            return;
+        }
+
+        proxy.setDelayMillis(delay);
+        proxy.setJitterMillis(jitter);
+        proxy.setBandwidthBytesPerSecond(bandwidth);
+        proxy.setMaxFragmentBytes(fragment);
+        proxy.setResetProbability(reset);
+        proxy.start();
+        System.out.printf("Прокси слушает порт %d и пересылает данные на %s:%d%n",
+                proxy.getPort(), proxy.targetHost, proxy.targetPort);
+    }
+
+    /**
+     * Начинает принимать подключения в отдельном потоке.
+     *
+     * @throws IOException если не удается открыть порт
+     */
+    public void start() throws IOException {
+        serverSocket = new ServerSocket();
+        serverSocket.setReuseAddress(true);
+        serverSocket.bind(new InetSocketAddress(listenPort));
+        running = true;
+
+        Thread acceptThread = new Thread(this::acceptLoop, "proxy-accept");
+        acceptThread.start();
+    }
+
+    /**
+     * Возвращает порт, на котором прокси принимает подключения.
+     *
+     * @return порт
+     */
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * Возвращает количество открытых соединений.
+     *
+     * @return количество соединений
+     */
+    public int getConnectionCount() {
+        return connections.size();
+    }
+
+    /**
+     * Задает задержку пересылки данных в каждом направлении.
+     *
+     * @param delayMillis задержка в миллисекундах
+     */
+    public void setDelayMillis(long delayMillis) {
+        this.delayMillis = Math.max(0, delayMillis);
+    }
+
+    /**
+     * Задает случайный разброс задержки (равномерно от 0 до указанного значения).
+     *
+     * @param jitterMillis максимальная добавка к задержке в миллисекундах
+     */
+    public void setJitterMillis(long jitterMillis) {
+        this.jitterMillis = Math.max(0, jitterMillis);
+    }
+
+    /**
+     * Ограничивает пропускную способность каждого направления каждого соединения.
+     *
+     * @param bytesPerSecond байт в секунду, 0 - без ограничения
+     */
+    public void setBandwidthBytesPerSecond(long bytesPerSecond) {
+        this.bandwidthBytesPerSecond = Math.max(0, bytesPerSecond);
+    }
+
+    /**
+     * Задает максимальный размер фрагмента: данные разбиваются на части случайного размера от 1 до указанного
+     * и отправляются отдельными записями.
+     *
+     * @param maxFragmentBytes максимальный размер фрагмента в байтах, 0 - не разбивать
+     */
+    public void setMaxFragmentBytes(int maxFragmentBytes) {
+        this.maxFragmentBytes = Math.max(0, maxFragmentBytes);
+    }
+
+    /**
+     * Задает вероятность сброса соединения при пересылке очередной порции данных.
+     *
+     * @param resetProbability вероятность от 0 до 1
+     */
+    public void setResetProbability(double resetProbability) {
+        this.resetProbability = Math.min(1, Math.max(0, resetProbability));
+    }
+
+    /**
+     * Сбрасывает все открытые соединения (обе стороны получают RST).
+     */
+    public void resetAll() {
+        for (Connection connection : connections) {
+            connection.reset();
+        }
+    }
+
+    /**
+     * Останавливает прокси и закрывает все соединения.
+     */
+    @Override
+    public void close() {
+        running = false;
+        try {
+            serverSocket.close();
+        } catch (IOException ignored) {}
+        resetAll();
+    }
+
+    private void acceptLoop() {
+        while (running) {
+            try {
+                Socket client = serverSocket.accept();
+                Socket server = new Socket();
+                try {
+                    server.connect(new InetSocketAddress(targetHost, targetPort));
+                } catch (IOException e) {
+                    client.close();
+                    continue;
+                }
+                Connection connection = new Connection(client, server);
+                connections.add(connection);
+                connection.start();
+            } catch (IOException e) {
+                if (running) {
+                    System.out.println("Ошибка прокси при приеме подключения: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Вычисляет момент отправки данных, прочитанных сейчас.
+     *
+     * @param now текущее время (System.nanoTime)
+     * @return момент отправки (System.nanoTime)
+     */
+    private long deliveryTime(long now) {
+        long jitter = jitterMillis;
+        long delay = delayMillis + (jitter > 0 ? ThreadLocalRandom.current().nextLong(jitter + 1) : 0);
+        return now + TimeUnit.MILLISECONDS.toNanos(delay);
+    }
+
+    /**
+     * Соединение клиента с сервером через прокси.
+     */
+    private final class Connection {
+        private final Socket client;
+        private final Socket server;
+        private volatile boolean closed;
+
+        Connection(Socket client, Socket server) throws SocketException {
+            this.client = client;
+            this.server = server;
+            // Каждый фрагмент уходит отдельным сегментом, а не склеивается алгоритмом Нейгла
+            client.setTcpNoDelay(true);
+            server.setTcpNoDelay(true);
+        }
+
+        void start() throws IOException {
+            pipe(client.getInputStream(), server.getOutputStream(), "client-server");
+            pipe(server.getInputStream(), client.getOutputStream(), "server-client");
+        }
+
+        /**
+         * Запускает пересылку данных в одном направлении: поток чтения ставит фрагменты в очередь
+         * со сроком отправки, поток записи отправляет их не раньше срока и с учетом пропускной способности.
+         *
+         * @param in        источник
+         * @param out       получатель
+         * @param direction название направления (для имен потоков)
+         */
+        private void pipe(InputStream in, OutputStream out, String direction) {
+            BlockingQueue<Chunk> queue = new LinkedBlockingQueue<>();
+
+            Thread reader = new Thread(() -> {
+                byte[] buffer = new byte[BUFFER_SIZE];
+                long lastDelivery = 0;
+                try {
+                    int read;
+                    while ((read = in.read(buffer)) != -1) {
+                        // Срок отправки не может быть раньше предыдущего - порядок байт сохраняется
+                        long deliverAt = Math.max(deliveryTime(System.nanoTime()), lastDelivery);
+                        lastDelivery = deliverAt;
+                        queue.add(new Chunk(Arrays.copyOf(buffer, read), deliverAt));
+                    }
+                } catch (IOException ignored) {
+                    // Соединение закрыто или сброшено
+                }
+                queue.add(new Chunk(null, lastDelivery));
+            }, "proxy-read-" + direction);
+
+            Thread writer = new Thread(() -> {
+                Random random = new Random();
+                try {
+                    while (true) {
+                        Chunk chunk = queue.take();
+                        sleepUntil(chunk.deliverAt());
+                        if (chunk.data() == null) {
+                            break;
+                        }
+                        if (random.nextDouble() < resetProbability) {
+                            reset();
+                            return;
+                        }
+                        writeFragmented(out, chunk.data(), random);
+                    }
+                } catch (IOException | InterruptedException ignored) {
+                    // Соединение закрыто или сброшено
+                }
+                close();
+            }, "proxy-write-" + direction);
+
+            reader.setDaemon(true);
+            writer.setDaemon(true);
+            reader.start();
+            writer.start();
+        }
+
+        /**
+         * Отправляет данные фрагментами с учетом ограничения пропускной способности.
+         *
+         * @param out    получатель
+         * @param data   данные
+         * @param random генератор случайных чисел направления
+         * @throws IOException          если произошла ошибка записи
+         * @throws InterruptedException если ожидание прервано
+         */
+        private void writeFragmented(OutputStream out, byte[] data, Random random)
+                throws IOException, InterruptedException {
+            int offset = 0;
+            while (offset < data.length) {
+                int maxFragment = maxFragmentBytes;
+                int length = maxFragment > 0
+                        ? Math.min(data.length - offset, 1 + random.nextInt(maxFragment))
+                        : data.length - offset;
+
+                out.write(data, offset, length);
+                out.flush();
+                offset += length;
+
+                long bandwidth = bandwidthBytesPerSecond;
+                if (bandwidth > 0) {
+                    // Пауза, за которую канал с заданной пропускной способностью передал бы фрагмент
+                    sleepUntil(System.nanoTime() + length * 1_000_000_000L / bandwidth);
+                }
+            }
+        }
+
+        /**
+         * Сбрасывает соединение: обе стороны получают RST вместо обычного закрытия.
+         */
+        void reset() {
+            try {
+                client.setSoLinger(true, 0);
+                server.setSoLinger(true, 0);
+            } catch (SocketException ignored) {}
+            close();
+        }
+
+        void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            connections.remove(this);
+            try {
+                client.close();
+            } catch (IOException ignored) {}
+            try {
+                server.close();
+            } catch (IOException ignored) {}
+        }
+    }
+
+    private static void sleepUntil(long deadline) throws InterruptedException {
+        long remaining = deadline - System.nanoTime();
+        if (remaining > 0) {
+            TimeUnit.NANOSECONDS.sleep(remaining);
+        }
+    }
+}
@@ -0,0 +1,261 @@
+package tools;
+
+import journal.JournalReader;
+import journal.JournalRecord;
+import model.GameModel;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Воспроизведение партий по журналу игр.
+ * Для каждой комнаты заново раскладывает карточки по начальному значению из журнала и применяет записанные
+ * ходы к модели игры, проверяя, что результаты (совпадения, переходы хода, победители и счет) совпадают
+ * с записанными. Выводит количество проверенных партий и скорость воспроизведения, а для выбранной партии -
+ * ее ходы.
+ * <p>
+ * Использование: java -cp memo.jar tools.JournalReplay --dir каталог_журнала [--room комната --game номер]
+ */
+public class JournalReplay {
+    // Количество выводимых расхождений
+    private static final int MAX_REPORTED_MISMATCHES = 10;
+
+    /**
+     * Состояние комнаты при воспроизведении.
+     */
+    private static final class ReplayRoom {
+        final String id;
+        // Места комнаты в порядке подключения (очередь ходов), включая ботов сервера
+        final List<String> turnOrder = new ArrayList<>();
+        GameModel model;
+        // Количество начатых партий
+        int games;
+        // Партия неполная или не совпала с журналом
+        boolean broken;
+        // Выводить ходы текущей партии
+        boolean printing;
+
+        ReplayRoom(String id) {
+            this.id = id;
+        }
+    }
+
+    private final String printRoom;
+    private final int printGame;
+    private final Map<Integer, ReplayRoom> rooms = new HashMap<>();
+
+    private long records;
+    private long gamesVerified;
+    private long gamesIncomplete;
+    private long mismatches;
+
+    JournalReplay(String printRoom, int printGame) {
+        this.printRoom = printRoom;
+        this.printGame = printGame;
+    }
+
+    public static void main(String[] args) throws Exception {
+        String dir = null;
+        String room = null;
+        int game = 0;
+        try {
+            for (int i = 0; i < args.length; i++) {
+                if (i + 1 >= args.length) {
+                    throw new IllegalArgumentException("Не указано значение параметра " + args[i]);
+                }
+                String value = args[++i];
+                switch (args[i - 1]) {
+                    case "--dir" -> dir = value;
+                    case "--room" -> room = value;
+                    case "--game" -> game = Integer.parseInt(value);
+                    default -> throw new IllegalArgumentException("Неизвестный параметр " + args[i - 1]);
+                }
+            }
+            if (dir == null) {
+                throw new IllegalArgumentException("Не указан каталог журнала");
+            }
+        } catch (IllegalArgumentException e) {
+            System.out.println(e.getMessage());
+            System.out.println("Использование: tools.JournalReplay --dir каталог_журнала [--room комната --game номер]");
+            System.exit(1);
+            return;
+        }
+
+        JournalReplay replay = new JournalReplay(room, game);
+        long start = System.nanoTime();
+        replay.run(new JournalReader(Path.of(dir)));
+        double seconds = (System.nanoTime() - start) / 1e9;
+        replay.printSummary(seconds);
+        if (replay.mismatches > 0) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Воспроизводит все записи журнала.
+     *
+     * @param reader журнал
+     * @throws Exception если журнал не удается прочитать
+     */
+    void run(JournalReader reader) throws Exception {
+        JournalRecord record = new JournalRecord();
+        while (reader.next(record)) {
+            records++;
+            apply(record);
+        }
+    }
+
+    private void apply(JournalRecord record) {
+        if (record.getType() == JournalRecord.GAP) {
+            // Потерянные записи могли относиться к любой комнате: текущие партии не проверяются
+            for (ReplayRoom room : rooms.values()) {
+                room.broken = true;
+            }
+            return;
+        }
+        if (record.getType() == JournalRecord.ROOM) {
+            rooms.put(record.getRoom(), new ReplayRoom(record.getText()));
+            return;
+        }
+
+        ReplayRoom room = rooms.get(record.getRoom());
+        if (room == null) {
+            return;
+        }
+        GameModel model = room.model;
+
+        switch (record.getType()) {
+            case JournalRecord.DEAL -> {
+                room.model = new GameModel(record.getNumber());
+                for (String name : room.turnOrder) {
+                    room.model.addPlayer(name);
+                }
+                room.broken = false;
+                room.printing = false;
+            }
+            case JournalRecord.JOIN -> {
+                room.turnOrder.add(record.getText());
+                if (model != null) {
+                    model.addPlayer(record.getText());
+                }
+            }
+            case JournalRecord.LEAVE -> {
+                room.turnOrder.remove(record.getText());
+                if (model != null) {
+                    model.removePlayer(record.getText());
+                }
+            }
+            case JournalRecord.START -> {
+                room.games++;
+                room.printing = room.id.equals(printRoom) && room.games == printGame;
+                if (model == null) {
+                    room.broken = true;
+                    return;
+                }
+                check(room, room.turnOrder.equals(record.getNames()), "порядок ходов " + record.getNames());
+                model.setGameStarted(true);
+                model.nextPlayer(room.turnOrder);
+                print(room, "Партия " + room.games + " в комнате " + room.id + ", порядок ходов: " + room.turnOrder
+                        + ", раскладка " + model.getDealSeed());
+            }
+            case JournalRecord.OPEN -> {
+                if (model == null) {
+                    return;
+                }
+                int position = (int) record.getNumber();
+                check(room, model.openCard(position), "открытие карточки " + position);
+                if (position >= 0 && position < model.getCardCount()) {
+                    print(room, model.getCurrentPlayer() + " открывает " + position
+                            + " (" + model.getCardValue(position) + ")");
+                }
+            }
+            case JournalRecord.MATCH -> {
+                if (model == null) {
+                    return;
+                }
+                boolean matched = model.checkMatch();
+                check(room, matched == (record.getNumber() != 0), "проверка совпадения");
+                print(room, matched ? "  пара, счет " + model.getPlayerScores() : "  промах");
+            }
+            case JournalRecord.TURN -> {
+                if (model == null) {
+                    return;
+                }
+                model.nextPlayer(room.turnOrder);
+                check(room, record.getText().equals(model.getCurrentPlayer()), "переход хода к " + record.getText());
+            }
+            case JournalRecord.CLEAR -> {
+                if (model != null) {
+                    model.clearOpenedCards();
+                }
+            }
+            case JournalRecord.GAME_OVER -> {
+                if (model == null) {
+                    return;
+                }
+                int maxScore = model.getPlayerScores().values().stream().max(Integer::compareTo).orElse(0);
+                check(room, model.isGameOver() && maxScore == record.getNumber(),
+                        "конец игры со счетом " + record.getNumber());
+                print(room, "Победители: " + record.getText() + " счет " + record.getNumber());
+                finishGame(room);
+            }
+            case JournalRecord.RESTORE -> {
+                // Комната восстановлена после перезапуска сервера: партия продолжается без записанного начала
+                room.turnOrder.clear();
+                room.turnOrder.addAll(record.getNames());
+                room.model = null;
+            }
+            case JournalRecord.RESET -> {
+                if (model != null && model.isGameStarted()) {
+                    print(room, "Партия сброшена");
+                    gamesIncomplete++;
+                }
+                room.model = null;
+            }
+            default -> {
+                // Записи неизвестных типов пропускаются
+            }
+        }
+    }
+
+    /**
+     * Учитывает проверку записи журнала: при расхождении партия помечается как не совпавшая.
+     */
+    private void check(ReplayRoom room, boolean ok, String what) {
+        if (ok || room.broken) {
+            return;
+        }
+        room.broken = true;
+        mismatches++;
+        if (mismatches <= MAX_REPORTED_MISMATCHES) {
+            System.out.println("Расхождение в комнате " + room.id + ", партия " + room.games + ": " + what);
+        }
+    }
+
+    private void finishGame(ReplayRoom room) {
+        if (room.broken) {
+            gamesIncomplete++;
+        } else {
+            gamesVerified++;
+        }
+        room.model = null;
+    }
+
+    private void print(ReplayRoom room, String line) {
+        if (room.printing) {
+            System.out.println(line);
+        }
+    }
+
+    private void printSummary(double seconds) {
+        System.out.printf(Locale.ROOT, "Записей: %d, комнат: %d, за %.3f с (%.0f записей/с)%n",
+                records, rooms.size(), seconds, records / Math.max(seconds, 1e-9));
+        System.out.printf(Locale.ROOT, "Партий воспроизведено и совпало с журналом: %d (%.0f партий/с), "
+                        + "неполных или сброшенных: %d, расхождений: %d%n",
+                gamesVerified, gamesVerified / Math.max(seconds, 1e-9), gamesIncomplete, mismatches);
+    }
+}
@@ -0,0 +1,495 @@
+package tools;
+
+import metrics.LatencyHistogram;
+import server.GameServer;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+/**
+ * Генератор нагрузки: множество ботов без графического интерфейса играют на настоящем сервере.
+ * Боты подключаются по localhost (или к внешнему серверу), занимают комнаты, делают допустимые ходы
+ * с заданным временем на обдумывание и пишут в чат. Все боты обслуживаются одним потоком с одним селектором,
+ * поэтому можно запускать тысячи подключений.
+ * Генератор выводит пропускную способность и процентили задержки хода: от отправки открытия карточки
+ * до получения состояния, в котором она открыта.
+ * <p>
+ * Использование: java -cp memo.jar tools.LoadGenerator [--embedded] [--host localhost] [--port 8080]
+ * [--rooms 10] [--players 4] [--server-bots 0] [--duration 60] [--warmup 10] [--think 300] [--chat 0]
+ * [--connect-rate 200] [--seed 1] [--matchmaking]
+ * <p>
+ * С параметром --server-bots часть мест в каждой комнате занимают боты сервера без подключений,
+ * что позволяет держать тысячи комнат при малом количестве сокетов.
+ * С параметром --matchmaking боты не выбирают комнату, а встают в очередь подбора соперников,
+ * и комнаты по --players игроков собирает сервер.
+ */
+public class LoadGenerator {
+    // Период вывода промежуточной статистики
+    private static final long REPORT_PERIOD_NANOS = 5_000_000_000L;
+
+    /**
+     * Счетчики генератора. Изменяются только потоком генератора.
+     */
+    static final class Stats {
+        long connected;
+        long failures;
+        long cardOpensSent;
+        long cardOpensConfirmed;
+        long cardOpensLost;
+        long statesReceived;
+        long bytesIn;
+        long gamesFinished;
+        long errors;
+        long chatSent;
+        long chatReceived;
+    }
+
+    /**
+     * Параметры запуска.
+     *
+     * @param host               адрес сервера
+     * @param port               порт сервера
+     * @param embedded           запустить сервер в этом же процессе
+     * @param rooms              количество комнат
+     * @param playersPerRoom     количество подключаемых ботов в комнате
+     * @param serverBots         количество ботов сервера в комнате (вместе с подключаемыми - от 2 до 4)
+     * @param durationSeconds    длительность измерения в секундах
+     * @param warmupSeconds      длительность прогрева в секундах (задержки не учитываются)
+     * @param thinkMillis        среднее время на обдумывание хода в миллисекундах
+     * @param chatIntervalMillis средний период сообщений чата каждого бота в миллисекундах, 0 - без чата
+     * @param connectRate        количество новых подключений в секунду
+     * @param seed               начальное значение генератора случайных чисел
+     * @param matchmaking        боты встают в очередь подбора соперников вместо входа в заданные комнаты
+     */
+    record Options(String host, int port, boolean embedded, int rooms, int playersPerRoom, int serverBots,
+                   long durationSeconds,
+                   long warmupSeconds, long thinkMillis, long chatIntervalMillis, int connectRate, long seed,
+                   boolean matchmaking) {
+
+        static Options parse(String[] args) {
+            String host = "localhost";
+            int port = 8080;
+            boolean embedded = false;
+            int rooms = 10;
+            int players = 4;
+            int serverBots = 0;
+            long duration = 60;
+            long warmup = 10;
+            long think = 300;
+            long chat = 0;
+            int connectRate = 200;
+            long seed = 1;
+            boolean matchmaking = false;
+
+            for (int i = 0; i < args.length; i++) {
+                String option = args[i];
+                if (option.equals("--embedded")) {
+                    embedded = true;
+                    continue;
+                }
+                if (option.equals("--matchmaking")) {
+                    matchmaking = true;
+                    continue;
+                }
+                if (i + 1 >= args.length) {
+                    throw new IllegalArgumentException("Не указано значение параметра " + option);
+                }
+                String value = args[++i];
+                switch (option) {
+                    case "--host" -> host = value;
+                    case "--port" -> port = Integer.parseInt(value);
+                    case "--rooms" -> rooms = Integer.parseInt(value);
+                    case "--players" -> players = Integer.parseInt(value);
+                    case "--server-bots" -> serverBots = Integer.parseInt(value);
+                    case "--duration" -> duration = Long.parseLong(value);
+                    case "--warmup" -> warmup = Long.parseLong(value);
+                    case "--think" -> think = Long.parseLong(value);
+                    case "--chat" -> chat = Long.parseLong(value);
+                    case "--connect-rate" -> connectRate = Integer.parseInt(value);
+                    case "--seed" -> seed = Long.parseLong(value);
+                    default -> throw new IllegalArgumentException("Неизвестный параметр " + option);
+                }
+            }
+
+            if (players < 1 || serverBots < 0 || players + serverBots < 2 || players + serverBots > 4) {
+                throw new IllegalArgumentException("В комнате может быть от 2 до 4 игроков, из них хотя бы один подключаемый");
+            }
+            if (matchmaking && (serverBots > 0 || players < 2)) {
+                throw new IllegalArgumentException("При подборе соперников в комнате от 2 до 4 подключаемых игроков без ботов сервера");
+            }
+            return new Options(host, port, embedded, Math.max(1, rooms), players, serverBots, duration, warmup, think, chat,
+                    Math.max(1, connectRate), seed, matchmaking);
+        }
+    }
+
+    /**
+     * Отложенное действие.
+     */
+    private record Action(long at, long sequence, Runnable command) {
+    }
+
+    private final Options options;
+    private final Stats stats = new Stats();
+    private final Selector selector;
+    private final List<BotClient> bots = new ArrayList<>();
+    private final PriorityQueue<Action> actions = new PriorityQueue<>((a, b) ->
+            a.at != b.at ? Long.compare(a.at, b.at) : Long.compare(a.sequence, b.sequence));
+    private long actionSequence;
+
+    private LatencyHistogram cardOpenLatency = new LatencyHistogram("card-open-to-state");
+
+    public LoadGenerator(Options options) throws IOException {
+        this.options = options;
+        this.selector = Selector.open();
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options;
+        try {
+            options = Options.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.out.println(e.getMessage());
+            System.out.println("Использование: tools.LoadGenerator [--embedded] [--host localhost] [--port 8080] "
+                    + "[--rooms 10] [--players 4] [--server-bots 0] [--duration 60] [--warmup 10] [--think 300] [--chat 0] "
+                    + "[--connect-rate 200] [--seed 1] [--matchmaking]");
+            System.exit(1);
+            return;
+        }
+
+        if (options.embedded()) {
+            startEmbeddedServer(options);
+        }
+        new LoadGenerator(options).run();
+    }
+
+    /**
+     * Запускает сервер в этом же процессе и ждет, пока он начнет принимать подключения.
+     *
+     * @param options параметры запуска
+     * @throws InterruptedException если ожидание прервано
+     */
+    private static void startEmbeddedServer(Options options) throws InterruptedException {
+        // Ограничение подключений сервера по умолчанию может быть меньше количества ботов
+        if (System.getProperty("memo.maxConnections") == null) {
+            int bots = options.rooms() * options.playersPerRoom();
+            System.setProperty("memo.maxConnections", String.valueOf(Math.max(1024, bots + 16)));
+        }
+        // Боты сервера думают столько же, сколько подключаемые боты
+        if (System.getProperty("memo.bots.thinkMillis") == null) {
+            System.setProperty("memo.bots.thinkMillis", String.valueOf(options.thinkMillis()));
+        }
+        // Подбор соперников собирает комнаты того же размера, что и без подбора
+        if (options.matchmaking() && System.getProperty("memo.matchmaking.roomSize") == null) {
+            System.setProperty("memo.matchmaking.roomSize", String.valueOf(options.playersPerRoom()));
+        }
+
+        Thread serverThread = new Thread(() -> {
+            try {
+                new GameServer().start(options.port());
+            } catch (IOException e) {
+                System.out.println("Ошибка при запуске сервера: " + e.getMessage());
+            }
+        }, "memo-server");
+        serverThread.setDaemon(true);
+        serverThread.start();
+
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (System.currentTimeMillis() < deadline) {
+            try (SocketChannel _ = SocketChannel.open(new InetSocketAddress(options.host(), options.port()))) {
+                return;
+            } catch (IOException e) {
+                Thread.sleep(100);
+            }
+        }
+        throw new IllegalStateException("Сервер не запустился на порту " + options.port());
+    }
+
+    /**
+     * Создает ботов, проводит прогрев и измерение и выводит итоговую статистику.
+     *
+     * @throws IOException если произошла ошибка селектора
+     */
+    public void run() throws IOException {
+        System.out.printf(Locale.ROOT, "Генератор нагрузки: %d комнат по %d игрока%s, обдумывание %d мс, чат %s, сервер %s:%d%s%n",
+                options.rooms(), options.playersPerRoom(),
+                options.serverBots() > 0 ? " и " + options.serverBots() + " бота сервера" : "", options.thinkMillis(),
+                options.chatIntervalMillis() > 0 ? "каждые " + options.chatIntervalMillis() + " мс" : "выключен",
+                options.host(), options.port(), options.embedded() ? " (встроенный)" : "");
+
+        Random seeds = new Random(options.seed());
+        long connectSpacingMillis = Math.max(0, 1000 / options.connectRate());
+        int index = 0;
+        for (int room = 0; room < options.rooms(); room++) {
+            for (int player = 0; player < options.playersPerRoom(); player++) {
+                BotClient bot = options.matchmaking()
+                        ? new BotClient(this, "bot" + room + "_" + player, null, false, seeds.nextLong())
+                        : new BotClient(this, "bot" + room + "_" + player, "load-" + room, player == 0,
+                        seeds.nextLong());
+                bots.add(bot);
+                // Подключения распределяются во времени, чтобы не перегружать очередь приема сервера
+                schedule(index++ * connectSpacingMillis, () -> connect(bot));
+            }
+        }
+
+        long start = System.nanoTime();
+        long warmupEnd = start + options.warmupSeconds() * 1_000_000_000L;
+        long end = warmupEnd + options.durationSeconds() * 1_000_000_000L;
+        boolean measuring = options.warmupSeconds() <= 0;
+        long measureStart = start;
+        long nextReport = start + REPORT_PERIOD_NANOS;
+        Stats last = snapshot();
+        long lastReportAt = start;
+
+        while (true) {
+            long now = System.nanoTime();
+            if (now - end >= 0) {
+                break;
+            }
+
+            if (!measuring && now - warmupEnd >= 0) {
+                // Задержки прогрева не учитываются
+                measuring = true;
+                measureStart = now;
+                cardOpenLatency = new LatencyHistogram("card-open-to-state");
+                System.out.println("Прогрев завершен, начато измерение");
+            }
+
+            if (now - nextReport >= 0) {
+                report(now - start, last, now - lastReportAt);
+                last = snapshot();
+                lastReportAt = now;
+                nextReport = now + REPORT_PERIOD_NANOS;
+            }
+
+            long timeoutNanos = Math.min(nextReport, end) - now;
+            Action next = actions.peek();
+            if (next != null) {
+                timeoutNanos = Math.min(timeoutNanos, next.at - now);
+            }
+            if (timeoutNanos > 1_000_000) {
+                selector.select(timeoutNanos / 1_000_000);
+            } else {
+                selector.selectNow();
+            }
+
+            processKeys();
+            runDueActions(System.nanoTime());
+        }
+
+        summary(System.nanoTime() - measureStart);
+        for (BotClient bot : bots) {
+            bot.close();
+        }
+        selector.close();
+    }
+
+    /**
+     * Обрабатывает готовые каналы ботов.
+     */
+    private void processKeys() {
+        long now = System.nanoTime();
+        Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+        while (keys.hasNext()) {
+            SelectionKey key = keys.next();
+            keys.remove();
+            BotClient bot = (BotClient) key.attachment();
+            try {
+                if (!key.isValid()) {
+                    continue;
+                }
+                if (key.isConnectable()) {
+                    bot.finishConnect();
+                }
+                if (key.isValid() && key.isReadable()) {
+                    bot.read(now);
+                }
+                if (key.isValid() && key.isWritable()) {
+                    bot.flush();
+                }
+            } catch (IOException e) {
+                onFailure(bot, e);
+            }
+        }
+    }
+
+    /**
+     * Выполняет действия ботов, срок которых наступил.
+     *
+     * @param now текущее время (System.nanoTime)
+     */
+    private void runDueActions(long now) {
+        while (!actions.isEmpty() && actions.peek().at - now <= 0) {
+            actions.poll().command.run();
+        }
+    }
+
+    /**
+     * Начинает неблокирующее подключение бота.
+     *
+     * @param bot бот
+     */
+    private void connect(BotClient bot) {
+        try {
+            SocketChannel channel = SocketChannel.open();
+            channel.configureBlocking(false);
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            SelectionKey key = channel.register(selector, SelectionKey.OP_CONNECT, bot);
+            bot.attach(channel, key);
+            if (channel.connect(new InetSocketAddress(options.host(), options.port()))) {
+                bot.finishConnect();
+            }
+        } catch (IOException e) {
+            onFailure(bot, e);
+        }
+    }
+
+    void onConnected(BotClient bot) {
+        stats.connected++;
+        scheduleChat(bot, new Random(bot.getName().hashCode()));
+    }
+
+    /**
+     * Учитывает ошибку соединения бота и закрывает его.
+     *
+     * @param bot бот
+     * @param e   ошибка
+     */
+    void onFailure(BotClient bot, IOException e) {
+        stats.failures++;
+        if (stats.failures <= 10) {
+            System.out.println("Бот " + bot.getName() + " отключен: " + e.getMessage());
+        }
+        bot.close();
+    }
+
+    /**
+     * Учитывает сообщение сервера об ошибке.
+     *
+     * @param bot     бот
+     * @param message текст ошибки
+     */
+    void onError(BotClient bot, String message) {
+        stats.errors++;
+        if (stats.errors <= 10) {
+            System.out.println("Бот " + bot.getName() + " получил ошибку: " + message);
+        }
+    }
+
+    /**
+     * Ставит действие в очередь.
+     *
+     * @param delayMillis задержка в миллисекундах
+     * @param command     действие
+     */
+    void schedule(long delayMillis, Runnable command) {
+        actions.add(new Action(System.nanoTime() + delayMillis * 1_000_000, actionSequence++, command));
+    }
+
+    /**
+     * Планирует следующее сообщение чата бота.
+     *
+     * @param bot    бот
+     * @param random генератор случайных чисел бота
+     */
+    void scheduleChat(BotClient bot, Random random) {
+        if (options.chatIntervalMillis() > 0) {
+            schedule(jitter(options.chatIntervalMillis(), random), bot::chat);
+        }
+    }
+
+    /**
+     * Возвращает случайное время на обдумывание (от половины до полутора средних).
+     *
+     * @param random генератор случайных чисел бота
+     * @return время в миллисекундах
+     */
+    long thinkTimeMillis(Random random) {
+        return jitter(options.thinkMillis(), random);
+    }
+
+    private static long jitter(long mean, Random random) {
+        return mean <= 0 ? 0 : Math.round(mean * (0.5 + random.nextDouble()));
+    }
+
+    int playersPerRoom() {
+        return options.playersPerRoom();
+    }
+
+    int serverBots() {
+        return options.serverBots();
+    }
+
+    Stats stats() {
+        return stats;
+    }
+
+    /**
+     * Учитывает задержку хода.
+     *
+     * @param nanos время от отправки открытия карточки до получения состояния
+     */
+    void recordCardOpen(long nanos) {
+        stats.cardOpensConfirmed++;
+        cardOpenLatency.record(nanos);
+    }
+
+    private Stats snapshot() {
+        Stats copy = new Stats();
+        copy.cardOpensConfirmed = stats.cardOpensConfirmed;
+        copy.statesReceived = stats.statesReceived;
+        copy.bytesIn = stats.bytesIn;
+        copy.chatReceived = stats.chatReceived;
+        return copy;
+    }
+
+    /**
+     * Выводит промежуточную статистику.
+     *
+     * @param elapsed     время с начала работы в наносекундах
+     * @param last        значения счетчиков на момент предыдущего вывода
+     * @param periodNanos время с предыдущего вывода в наносекундах
+     */
+    private void report(long elapsed, Stats last, long periodNanos) {
+        double seconds = periodNanos / 1e9;
+        System.out.printf(Locale.ROOT,
+                "[%3ds] боты %d/%d, ошибок %d, игр %d | ходов %.1f/с, состояний %.1f/с, %.1f КБ/с | задержка хода p50 %.2f мс p99 %.2f мс p999 %.2f мс%n",
+                elapsed / 1_000_000_000L, stats.connected - stats.failures, bots.size(), stats.errors,
+                stats.gamesFinished, (stats.cardOpensConfirmed - last.cardOpensConfirmed) / seconds,
+                (stats.statesReceived - last.statesReceived) / seconds,
+                (stats.bytesIn - last.bytesIn) / 1024.0 / seconds,
+                cardOpenLatency.getPercentileMicros(50) / 1000.0, cardOpenLatency.getPercentileMicros(99) / 1000.0,
+                cardOpenLatency.getPercentileMicros(99.9) / 1000.0);
+    }
+
+    /**
+     * Выводит итоговую статистику за время измерения.
+     *
+     * @param measuredNanos длительность измерения в наносекундах
+     */
+    private void summary(long measuredNanos) {
+        double seconds = Math.max(1e-9, measuredNanos / 1e9);
+        System.out.println("Итоги:");
+        System.out.printf(Locale.ROOT, "  подключено ботов: %d из %d, отключено с ошибкой: %d%n",
+                stats.connected, bots.size(), stats.failures);
+        System.out.printf(Locale.ROOT, "  завершено игр: %d, ошибок протокола: %d, чат: отправлено %d, получено %d%n",
+                stats.gamesFinished, stats.errors, stats.chatSent, stats.chatReceived);
+        System.out.printf(Locale.ROOT, "  ходов за измерение: %d (%.1f/с), без ответа сервера: %d, состояний получено всего: %d%n",
+                cardOpenLatency.getCount(), cardOpenLatency.getCount() / seconds, stats.cardOpensLost,
+                stats.statesReceived);
+        System.out.printf(Locale.ROOT,
+                "  задержка хода: среднее %.2f мс, p50 %.2f мс, p99 %.2f мс, p999 %.2f мс, максимум %.2f мс%n",
+                cardOpenLatency.getMeanMicros() / 1000.0, cardOpenLatency.getPercentileMicros(50) / 1000.0,
+                cardOpenLatency.getPercentileMicros(99) / 1000.0, cardOpenLatency.getPercentileMicros(99.9) / 1000.0,
+                cardOpenLatency.getMaxMicros() / 1000.0);
+    }
+}
@@ -0,0 +1,213 @@
+package util;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.io.BufferedWriter;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Асинхронный журнал на кольцевом буфере.
+ * Записывающие потоки только кладут готовую строку в заранее выделенную ячейку буфера
+ * (без блокировок, одна CAS-операция), а вывод в консоль или файл выполняет отдельный фоновый поток.
+ * Если буфер заполнен, запись отбрасывается и учитывается в счетчике, поэтому запись в журнал никогда
+ * не блокирует вызывающий поток, даже если консоль или файл не успевают принимать данные.
+ */
+public class AsyncLogger {
+    /**
+     * Уровень записи.
+     */
+    public enum Level {
+        INFO, WARN, ERROR
+    }
+
+    private static final DateTimeFormatter TIME_FORMAT =
+            DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSS").withZone(ZoneId.systemDefault());
+    // Пауза фонового потока, когда буфер пуст
+    private static final long IDLE_PARK_NANOS = 5_000_000;
+
+    // Ячейки буфера: последовательность ячейки определяет, свободна ли она для записи или готова к выводу
+    private final int mask;
+    private final AtomicLongArray sequences;
+    private final String[] messages;
+    private final Level[] levels;
+    private final long[] timestamps;
+
+    // Следующая позиция записи (общая для всех записывающих потоков)
+    private final AtomicLong tail = new AtomicLong();
+    // Следующая позиция чтения (только фоновый поток)
+    private long head;
+
+    private final AtomicLong dropped = new AtomicLong();
+    private final Writer out;
+    private final Thread writerThread;
+    private volatile boolean running = true;
+
+    /**
+     * Конструктор журнала. Запускает фоновый поток вывода.
+     *
+     * @param capacity минимальная емкость буфера в записях (округляется вверх до степени двойки)
+     * @param file     файл журнала или null для вывода в консоль
+     * @throws IOException если файл журнала не удается открыть
+     */
+    public AsyncLogger(int capacity, Path file) throws IOException {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        this.mask = size - 1;
+        this.sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+        this.messages = new String[size];
+        this.levels = new Level[size];
+        this.timestamps = new long[size];
+
+        if (file != null) {
+            this.out = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        } else {
+            // Консольный поток берется один раз; System.out используется только фоновым потоком
+            PrintStream console = System.out;
+            this.out = new BufferedWriter(new OutputStreamWriter(console, console.charset()));
+        }
+
+        this.writerThread = new Thread(this::drainLoop, "log-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    /**
+     * Добавляет запись в буфер. Может вызываться из любого потока и никогда не блокируется.
+     *
+     * @param level   уровень записи
+     * @param message готовый текст записи
+     * @return true, если запись принята, false - если буфер заполнен и запись отброшена
+     */
+    public boolean log(Level level, String message) {
+        while (true) {
+            long position = tail.get();
+            int index = (int) (position & mask);
+            long diff = sequences.get(index) - position;
+
+            if (diff == 0) {
+                // Ячейка свободна: захватываем позицию и заполняем ячейку
+                if (tail.compareAndSet(position, position + 1)) {
+                    messages[index] = message;
+                    levels[index] = level;
+                    timestamps[index] = System.currentTimeMillis();
+                    // Публикуем ячейку для фонового потока
+                    sequences.lazySet(index, position + 1);
+                    return true;
+                }
+            } else if (diff < 0) {
+                // Фоновый поток еще не освободил ячейку - буфер заполнен
+                dropped.incrementAndGet();
+                return false;
+            }
+            // Позицию захватил другой поток - повторяем с новой
+        }
+    }
+
+    /**
+     * Возвращает количество записей, отброшенных из-за заполненного буфера.
+     *
+     * @return количество отброшенных записей
+     */
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    /**
+     * Останавливает фоновый поток, предварительно выведя все накопленные записи.
+     *
+     * @param timeoutMillis максимальное время ожидания вывода
+     */
+    public void close(long timeoutMillis) {
+        running = false;
+        LockSupport.unpark(writerThread);
+        try {
+            writerThread.join(timeoutMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Цикл фонового потока: выводит готовые записи и ждет новых.
+     */
+    private void drainLoop() {
+        long reportedDropped = 0;
+
+        while (true) {
+            boolean wrote = drain();
+
+            // Сообщаем об отброшенных записях, как только буфер освободился
+            long droppedNow = dropped.get();
+            if (droppedNow != reportedDropped) {
+                write(Level.WARN, System.currentTimeMillis(),
+                        "Журнал переполнен, отброшено записей: " + (droppedNow - reportedDropped));
+                reportedDropped = droppedNow;
+                wrote = true;
+            }
+
+            if (wrote) {
+                try {
+                    out.flush();
+                } catch (IOException ignored) {}
+            } else if (!running) {
+                return;
+            } else {
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+            }
+        }
+    }
+
+    /**
+     * Выводит все готовые записи из буфера.
+     *
+     * @return true, если была выведена хотя бы одна запись
+     */
+    private boolean drain() {
+        boolean wrote = false;
+
+        while (true) {
+            int index = (int) (head & mask);
+            if (sequences.get(index) != head + 1) {
+                return wrote;
+            }
+
+            String message = messages[index];
+            Level level = levels[index];
+            long timestamp = timestamps[index];
+            messages[index] = null;
+            // Освобождаем ячейку для следующего оборота буфера
+            sequences.lazySet(index, head + mask + 1);
+            head++;
+
+            write(level, timestamp, message);
+            wrote = true;
+        }
+    }
+
+    private void write(Level level, long timestamp, String message) {
+        try {
+            out.write(TIME_FORMAT.format(Instant.ofEpochMilli(timestamp)));
+            out.write(' ');
+            out.write(level.name());
+            out.write(' ');
+            out.write(message);
+            out.write(System.lineSeparator());
+        } catch (IOException ignored) {
+            // Ошибки вывода журнала не должны влиять на работу сервера
+        }
+    }
+}
@@ -6,6 +6,7 @@ import javafx.stage.Stage;
 import model.ConnectionInfo;
 import server.GameServer;
 import view.GameView;
+import view.LobbyView;
 
 import static com.sun.javafx.application.PlatformImpl.runLater;
 import static view.GameDialogs.showErrorDialog;
@@ -83,7 +84,11 @@ public class ConnectionHelper {
 
         if (success) {
             System.out.println("Клиент подключен");
-            client.sendConnectMessage(username);
+            if (connectionInfo.matchmaking()) {
+                client.sendMatchmakingRequest(username);
+            } else {
+                client.sendConnectMessage(username);
+            }
 
             GameView gameView = new GameView(client);
             client.getListener().setGameView(gameView);
@@ -93,4 +98,25 @@ public class ConnectionHelper {
             showErrorDialog("Не удалось подключиться к игре");
         }
     }
+
+    /**
+     * Метод для подключения клиента к серверу и открытия списка комнат
+     * @param connectionInfo информация о подключении (домен, порт, имя пользователя)
+     */
+    public static void openLobby(ConnectionInfo connectionInfo) {
+        GameClient client = new GameClient();
+        GameClientListener clientListener = new GameClientListener();
+
+        client.setListener(clientListener);
+
+        if (client.connect(connectionInfo.domain(), connectionInfo.port())) {
+            LobbyView lobbyView = new LobbyView(client, connectionInfo.username());
+            clientListener.setLobbyView(lobbyView);
+            lobbyView.start(new Stage());
+
+            client.sendLobbyRequest(null);
+        } else {
+            showErrorDialog("Не удалось подключиться к серверу");
+        }
+    }
 }
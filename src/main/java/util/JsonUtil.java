@@ -54,6 +54,7 @@ public class JsonUtil {
      * @param list  список для преобразования
      * @return  JSON строка в формате массива
      */
+    @SuppressWarnings("unchecked")
     private static String listToJson(List<?> list) {
         StringBuilder json = new StringBuilder("[");
         // Флаг для отслеживания первого элемента
@@ -69,6 +70,8 @@ public class JsonUtil {
             // Проверяем тип элемента и добавляем его соответствующим образом
             if (item instanceof String) {
                 json.append("\"").append(escapeJson(item.toString())).append("\"");
+            } else if (item instanceof Map) {
+                json.append(mapToJson((Map<String, Object>) item));
             } else {
                 json.append(item);
             }
@@ -0,0 +1,82 @@
+package util;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Журнал сервера.
+ * Статический доступ к общему асинхронному журналу {@link AsyncLogger}.
+ * Настраивается системными свойствами:
+ * memo.log.file - файл журнала (по умолчанию вывод в консоль),
+ * memo.log.capacity - емкость кольцевого буфера в записях (по умолчанию 8192).
+ */
+public class Log {
+    private static final int DEFAULT_CAPACITY = 8192;
+
+    private static final AsyncLogger LOGGER = create();
+
+    private Log() {}
+
+    private static AsyncLogger create() {
+        int capacity = DEFAULT_CAPACITY;
+        try {
+            capacity = Integer.parseInt(System.getProperty("memo.log.capacity", String.valueOf(DEFAULT_CAPACITY)));
+        } catch (NumberFormatException e) {
+            System.err.println("Неверное значение свойства memo.log.capacity");
+        }
+
+        String file = System.getProperty("memo.log.file");
+        AsyncLogger logger;
+        try {
+            logger = new AsyncLogger(capacity, file == null || file.isBlank() ? null : Path.of(file));
+        } catch (IOException e) {
+            System.err.println("Не удалось открыть файл журнала " + file + ", вывод в консоль: " + e.getMessage());
+            try {
+                logger = new AsyncLogger(capacity, null);
+            } catch (IOException impossible) {
+                throw new IllegalStateException(impossible);
+            }
+        }
+
+        // При завершении JVM выводим накопленные записи
+        AsyncLogger created = logger;
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> created.close(1000), "log-shutdown"));
+        return logger;
+    }
+
+    /**
+     * Записывает информационное сообщение.
+     *
+     * @param message текст сообщения
+     */
+    public static void info(String message) {
+        LOGGER.log(AsyncLogger.Level.INFO, message);
+    }
+
+    /**
+     * Записывает предупреждение.
+     *
+     * @param message текст сообщения
+     */
+    public static void warn(String message) {
+        LOGGER.log(AsyncLogger.Level.WARN, message);
+    }
+
+    /**
+     * Записывает сообщение об ошибке.
+     *
+     * @param message текст сообщения
+     */
+    public static void error(String message) {
+        LOGGER.log(AsyncLogger.Level.ERROR, message);
+    }
+
+    /**
+     * Возвращает количество записей, отброшенных из-за заполненного буфера.
+     *
+     * @return количество отброшенных записей
+     */
+    public static long getDroppedCount() {
+        return LOGGER.getDroppedCount();
+    }
+}
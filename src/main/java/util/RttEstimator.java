@@ -0,0 +1,58 @@
+package util;
+
+/**
+ * Скользящая оценка времени приема-передачи (RTT) соединения.
+ * Использует экспоненциальное сглаживание, как в TCP: каждое новое измерение
+ * сдвигает оценку на 1/8 разницы, поэтому единичные выбросы почти не влияют на результат.
+ * Используется и клиентом, и сервером.
+ */
+public class RttEstimator {
+    // Вес нового измерения в оценке
+    private static final double ALPHA = 0.125;
+
+    private volatile double smoothedNanos = -1;
+    private volatile long lastSampleNanos = -1;
+
+    /**
+     * Учитывает новое измерение.
+     *
+     * @param rttNanos измеренное время приема-передачи в наносекундах
+     */
+    public void addSample(long rttNanos) {
+        if (rttNanos < 0) {
+            return;
+        }
+
+        lastSampleNanos = rttNanos;
+        double current = smoothedNanos;
+        smoothedNanos = current < 0 ? rttNanos : current + ALPHA * (rttNanos - current);
+    }
+
+    /**
+     * Проверяет, было ли хотя бы одно измерение.
+     *
+     * @return true, если оценка доступна
+     */
+    public boolean hasSamples() {
+        return smoothedNanos >= 0;
+    }
+
+    /**
+     * Возвращает сглаженную оценку RTT в миллисекундах.
+     *
+     * @return оценка RTT или -1, если измерений еще не было
+     */
+    public long getSmoothedMillis() {
+        double current = smoothedNanos;
+        return current < 0 ? -1 : Math.round(current / 1_000_000);
+    }
+
+    /**
+     * Возвращает последнее измерение RTT в наносекундах.
+     *
+     * @return последнее измерение или -1, если измерений еще не было
+     */
+    public long getLastSampleNanos() {
+        return lastSampleNanos;
+    }
+}
@@ -1,6 +1,7 @@
 package view;
 
 import client.GameClient;
+import client.GameStateParser;
 import javafx.application.Platform;
 import javafx.geometry.Pos;
 import javafx.scene.Node;
@@ -10,8 +11,6 @@ import javafx.scene.layout.GridPane;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Objects;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 /**
  * Класс для отображения игрового поля
@@ -63,29 +62,9 @@ public class GameBoard extends GridPane {
      */
     public void updateState(String jsonState) {
         // Разбор JSON
-        Pattern p = Pattern.compile("\"(\\d+)\":\"(opened_(\\d+)|matched|hidden)\"");
-        Matcher m = p.matcher(jsonState);
-
-        Map<Integer, String> newStates = new HashMap<>(); // индекс -> состояние (opened, matched, hidden)
-        Map<Integer, Integer> newImages = new HashMap<>(); // индекс -> id картинки
-
-        while (m.find()) {
-            try {
-                int index = Integer.parseInt(m.group(1));
-                String fullState = m.group(2);
-
-                // Если открыта - запоминаем ID картинки и добавляем в newImages
-                if (fullState.startsWith("opened_")) {
-                    newStates.put(index, "opened");
-                    int imgId = Integer.parseInt(m.group(3));
-                    newImages.put(index, imgId);
-                } else {
-                    newStates.put(index, fullState); // "matched" или "hidden"
-                }
-            } catch (Exception e) {
-                System.out.println("Произошла ошибка при разборе JSON: " + e.getMessage());
-            }
-        }
+        GameStateParser.BoardState board = GameStateParser.parseBoard(jsonState);
+        Map<Integer, String> newStates = board.states(); // индекс -> состояние (opened, matched, hidden)
+        Map<Integer, Integer> newImages = board.images(); // индекс -> id картинки
 
         // Обновляем UI в FX-потоке
         Platform.runLater(() -> {
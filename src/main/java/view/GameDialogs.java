@@ -1,10 +1,12 @@
 package view;
 
+import client.GameStateParser.LeaderboardRow;
 import javafx.scene.control.*;
 import javafx.scene.layout.GridPane;
 import model.ConnectionInfo;
 import util.ConnectionHelper;
 
+import java.util.List;
 import java.util.Optional;
 
 /**
@@ -50,7 +52,8 @@ public class GameDialogs {
                 return new ConnectionInfo(
                         "localhost",
                         Integer.parseInt(portField.getText()),
-                        usernameField.getText());
+                        usernameField.getText(),
+                        false);
             }
 
             return null;
@@ -86,6 +89,7 @@ public class GameDialogs {
         portField.setPromptText("8080");
         TextField usernameField = new TextField();
         usernameField.setPromptText("Player1");
+        CheckBox matchmakingBox = new CheckBox("Подобрать соперников");
 
         gridPane.add(new Label("Домен:"), 0, 0);
         gridPane.add(domainField, 1, 0);
@@ -93,6 +97,7 @@ public class GameDialogs {
         gridPane.add(portField, 1, 1);
         gridPane.add(new Label("Имя:"), 0, 2);
         gridPane.add(usernameField, 1, 2);
+        gridPane.add(matchmakingBox, 1, 3);
 
         dialog.getDialogPane().setContent(gridPane);
 
@@ -104,7 +109,8 @@ public class GameDialogs {
                 return new ConnectionInfo(
                         domainField.getText(),
                         Integer.parseInt(portField.getText()),
-                        usernameField.getText());
+                        usernameField.getText(),
+                        matchmakingBox.isSelected());
             }
 
             return null;
@@ -115,6 +121,61 @@ public class GameDialogs {
         result.ifPresent(ConnectionHelper::connectClient); // Подключаемся к серверу
     }
 
+    /**
+     * Метод для отображения диалогового окна подключения к списку комнат
+     */
+    public static void showLobbyConnectDialog() {
+        // Создает диалоговое окно, типизированное ConnectionInfo
+        Dialog<ConnectionInfo> dialog = new Dialog<>();
+        dialog.setTitle("Список комнат");
+        dialog.setHeaderText("Введите данные для подключения");
+
+        // Настраиваем кнопки
+        ButtonType openButtonType = new ButtonType("Открыть", ButtonBar.ButtonData.OK_DONE);
+        dialog.getDialogPane().getButtonTypes().addAll(openButtonType, ButtonType.CANCEL);
+
+        // Создаем поля и метки
+        GridPane gridPane = new GridPane();
+        gridPane.setHgap(10);
+        gridPane.setVgap(10);
+        gridPane.setPadding(new javafx.geometry.Insets(20, 150, 10, 10));
+
+        TextField domainField = new TextField();
+        domainField.setPromptText("127.0.0.1");
+        TextField portField = new TextField();
+        portField.setPromptText("8080");
+        TextField usernameField = new TextField();
+        usernameField.setPromptText("Player1");
+
+        gridPane.add(new Label("Домен:"), 0, 0);
+        gridPane.add(domainField, 1, 0);
+        gridPane.add(new Label("Порт:"), 0, 1);
+        gridPane.add(portField, 1, 1);
+        gridPane.add(new Label("Имя:"), 0, 2);
+        gridPane.add(usernameField, 1, 2);
+
+        dialog.getDialogPane().setContent(gridPane);
+
+        javafx.application.Platform.runLater(domainField::requestFocus); // Устанавливаем фокус на поле домена
+
+        // Конвертируем результат диалогового окна в ConnectionInfo
+        dialog.setResultConverter(dialogButton -> {
+            if (dialogButton == openButtonType) {
+                return new ConnectionInfo(
+                        domainField.getText(),
+                        Integer.parseInt(portField.getText()),
+                        usernameField.getText(),
+                        false);
+            }
+
+            return null;
+        });
+
+        Optional<ConnectionInfo> result = dialog.showAndWait();
+
+        result.ifPresent(ConnectionHelper::openLobby); // Подключаемся к серверу и открываем список комнат
+    }
+
     /**
      * Метод для отображения диалогового окна с правилами игры
      */
@@ -155,6 +216,32 @@ public class GameDialogs {
         alert.showAndWait();
     }
 
+    /**
+     * Метод для отображения таблицы лидеров
+     * @param rows места таблицы лидеров по порядку
+     */
+    public static void showLeaderboardDialog(List<LeaderboardRow> rows) {
+        Alert alert = new Alert(Alert.AlertType.INFORMATION);
+        alert.setTitle("Таблица лидеров");
+        alert.setHeaderText("Лучшие игроки");
+
+        StringBuilder content = new StringBuilder();
+        if (rows.isEmpty()) {
+            content.append("Еще нет завершенных партий");
+        }
+        for (int i = 0; i < rows.size(); i++) {
+            LeaderboardRow row = rows.get(i);
+            content.append(i + 1).append(". ").append(row.name())
+                    .append(" - побед: ").append(row.wins())
+                    .append(", партий: ").append(row.games())
+                    .append(", пар: ").append(row.pairs())
+                    .append(", ходов на пару: ").append(row.turnsPerPair())
+                    .append("\n");
+        }
+        alert.setContentText(content.toString());
+        alert.showAndWait();
+    }
+
     /**
      * Метод для отображения диалогового окна с результатами игры
      * @param winners строка с именами победителей
@@ -1,6 +1,7 @@
 package view;
 
 import client.GameClient;
+import client.GameStateParser;
 import javafx.application.Application;
 import javafx.application.Platform;
 import javafx.geometry.Insets;
@@ -10,11 +11,8 @@ import javafx.scene.control.*;
 import javafx.scene.layout.*;
 import javafx.stage.Stage;
 
-import java.util.HashMap;
 import java.util.Map;
 import java.util.Objects;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 /**
  * Класс для отображения игрового поля и интерфейса
@@ -22,6 +20,8 @@ import java.util.regex.Pattern;
 public class GameView extends Application {
 
     private final GameClient gameClient;
+    // Окно зрителя: ходить, писать в чат и начинать игру нельзя
+    private final boolean spectator;
     private GameBoard gameBoard;
 
     // UI элементы
@@ -34,7 +34,12 @@ public class GameView extends Application {
     private String currentPlayerName = "";
 
     public GameView(GameClient gameClient) {
+        this(gameClient, false);
+    }
+
+    public GameView(GameClient gameClient, boolean spectator) {
         this.gameClient = gameClient;
+        this.spectator = spectator;
     }
 
     /**
@@ -98,6 +103,13 @@ public class GameView extends Application {
             if (gameClient != null) gameClient.sendStartGameMessage();
         });
 
+        Button leaderboardButton = new Button("ТАБЛИЦА ЛИДЕРОВ");
+        leaderboardButton.setMaxWidth(Double.MAX_VALUE);
+        leaderboardButton.getStyleClass().add("game-button");
+        leaderboardButton.setOnAction(_ -> {
+            if (gameClient != null) gameClient.sendLeaderboardRequest();
+        });
+
         Button leaveButton = new Button("ПОКИНУТЬ ИГРУ");
         leaveButton.setMaxWidth(Double.MAX_VALUE);
         leaveButton.getStyleClass().addAll("game-button", "btn-leave");
@@ -107,7 +119,8 @@ public class GameView extends Application {
             System.exit(0);
         });
 
-        VBox chatBox = new VBox(10, chatTitle, chatListView, chatInputBox, new Separator(), startButton, leaveButton);
+        VBox chatBox = new VBox(10, chatTitle, chatListView, chatInputBox, new Separator(), startButton,
+                leaderboardButton, leaveButton);
         chatBox.getStyleClass().add("game-panel");
 
         rightPanel.getChildren().addAll(statsBox, chatBox);
@@ -115,6 +128,15 @@ public class GameView extends Application {
 
         root.setRight(rightPanel);
 
+        if (spectator) {
+            gameBoard.setMouseTransparent(true);
+            chatInputBox.setVisible(false);
+            chatInputBox.setManaged(false);
+            startButton.setVisible(false);
+            startButton.setManaged(false);
+            leaveButton.setText("ПОКИНУТЬ ПРОСМОТР");
+        }
+
         Scene scene = new Scene(root, 1100, 800);
 
         // Подключение css
@@ -126,7 +148,7 @@ public class GameView extends Application {
         }
 
         // Настройка окна
-        stage.setTitle("Memo Battle");
+        stage.setTitle(spectator ? "Memo Battle - наблюдение" : "Memo Battle");
         stage.setScene(scene);
         stage.show();
 
@@ -170,54 +192,31 @@ public class GameView extends Application {
         }
 
         // Обновляем состояние игры (начата / не начата)
-        setGameStarted(jsonState.contains("\"gameStarted\":true"));
+        setGameStarted(GameStateParser.isGameStarted(jsonState));
 
         // Разбираем JSON для получения текущего игрока и очков
-        Pattern pPlayer = Pattern.compile("\"currentPlayer\":\"(.*?)\"");
-        Matcher mPlayer = pPlayer.matcher(jsonState);
-        if (mPlayer.find()) {
-            this.currentPlayerName = mPlayer.group(1);
-        }
-
-        Pattern pScores = Pattern.compile("\"scores\":\\{(.*?)}", Pattern.DOTALL);
-        Matcher mScores = pScores.matcher(jsonState);
-        if (mScores.find()) {
-            Map<String, Integer> scores = getScores(mScores);
-            updatePlayerList(scores);
+        String currentPlayer = GameStateParser.parseCurrentPlayer(jsonState);
+        if (currentPlayer != null) {
+            this.currentPlayerName = currentPlayer;
         }
-    }
 
-    /**
-     * Метод для получения очков игроков из JSON
-     * @param mScores матчер для поиска очков
-     * @return Map с именами игроков и их очками
-     */
-    private static Map<String, Integer> getScores(Matcher mScores) {
-        String content = mScores.group(1);
-        Map<String, Integer> scores = new HashMap<>();
-
-        if (!content.trim().isEmpty()) {
-            // Разбиваем строку на пары "имя:очки"
-            String[] pairs = content.split(",");
-            for (String pair : pairs) {
-                // Разбиваем пару на имя и очки
-                String[] kv = pair.split(":");
-                if (kv.length == 2) {
-                    String name = kv[0].trim().replace("\"", "");
-                    try {
-                        scores.put(name, Integer.parseInt(kv[1].trim()));
-                    } catch (Exception ignored) {}
-                }
-            }
+        Map<String, Integer> scores = GameStateParser.parseScores(jsonState);
+        if (scores != null) {
+            // Время приема-передачи игроков, измеренное сервером
+            updatePlayerList(scores, GameStateParser.parseRtt(jsonState));
         }
-        return scores;
     }
 
     /**
      * Метод для обновления списка игроков
      * @param scores Map с именами игроков и их очками
+     * @param rtt Map с именами игроков и временем приема-передачи в миллисекундах
      */
-    private void updatePlayerList(Map<String, Integer> scores) {
+    private void updatePlayerList(Map<String, Integer> scores, Map<String, Integer> rtt) {
+        // Для себя показываем собственное измерение клиента
+        String ownName = gameClient != null ? gameClient.getPlayerName() : null;
+        long ownRtt = gameClient != null ? gameClient.getRttMillis() : -1;
+
         Platform.runLater(() -> {
             playerListContainer.getChildren().clear(); // Очищаем список
 
@@ -245,6 +244,14 @@ public class GameView extends Application {
 
                 playerRow.getChildren().addAll(avatar, nameLabel);
 
+                // Метка с временем приема-передачи
+                long playerRtt = name.equals(ownName) && ownRtt >= 0 ? ownRtt : rtt.getOrDefault(name, -1);
+                if (playerRtt >= 0) {
+                    Label rttLabel = new Label(playerRtt + " мс");
+                    rttLabel.getStyleClass().add("player-rtt");
+                    playerRow.getChildren().add(rttLabel);
+                }
+
                 // Если игра начата, добавляем метку с очками игрока и помечаем активного игрока
                 if (isGameStarted) {
                     Region spacer = new Region();
@@ -269,8 +276,8 @@ public class GameView extends Application {
         this.isGameStarted = started;
         // Убираем кнопку "Начать игру" из UI
         Platform.runLater(() -> {
-            startButton.setVisible(!started);
-            startButton.setManaged(!started);
+            startButton.setVisible(!started && !spectator);
+            startButton.setManaged(!started && !spectator);
         });
     }
 
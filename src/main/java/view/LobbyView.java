@@ -0,0 +1,194 @@
+package view;
+
+import client.GameClient;
+import client.GameStateParser.LobbyEvent;
+import client.GameStateParser.LobbyPage;
+import client.GameStateParser.RoomInfo;
+import client.LobbyModel;
+import javafx.application.Platform;
+import javafx.geometry.Insets;
+import javafx.scene.Scene;
+import javafx.scene.control.*;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.Priority;
+import javafx.scene.layout.VBox;
+import javafx.stage.Stage;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Класс для отображения списка комнат (лобби)
+ */
+public class LobbyView {
+
+    private final GameClient gameClient;
+    private final String username;
+    private final LobbyModel model = new LobbyModel();
+
+    // UI элементы
+    private Stage stage;
+    private ListView<RoomInfo> roomListView;
+    private Button moreButton;
+
+    // Ожидается первая страница списка
+    private boolean firstPageRequested = true;
+
+    public LobbyView(GameClient gameClient, String username) {
+        this.gameClient = gameClient;
+        this.username = username;
+    }
+
+    /**
+     * Метод для отображения окна лобби
+     * @param stage контейнер окна
+     */
+    public void start(Stage stage) {
+        this.stage = stage;
+
+        Label title = new Label("КОМНАТЫ");
+        title.getStyleClass().add("game-title");
+
+        roomListView = new ListView<>();
+        roomListView.setPrefHeight(400);
+        roomListView.setCellFactory(_ -> new ListCell<>() {
+            @Override
+            protected void updateItem(RoomInfo room, boolean empty) {
+                super.updateItem(room, empty);
+                setText(empty || room == null ? null : room.id() + " - игроков: " + room.players()
+                        + (room.started() ? ", идет игра" : ", ожидание"));
+            }
+        });
+        roomListView.setOnMouseClicked(event -> {
+            if (event.getClickCount() == 2) {
+                joinSelected();
+            }
+        });
+
+        Button joinButton = new Button("Войти");
+        joinButton.setOnAction(_ -> joinSelected());
+
+        Button watchButton = new Button("Смотреть");
+        watchButton.setOnAction(_ -> watchSelected());
+
+        moreButton = new Button("Еще комнаты");
+        moreButton.setDisable(true);
+        moreButton.setOnAction(_ -> gameClient.sendLobbyRequest(model.getNext()));
+
+        TextField newRoomField = new TextField();
+        newRoomField.setPromptText("Новая комната");
+        Button createButton = new Button("Создать");
+        createButton.setOnAction(_ -> {
+            String room = newRoomField.getText().trim();
+            if (!room.isEmpty() && !room.contains("|")) {
+                join(room);
+            }
+        });
+
+        HBox buttons = new HBox(10, joinButton, watchButton, moreButton);
+        HBox createBox = new HBox(10, newRoomField, createButton);
+        HBox.setHgrow(newRoomField, Priority.ALWAYS);
+
+        VBox root = new VBox(10, title, roomListView, buttons, new Separator(), createBox);
+        root.setPadding(new Insets(20));
+        root.getStyleClass().add("root-pane");
+
+        Scene scene = new Scene(root, 480, 560);
+        try {
+            String css = Objects.requireNonNull(getClass().getResource("/style/main-styles.css")).toExternalForm();
+            scene.getStylesheets().add(css);
+        } catch (Exception e) {
+            System.out.println("Ошибка загрузки стилей");
+        }
+
+        stage.setTitle("Memo Battle - комнаты");
+        stage.setScene(scene);
+        stage.show();
+
+        stage.setOnCloseRequest(_ -> gameClient.disconnect());
+    }
+
+    /**
+     * Метод для добавления страницы списка комнат, полученной от сервера
+     * @param page страница списка
+     */
+    public void applyPage(LobbyPage page) {
+        Platform.runLater(() -> {
+            model.applyPage(page, firstPageRequested);
+            firstPageRequested = false;
+            moreButton.setDisable(model.getNext() == null);
+            refresh();
+        });
+    }
+
+    /**
+     * Метод для применения изменений списка комнат, полученных от сервера
+     * @param events изменения списка
+     */
+    public void applyEvents(List<LobbyEvent> events) {
+        Platform.runLater(() -> {
+            model.applyEvents(events);
+            refresh();
+        });
+    }
+
+    /**
+     * Метод для обновления списка с сохранением выбранной комнаты
+     */
+    private void refresh() {
+        RoomInfo selected = roomListView.getSelectionModel().getSelectedItem();
+        List<RoomInfo> rooms = model.getRooms();
+        roomListView.getItems().setAll(rooms);
+        if (selected != null) {
+            for (RoomInfo room : rooms) {
+                if (room.id().equals(selected.id())) {
+                    roomListView.getSelectionModel().select(room);
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Метод для входа в выбранную комнату
+     */
+    private void joinSelected() {
+        RoomInfo room = roomListView.getSelectionModel().getSelectedItem();
+        if (room != null) {
+            join(room.id());
+        }
+    }
+
+    /**
+     * Метод для наблюдения за игрой в выбранной комнате: лобби закрывается и открывается окно игры для зрителя
+     */
+    private void watchSelected() {
+        RoomInfo room = roomListView.getSelectionModel().getSelectedItem();
+        if (room != null) {
+            gameClient.sendSpectateRequest(room.id());
+            openGameView(new GameView(gameClient, true));
+        }
+    }
+
+    /**
+     * Метод для входа в комнату: лобби закрывается и открывается окно игры
+     * @param room идентификатор комнаты
+     */
+    private void join(String room) {
+        gameClient.sendConnectMessage(username, room);
+        openGameView(new GameView(gameClient));
+    }
+
+    /**
+     * Метод для открытия окна игры вместо лобби
+     * @param gameView окно игры
+     */
+    private void openGameView(GameView gameView) {
+        gameClient.getListener().setGameView(gameView);
+        gameClient.getListener().setLobbyView(null);
+        gameView.start(new Stage());
+
+        stage.setOnCloseRequest(null);
+        stage.close();
+    }
+}
@@ -40,14 +40,16 @@ public class MainMenu extends Application {
         Button rulesButton = new Button("Правила");
         Button createGameButton = new Button("Создать игру");
         Button joinGameButton = new Button("Присоединиться к игре");
+        Button lobbyButton = new Button("Список комнат");
 
         // Инициализация действий кнопок
         rulesButton.setOnAction(_ -> showRules());
         createGameButton.setOnAction(_ -> showCreateGameDialog());
         joinGameButton.setOnAction(_ -> showConnectGameDialog());
+        lobbyButton.setOnAction(_ -> showLobbyConnectDialog());
 
         // Добавление элементов в контейнер
-        root.getChildren().addAll(titleLabel, descLabel, rulesButton, createGameButton, joinGameButton);
+        root.getChildren().addAll(titleLabel, descLabel, rulesButton, createGameButton, joinGameButton, lobbyButton);
         Scene scene = new Scene(root, 600, 500);
 
         // Загружаем стили
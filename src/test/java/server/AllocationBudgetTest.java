@@ -0,0 +1,430 @@
+package server;
+
+import client.GameStateParser;
+import journal.GameJournal;
+import metrics.ServerMetrics;
+import model.Protocol;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import stats.PlayerStats;
+import stats.StatsStore;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Бюджеты выделения памяти на пути обработки сообщений сервера.
+ * Сервер собирается так же, как в {@link GameServer}, но вместо сокетов использует каналы в памяти.
+ * Четыре игрока с идеальной памятью проигрывают партии до конца: открывают известные пары, набирают очки,
+ * завершают партию (статистика, сообщение о завершении, новая раскладка) и начинают следующую.
+ * Сообщения проходят через {@link ConnectionHandler}, {@link MessageRouter} и {@link GameSessionManager},
+ * а объем памяти, выделенной потоком на каждое сообщение вместе с вызванной им рассылкой четырем игрокам,
+ * измеряется через {@link com.sun.management.ThreadMXBean#getCurrentThreadAllocatedBytes()}.
+ * <p>
+ * Бюджет каждого вида сообщения - сумма перечисленных в комментарии источников выделения памяти с запасом
+ * около 3% на различия между раскладками и версиями JDK. Если изменение добавляет выделение памяти на этом пути,
+ * бюджет нужно поднять вместе с новой строкой в комментарии, а если убирает - уменьшить.
+ */
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class AllocationBudgetTest {
+    // Кадр состояния игры (GameSessionManager.flushGameState), около 23,5 КБ в начале партии.
+    // Кириллические имена игроков переводят строки JSON в UTF-16, поэтому каждая копия кадра из ~730 символов
+    // занимает ~1,5 КБ:
+    //   4,0 КБ - GameModel.getGameState: HashMap поля на 36 записей (узлы и три перестроения таблицы),
+    //            ключи String.valueOf(позиция), копии счетов и открытых карточек;
+    //   0,2 КБ - игроки, ограничения мест и Map RTT, добавляемые BroadcastService.sendGameState;
+    //  10,8 КБ - JsonUtil.mapToJson: StringBuilder поля и StringBuilder состояния растут удвоением,
+    //            результат каждого копируется в строку;
+    //   3,8 КБ - Protocol.encode: еще один растущий StringBuilder и строка пакета;
+    //   4,5 КБ - BroadcastService.encode: строка с переводом строки, массив байт UTF-8 и ByteBuffer;
+    //   0,2 КБ - ByteBuffer.duplicate для каждого из четырех получателей.
+    // Каждая открытая карточка добавляет в кадр ~0,1 КБ ("opened_" + значение в поле и в openedCards),
+    // каждая найденная - ~12 Б ("matched" длиннее "hidden" на символ в семи копиях кадра).
+    // К концу партии кадр вырастает примерно до 24 КБ.
+    //
+    // Открытие первой карточки: кадр с одной открытой карточкой (~24,1 КБ в среднем за партию) и
+    //   0,5 КБ - чтение сообщения: строка из буфера чтения (48 Б), Protocol.decode (Matcher, ArrayList,
+    //            подстроки и массив, ~0,4 КБ), лямбды команды комнаты и узлы очередей RoomMailbox и RoomManager.
+    private static final long FIRST_CARD_BUDGET = 25_300;
+    // Открытие второй карточки: то же, что и первой, плюс ~0,1 КБ на checkMatch - команда закрытия карточек
+    // через 2 секунды (лямбда, запись LoopScheduler). Передача хода и очки не выделяют памяти: счета и
+    // счетчики ходов хранятся в кэшированных Integer.
+    private static final long MISS_BUDGET = 25_500;
+    private static final long MATCH_BUDGET = 25_500;
+    // Завершение хода: кадр без открытых карточек (~23,8 КБ в среднем за партию) и ~0,1 КБ на команду
+    // закрытия карточек, которую планировщик передает в очередь комнаты.
+    private static final long TURN_END_BUDGET = 24_600;
+    // Завершение партии: последний кадр (~24 КБ) и
+    //   2,6 КБ - новая раскладка GameModel.resetGame: массивы поля, HashMap значений карточек, список значений;
+    //   0,4 КБ - строка победителей (StringBuilder, поток счетов для максимума);
+    //   0,4 КБ - результаты игроков для StatsStore.recordGame;
+    //   0,8 КБ - сообщение TYPE_GAME_OVER: Protocol.encode, строка с переводом строки, байты UTF-8 и ByteBuffer;
+    //   0,2 КБ - ByteBuffer.duplicate сообщения для четырех получателей.
+    private static final long GAME_OVER_BUDGET = 29_600;
+    // Сообщение чата (без кадра состояния):
+    //   0,3 КБ - строка сообщения из буфера чтения (кириллица, UTF-16);
+    //   0,5 КБ - Protocol.decode и команда комнаты;
+    //   0,3 КБ - пакет чата Protocol.encode;
+    //   0,2 КБ - команда рассылки пакета ChatBatcher по таймеру и строка накопленного пакета;
+    //   0,4 КБ - BroadcastService.encode пакета;
+    //   0,2 КБ - ByteBuffer.duplicate для четырех получателей.
+    private static final long CHAT_BUDGET = 2_300;
+
+    private static final int PLAYERS = 4;
+    private static final int CARD_COUNT = 36;
+    private static final int WARMUP_GAMES = 1_000;
+    private static final int MEASURED_GAMES = 500;
+    // Сдвиг времени, после которого срабатывают все отложенные задачи комнаты (закрытие карточек, рассылка чата)
+    private static final long FAST_FORWARD_NANOS = 10_000_000_000L;
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    /**
+     * Выделенная память по одному виду сообщений.
+     */
+    private static final class Allocations {
+        private long bytes;
+        private long messages;
+
+        void add(long allocated) {
+            bytes += allocated;
+            messages++;
+        }
+
+        double perMessage() {
+            return messages == 0 ? 0 : (double) bytes / messages;
+        }
+    }
+
+    private ConnectionHandler connectionHandler;
+    private RoomManager roomManager;
+    private LoopScheduler scheduler;
+    private StatsStore stats;
+
+    private final ClientSession[] sessions = new ClientSession[PLAYERS];
+    private final String[] names = new String[PLAYERS];
+    private InMemorySocketChannel observer;
+
+    // Заранее закодированные сообщения, чтобы не учитывать их создание
+    private final byte[][] cardOpenMessages = new byte[CARD_COUNT][];
+    private final byte[] chatMessage = "3|Кто помнит, где вторая кошка?\n".getBytes(StandardCharsets.UTF_8);
+    private final byte[] startMessage = "7\n".getBytes(StandardCharsets.UTF_8);
+
+    // Состояние партии, известное игрокам по рассылкам
+    private final int[] knownValues = new int[CARD_COUNT];
+    private final String[] cardStates = new String[CARD_COUNT];
+    private String currentPlayer;
+    private boolean gameStarted;
+    private boolean gameOver;
+
+    private Allocations firstCard = new Allocations();
+    private Allocations miss = new Allocations();
+    private Allocations match = new Allocations();
+    private Allocations turnEnd = new Allocations();
+    private Allocations gameEnd = new Allocations();
+    private Allocations chat = new Allocations();
+    private int gamesPlayed;
+    // Погрешность измерения (выделение памяти самим вызовом измерения)
+    private long measurementOverhead;
+
+    @BeforeAll
+    void playGames() throws IOException {
+        // Ограничения частоты сообщений проверке не нужны
+        for (String type : new String[]{"card", "chat", "start"}) {
+            System.setProperty("memo.ratelimit." + type + ".rate", "1000000000");
+            System.setProperty("memo.ratelimit." + type + ".burst", "1000000000");
+        }
+
+        ServerConfig config = ServerConfig.load();
+        RateLimitPolicy rateLimitPolicy = new RateLimitPolicy(config);
+        ServerMetrics metrics = new ServerMetrics(Protocol.TYPE_COUNT);
+        LoopWatchdog watchdog = new LoopWatchdog(metrics, config);
+        ConnectionRegistry registry = new ConnectionRegistry();
+        BroadcastService broadcastService = new BroadcastService(registry, metrics, config);
+        scheduler = new LoopScheduler();
+        stats = StatsStore.inMemory();
+        RoomDirectory directory = new RoomDirectory(broadcastService, config);
+        SpectatorService spectators = new SpectatorService(broadcastService, metrics, config);
+        roomManager = new RoomManager(registry, broadcastService, scheduler, metrics, watchdog,
+                GameJournal.disabled(), stats, directory, spectators, config);
+        HeartbeatMonitor heartbeatMonitor = new HeartbeatMonitor(broadcastService, roomManager, config);
+        MessageRouter messageRouter = new MessageRouter(roomManager, broadcastService, rateLimitPolicy, metrics,
+                stats, new Matchmaker(roomManager, broadcastService, stats, metrics, config), directory, spectators);
+        connectionHandler = new ConnectionHandler(messageRouter, roomManager, registry, broadcastService,
+                rateLimitPolicy, heartbeatMonitor, metrics, watchdog, config);
+
+        // Рассылки первому игроку сохраняются, чтобы игроки знали открытые карточки
+        observer = InMemorySocketChannel.capturing(64 * 1024);
+        long now = System.nanoTime();
+        for (int i = 0; i < PLAYERS; i++) {
+            InMemorySocketChannel channel = i == 0 ? observer : new InMemorySocketChannel();
+            sessions[i] = new ClientSession(channel, new RateLimiter(rateLimitPolicy, now));
+            registry.register(sessions[i]);
+            names[i] = "Игрок" + (i + 1);
+        }
+        for (int i = 0; i < CARD_COUNT; i++) {
+            cardOpenMessages[i] = Protocol.encode(Protocol.TYPE_CARD_OPEN, String.valueOf(i)).concat("\n")
+                    .getBytes(StandardCharsets.UTF_8);
+        }
+        Arrays.fill(knownValues, -1);
+
+        for (int i = 0; i < PLAYERS; i++) {
+            send(i, Protocol.encode(Protocol.TYPE_CONNECT, names[i], "alloc-check").concat("\n")
+                    .getBytes(StandardCharsets.UTF_8));
+        }
+        observer.takeCaptured();
+
+        // Прогрев: код компилируется JIT, учитываются только партии после него
+        for (int game = 0; game < WARMUP_GAMES; game++) {
+            playGame();
+        }
+        firstCard = new Allocations();
+        miss = new Allocations();
+        match = new Allocations();
+        turnEnd = new Allocations();
+        gameEnd = new Allocations();
+        chat = new Allocations();
+        gamesPlayed = 0;
+        measurementOverhead = calibrate();
+        for (int game = 0; game < MEASURED_GAMES; game++) {
+            playGame();
+        }
+    }
+
+    @Test
+    void gamesAreFinishedAndRecorded() {
+        assertEquals(MEASURED_GAMES, gamesPlayed);
+        assertEquals(MEASURED_GAMES, gameEnd.messages);
+        // Каждая партия - 18 найденных пар
+        assertEquals(18L * MEASURED_GAMES, match.messages);
+        PlayerStats first = stats.getStats(names[0]);
+        assertEquals(WARMUP_GAMES + MEASURED_GAMES, first.getGames());
+    }
+
+    @Test
+    void firstCardOpen() {
+        assertWithinBudget("открытие первой карточки", firstCard, FIRST_CARD_BUDGET);
+    }
+
+    @Test
+    void secondCardOpenWithoutMatch() {
+        assertWithinBudget("открытие второй карточки без совпадения", miss, MISS_BUDGET);
+    }
+
+    @Test
+    void secondCardOpenWithMatch() {
+        assertWithinBudget("открытие второй карточки с совпадением", match, MATCH_BUDGET);
+    }
+
+    @Test
+    void turnEnd() {
+        assertWithinBudget("завершение хода", turnEnd, TURN_END_BUDGET);
+    }
+
+    @Test
+    void gameOver() {
+        assertWithinBudget("завершение партии", gameEnd, GAME_OVER_BUDGET);
+    }
+
+    @Test
+    void chatMessage() {
+        assertWithinBudget("сообщение чата", chat, CHAT_BUDGET);
+    }
+
+    private static void assertWithinBudget(String name, Allocations allocations, long limit) {
+        assertTrue(allocations.messages > 0, name + ": нет измерений");
+        double perMessage = allocations.perMessage();
+        assertTrue(perMessage <= limit,
+                String.format("%s: %.1f Б/сообщение при бюджете %d Б", name, perMessage, limit));
+        System.out.printf("%s: %.1f Б/сообщение (бюджет %d Б)%n", name, perMessage, limit);
+    }
+
+    /**
+     * Проигрывает партию от начала до сообщения о ее завершении.
+     * Каждый ход - две карточки, закрытие карточек по таймеру комнаты и одно сообщение чата.
+     *
+     * @throws IOException если произошла ошибка чтения из канала в памяти
+     */
+    private void playGame() throws IOException {
+        send(0, startMessage);
+        updateState();
+        assertTrue(gameStarted, "Партия не началась");
+
+        while (!gameOver) {
+            int player = indexOf(currentPlayer);
+            int first = pickFirst();
+            long start = allocatedBytes();
+            send(player, cardOpenMessages[first]);
+            firstCard.add(allocatedBytes() - start - measurementOverhead);
+            updateState();
+
+            // Без совпадения ход переходит к следующему игроку в той же рассылке
+            int second = pickSecond(first);
+            start = allocatedBytes();
+            send(player, cardOpenMessages[second]);
+            long allocated = allocatedBytes() - start - measurementOverhead;
+            updateState();
+            boolean pair = names[player].equals(currentPlayer);
+            (pair ? match : miss).add(allocated);
+
+            // Закрытие карточек по таймеру комнаты; после последней пары - завершение партии
+            boolean last = pair && isLastPair();
+            start = allocatedBytes();
+            fastForward();
+            (last ? gameEnd : turnEnd).add(allocatedBytes() - start - measurementOverhead);
+            updateState();
+
+            // Сообщение чата и его рассылка по таймеру пакетной отправки
+            start = allocatedBytes();
+            send(player, chatMessage);
+            fastForward();
+            chat.add(allocatedBytes() - start - measurementOverhead);
+            observer.takeCaptured();
+        }
+        gamesPlayed++;
+    }
+
+    /**
+     * Передает сообщение серверу от имени игрока и выполняет команды комнаты (как итерация цикла событий).
+     *
+     * @param player номер игрока
+     * @param data   сообщение с переводом строки
+     * @throws IOException если произошла ошибка чтения из канала в памяти
+     */
+    private void send(int player, byte[] data) throws IOException {
+        ((InMemorySocketChannel) sessions[player].getChannel()).feed(data);
+        connectionHandler.readClientData(sessions[player]);
+        roomManager.run(System.nanoTime());
+    }
+
+    /**
+     * Выполняет все отложенные задачи так, как будто прошло достаточно времени.
+     */
+    private void fastForward() {
+        long now = System.nanoTime() + FAST_FORWARD_NANOS;
+        scheduler.run(now);
+        roomManager.run(now);
+    }
+
+    /**
+     * Разбирает рассылки, полученные первым игроком, и запоминает состояние партии.
+     */
+    private void updateState() {
+        String received = observer.takeCaptured();
+        gameOver = received.contains(Protocol.TYPE_GAME_OVER + Protocol.SEPARATOR);
+        int stateStart = received.lastIndexOf(Protocol.TYPE_GAME_STATE + Protocol.SEPARATOR);
+        if (gameOver) {
+            // После завершения партии карточки раскладываются заново
+            Arrays.fill(knownValues, -1);
+            gameStarted = false;
+            return;
+        }
+        if (stateStart < 0) {
+            return;
+        }
+        int stateEnd = received.indexOf('\n', stateStart);
+        String json = received.substring(stateStart + 2, stateEnd < 0 ? received.length() : stateEnd);
+
+        GameStateParser.BoardState board = GameStateParser.parseBoard(json);
+        Arrays.fill(cardStates, "hidden");
+        for (Map.Entry<Integer, String> card : board.states().entrySet()) {
+            cardStates[card.getKey()] = card.getValue();
+        }
+        for (Map.Entry<Integer, Integer> image : board.images().entrySet()) {
+            knownValues[image.getKey()] = image.getValue();
+        }
+        currentPlayer = GameStateParser.parseCurrentPlayer(json);
+        gameStarted = GameStateParser.isGameStarted(json);
+    }
+
+    /**
+     * Выбирает первую карточку: карточку из известной пары, иначе закрытую карточку с неизвестным значением.
+     *
+     * @return позиция карточки
+     */
+    private int pickFirst() {
+        for (int i = 0; i < CARD_COUNT; i++) {
+            if ("hidden".equals(cardStates[i]) && knownValues[i] >= 0 && partnerOf(i) >= 0) {
+                return i;
+            }
+        }
+        for (int i = 0; i < CARD_COUNT; i++) {
+            if ("hidden".equals(cardStates[i]) && knownValues[i] < 0) {
+                return i;
+            }
+        }
+        throw new IllegalStateException("На поле нет карточек для хода");
+    }
+
+    /**
+     * Выбирает вторую карточку: пару первой, если она известна, иначе закрытую карточку с неизвестным значением.
+     *
+     * @param first позиция первой карточки
+     * @return позиция карточки
+     */
+    private int pickSecond(int first) {
+        int partner = partnerOf(first);
+        if (partner >= 0) {
+            return partner;
+        }
+        for (int i = 0; i < CARD_COUNT; i++) {
+            if (i != first && "hidden".equals(cardStates[i]) && knownValues[i] < 0) {
+                return i;
+            }
+        }
+        throw new IllegalStateException("На поле нет карточек для хода");
+    }
+
+    private int partnerOf(int card) {
+        for (int i = 0; i < CARD_COUNT; i++) {
+            if (i != card && "hidden".equals(cardStates[i]) && knownValues[i] == knownValues[card]) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private boolean isLastPair() {
+        for (String state : cardStates) {
+            if ("hidden".equals(state)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int indexOf(String name) {
+        for (int i = 0; i < PLAYERS; i++) {
+            if (names[i].equals(name)) {
+                return i;
+            }
+        }
+        throw new IllegalStateException("Неизвестный текущий игрок: " + name);
+    }
+
+    /**
+     * Измеряет выделение памяти самим вызовом измерения.
+     *
+     * @return погрешность в байтах
+     */
+    private static long calibrate() {
+        long min = Long.MAX_VALUE;
+        for (int i = 0; i < 1000; i++) {
+            long start = allocatedBytes();
+            min = Math.min(min, allocatedBytes() - start);
+        }
+        return min;
+    }
+
+    private static long allocatedBytes() {
+        return THREADS.getCurrentThreadAllocatedBytes();
+    }
+}
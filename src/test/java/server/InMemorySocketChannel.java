@@ -0,0 +1,190 @@
+package server;
+
+import java.io.IOException;
+import java.net.Socket;
+import java.net.SocketAddress;
+import java.net.SocketOption;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.channels.spi.SelectorProvider;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Set;
+
+/**
+ * Канал в памяти, который всегда подключен и принимает все записанные данные целиком.
+ * Позволяет измерять работу сервера без сети и без влияния ядра: запись только сдвигает позицию буфера
+ * (и при необходимости копирует данные в заранее выделенный массив), а чтение возвращает данные,
+ * переданные методом {@link #feed(byte[])}. Ни запись, ни чтение не выделяют памяти.
+ */
+final class InMemorySocketChannel extends SocketChannel {
+    // Данные, которые сервер прочитает из канала
+    private final ByteBuffer inbound = ByteBuffer.allocate(64 * 1024);
+    // Количество принятых байт
+    private long bytesWritten;
+
+    // Сохранять ли записанные данные и сами сохраненные данные
+    private boolean capture;
+    private byte[] captured = new byte[0];
+    private int capturedLength;
+
+    InMemorySocketChannel() {
+        super(SelectorProvider.provider());
+        inbound.flip();
+    }
+
+    /**
+     * Создает канал, сохраняющий записанные данные.
+     *
+     * @param captureCapacity начальный размер массива для записанных данных
+     * @return канал
+     */
+    static InMemorySocketChannel capturing(int captureCapacity) {
+        InMemorySocketChannel channel = new InMemorySocketChannel();
+        channel.capture = true;
+        channel.captured = new byte[captureCapacity];
+        return channel;
+    }
+
+    long getBytesWritten() {
+        return bytesWritten;
+    }
+
+    /**
+     * Добавляет данные, которые будут прочитаны из канала.
+     *
+     * @param data данные
+     */
+    void feed(byte[] data) {
+        inbound.compact();
+        inbound.put(data);
+        inbound.flip();
+    }
+
+    /**
+     * Возвращает записанные в канал данные и очищает их.
+     *
+     * @return записанные данные в кодировке UTF-8
+     */
+    String takeCaptured() {
+        String text = new String(captured, 0, capturedLength, StandardCharsets.UTF_8);
+        capturedLength = 0;
+        return text;
+    }
+
+    @Override
+    public int write(ByteBuffer src) {
+        int length = src.remaining();
+        if (capture) {
+            if (capturedLength + length > captured.length) {
+                captured = Arrays.copyOf(captured, Math.max(captured.length * 2, capturedLength + length));
+            }
+            src.get(captured, capturedLength, length);
+            capturedLength += length;
+        } else {
+            src.position(src.limit());
+        }
+        bytesWritten += length;
+        return length;
+    }
+
+    @Override
+    public long write(ByteBuffer[] srcs, int offset, int length) {
+        long total = 0;
+        for (int i = offset; i < offset + length; i++) {
+            total += write(srcs[i]);
+        }
+        return total;
+    }
+
+    @Override
+    public int read(ByteBuffer dst) {
+        int length = Math.min(dst.remaining(), inbound.remaining());
+        dst.put(dst.position(), inbound, inbound.position(), length);
+        dst.position(dst.position() + length);
+        inbound.position(inbound.position() + length);
+        return length;
+    }
+
+    @Override
+    public long read(ByteBuffer[] dsts, int offset, int length) {
+        long total = 0;
+        for (int i = offset; i < offset + length; i++) {
+            total += read(dsts[i]);
+        }
+        return total;
+    }
+
+    @Override
+    public boolean isConnected() {
+        return true;
+    }
+
+    @Override
+    public boolean isConnectionPending() {
+        return false;
+    }
+
+    @Override
+    public boolean connect(SocketAddress remote) {
+        return true;
+    }
+
+    @Override
+    public boolean finishConnect() {
+        return true;
+    }
+
+    @Override
+    public SocketAddress getRemoteAddress() {
+        return null;
+    }
+
+    @Override
+    public SocketAddress getLocalAddress() {
+        return null;
+    }
+
+    @Override
+    public SocketChannel bind(SocketAddress local) {
+        return this;
+    }
+
+    @Override
+    public <T> SocketChannel setOption(SocketOption<T> name, T value) {
+        return this;
+    }
+
+    @Override
+    public <T> T getOption(SocketOption<T> name) {
+        return null;
+    }
+
+    @Override
+    public Set<SocketOption<?>> supportedOptions() {
+        return Set.of();
+    }
+
+    @Override
+    public SocketChannel shutdownInput() {
+        return this;
+    }
+
+    @Override
+    public SocketChannel shutdownOutput() {
+        return this;
+    }
+
+    @Override
+    public Socket socket() {
+        throw new UnsupportedOperationException("Канал в памяти не имеет сокета");
+    }
+
+    @Override
+    protected void implCloseSelectableChannel() throws IOException {
+    }
+
+    @Override
+    protected void implConfigureBlocking(boolean block) throws IOException {
+    }
+}